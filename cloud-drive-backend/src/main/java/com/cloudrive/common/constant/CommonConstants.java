@@ -23,6 +23,48 @@ public class CommonConstants {
     public static class File {
         public static final String SLASH = "/";
         public static final String FILE_PATH_PREFIX = "user_";
+        // 文件列表每页条数
+        public static final int DEFAULT_PAGE_SIZE = 100;
+        public static final int MAX_PAGE_SIZE = 1000;
+        // 祖先路径：根目录下的项为 /，其余为父项的祖先路径加父项ID与 /
+        public static final String ROOT_ANCESTOR_PATH = "/";
+        public static final int MAX_ANCESTOR_PATH_LENGTH = 2000;
+        // 文件列表缓存
+        public static final String LIST_CACHE_PREFIX = "file:list:";
+        public static final String LIST_GENERATION_PREFIX = "file:list:gen:";
+        public static final String LIST_LOCK_PREFIX = "file:list:lock:";
+        public static final String LIST_INVALIDATE_TOPIC = "file:list:invalidate";
+    }
+    
+    /**
+     * 上传相关常量
+     */
+    public static class Upload {
+        public static final String STREAM_PATH = "/files/stream";
+        public static final String FILE_FIELD = "file";
+        public static final String PARENT_ID_FIELD = "parentId";
+        public static final String FINALIZE_STREAM = "upload:finalize:stream";
+        public static final String FINALIZE_GROUP = "upload-finalizers";
+        // 增量上传的块签名缓存，按内容哈希与块大小组织
+        public static final String DELTA_SIGNATURE_PREFIX = "upload:delta:sig:";
+        public static final String DELTA_SIGNATURE_LOCK_PREFIX = "upload:delta:sig:lock:";
+    }
+    
+    /**
+     * 传输限速相关常量
+     */
+    public static class Traffic {
+        // 登录会话中保存用户等级的键
+        public static final String SESSION_TIER_KEY = "tier";
+    }
+    
+    /**
+     * 文件哈希相关常量
+     */
+    public static class Hash {
+        public static final int TREE_CHUNK_SIZE = 4 * 1024 * 1024;
+        // 超过该大小的文件额外计算树哈希
+        public static final long TREE_HASH_THRESHOLD = 64L * 1024 * 1024;
     }
     
     /**
@@ -11,6 +11,11 @@ public class ShareConstants {
     public static class Redis {
         public static final String TOKEN_PREFIX = "share_token:";
         public static final String SHARE_QUEUE = "share:expire:queue";
+        public static final String RESOLVED_PREFIX = "share:resolved:";
+        public static final String RESOLVED_INVALIDATE_TOPIC = "share:resolved:invalidate";
+        public static final String RESOLVED_GENERATION_PREFIX = "share:resolved:gen:";
+        public static final String DOWNLOAD_STATS_PREFIX = "share:download:stats:";
+        public static final String HOT_WINDOW_PREFIX = "share:hot:";
     }
     
     /**
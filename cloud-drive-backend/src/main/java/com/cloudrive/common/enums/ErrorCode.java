@@ -37,13 +37,25 @@ public enum ErrorCode {
     // ---------- 业务规则 ----------
     FOLDER_NOT_EMPTY(10400, 400, "文件夹不为空，无法删除"),
     CANNOT_DOWNLOAD_FOLDER(10400, 400, "不能下载文件夹"),
+    NOT_A_FOLDER(10400, 400, "只能打包下载文件夹"),
+    TARGET_NOT_FOLDER(10400, 400, "目标不是文件夹"),
+    INVALID_MOVE_TARGET(10400, 400, "不能移动到自身或其子文件夹中"),
+    FOLDER_TOO_DEEP(10400, 400, "文件夹层级过深"),
+    INVALID_CURSOR(10400, 400, "分页游标无效"),
+    INVALID_SORT(10400, 400, "不支持的排序字段"),
     INVALID_FILENAME(10400, 400, "新文件名不能为空"),
     USERNAME_EXISTS(10400, 400, "用户名已存在"),
     ACCOUNT_DISABLED(10400, 400, "账号已被禁用"),
     FILE_TOO_LARGE(10413, 413, "文件过大，超出上传限制"),
+    INVALID_DELTA(10400, 400, "增量数据格式错误"),
+    INVALID_PARENT_ID(10400, 400, "父文件夹ID格式错误"),
+    INVALID_ARCHIVE(10400, 400, "压缩包格式错误"),
+    TOO_MANY_ENTRIES(10413, 413, "压缩包条目过多"),
+    QUOTA_EXCEEDED(10507, 507, "存储空间不足"),
 
     // ---------- 系统/OSS ----------
     OSS_DISABLED(1503, 503, "OSS存储服务未启用"),
+    SPOOL_SPACE_INSUFFICIENT(1503, 503, "服务器上传缓冲空间不足，请稍后重试"),
     OSS_UPLOAD_FAILED(1500, 500, "文件上传到OSS失败"),
     OSS_DOWNLOAD_FAILED(1500, 500, "从OSS下载文件失败"),
     OSS_DELETE_FAILED(1500, 500, "从OSS删除文件失败"),
@@ -0,0 +1,47 @@
+package com.cloudrive.common.enums;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.util.function.Function;
+
+/**
+ * 文件列表排序字段
+ * 每个字段都有 (user_id, parent_id, isDeleted, 排序列, id) 的联合索引（见 V2__hot_query_indexes.sql），按 id 打破并列，保证分页稳定
+ */
+@Getter
+public enum FileSortField {
+    NAME("filename", value -> value),
+    SIZE("file_size", Long::valueOf),
+    TYPE("file_type", value -> value),
+    UPDATED("updated_at", LocalDateTime::parse);
+
+    /**
+     * 排序列名
+     */
+    private final String column;
+
+    /**
+     * 把游标中的排序值还原为列值
+     */
+    private final Function<String, Object> parser;
+
+    FileSortField(String column, Function<String, Object> parser) {
+        this.column = column;
+        this.parser = parser;
+    }
+
+    /**
+     * 按名称查找排序字段，不区分大小写
+     *
+     * @return 排序字段，名称无效时返回null
+     */
+    public static FileSortField of(String name) {
+        for (FileSortField field : values()) {
+            if (field.name().equalsIgnoreCase(name)) {
+                return field;
+            }
+        }
+        return null;
+    }
+}
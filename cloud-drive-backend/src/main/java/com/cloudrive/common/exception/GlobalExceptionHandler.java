@@ -7,6 +7,7 @@ import com.cloudrive.common.result.Result;
 import jakarta.validation.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.FieldError;
@@ -71,6 +72,17 @@ public class GlobalExceptionHandler {
                 .body(Result.error(429, "请求过于频繁，请稍后再试"));
     }
 
+    /**
+     * 传输内存预算不足异常
+     */
+    @ExceptionHandler(TransferOverloadedException.class)
+    public ResponseEntity<Result<Void>> handleTransferOverloaded(TransferOverloadedException e) {
+        return ResponseEntity
+                .status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(Math.max(1, e.getRetryAfter().toSeconds())))
+                .body(Result.error(503, e.getMessage()));
+    }
+
     /**
      * 处理 @Valid 参数校验失败异常
      */
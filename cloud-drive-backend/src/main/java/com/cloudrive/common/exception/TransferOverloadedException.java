@@ -0,0 +1,19 @@
+package com.cloudrive.common.exception;
+
+import lombok.Getter;
+
+import java.time.Duration;
+
+/**
+ * 传输内存预算不足异常，响应 503 并通过 Retry-After 提示客户端重试时间
+ */
+@Getter
+public class TransferOverloadedException extends RuntimeException {
+
+    private final Duration retryAfter;
+
+    public TransferOverloadedException(String message, Duration retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+}
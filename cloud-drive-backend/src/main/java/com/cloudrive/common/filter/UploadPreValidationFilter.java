@@ -0,0 +1,174 @@
+package com.cloudrive.common.filter;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.result.Result;
+import com.cloudrive.config.properties.StreamingUploadProperties;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.service.QuotaService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 上传请求预校验过滤器
+ * <p>
+ * 在读取请求体之前，仅根据请求头和查询参数校验登录状态、声明的大小、剩余配额以及父文件夹的有效性和权限。
+ * 连接器配置为读取请求体时才发送 100 Continue，因此携带 Expect: 100-continue 的客户端在被拒绝时不会发送请求体。
+ * 不能调用 getParameter，否则容器会读取并解析请求体。
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE + 20)
+public class UploadPreValidationFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadPreValidationFilter.class);
+
+    private static final String[] MULTIPART_UPLOAD_PATHS = { "/files", "/files/progress", "/files/*/delta" };
+    private static final String BATCH_UPLOAD_PATH = "/files/batch";
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    private final QuotaService quotaService;
+    private final FileInfoRepository fileInfoRepository;
+    private final MultipartProperties multipartProperties;
+    private final StreamingUploadProperties streamingUploadProperties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    public UploadPreValidationFilter(QuotaService quotaService, FileInfoRepository fileInfoRepository, MultipartProperties multipartProperties,
+                                     StreamingUploadProperties streamingUploadProperties, ObjectMapper objectMapper, MeterRegistry meterRegistry) {
+        this.quotaService = quotaService;
+        this.fileInfoRepository = fileInfoRepository;
+        this.multipartProperties = multipartProperties;
+        this.streamingUploadProperties = streamingUploadProperties;
+        this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !HttpMethod.POST.matches(request.getMethod()) || getMaxRequestSize(getPath(request)) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        try {
+            validate(request);
+        } catch (BusinessException e) {
+            reject(request, response, ErrorCode.getByCode(e.getCode()), e.getCode(), e.getMessage());
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private void validate(HttpServletRequest request) {
+        // 1. 登录状态：只从请求头或 Cookie 读取令牌
+        Object loginId = StpUtil.getLoginIdByToken(getToken(request));
+        if (loginId == null) {
+            throw new BusinessException(ErrorCode.USER_NOT_LOGGED_IN);
+        }
+        Long userId = Long.valueOf(loginId.toString());
+
+        // 2. 声明的大小，分块传输时没有 Content-Length，由后续环节限制
+        long declaredSize = request.getContentLengthLong();
+        Long maxRequestSize = getMaxRequestSize(getPath(request));
+        if (declaredSize > 0 && maxRequestSize > 0 && declaredSize > maxRequestSize) {
+            throw new BusinessException(ErrorCode.FILE_TOO_LARGE);
+        }
+
+        // 3. 剩余配额
+        if (declaredSize > 0) {
+            quotaService.checkQuota(userId, declaredSize);
+        }
+
+        // 4. 父文件夹有效性和权限，仅校验查询参数中的 parentId
+        String parentIdValue = UriComponentsBuilder.newInstance().query(request.getQueryString()).build()
+                .getQueryParams().getFirst(CommonConstants.Upload.PARENT_ID_FIELD);
+        if (parentIdValue != null && !parentIdValue.isBlank()) {
+            Long parentId;
+            try {
+                parentId = Long.valueOf(parentIdValue.trim());
+            } catch (NumberFormatException e) {
+                throw new BusinessException(ErrorCode.INVALID_PARENT_ID);
+            }
+            FileInfo parent = fileInfoRepository.findById(parentId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
+            if (!parent.getUser().getId().equals(userId)) {
+                throw new BusinessException(ErrorCode.NO_PERMISSION);
+            }
+            if (parent.getIsDeleted() || !parent.getIsFolder()) {
+                throw new BusinessException(ErrorCode.FILE_NOT_FOUND);
+            }
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, ErrorCode errorCode, int code, String message) throws IOException {
+        logger.warn("Upload rejected before reading body: path={}, code={}, message={}, contentLength={}",
+                getPath(request), code, message, request.getContentLengthLong());
+        meterRegistry.counter("upload.prevalidation.rejected", "code", String.valueOf(code)).increment();
+
+        response.setStatus(errorCode.getHttpStatus());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        // 未等待 100 Continue 的客户端可能已在发送请求体，关闭连接以免继续接收
+        response.setHeader(HttpHeaders.CONNECTION, "close");
+        objectMapper.writeValue(response.getOutputStream(), Result.error(code, message));
+    }
+
+    /**
+     * 获取接口的请求体大小上限，不大于0表示不限，非上传接口返回null
+     */
+    private Long getMaxRequestSize(String path) {
+        for (String pattern : MULTIPART_UPLOAD_PATHS) {
+            if (pathMatcher.match(pattern, path)) {
+                return multipartProperties.getMaxRequestSize().toBytes();
+            }
+        }
+        if (CommonConstants.Upload.STREAM_PATH.equals(path)) {
+            return streamingUploadProperties.getMaxFileSize().toBytes();
+        }
+        if (BATCH_UPLOAD_PATH.equals(path)) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private String getPath(HttpServletRequest request) {
+        return request.getRequestURI().substring(request.getContextPath().length());
+    }
+
+    private String getToken(HttpServletRequest request) {
+        String tokenName = StpUtil.getTokenName();
+        String token = request.getHeader(tokenName);
+        if (token == null && request.getCookies() != null) {
+            for (Cookie cookie : request.getCookies()) {
+                if (tokenName.equals(cookie.getName())) {
+                    return cookie.getValue();
+                }
+            }
+        }
+        return token;
+    }
+}
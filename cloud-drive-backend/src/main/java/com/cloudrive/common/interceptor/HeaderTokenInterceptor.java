@@ -0,0 +1,27 @@
+package com.cloudrive.common.interceptor;
+
+import cn.dev33.satoken.exception.NotLoginException;
+import cn.dev33.satoken.stp.StpUtil;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.util.StringUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * 仅从请求头读取登录令牌的拦截器
+ * <p>
+ * Sa-Token 默认先从请求参数读取令牌，对 multipart 请求调用 getParameter 会使容器解析并缓冲整个请求体。
+ * 对自行流式读取请求体的接口，先将请求头中的令牌写入 Sa-Token 的请求存储，后续鉴权和限流都不再读取请求参数。
+ */
+public class HeaderTokenInterceptor implements HandlerInterceptor {
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String token = request.getHeader(StpUtil.getTokenName());
+        if (!StringUtils.hasText(token)) {
+            throw NotLoginException.newInstance(StpUtil.getLoginType(), NotLoginException.NOT_TOKEN, NotLoginException.NOT_TOKEN_MESSAGE, null);
+        }
+        StpUtil.setTokenValueToStorage(token);
+        return true;
+    }
+}
@@ -0,0 +1,111 @@
+package com.cloudrive.common.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 无锁 Count-Min Sketch
+ * 以固定内存估计各键的出现次数，估计值不小于真实值，误差随宽度增大而减小。
+ * 每行以不同种子对键的 UTF-8 字节计算 murmur3 哈希，各行相互独立，
+ * 两个键需在每一行同时冲突才会互相抬高估计值
+ */
+public class CountMinSketch {
+
+    private static final int[] SEEDS = {
+            0x9E3779B9, 0xC2B2AE3D, 0x165667B1, 0xD6E8FEB8,
+            0xFF51AFD7, 0xC4CEB9FE, 0x27D4EB2F, 0x85EBCA77
+    };
+
+    private final int depth;
+    private final int mask;
+    private final AtomicLongArray counters;
+
+    /**
+     * @param depth 行数（哈希函数个数），最多8
+     * @param width 每行的计数器个数，向上取整为2的幂
+     */
+    public CountMinSketch(int depth, int width) {
+        if (depth < 1 || depth > SEEDS.length) {
+            throw new IllegalArgumentException("depth must be between 1 and " + SEEDS.length);
+        }
+        int size = Integer.highestOneBit(Math.max(2, width) - 1) << 1;
+        this.depth = depth;
+        this.mask = size - 1;
+        this.counters = new AtomicLongArray(depth * size);
+    }
+
+    /**
+     * 计数加一
+     *
+     * @return 加一后的估计次数
+     */
+    public long increment(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.incrementAndGet(index(row, bytes)));
+        }
+        return estimate;
+    }
+
+    /**
+     * 估计次数
+     */
+    public long estimate(String key) {
+        byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters.get(index(row, bytes)));
+        }
+        return estimate;
+    }
+
+    private int index(int row, byte[] key) {
+        return row * (mask + 1) + (murmur3(key, SEEDS[row]) & mask);
+    }
+
+    /**
+     * MurmurHash3 x86 32位
+     */
+    static int murmur3(byte[] data, int seed) {
+        final int c1 = 0xCC9E2D51;
+        final int c2 = 0x1B873593;
+        int h = seed;
+        int blocks = data.length >>> 2;
+        for (int i = 0; i < blocks; i++) {
+            int offset = i << 2;
+            int k = (data[offset] & 0xFF) | (data[offset + 1] & 0xFF) << 8
+                    | (data[offset + 2] & 0xFF) << 16 | (data[offset + 3] & 0xFF) << 24;
+            k *= c1;
+            k = Integer.rotateLeft(k, 15);
+            k *= c2;
+            h ^= k;
+            h = Integer.rotateLeft(h, 13);
+            h = h * 5 + 0xE6546B64;
+        }
+
+        int tail = blocks << 2;
+        int k = 0;
+        switch (data.length & 3) {
+            case 3:
+                k ^= (data[tail + 2] & 0xFF) << 16;
+            case 2:
+                k ^= (data[tail + 1] & 0xFF) << 8;
+            case 1:
+                k ^= data[tail] & 0xFF;
+                k *= c1;
+                k = Integer.rotateLeft(k, 15);
+                k *= c2;
+                h ^= k;
+            default:
+        }
+
+        h ^= data.length;
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
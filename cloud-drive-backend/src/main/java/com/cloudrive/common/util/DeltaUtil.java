@@ -0,0 +1,180 @@
+package com.cloudrive.common.util;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.model.vo.BlockSignatureVO;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 增量上传工具类（rsync 风格）
+ * <p>
+ * 服务端将已有文件按固定大小分块，为每块计算弱校验（滚动校验和）和强校验（MD5）。
+ * 客户端用滚动校验和在新文件中逐字节查找匹配块，只上传未匹配的字面数据和块引用。
+ * <p>
+ * 增量数据格式（大端序）：
+ * <pre>
+ *   OP_COPY    (1 byte) + 块序号 (int)
+ *   OP_LITERAL (1 byte) + 长度 (int) + 字面数据
+ *   OP_END     (1 byte)
+ * </pre>
+ */
+public class DeltaUtil {
+
+    public static final int DEFAULT_BLOCK_SIZE = 64 * 1024;
+
+    public static final byte OP_END = 0;
+    public static final byte OP_COPY = 1;
+    public static final byte OP_LITERAL = 2;
+
+    /**
+     * 单条字面数据的最大长度，防止恶意数据导致超大分配
+     */
+    private static final int MAX_LITERAL_LENGTH = 8 * 1024 * 1024;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 计算数据块的弱校验和（rsync 滚动校验和，a + b * 2^16）
+     *
+     * @param buf 数据
+     * @param off 起始位置
+     * @param len 长度
+     * @return 弱校验和
+     */
+    public static int weakChecksum(byte[] buf, int off, int len) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < len; i++) {
+            int v = buf[off + i] & 0xff;
+            a += v;
+            b += (len - i) * v;
+        }
+        return (a & 0xffff) | (b << 16);
+    }
+
+    /**
+     * 将窗口向后滚动一个字节，更新弱校验和
+     *
+     * @param checksum 当前窗口的弱校验和
+     * @param out      移出窗口的字节
+     * @param in       移入窗口的字节
+     * @param blockLen 窗口长度
+     * @return 新窗口的弱校验和
+     */
+    public static int roll(int checksum, byte out, byte in, int blockLen) {
+        int a = checksum & 0xffff;
+        int b = checksum >>> 16;
+        int o = out & 0xff;
+        a = (a - o + (in & 0xff)) & 0xffff;
+        b = (b - blockLen * o + a) & 0xffff;
+        return a | (b << 16);
+    }
+
+    /**
+     * 逐块计算输入流的签名
+     *
+     * @param inputStream 已有文件内容
+     * @param blockSize   块大小
+     * @return 块签名列表，最后一块可能小于块大小
+     */
+    public static List<BlockSignatureVO> computeSignatures(InputStream inputStream, int blockSize) throws IOException {
+        MessageDigest md5 = newMd5();
+        List<BlockSignatureVO> signatures = new ArrayList<>();
+        byte[] block = new byte[blockSize];
+        int index = 0;
+        int read;
+        while ((read = inputStream.readNBytes(block, 0, blockSize)) > 0) {
+            BlockSignatureVO signature = new BlockSignatureVO();
+            signature.setIndex(index++);
+            signature.setWeak(weakChecksum(block, 0, read));
+            md5.update(block, 0, read);
+            signature.setStrong(FileHashUtil.bytesToHex(md5.digest()));
+            signatures.add(signature);
+            if (read < blockSize) {
+                break;
+            }
+        }
+        return signatures;
+    }
+
+    /**
+     * 根据已有文件和增量数据重建新文件
+     *
+     * @param base      已有文件
+     * @param blockSize 块大小
+     * @param delta     增量数据
+     * @param out       新文件输出
+     * @param maxOutput 新文件的大小上限，重复引用块可以用很少的增量数据写出任意大的文件，超出时抛出 FILE_TOO_LARGE
+     * @return 写出的字节数
+     */
+    public static long applyDelta(RandomAccessFile base, int blockSize, InputStream delta, OutputStream out, long maxOutput) throws IOException {
+        long baseLength = base.length();
+        long blockCount = (baseLength + blockSize - 1) / blockSize;
+        DataInputStream in = new DataInputStream(delta);
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        long written = 0;
+
+        while (true) {
+            byte op;
+            try {
+                op = in.readByte();
+            } catch (EOFException e) {
+                ExceptionUtil.throwBizException(ErrorCode.INVALID_DELTA, "增量数据缺少结束标记");
+                return written;
+            }
+
+            switch (op) {
+                case OP_END -> {
+                    return written;
+                }
+                case OP_COPY -> {
+                    int index = in.readInt();
+                    ExceptionUtil.throwIf(index < 0 || index >= blockCount, ErrorCode.INVALID_DELTA, "块序号越界: " + index);
+                    long offset = (long) index * blockSize;
+                    int remaining = (int) Math.min(blockSize, baseLength - offset);
+                    ExceptionUtil.throwIf(written + remaining > maxOutput, ErrorCode.FILE_TOO_LARGE);
+                    base.seek(offset);
+                    while (remaining > 0) {
+                        int n = base.read(buffer, 0, Math.min(buffer.length, remaining));
+                        if (n < 0) {
+                            throw new EOFException("Unexpected end of base file");
+                        }
+                        out.write(buffer, 0, n);
+                        remaining -= n;
+                        written += n;
+                    }
+                }
+                case OP_LITERAL -> {
+                    int length = in.readInt();
+                    ExceptionUtil.throwIf(length < 0 || length > MAX_LITERAL_LENGTH, ErrorCode.INVALID_DELTA, "字面数据长度非法: " + length);
+                    ExceptionUtil.throwIf(written + length > maxOutput, ErrorCode.FILE_TOO_LARGE);
+                    int remaining = length;
+                    while (remaining > 0) {
+                        int n = in.read(buffer, 0, Math.min(buffer.length, remaining));
+                        ExceptionUtil.throwIf(n < 0, ErrorCode.INVALID_DELTA, "字面数据不完整");
+                        out.write(buffer, 0, n);
+                        remaining -= n;
+                    }
+                    written += length;
+                }
+                default -> ExceptionUtil.throwBizException(ErrorCode.INVALID_DELTA, "未知的增量操作: " + op);
+            }
+        }
+    }
+
+    private static MessageDigest newMd5() {
+        try {
+            return MessageDigest.getInstance("MD5");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5算法不可用", e);
+        }
+    }
+}
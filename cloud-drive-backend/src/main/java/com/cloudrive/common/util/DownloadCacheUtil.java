@@ -0,0 +1,55 @@
+package com.cloudrive.common.util;
+
+import com.cloudrive.model.vo.FileDownloadVO;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import java.time.ZoneId;
+
+/**
+ * 下载缓存工具类
+ * 以文件内容的SHA-256作为强 ETag、更新时间作为 Last-Modified，条件请求只需文件元数据即可判断是否返回 304
+ */
+public class DownloadCacheUtil {
+
+    /**
+     * 下载内容受访问控制，只允许私有缓存，且每次使用前须重新验证
+     */
+    private static final CacheControl CACHE_CONTROL = CacheControl.noCache().cachePrivate();
+
+    /**
+     * 判断客户端缓存是否仍然有效（If-None-Match 优先于 If-Modified-Since）
+     * 只读取请求头，不修改响应
+     */
+    public static boolean isNotModified(HttpServletRequest request, FileDownloadVO file) {
+        return new ServletWebRequest(request).checkNotModified(etagOf(file), lastModifiedOf(file));
+    }
+
+    /**
+     * 下载响应的缓存相关响应头
+     */
+    public static HttpHeaders cacheHeaders(FileDownloadVO file) {
+        HttpHeaders headers = new HttpHeaders();
+        String etag = etagOf(file);
+        if (etag != null) {
+            headers.setETag(etag);
+        }
+        long lastModified = lastModifiedOf(file);
+        if (lastModified > 0) {
+            headers.setLastModified(lastModified);
+        }
+        headers.setCacheControl(CACHE_CONTROL);
+        return headers;
+    }
+
+    private static String etagOf(FileDownloadVO file) {
+        String sha256Hash = file.getSha256Hash();
+        return sha256Hash != null && !sha256Hash.isEmpty() ? "\"" + sha256Hash + "\"" : null;
+    }
+
+    private static long lastModifiedOf(FileDownloadVO file) {
+        return file.getUpdatedAt() != null ? file.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : -1;
+    }
+}
@@ -1,4 +1,5 @@
 package com.cloudrive.common.util;
+import lombok.Data;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.web.multipart.MultipartFile;
@@ -7,16 +8,56 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * 文件哈希计算工具类
+ * <p>
+ * 摘要对象和读缓冲区按线程复用，缓冲区都在堆上：文件通过 FileInputStream 读入较大的堆缓冲区，
+ * 不经过 FileChannel，JDK 不会为每个线程缓存同样大小的临时直接内存；
+ * 输入流顺序读取，不再 mark/reset，避免整个上传内容被缓冲在内存中。
  */
 public class FileHashUtil {
 
     private static final Logger logger = LoggerFactory.getLogger(FileHashUtil.class);
-    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * 文件读取使用的堆缓冲区大小
+     */
+    private static final int FILE_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * 输入流读取使用的堆缓冲区大小
+     */
+    private static final int STREAM_BUFFER_SIZE = 64 * 1024;
+
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final ThreadLocal<MessageDigest> SHA256_DIGEST = ThreadLocal.withInitial(FileHashUtil::newSha256);
+
+    private static final ThreadLocal<byte[]> FILE_BUFFER = ThreadLocal.withInitial(() -> new byte[FILE_BUFFER_SIZE]);
+
+    private static final ThreadLocal<byte[]> STREAM_BUFFER = ThreadLocal.withInitial(() -> new byte[STREAM_BUFFER_SIZE]);
+
+    /**
+     * 树哈希专用的 fork-join 线程池，避免占用公共池
+     */
+    private static final ForkJoinPool TREE_HASH_POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * 每个叶子任务至少处理的块数，避免任务拆分过细
+     */
+    private static final int TREE_HASH_LEAF_CHUNKS = 2;
 
     /**
      * 计算MultipartFile的SHA-256哈希值
@@ -38,7 +79,7 @@ public class FileHashUtil {
     }
     
     /**
-     * 计算File的SHA-256哈希值
+     * 计算File的SHA-256哈希值，读入线程复用的堆缓冲区
      *
      * @param file 文件对象
      * @return SHA-256哈希值的十六进制字符串表示，如果计算失败则返回null
@@ -49,7 +90,13 @@ public class FileHashUtil {
         }
 
         try (FileInputStream inputStream = new FileInputStream(file)) {
-            return calculateSHA256(inputStream);
+            MessageDigest digest = sha256();
+            byte[] buffer = FILE_BUFFER.get();
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+            return bytesToHex(digest.digest());
         } catch (IOException e) {
             logger.error("计算文件SHA-256哈希值时发生IO错误", e);
             return null;
@@ -58,6 +105,8 @@ public class FileHashUtil {
 
     /**
      * 计算输入流的SHA-256哈希值
+     * <p>
+     * 会读取到流末尾且不会重置流位置，需要再次读取内容的调用方应自行重新打开流。
      *
      * @param inputStream 输入流
      * @return SHA-256哈希值的十六进制字符串表示，如果计算失败则返回null
@@ -68,53 +117,246 @@ public class FileHashUtil {
         }
 
         try {
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            byte[] buffer = new byte[BUFFER_SIZE];
+            MessageDigest digest = sha256();
+            byte[] buffer = STREAM_BUFFER.get();
             int bytesRead;
+            while ((bytesRead = inputStream.read(buffer)) != -1) {
+                digest.update(buffer, 0, bytesRead);
+            }
+            return bytesToHex(digest.digest());
+        } catch (IOException e) {
+            logger.error("计算SHA-256哈希值时发生IO错误", e);
+            return null;
+        }
+    }
 
-            // 重置输入流位置（如果支持）
-            if (inputStream.markSupported()) {
-                inputStream.mark(Integer.MAX_VALUE);
+    /**
+     * 创建新的SHA-256摘要对象，用于可能跨线程使用的场景
+     */
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256算法不可用", e);
+        }
+    }
+
+    /**
+     * 获取当前线程复用的SHA-256摘要对象（已重置）
+     * <p>
+     * 调用方须在同一线程内用完并调用 digest()，不得跨线程传递。
+     */
+    public static MessageDigest sha256() {
+        MessageDigest digest = SHA256_DIGEST.get();
+        digest.reset();
+        return digest;
+    }
+
+    /**
+     * 并行计算文件的树哈希（按固定大小分块的 Merkle 树）
+     * <p>
+     * 每块通过内存映射读取并在 fork-join 线程池中并行计算 SHA-256，
+     * 父节点为左右子节点摘要拼接后的 SHA-256，奇数个节点时最后一个节点直接上提。
+     *
+     * @param file      文件对象
+     * @param chunkSize 块大小
+     * @return 树哈希结果，如果计算失败则返回null
+     */
+    public static TreeHash calculateTreeHash(File file, int chunkSize) {
+        if (file == null || !file.exists() || !file.isFile()) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            int chunkCount = (int) Math.max(1, (size + chunkSize - 1) / chunkSize);
+            byte[][] chunkDigests = new byte[chunkCount][];
+
+            TREE_HASH_POOL.invoke(new ChunkHashTask(channel, size, chunkSize, chunkDigests, 0, chunkCount));
+
+            List<String> chunkHashes = new ArrayList<>(chunkCount);
+            for (byte[] chunkDigest : chunkDigests) {
+                chunkHashes.add(bytesToHex(chunkDigest));
             }
 
-            try {
-                while ((bytesRead = inputStream.read(buffer)) != -1) {
-                    digest.update(buffer, 0, bytesRead);
-                }
+            TreeHash treeHash = new TreeHash();
+            treeHash.setChunkSize(chunkSize);
+            treeHash.setChunkHashes(chunkHashes);
+            treeHash.setRootHash(bytesToHex(merkleRoot(chunkDigests)));
+            return treeHash;
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("计算文件树哈希时发生IO错误", e);
+            return null;
+        }
+    }
+
+    /**
+     * 一次顺序读取同时计算文件的SHA-256与树哈希
+     * <p>
+     * 每次读入的数据同时更新整体摘要与当前块的摘要，读取不跨越块边界，结果与分别调用
+     * {@link #calculateSHA256(File)} 和 {@link #calculateTreeHash(File, int)} 相同，文件只读一遍。
+     *
+     * @param file      文件对象
+     * @param chunkSize 块大小
+     * @return 哈希结果，如果计算失败则返回null
+     */
+    public static FileHashes calculateHashes(File file, int chunkSize) {
+        if (file == null || !file.exists() || !file.isFile()) {
+            return null;
+        }
 
-                // 重置输入流位置（如果支持）
-                if (inputStream.markSupported()) {
-                    inputStream.reset();
+        try (FileInputStream inputStream = new FileInputStream(file)) {
+            MessageDigest fileDigest = sha256();
+            MessageDigest chunkDigest = newSha256();
+            byte[] buffer = FILE_BUFFER.get();
+            List<byte[]> chunkDigests = new ArrayList<>();
+            long chunkRemaining = chunkSize;
+            int bytesRead;
+            while ((bytesRead = inputStream.read(buffer, 0, (int) Math.min(buffer.length, chunkRemaining))) != -1) {
+                fileDigest.update(buffer, 0, bytesRead);
+                chunkDigest.update(buffer, 0, bytesRead);
+                chunkRemaining -= bytesRead;
+                if (chunkRemaining == 0) {
+                    chunkDigests.add(chunkDigest.digest());
+                    chunkRemaining = chunkSize;
                 }
+            }
+            // 末尾不足一块的部分，空文件按一个空块计算
+            if (chunkRemaining < chunkSize || chunkDigests.isEmpty()) {
+                chunkDigests.add(chunkDigest.digest());
+            }
 
-                byte[] hashBytes = digest.digest();
-                return bytesToHex(hashBytes);
-            } catch (IOException e) {
-                logger.error("计算SHA-256哈希值时发生IO错误", e);
-                return null;
+            // merkleRoot 复用线程的摘要对象，须先取出整体摘要
+            FileHashes hashes = new FileHashes();
+            hashes.setSha256Hash(bytesToHex(fileDigest.digest()));
+            byte[][] leaves = chunkDigests.toArray(new byte[0][]);
+            List<String> chunkHashes = new ArrayList<>(leaves.length);
+            for (byte[] leaf : leaves) {
+                chunkHashes.add(bytesToHex(leaf));
             }
-        } catch (NoSuchAlgorithmException e) {
-            logger.error("SHA-256算法不可用", e);
+            TreeHash treeHash = new TreeHash();
+            treeHash.setChunkSize(chunkSize);
+            treeHash.setChunkHashes(chunkHashes);
+            treeHash.setRootHash(bytesToHex(merkleRoot(leaves)));
+            hashes.setTreeHash(treeHash);
+            return hashes;
+        } catch (IOException e) {
+            logger.error("计算文件哈希时发生IO错误", e);
             return null;
         }
     }
 
     /**
-     * 将字节数组转换为十六进制字符串
+     * 在树哈希线程池中异步计算文件的树哈希，便于与顺序的 SHA-256 计算同时进行
+     *
+     * @param file      文件对象
+     * @param chunkSize 块大小
+     * @return 树哈希结果的 Future，计算失败时结果为null
+     */
+    public static CompletableFuture<TreeHash> calculateTreeHashAsync(File file, int chunkSize) {
+        return CompletableFuture.supplyAsync(() -> calculateTreeHash(file, chunkSize), TREE_HASH_POOL);
+    }
+
+    /**
+     * 自底向上计算 Merkle 根
+     */
+    private static byte[] merkleRoot(byte[][] leaves) {
+        MessageDigest digest = sha256();
+        byte[][] level = leaves;
+        while (level.length > 1) {
+            byte[][] next = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < next.length; i++) {
+                int left = i * 2;
+                if (left + 1 < level.length) {
+                    digest.update(level[left]);
+                    digest.update(level[left + 1]);
+                    next[i] = digest.digest();
+                } else {
+                    next[i] = level[left];
+                }
+            }
+            level = next;
+        }
+        return level[0];
+    }
+
+    /**
+     * 对 [from, to) 范围内的块计算摘要，范围过大时二分拆分
+     */
+    private static class ChunkHashTask extends RecursiveAction {
+        private final FileChannel channel;
+        private final long fileSize;
+        private final int chunkSize;
+        private final byte[][] chunkDigests;
+        private final int from;
+        private final int to;
+
+        ChunkHashTask(FileChannel channel, long fileSize, int chunkSize, byte[][] chunkDigests, int from, int to) {
+            this.channel = channel;
+            this.fileSize = fileSize;
+            this.chunkSize = chunkSize;
+            this.chunkDigests = chunkDigests;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= TREE_HASH_LEAF_CHUNKS) {
+                MessageDigest digest = sha256();
+                for (int i = from; i < to; i++) {
+                    long offset = (long) i * chunkSize;
+                    long length = Math.min(chunkSize, fileSize - offset);
+                    if (length > 0) {
+                        try {
+                            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                            digest.update(buffer);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }
+                    chunkDigests[i] = digest.digest();
+                }
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new ChunkHashTask(channel, fileSize, chunkSize, chunkDigests, from, mid),
+                    new ChunkHashTask(channel, fileSize, chunkSize, chunkDigests, mid, to));
+        }
+    }
+
+    /**
+     * 树哈希结果
+     */
+    @Data
+    public static class TreeHash {
+        private String rootHash;
+        private int chunkSize;
+        private List<String> chunkHashes;
+    }
+
+    /**
+     * 整体SHA-256与树哈希
+     */
+    @Data
+    public static class FileHashes {
+        private String sha256Hash;
+        private TreeHash treeHash;
+    }
+
+    /**
+     * 将字节数组转换为十六进制字符串（查表实现）
      *
      * @param bytes 字节数组
      * @return 十六进制字符串
      */
-    private static String bytesToHex(byte[] bytes) {
-        StringBuilder hexString = new StringBuilder(2 * bytes.length);
-        for (byte b : bytes) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
+    public static String bytesToHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0, j = 0; i < bytes.length; i++) {
+            int v = bytes[i] & 0xff;
+            hex[j++] = HEX_DIGITS[v >>> 4];
+            hex[j++] = HEX_DIGITS[v & 0x0f];
         }
-        return hexString.toString();
+        return new String(hex);
     }
 }
-
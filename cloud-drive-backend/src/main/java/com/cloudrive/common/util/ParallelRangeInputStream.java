@@ -0,0 +1,159 @@
+package com.cloudrive.common.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 并行分段读取的输入流
+ * 将对象按固定大小分段，在读取位置之前最多并发拉取 window 个分段，按顺序拼接返回；
+ * 内存占用不超过 window + 1 个分段（正在读取的分段加窗口内预取的分段）。
+ * 关闭时不等待进行中的拉取，关闭回调在进行中的拉取全部结束后执行，回调中释放的资源（客户端、并发名额）不会被仍在运行的拉取使用
+ */
+public class ParallelRangeInputStream extends InputStream {
+
+    /**
+     * 分段拉取函数，返回 [start, end] 闭区间内的全部字节
+     */
+    @FunctionalInterface
+    public interface RangeFetcher {
+        byte[] fetch(long start, long end) throws IOException;
+    }
+
+    private final long size;
+    private final int chunkSize;
+    private final int window;
+    private final RangeFetcher fetcher;
+    private final Executor executor;
+    private final Runnable onClose;
+
+    private final Deque<CompletableFuture<byte[]>> pending = new ArrayDeque<>();
+    private long nextOffset;
+    private byte[] current;
+    private int position;
+    private volatile boolean closed;
+
+    /**
+     * @param size      对象大小
+     * @param chunkSize 分段大小
+     * @param window    最多同时拉取的分段数
+     * @param fetcher   分段拉取函数
+     * @param executor  执行拉取的线程池
+     * @param onClose   关闭流且进行中的拉取全部结束后的回调，可为null；可能在拉取线程中执行
+     */
+    public ParallelRangeInputStream(long size, int chunkSize, int window, RangeFetcher fetcher, Executor executor, Runnable onClose) {
+        this.size = size;
+        this.chunkSize = chunkSize;
+        this.window = Math.max(1, window);
+        this.fetcher = fetcher;
+        this.executor = executor;
+        this.onClose = onClose;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!advance()) {
+            return -1;
+        }
+        return current[position++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!advance()) {
+            return -1;
+        }
+        int n = Math.min(len, current.length - position);
+        System.arraycopy(current, position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public int available() {
+        return current != null ? current.length - position : 0;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        // 已开始的拉取无法中断，等其结束后再执行回调；尚未开始的拉取检查到关闭后直接结束
+        CompletableFuture<Void> inFlight = CompletableFuture.allOf(pending.toArray(new CompletableFuture[0]));
+        pending.clear();
+        current = null;
+        if (onClose != null) {
+            inFlight.whenComplete((result, error) -> onClose.run());
+        }
+    }
+
+    /**
+     * 确保当前分段有未读数据，当前分段读完时切换到下一个分段
+     *
+     * @return 是否还有数据
+     */
+    private boolean advance() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (current != null && position < current.length) {
+            return true;
+        }
+        // 读完的分段先释放，等待下一分段期间只持有窗口内的分段
+        current = null;
+        schedule();
+        CompletableFuture<byte[]> next = pending.pollFirst();
+        if (next == null) {
+            return false;
+        }
+        try {
+            current = next.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            throw new IOException("Failed to fetch range", e.getCause());
+        }
+        position = 0;
+        schedule();
+        return true;
+    }
+
+    /**
+     * 补足拉取窗口，不计正在读取的分段
+     */
+    private void schedule() {
+        while (pending.size() < window && nextOffset < size) {
+            long start = nextOffset;
+            long end = Math.min(size, start + chunkSize) - 1;
+            pending.addLast(CompletableFuture.supplyAsync(() -> fetch(start, end), executor));
+            nextOffset = end + 1;
+        }
+    }
+
+    private byte[] fetch(long start, long end) {
+        if (closed) {
+            throw new CancellationException("Stream closed");
+        }
+        try {
+            byte[] bytes = fetcher.fetch(start, end);
+            if (bytes.length != end - start + 1) {
+                throw new IOException("Short range read: expected=" + (end - start + 1) + ", actual=" + bytes.length + ", start=" + start);
+            }
+            return bytes;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.cloudrive.common.util;
+
+import com.cloudrive.common.enums.ErrorCode;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * 统计读取字节数并限制最大长度的输入流，超出限制时抛出 FILE_TOO_LARGE 业务异常
+ */
+public class SizeLimitInputStream extends FilterInputStream {
+
+    private final long maxBytes;
+    private long count;
+    private boolean limitExceeded;
+
+    public SizeLimitInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            add(1);
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int n = super.read(b, off, len);
+        if (n > 0) {
+            add(n);
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = super.skip(n);
+        add(skipped);
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private void add(long n) {
+        count += n;
+        if (maxBytes > 0 && count > maxBytes) {
+            limitExceeded = true;
+            ExceptionUtil.throwBizException(ErrorCode.FILE_TOO_LARGE);
+        }
+    }
+
+    /**
+     * 已读取的字节数
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * 是否因超出限制而中断
+     */
+    public boolean isLimitExceeded() {
+        return limitExceeded;
+    }
+}
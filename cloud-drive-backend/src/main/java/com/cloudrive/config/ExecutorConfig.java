@@ -0,0 +1,90 @@
+package com.cloudrive.config;
+
+import com.cloudrive.config.properties.BatchUploadProperties;
+import com.cloudrive.config.properties.FolderDownloadProperties;
+import com.cloudrive.config.properties.ParallelDownloadProperties;
+import com.cloudrive.config.properties.ReadCoalesceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 业务线程池配置
+ */
+@Configuration
+public class ExecutorConfig {
+
+    public static final String BATCH_UPLOAD_EXECUTOR = "batchUploadExecutor";
+    public static final String FOLDER_DOWNLOAD_EXECUTOR = "folderDownloadExecutor";
+    public static final String RANGE_DOWNLOAD_EXECUTOR = "rangeDownloadExecutor";
+    public static final String READ_COALESCE_EXECUTOR = "readCoalesceExecutor";
+
+    /**
+     * 批量上传写存储的线程池
+     * 队列有界，队列满时由提交线程自己执行，对读取压缩包的请求线程形成反压
+     */
+    @Bean(BATCH_UPLOAD_EXECUTOR)
+    public ThreadPoolTaskExecutor batchUploadExecutor(BatchUploadProperties batchUploadProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(batchUploadProperties.getStorageConcurrency());
+        executor.setMaxPoolSize(batchUploadProperties.getStorageConcurrency());
+        executor.setQueueCapacity(batchUploadProperties.getWindowSize());
+        executor.setThreadNamePrefix("batch-upload-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 打包下载时提前拉取存储对象的线程池
+     * 每个下载最多同时提交 prefetch-window 个任务，线程数限制本节点总的拉取并发，队列满时由下载线程自己拉取
+     */
+    @Bean(FOLDER_DOWNLOAD_EXECUTOR)
+    public ThreadPoolTaskExecutor folderDownloadExecutor(FolderDownloadProperties folderDownloadProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(folderDownloadProperties.getPrefetchConcurrency());
+        executor.setMaxPoolSize(folderDownloadProperties.getPrefetchConcurrency());
+        executor.setQueueCapacity(folderDownloadProperties.getPrefetchConcurrency() * folderDownloadProperties.getPrefetchWindow());
+        executor.setThreadNamePrefix("folder-download-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 并行分段下载的线程池
+     * 线程数为并行下载数上限与单个下载并行度之积，每个分段任务都能立即执行
+     */
+    @Bean(RANGE_DOWNLOAD_EXECUTOR)
+    public ThreadPoolTaskExecutor rangeDownloadExecutor(ParallelDownloadProperties parallelDownloadProperties) {
+        int threads = parallelDownloadProperties.getMaxStreams() * parallelDownloadProperties.getParallelism();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(threads);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("range-download-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 合并读取时拉取存储对象的线程池
+     * 不排队，线程用尽时拒绝，由调用方退回直接读取存储
+     */
+    @Bean(READ_COALESCE_EXECUTOR)
+    public ThreadPoolTaskExecutor readCoalesceExecutor(ReadCoalesceProperties readCoalesceProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(readCoalesceProperties.getFetchThreads());
+        executor.setMaxPoolSize(readCoalesceProperties.getFetchThreads());
+        executor.setQueueCapacity(0);
+        executor.setAllowCoreThreadTimeOut(true);
+        executor.setThreadNamePrefix("read-coalesce-");
+        executor.initialize();
+        return executor;
+    }
+}
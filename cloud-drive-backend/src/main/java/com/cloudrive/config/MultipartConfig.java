@@ -0,0 +1,33 @@
+package com.cloudrive.config;
+
+import com.cloudrive.common.constant.CommonConstants;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.boot.autoconfigure.web.servlet.MultipartProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.multipart.support.StandardServletMultipartResolver;
+import org.springframework.web.servlet.DispatcherServlet;
+
+import java.util.Set;
+
+@Configuration
+public class MultipartConfig {
+
+    /**
+     * 自行流式解析请求体的接口，Spring 不做 multipart 预解析
+     */
+    public static final Set<String> STREAMING_PATHS = Set.of(CommonConstants.Upload.STREAM_PATH);
+
+    @Bean(name = DispatcherServlet.MULTIPART_RESOLVER_BEAN_NAME)
+    public StandardServletMultipartResolver multipartResolver(MultipartProperties multipartProperties) {
+        StandardServletMultipartResolver resolver = new StandardServletMultipartResolver() {
+            @Override
+            public boolean isMultipart(HttpServletRequest request) {
+                String path = request.getRequestURI().substring(request.getContextPath().length());
+                return !STREAMING_PATHS.contains(path) && super.isMultipart(request);
+            }
+        };
+        resolver.setResolveLazily(multipartProperties.isResolveLazily());
+        return resolver;
+    }
+}
@@ -4,6 +4,7 @@ import cn.dev33.satoken.context.SaHolder;
 import cn.dev33.satoken.interceptor.SaInterceptor;
 import cn.dev33.satoken.router.SaRouter;
 import cn.dev33.satoken.stp.StpUtil;
+import com.cloudrive.common.interceptor.HeaderTokenInterceptor;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
@@ -14,6 +15,10 @@ public class SaTokenConfig implements WebMvcConfigurer {
     // 注册 Sa-Token 拦截器
     @Override
     public void addInterceptors(InterceptorRegistry registry) {
+        // 流式上传接口只从请求头读取令牌，避免 Sa-Token 读取请求参数时触发请求体解析
+        registry.addInterceptor(new HeaderTokenInterceptor())
+                .addPathPatterns(MultipartConfig.STREAMING_PATHS.toArray(new String[0]));
+
         // 注册 Sa-Token 拦截器，打开注解式鉴权功能 
         registry.addInterceptor(new SaInterceptor(handler -> {
             // 登录校验 -- 拦截所有路由，并排除一些不需要登录访问的接口
@@ -0,0 +1,23 @@
+package com.cloudrive.config;
+
+import org.apache.coyote.http11.AbstractHttp11Protocol;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * 内嵌 Tomcat 配置
+ */
+@Component
+public class WebServerConfig implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        factory.addConnectorCustomizers(connector -> {
+            // 应用开始读取请求体时才发送 100 Continue，使上传预校验失败的请求不必发送请求体
+            if (connector.getProtocolHandler() instanceof AbstractHttp11Protocol<?> protocol) {
+                protocol.setContinueResponseTiming("onRead");
+            }
+        });
+    }
+}
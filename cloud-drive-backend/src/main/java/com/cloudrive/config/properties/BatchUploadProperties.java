@@ -0,0 +1,28 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload.batch")
+public class BatchUploadProperties {
+    /**
+     * 单个压缩包最多包含的条目数（文件和文件夹）
+     */
+    private int maxEntries = 10000;
+    /**
+     * 压缩包内单个文件的大小上限
+     */
+    private DataSize maxEntrySize = DataSize.ofMegabytes(100);
+    /**
+     * 每批处理的文件数：批内统一查重、并发写存储、批量插入记录
+     */
+    private int windowSize = 200;
+    /**
+     * 并发写存储的线程数
+     */
+    private int storageConcurrency = 8;
+}
@@ -0,0 +1,57 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload.bulk-import")
+public class BulkImportProperties {
+    /**
+     * 是否在启动时执行批量导入
+     */
+    private boolean enabled = false;
+    /**
+     * 源目录
+     */
+    private String source;
+    /**
+     * 导入到的用户
+     */
+    private Long userId;
+    /**
+     * 导入到的父文件夹，为空表示根目录
+     */
+    private Long parentId;
+    /**
+     * 检查点文件，记录已导入的相对路径，中断后重新执行时跳过
+     */
+    private String checkpointFile;
+    /**
+     * 遍历目录的线程数
+     */
+    private int scanConcurrency = 4;
+    /**
+     * 计算哈希的线程数
+     */
+    private int hashConcurrency = 8;
+    /**
+     * 并发写存储的线程数
+     */
+    private int storageConcurrency = 8;
+    /**
+     * 每批统一查重、写存储、批量插入的文件数
+     */
+    private int batchSize = 500;
+    /**
+     * 进度日志输出间隔
+     */
+    private Duration progressInterval = Duration.ofSeconds(10);
+    /**
+     * 导入完成后是否退出进程
+     */
+    private boolean exitOnCompletion = true;
+}
@@ -0,0 +1,29 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload.delta")
+public class DeltaUploadProperties {
+    /**
+     * 块签名在 Redis 的缓存有效期
+     */
+    private Duration signatureTtl = Duration.ofDays(7);
+    /**
+     * 缓存签名的块数上限，超出的文件每次重新计算
+     */
+    private int signatureMaxCachedBlocks = 16384;
+    /**
+     * 未命中时等待其他节点计算同一签名的最长时间，超时后自行计算
+     */
+    private Duration signatureLockWait = Duration.ofSeconds(30);
+    /**
+     * 计算锁的持有上限，持有节点异常退出时由此释放
+     */
+    private Duration signatureLockLease = Duration.ofMinutes(5);
+}
@@ -0,0 +1,26 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "download.redirect")
+public class DownloadRedirectProperties {
+    /**
+     * 是否将大文件的分享下载重定向到存储的签名地址
+     */
+    private boolean enabled = true;
+    /**
+     * 不小于该大小的文件重定向，较小的文件仍由应用节点直接返回
+     */
+    private DataSize threshold = DataSize.ofMegabytes(16);
+    /**
+     * 签名地址的有效期
+     */
+    private Duration urlTtl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,41 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "file.list.cache")
+public class FileListCacheProperties {
+    /**
+     * 是否缓存文件列表
+     */
+    private boolean enabled = true;
+    /**
+     * 本地缓存的文件夹数上限
+     */
+    private long localMaxFolders = 10000;
+    /**
+     * 每个文件夹在本地缓存的分页数上限，超出的分页只缓存在 Redis
+     */
+    private int localMaxPages = 16;
+    /**
+     * 本地缓存有效期，其他节点的失效通知丢失时以此为上限
+     */
+    private Duration localTtl = Duration.ofSeconds(30);
+    /**
+     * Redis 缓存有效期
+     */
+    private Duration redisTtl = Duration.ofMinutes(10);
+    /**
+     * 未命中时等待其他节点加载同一分页的最长时间，超时后直接查询数据库
+     */
+    private Duration lockWait = Duration.ofMillis(200);
+    /**
+     * 加载锁的持有上限，持有节点异常退出时由此释放
+     */
+    private Duration lockLease = Duration.ofSeconds(5);
+}
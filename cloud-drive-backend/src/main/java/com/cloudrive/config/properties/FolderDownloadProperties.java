@@ -0,0 +1,36 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "download.folder")
+public class FolderDownloadProperties {
+    /**
+     * 单次打包下载中提前拉取的文件数，决定本地缓冲占用的上限
+     */
+    private int prefetchWindow = 4;
+    /**
+     * 本节点所有打包下载共用的拉取线程数
+     */
+    private int prefetchConcurrency = 8;
+    /**
+     * 遍历子树时每次查询的条数，文件夹再大也只在内存中保留一页
+     */
+    private int subtreePageSize = 500;
+    /**
+     * 已压缩的文件类型（扩展名），打包时直接存储不再压缩
+     */
+    private Set<String> storedExtensions = new HashSet<>(List.of(
+            "zip", "gz", "tgz", "bz2", "xz", "7z", "rar", "zst",
+            "jpg", "jpeg", "png", "gif", "webp", "heic",
+            "mp3", "aac", "m4a", "ogg", "flac",
+            "mp4", "m4v", "mkv", "mov", "avi", "webm",
+            "docx", "xlsx", "pptx", "jar", "apk", "pdf"));
+}
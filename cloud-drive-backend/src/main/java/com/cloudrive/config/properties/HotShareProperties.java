@@ -0,0 +1,46 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "share.hot")
+public class HotShareProperties {
+    /**
+     * 是否检测热点分享
+     */
+    private boolean enabled = true;
+    /**
+     * 计数草图的行数与每行宽度
+     */
+    private int sketchDepth = 4;
+    private int sketchWidth = 4096;
+    /**
+     * 本节点一个上报周期内访问达到该次数的分享才作为候选上报到 Redis
+     */
+    private int candidateMinHits = 5;
+    /**
+     * 本节点一个上报周期内最多跟踪的候选数
+     */
+    private int maxCandidates = 1000;
+    /**
+     * 上报周期，各节点按此间隔把候选计数合并到 Redis
+     */
+    private Duration mergeInterval = Duration.ofSeconds(10);
+    /**
+     * 统计窗口，按上一个完整窗口的全集群访问速率判定热点
+     */
+    private Duration window = Duration.ofMinutes(1);
+    /**
+     * 热点阈值，每秒访问次数
+     */
+    private double threshold = 5.0;
+    /**
+     * 最多常驻内存的热点分享数，常驻的是解析结果，不含文件内容
+     */
+    private int maxPinned = 100;
+}
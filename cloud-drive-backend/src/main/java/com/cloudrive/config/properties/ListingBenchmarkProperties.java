@@ -0,0 +1,31 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "db.listing-benchmark")
+public class ListingBenchmarkProperties {
+    /**
+     * 是否在启动时对比实体加载与投影查询的内存分配
+     */
+    private boolean enabled = false;
+    /**
+     * 示例用户ID，取该用户子项最多的文件夹
+     */
+    private Long sampleUserId = 1L;
+    /**
+     * 预热次数，不计入结果
+     */
+    private int warmup = 5;
+    /**
+     * 计量次数
+     */
+    private int iterations = 20;
+    /**
+     * 完成后是否退出
+     */
+    private boolean exitOnCompletion = true;
+}
@@ -0,0 +1,16 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "db.listing")
+public class ListingQueryProperties {
+    /**
+     * 文件列表与搜索查询的 JDBC fetch size
+     * MySQL 驱动在连接串开启 useCursorFetch 时按该值分批读取结果，否则一次读取全部结果
+     */
+    private int fetchSize = 500;
+}
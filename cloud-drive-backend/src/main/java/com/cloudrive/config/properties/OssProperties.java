@@ -3,6 +3,7 @@ package com.cloudrive.config.properties;
 import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
 
 @Data
 @Component
@@ -13,4 +14,8 @@ public class OssProperties {
     private String accessKeySecret;
     private String bucketName;
     private Boolean enabled = false;
+    /**
+     * 长度未知的流按该大小分片上传，每个进行中的上传在内存中缓冲一个分片
+     */
+    private DataSize multipartPartSize = DataSize.ofMegabytes(8);
 }
\ No newline at end of file
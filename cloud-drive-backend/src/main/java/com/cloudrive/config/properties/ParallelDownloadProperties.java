@@ -0,0 +1,32 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "download.parallel")
+public class ParallelDownloadProperties {
+    /**
+     * 是否对大文件并行分段下载
+     */
+    private boolean enabled = true;
+    /**
+     * 不小于该大小的文件并行分段下载
+     */
+    private DataSize threshold = DataSize.ofMegabytes(64);
+    /**
+     * 分段大小
+     */
+    private DataSize chunkSize = DataSize.ofMegabytes(4);
+    /**
+     * 单个下载同时拉取的分段数
+     */
+    private int parallelism = 4;
+    /**
+     * 本节点同时进行的并行下载数上限，超出时退回单连接下载，限制分段缓冲的总内存
+     */
+    private int maxStreams = 16;
+}
@@ -0,0 +1,27 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "db.query-plan-check")
+public class QueryPlanCheckProperties {
+    /**
+     * 是否在启动时检查热点查询的执行计划
+     */
+    private boolean enabled = false;
+    /**
+     * 示例用户ID，查询参数取该用户的数据
+     */
+    private Long sampleUserId = 1L;
+    /**
+     * 每个查询的计时执行次数
+     */
+    private int iterations = 20;
+    /**
+     * 检查完成后是否退出，有查询未使用预期索引时退出码为1
+     */
+    private boolean exitOnCompletion = true;
+}
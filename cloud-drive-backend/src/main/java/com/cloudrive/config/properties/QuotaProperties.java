@@ -0,0 +1,16 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload.quota")
+public class QuotaProperties {
+    /**
+     * 每个用户的存储空间，不大于0表示不限
+     */
+    private DataSize perUser = DataSize.ofGigabytes(10);
+}
@@ -0,0 +1,46 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "download.coalesce")
+public class ReadCoalesceProperties {
+    /**
+     * 是否合并同一对象的并发读取
+     */
+    private boolean enabled = true;
+    /**
+     * 超过该大小的对象不合并，避免占用过多缓冲空间
+     */
+    private DataSize maxSize = DataSize.ofGigabytes(1);
+    /**
+     * 拉取存储对象的线程数
+     */
+    private int fetchThreads = 16;
+    /**
+     * 读取方等待数据的最长时间，超过则认为拉取卡住
+     */
+    private Duration stallTimeout = Duration.ofSeconds(30);
+    /**
+     * 是否跨节点合并，要求各节点的缓冲目录为共享存储
+     */
+    private boolean clusterEnabled = false;
+    /**
+     * 跨节点合并时，拉取完成后缓冲文件保留的时间，供其他节点读取
+     */
+    private Duration clusterLinger = Duration.ofMinutes(2);
+    /**
+     * 跨节点合并时，拉取进度写入 Redis 的间隔字节数
+     */
+    private DataSize clusterProgressInterval = DataSize.ofMegabytes(1);
+    /**
+     * 跨节点合并时，其他节点轮询拉取进度的间隔
+     */
+    private Duration clusterPollInterval = Duration.ofMillis(50);
+}
@@ -0,0 +1,29 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "share.cache")
+public class ShareCacheProperties {
+    /**
+     * 本地缓存的分享数上限
+     */
+    private long localMaxSize = 10000;
+    /**
+     * 本地缓存有效期，其他节点的失效通知丢失时以此为上限
+     */
+    private Duration localTtl = Duration.ofSeconds(30);
+    /**
+     * Redis 缓存有效期
+     */
+    private Duration redisTtl = Duration.ofMinutes(10);
+    /**
+     * 不存在的分享码的缓存有效期
+     */
+    private Duration negativeTtl = Duration.ofMinutes(1);
+}
@@ -0,0 +1,20 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload.spool")
+public class SpoolProperties {
+    private String dir = System.getProperty("java.io.tmpdir") + "/cloud-drive-spool";
+    private String nodeId;
+    private long minFreeBytes = 1024L * 1024 * 1024;
+    private Duration admissionTimeout = Duration.ofSeconds(5);
+    private Duration orphanTtl = Duration.ofHours(6);
+    private Duration stagedTtl = Duration.ofDays(1);
+    private Duration sweepInterval = Duration.ofMinutes(10);
+}
@@ -0,0 +1,16 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload.streaming")
+public class StreamingUploadProperties {
+    /**
+     * 流式上传单个文件的大小上限，不受 spring.servlet.multipart 限制
+     */
+    private DataSize maxFileSize = DataSize.ofGigabytes(10);
+}
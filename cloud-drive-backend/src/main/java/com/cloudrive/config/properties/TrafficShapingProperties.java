@@ -0,0 +1,53 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "traffic")
+public class TrafficShapingProperties {
+    private boolean enabled = true;
+    /**
+     * 本节点下载总带宽，不大于0表示不限
+     */
+    private DataSize nodeDownloadRate = DataSize.ofMegabytes(200);
+    /**
+     * 本节点上传总带宽，不大于0表示不限
+     */
+    private DataSize nodeUploadRate = DataSize.ofMegabytes(200);
+    /**
+     * 单个IP的带宽，不大于0表示不限
+     */
+    private DataSize ipRate = DataSize.ofMegabytes(20);
+    /**
+     * 每次申请令牌的最大字节数，越小速率越平滑
+     */
+    private DataSize chunkSize = DataSize.ofKilobytes(64);
+    /**
+     * 用户未配置等级时使用的等级
+     */
+    private String defaultTier = "standard";
+    /**
+     * 匿名访问（如分享下载）使用的等级
+     */
+    private String anonymousTier = "anonymous";
+    private Map<String, Tier> tiers = new HashMap<>();
+
+    @Data
+    public static class Tier {
+        /**
+         * 单个用户（匿名时为单个IP）的带宽，不大于0表示不限
+         */
+        private DataSize rate = DataSize.ofMegabytes(10);
+        /**
+         * 节点带宽紧张时按权重分配给并发传输
+         */
+        private int weight = 1;
+    }
+}
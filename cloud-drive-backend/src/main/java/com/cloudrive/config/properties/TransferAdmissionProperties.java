@@ -0,0 +1,39 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "transfer.admission")
+public class TransferAdmissionProperties {
+    /**
+     * 是否按内存预算准入传输请求
+     */
+    private boolean enabled = true;
+    /**
+     * 本节点进行中的传输可占用的缓冲总字节数，未配置时取最大堆内存的 heap-fraction
+     */
+    private DataSize budget;
+    private double heapFraction = 0.25;
+    /**
+     * 普通流式传输占用的缓冲字节数
+     */
+    private DataSize streamBuffer = DataSize.ofKilobytes(256);
+    /**
+     * 预算不足时排队等待的最长时间
+     */
+    private Duration queueTimeout = Duration.ofSeconds(2);
+    /**
+     * 最多排队的请求数，超出时立即拒绝
+     */
+    private int maxQueued = 100;
+    /**
+     * 拒绝时建议客户端重试的间隔
+     */
+    private Duration retryAfter = Duration.ofSeconds(5);
+}
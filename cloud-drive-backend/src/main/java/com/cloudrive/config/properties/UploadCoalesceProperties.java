@@ -0,0 +1,18 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload.coalesce")
+public class UploadCoalesceProperties {
+    private boolean enabled = true;
+    /**
+     * 等待相同内容的上传完成的最长时间，超时后不再等待，按普通上传处理
+     */
+    private Duration waitTimeout = Duration.ofMinutes(10);
+}
@@ -0,0 +1,37 @@
+package com.cloudrive.config.properties;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Data
+@Component
+@ConfigurationProperties(prefix = "upload.finalize")
+public class UploadFinalizeProperties {
+    /**
+     * 本节点的收尾工作线程数，为0时本节点只投递任务不消费
+     */
+    private int workers = 4;
+    /**
+     * 单次阻塞读取的最长时间
+     */
+    private Duration pollTimeout = Duration.ofSeconds(2);
+    /**
+     * 已投递但超过该时间未确认的任务视为消费者已崩溃，由其他消费者接管
+     */
+    private Duration claimIdle = Duration.ofMinutes(5);
+    /**
+     * 任务最多投递次数，超过后标记为失败
+     */
+    private int maxDeliveries = 3;
+    /**
+     * 停止时等待进行中任务完成的最长时间，超时未完成的任务由其他节点接管
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(30);
+    /**
+     * 任务提交记录的保留时间，须覆盖任务可能被重新投递的时间
+     */
+    private Duration commitRetention = Duration.ofDays(7);
+}
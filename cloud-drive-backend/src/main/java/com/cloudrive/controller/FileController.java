@@ -2,23 +2,57 @@ package com.cloudrive.controller;
 
 import com.cloudrive.common.annotation.RateLimit;
 import com.cloudrive.common.annotation.RateLimit.Dimension;
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.enums.FileSortField;
+import com.cloudrive.common.exception.BusinessException;
 import com.cloudrive.common.result.Result;
+import com.cloudrive.common.util.DownloadCacheUtil;
+import com.cloudrive.common.util.ExceptionUtil;
 import com.cloudrive.common.util.UserContext;
+import com.cloudrive.config.properties.StreamingUploadProperties;
+import com.cloudrive.model.dto.FileMoveDTO;
 import com.cloudrive.model.dto.FileRenameDTO;
+import com.cloudrive.model.vo.BatchUploadResultVO;
+import com.cloudrive.model.vo.FileDownloadVO;
 import com.cloudrive.model.vo.FileListVO;
+import com.cloudrive.model.vo.FilePageVO;
+import com.cloudrive.model.vo.FileSignatureVO;
+import com.cloudrive.service.BatchUploadService;
+import com.cloudrive.service.DeltaUploadService;
 import com.cloudrive.service.FileService;
+import com.cloudrive.service.FolderDownloadService;
+import com.cloudrive.service.TrafficShapingService;
+import com.cloudrive.service.TransferAdmissionService;
+import com.cloudrive.service.TrafficShapingService.Direction;
+import com.cloudrive.service.UploadFinalizeService;
 import com.cloudrive.service.UploadProgressService;
+import com.cloudrive.service.UploadSpoolService;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import org.apache.commons.fileupload2.core.DiskFileItem;
+import org.apache.commons.fileupload2.core.DiskFileItemFactory;
+import org.apache.commons.fileupload2.core.FileItemInput;
+import org.apache.commons.fileupload2.core.FileItemInputIterator;
+import org.apache.commons.fileupload2.jakarta.servlet6.JakartaServletFileUpload;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.util.UriComponentsBuilder;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.UUID;
@@ -33,11 +67,31 @@ public class FileController {
 
     private final FileService fileService;
     private final UploadProgressService uploadProgressService;
+    private final DeltaUploadService deltaUploadService;
+    private final UploadSpoolService uploadSpoolService;
+    private final StreamingUploadProperties streamingUploadProperties;
+    private final BatchUploadService batchUploadService;
+    private final TrafficShapingService trafficShapingService;
+    private final UploadFinalizeService uploadFinalizeService;
+    private final FolderDownloadService folderDownloadService;
+    private final TransferAdmissionService transferAdmissionService;
 
     @Autowired
-    public FileController(FileService fileService, UploadProgressService uploadProgressService) {
+    public FileController(FileService fileService, UploadProgressService uploadProgressService, DeltaUploadService deltaUploadService,
+                          UploadSpoolService uploadSpoolService, StreamingUploadProperties streamingUploadProperties,
+                          BatchUploadService batchUploadService, TrafficShapingService trafficShapingService,
+                          UploadFinalizeService uploadFinalizeService, FolderDownloadService folderDownloadService,
+                          TransferAdmissionService transferAdmissionService) {
         this.fileService = fileService;
         this.uploadProgressService = uploadProgressService;
+        this.deltaUploadService = deltaUploadService;
+        this.uploadSpoolService = uploadSpoolService;
+        this.streamingUploadProperties = streamingUploadProperties;
+        this.batchUploadService = batchUploadService;
+        this.trafficShapingService = trafficShapingService;
+        this.uploadFinalizeService = uploadFinalizeService;
+        this.folderDownloadService = folderDownloadService;
+        this.transferAdmissionService = transferAdmissionService;
     }
 
     /**
@@ -48,18 +102,119 @@ public class FileController {
     public Result<String> uploadFile(
             @RequestParam("file") MultipartFile file,
             @RequestParam(value = "parentId", required = false) Long parentId) {
-        String filePath = fileService.uploadFile(file, parentId);
-        return Result.success(filePath);
+        try (TransferAdmissionService.Lease lease = transferAdmissionService.acquire(transferAdmissionService.streamFootprint())) {
+            String filePath = fileService.uploadFile(file, parentId);
+            return Result.success(filePath);
+        }
+    }
+
+    /**
+     * 流式上传文件
+     * 逐段解析 multipart 请求体，文件内容边接收边转发到存储，不经过本地磁盘，不受 multipart 大小上限约束。
+     * parentId 可通过查询参数传递，或作为位于文件之前的表单字段传递
+     */
+    @PostMapping("/stream")
+    @RateLimit(dimensions = { Dimension.USER, Dimension.IP }, permitsPerSecond = 3.0, timeout = 1000)
+    public Result<String> uploadFileStream(HttpServletRequest request) {
+        ExceptionUtil.throwIf(!JakartaServletFileUpload.isMultipartContent(request), ErrorCode.FILE_UPLOAD_FAILED, "请求不是multipart格式");
+
+        // 不能使用 getParameter，否则容器会解析整个请求体
+        Long parentId = parseParentId(UriComponentsBuilder.newInstance().query(request.getQueryString()).build()
+                .getQueryParams().getFirst(CommonConstants.Upload.PARENT_ID_FIELD));
+        try (TransferAdmissionService.Lease lease = transferAdmissionService.acquire(transferAdmissionService.streamFootprint())) {
+            JakartaServletFileUpload<DiskFileItem, DiskFileItemFactory> upload = new JakartaServletFileUpload<>();
+            FileItemInputIterator iterator = upload.getItemIterator(request);
+            while (iterator.hasNext()) {
+                FileItemInput item = iterator.next();
+                if (item.isFormField()) {
+                    if (CommonConstants.Upload.PARENT_ID_FIELD.equals(item.getFieldName())) {
+                        try (InputStream inputStream = item.getInputStream()) {
+                            parentId = parseParentId(new String(inputStream.readNBytes(32), StandardCharsets.UTF_8));
+                        }
+                    }
+                } else if (CommonConstants.Upload.FILE_FIELD.equals(item.getFieldName())) {
+                    try (InputStream inputStream = trafficShapingService.wrap(Direction.UPLOAD, request, item.getInputStream())) {
+                        String filePath = fileService.uploadFileStream(inputStream, item.getName(), parentId,
+                                streamingUploadProperties.getMaxFileSize().toBytes());
+                        return Result.success(filePath);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new BusinessException(ErrorCode.FILE_UPLOAD_FAILED, e);
+        }
+        return Result.error("缺少文件内容");
     }
 
     /**
-     * 获取文件列表
+     * 批量上传
+     * 请求体为 zip 压缩包，压缩包内的目录结构会在 parentId 下重建
+     */
+    @PostMapping(value = "/batch", consumes = { "application/zip", "application/x-zip-compressed", MediaType.APPLICATION_OCTET_STREAM_VALUE })
+    @RateLimit(dimensions = { Dimension.USER, Dimension.IP }, permitsPerSecond = 1.0, timeout = 1000)
+    public Result<BatchUploadResultVO> uploadBatch(
+            HttpServletRequest request,
+            @RequestParam(value = "parentId", required = false) Long parentId) throws IOException {
+        try (TransferAdmissionService.Lease lease = transferAdmissionService.acquire(transferAdmissionService.batchUploadFootprint());
+             InputStream archive = trafficShapingService.wrap(Direction.UPLOAD, request, request.getInputStream())) {
+            return Result.success(batchUploadService.uploadArchive(archive, parentId));
+        }
+    }
+
+    private Long parseParentId(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        try {
+            return Long.valueOf(value.trim());
+        } catch (NumberFormatException e) {
+            throw new BusinessException(ErrorCode.INVALID_PARENT_ID);
+        }
+    }
+
+    /**
+     * 获取文件块签名，用于增量上传
+     */
+    @GetMapping("/{fileId}/signature")
+    @RateLimit(dimensions = { Dimension.USER }, permitsPerSecond = 2.0, timeout = 1000)
+    public Result<FileSignatureVO> getSignature(@PathVariable Long fileId) {
+        return Result.success(deltaUploadService.getSignature(fileId));
+    }
+
+    /**
+     * 增量上传文件，仅上传相对已有文件的变化部分
+     */
+    @PostMapping("/{fileId}/delta")
+    @RateLimit(dimensions = { Dimension.USER, Dimension.IP }, permitsPerSecond = 3.0, timeout = 1000)
+    public Result<String> uploadDelta(
+            @PathVariable Long fileId,
+            @RequestParam("delta") MultipartFile delta,
+            @RequestParam(value = "parentId", required = false) Long parentId,
+            @RequestParam(value = "filename", required = false) String filename,
+            @RequestParam(value = "sha256", required = false) String sha256) {
+        try (TransferAdmissionService.Lease lease = transferAdmissionService.acquire(transferAdmissionService.streamFootprint())) {
+            String filePath = deltaUploadService.uploadDelta(fileId, delta, parentId, filename, sha256);
+            return Result.success(filePath);
+        }
+    }
+
+    /**
+     * 分页获取文件列表
+     * sort 可选 name、size、type、updated，相同排序值按ID排序；下一页传入上一页返回的 nextCursor
      */
     @GetMapping
     @RateLimit(dimensions = { Dimension.USER }, permitsPerSecond = 10.0, timeout = 500)
-    public Result<List<FileListVO>> listFiles(@RequestParam(value = "parentId", required = false) Long parentId) {
-        List<FileListVO> fileListVOs = fileService.listFiles(parentId);
-        return Result.success(fileListVOs);
+    public Result<FilePageVO> listFiles(
+            @RequestParam(value = "parentId", required = false) Long parentId,
+            @RequestParam(value = "sort", defaultValue = "name") String sort,
+            @RequestParam(value = "order", defaultValue = "asc") String order,
+            @RequestParam(value = "cursor", required = false) String cursor,
+            @RequestParam(value = "limit", defaultValue = "" + CommonConstants.File.DEFAULT_PAGE_SIZE)
+            @Min(1) @Max(CommonConstants.File.MAX_PAGE_SIZE) int limit) {
+        FileSortField sortField = FileSortField.of(sort);
+        ExceptionUtil.throwIfNull(sortField, ErrorCode.INVALID_SORT);
+        ExceptionUtil.throwIf(!"asc".equalsIgnoreCase(order) && !"desc".equalsIgnoreCase(order), ErrorCode.INVALID_SORT);
+        return Result.success(fileService.listFiles(parentId, sortField, "desc".equalsIgnoreCase(order), cursor, limit));
     }
 
     /**
@@ -77,19 +232,66 @@ public class FileController {
      */
     @GetMapping("/{fileId}/content")
     @RateLimit(dimensions = { Dimension.USER, Dimension.IP }, permitsPerSecond = 2.0, timeout = 1000)
-    public ResponseEntity<byte[]> downloadFile(@PathVariable Long fileId) {
-        byte[] content = fileService.downloadFile(fileId);
+    public ResponseEntity<StreamingResponseBody> downloadFile(@PathVariable Long fileId, HttpServletRequest request) {
+        FileDownloadVO file = fileService.getDownloadableFile(fileId);
+        // 客户端缓存仍有效时只凭元数据返回 304，不访问存储
+        if (DownloadCacheUtil.isNotModified(request, file)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(DownloadCacheUtil.cacheHeaders(file))
+                    .build();
+        }
+        // 边读存储边写响应，按用户、IP和节点带宽限速；缓冲占用计入本节点的内存预算
+        InputStream content = transferAdmissionService.admit(transferAdmissionService.downloadFootprint(file.getFileSize()),
+                () -> trafficShapingService.wrap(Direction.DOWNLOAD, request, fileService.openFileStream(file)));
+
         // 设置响应头
-        HttpHeaders headers = new HttpHeaders();
+        HttpHeaders headers = DownloadCacheUtil.cacheHeaders(file);
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
         headers.setContentDisposition(ContentDisposition.builder("attachment")
-                .filename(fileService.getFilename(fileId), StandardCharsets.UTF_8)
+                .filename(file.getFilename(), StandardCharsets.UTF_8)
                 .build());
-        headers.setContentLength(content.length);
+        headers.setContentLength(file.getFileSize());
         
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(content);
+                .body(outputStream -> {
+                    try (InputStream inputStream = content) {
+                        inputStream.transferTo(outputStream);
+                    }
+                });
+    }
+
+    /**
+     * 打包下载文件夹
+     * 边遍历子树边写 ZIP，总大小未知，以分块传输编码返回
+     */
+    @GetMapping("/{folderId}/zip")
+    @RateLimit(dimensions = { Dimension.USER, Dimension.IP }, permitsPerSecond = 1.0, timeout = 1000)
+    public ResponseEntity<StreamingResponseBody> downloadFolder(@PathVariable Long folderId, HttpServletRequest request) {
+        FileDownloadVO folder = folderDownloadService.getDownloadableFolder(folderId);
+        Long userId = UserContext.getCurrentUserId();
+        TransferAdmissionService.Lease lease = transferAdmissionService.acquire(transferAdmissionService.folderDownloadFootprint());
+        TrafficShapingService.Transfer transfer;
+        try {
+            transfer = trafficShapingService.open(Direction.DOWNLOAD, request);
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/zip"));
+        headers.setContentDisposition(ContentDisposition.builder("attachment")
+                .filename(folder.getFilename() + ".zip", StandardCharsets.UTF_8)
+                .build());
+
+        return ResponseEntity.ok()
+                .headers(headers)
+                .body(outputStream -> {
+                    try (lease; OutputStream out = transfer.wrap(outputStream)) {
+                        folderDownloadService.writeZip(folder, userId, out);
+                    }
+                });
     }
 
     /**
@@ -102,6 +304,16 @@ public class FileController {
         return Result.success();
     }
 
+    /**
+     * 移动文件或文件夹
+     */
+    @PatchMapping("/{fileId}/parent")
+    @RateLimit(dimensions = { Dimension.USER }, permitsPerSecond = 5.0, timeout = 500)
+    public Result<Void> moveFile(@PathVariable Long fileId, @RequestBody FileMoveDTO dto) {
+        fileService.moveFile(fileId, dto.getTargetParentId());
+        return Result.success();
+    }
+
     /**
      * 删除文件
      */
@@ -140,32 +352,21 @@ public class FileController {
                 return Result.error("文件为空");
             }
             
-            // 将文件保存到临时目录，以便在异步线程中使用
-            File tempDir = new File(System.getProperty("java.io.tmpdir"));
-            if (!tempDir.exists()) {
-                tempDir.mkdirs();
+            // 将文件保存到缓冲目录（空间不足时会排队或拒绝）
+            File tempFile = uploadSpoolService.allocate(file.getSize());
+            try {
+                file.transferTo(tempFile);
+                // 投递收尾任务，由任意节点的收尾工作线程完成哈希计算、秒传判断和上传，避免阻塞请求
+                uploadFinalizeService.submit(tempFile, file.getOriginalFilename(), file.getSize(), parentId, taskId, currentUserId);
+            } catch (Exception e) {
+                uploadSpoolService.release(tempFile);
+                throw e;
             }
             
-            // 创建临时文件
-            File tempFile = new File(tempDir, taskId + "_" + file.getOriginalFilename());
-            file.transferTo(tempFile);
-            
-            // 异步执行上传，避免阻塞请求
-            Thread uploadThread = new Thread(() -> {
-                try {
-                    fileService.uploadFileWithProgressFromPath(tempFile.getAbsolutePath(), file.getOriginalFilename(), file.getSize(), parentId, taskId, currentUserId);
-                }
-                finally {
-                    // 上传完成后删除临时文件
-                    if (tempFile.exists()) {
-                        tempFile.delete();
-                    }
-                }
-            });
-            uploadThread.setDaemon(true);
-            uploadThread.start();
-            
             return Result.success(taskId);
+        } catch (BusinessException e) {
+            // 缓冲空间不足等业务异常交给全局异常处理器返回对应状态码
+            throw e;
         } catch (Exception e) {
             return Result.error("文件上传失败: " + e.getMessage());
         }
@@ -6,17 +6,25 @@ import com.cloudrive.common.constant.CommonConstants;
 import com.cloudrive.common.constant.ShareConstants;
 import com.cloudrive.common.exception.BusinessException;
 import com.cloudrive.common.result.Result;
+import com.cloudrive.common.util.DownloadCacheUtil;
 import com.cloudrive.model.dto.ShareAccessDTO;
 import com.cloudrive.model.dto.ShareCreateDTO;
+import com.cloudrive.model.vo.FileDownloadVO;
 import com.cloudrive.model.vo.ShareFileVO;
+import com.cloudrive.service.FileService;
 import com.cloudrive.service.ShareService;
+import com.cloudrive.service.TrafficShapingService;
+import com.cloudrive.service.TransferAdmissionService;
+import com.cloudrive.service.TrafficShapingService.Direction;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseCookie;
 import org.springframework.http.ResponseEntity;
@@ -24,7 +32,10 @@ import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.InputStream;
+import java.net.URI;
 import java.util.List;
 
 /**
@@ -38,9 +49,16 @@ public class ShareController {
     private static final Logger logger = LoggerFactory.getLogger(ShareController.class);
 
     private final ShareService shareService;
+    private final FileService fileService;
+    private final TrafficShapingService trafficShapingService;
+    private final TransferAdmissionService transferAdmissionService;
 
-    public ShareController(ShareService shareService) {
+    public ShareController(ShareService shareService, FileService fileService, TrafficShapingService trafficShapingService,
+                           TransferAdmissionService transferAdmissionService) {
         this.shareService = shareService;
+        this.fileService = fileService;
+        this.trafficShapingService = trafficShapingService;
+        this.transferAdmissionService = transferAdmissionService;
     }
 
     /**
@@ -140,25 +158,45 @@ public class ShareController {
      */
     @GetMapping("/{shareCode}/content")
     @RateLimit(dimensions = { Dimension.IP }, permitsPerSecond = 2.0, timeout = 1000)
-    public ResponseEntity<byte[]> downloadSharedFile(
+    public ResponseEntity<StreamingResponseBody> downloadSharedFile(
             @PathVariable String shareCode) {
         // 从Cookie中获取令牌
         HttpServletRequest request = ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes())
                 .getRequest();
         String token = extractShareTokenFromCookies(shareCode, request);
 
-        // 获取文件内容
-        byte[] fileContent = shareService.downloadSharedFile(shareCode, token);
+        // 获取文件信息并打开限速的内容流
+        FileDownloadVO file = shareService.getDownloadableSharedFile(shareCode, token);
+        // 客户端缓存仍有效时只凭元数据返回 304，不访问存储
+        if (DownloadCacheUtil.isNotModified(request, file)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .headers(DownloadCacheUtil.cacheHeaders(file))
+                    .build();
+        }
+        // 大文件重定向到存储的签名地址，应用节点不再转发内容
+        String redirectUrl = shareService.resolveDownloadRedirect(shareCode, file);
+        if (redirectUrl != null) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(redirectUrl))
+                    .cacheControl(CacheControl.noStore())
+                    .build();
+        }
+        InputStream content = transferAdmissionService.admit(transferAdmissionService.downloadFootprint(file.getFileSize()),
+                () -> trafficShapingService.wrap(Direction.DOWNLOAD, request, fileService.openFileStream(file)));
         
         // 设置响应头
-        HttpHeaders headers = new HttpHeaders();
+        HttpHeaders headers = DownloadCacheUtil.cacheHeaders(file);
         headers.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-        headers.setContentDispositionFormData("attachment", shareService.getFilename(shareCode));
-        headers.setContentLength(fileContent.length);
+        headers.setContentDispositionFormData("attachment", file.getFilename());
+        headers.setContentLength(file.getFileSize());
 
         return ResponseEntity.ok()
                 .headers(headers)
-                .body(fileContent);
+                .body(outputStream -> {
+                    try (InputStream inputStream = content) {
+                        inputStream.transferTo(outputStream);
+                    }
+                });
     }
 
     private String extractShareTokenFromCookies(String shareCode, HttpServletRequest request) {
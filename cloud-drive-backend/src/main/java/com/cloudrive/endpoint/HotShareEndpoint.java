@@ -0,0 +1,29 @@
+package com.cloudrive.endpoint;
+
+import com.cloudrive.model.vo.HotShareVO;
+import com.cloudrive.service.HotShareService;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 热点分享管理端点（/actuator/hotshares），查看当前热点分享及其访问速率
+ * 只在管理端口上暴露，返回分享ID与打码后的分享码
+ */
+@Component
+@Endpoint(id = "hotshares")
+public class HotShareEndpoint {
+
+    private final HotShareService hotShareService;
+
+    public HotShareEndpoint(HotShareService hotShareService) {
+        this.hotShareService = hotShareService;
+    }
+
+    @ReadOperation
+    public List<HotShareVO> hotShares() {
+        return hotShareService.getHotShares();
+    }
+}
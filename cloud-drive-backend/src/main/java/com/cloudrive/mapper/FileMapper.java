@@ -2,6 +2,7 @@ package com.cloudrive.mapper;
 
 import com.cloudrive.model.entity.FileInfo;
 import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.FileDownloadVO;
 import com.cloudrive.model.vo.FileListVO;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
@@ -22,6 +23,9 @@ public interface FileMapper {
     @Mapping(target = "updatedAt", source = "updatedAt")
     FileListVO toFileListVO(FileInfo fileInfo);
 
+    @Mapping(target = "fileId", source = "id")
+    FileDownloadVO toFileDownloadVO(FileInfo fileInfo);
+
     /**
      * 从 MultipartFile 和用户信息创建 FileInfo
      */
@@ -38,6 +42,9 @@ public interface FileMapper {
     @Mapping(target = "createdAt", expression = "java(java.time.LocalDateTime.now())")
     @Mapping(target = "updatedAt", expression = "java(java.time.LocalDateTime.now())")
     @Mapping(target = "sha256Hash", expression = "java(com.cloudrive.common.util.FileHashUtil.calculateSHA256(file))")
+    @Mapping(target = "treeHash", ignore = true)
+    @Mapping(target = "ancestorPath", ignore = true)
+    @Mapping(target = "loadedParentId", ignore = true)
     FileInfo toFileInfo(MultipartFile file, String filePath, User user, Long parentId);
     
     /**
@@ -56,6 +63,9 @@ public interface FileMapper {
     @Mapping(target = "createdAt", expression = "java(java.time.LocalDateTime.now())")
     @Mapping(target = "updatedAt", expression = "java(java.time.LocalDateTime.now())")
     @Mapping(target = "sha256Hash", source = "sha256Hash")
+    @Mapping(target = "treeHash", source = "existingFile.treeHash")
+    @Mapping(target = "ancestorPath", ignore = true)
+    @Mapping(target = "loadedParentId", ignore = true)
     FileInfo toFileInfoForFastUpload(String filename, FileInfo existingFile, User user, Long parentId, String sha256Hash);
     
     /**
@@ -74,5 +84,29 @@ public interface FileMapper {
     @Mapping(target = "createdAt", expression = "java(java.time.LocalDateTime.now())")
     @Mapping(target = "updatedAt", expression = "java(java.time.LocalDateTime.now())")
     @Mapping(target = "sha256Hash", source = "sha256Hash")
+    @Mapping(target = "treeHash", ignore = true)
+    @Mapping(target = "ancestorPath", ignore = true)
+    @Mapping(target = "loadedParentId", ignore = true)
     FileInfo toFileInfoFromPath(String filename, String filePath, long fileSize, User user, Long parentId, String sha256Hash);
-} 
\ No newline at end of file
+
+    /**
+     * 创建文件夹记录
+     */
+    @Mapping(target = "id", ignore = true)
+    @Mapping(target = "filename", source = "filename")
+    @Mapping(target = "originalFilename", source = "filename")
+    @Mapping(target = "path", source = "path")
+    @Mapping(target = "fileSize", constant = "0L")
+    @Mapping(target = "fileType", ignore = true)
+    @Mapping(target = "user", source = "user")
+    @Mapping(target = "parentId", source = "parentId")
+    @Mapping(target = "isFolder", constant = "true")
+    @Mapping(target = "isDeleted", constant = "false")
+    @Mapping(target = "createdAt", expression = "java(java.time.LocalDateTime.now())")
+    @Mapping(target = "updatedAt", expression = "java(java.time.LocalDateTime.now())")
+    @Mapping(target = "sha256Hash", ignore = true)
+    @Mapping(target = "treeHash", ignore = true)
+    @Mapping(target = "ancestorPath", ignore = true)
+    @Mapping(target = "loadedParentId", ignore = true)
+    FileInfo toFolderInfo(String filename, String path, User user, Long parentId);
+}
@@ -3,11 +3,15 @@ package com.cloudrive.mapper;
 import com.cloudrive.model.entity.FileInfo;
 import com.cloudrive.model.entity.ShareRecord;
 import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.FileDownloadVO;
+import com.cloudrive.model.vo.ResolvedShareVO;
 import com.cloudrive.model.vo.ShareFileVO;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Mapper(componentModel = "spring")
 public interface ShareMapper {
@@ -34,4 +38,31 @@ public interface ShareMapper {
     @Mapping(target = "visitCount", constant = "0")
     @Mapping(target = "createTime", expression = "java(java.time.LocalDateTime.now())")
     ShareRecord toShareRecord(FileInfo file, User user, String shareCode, String password, LocalDateTime expireTime);
-} 
\ No newline at end of file
+
+    @Mapping(target = "missing", constant = "false")
+    @Mapping(target = "shareId", source = "id")
+    @Mapping(target = "fileId", source = "file.id")
+    @Mapping(target = "filename", source = "file.filename")
+    @Mapping(target = "path", source = "file.path")
+    @Mapping(target = "fileSize", source = "file.fileSize")
+    @Mapping(target = "fileType", source = "file.fileType")
+    @Mapping(target = "sha256Hash", source = "file.sha256Hash")
+    @Mapping(target = "fileUpdatedAt", expression = "java(toEpochMilli(shareRecord.getFile().getUpdatedAt()))")
+    @Mapping(target = "expireTime", expression = "java(toEpochMilli(shareRecord.getExpireTime()))")
+    @Mapping(target = "passwordProtected", expression = "java(shareRecord.getPassword() != null && !shareRecord.getPassword().isEmpty())")
+    @Mapping(target = "expired", expression = "java(Boolean.TRUE.equals(shareRecord.getIsExpired()))")
+    @Mapping(target = "fileDeleted", expression = "java(Boolean.TRUE.equals(shareRecord.getFile().getIsDeleted()))")
+    @Mapping(target = "folder", expression = "java(Boolean.TRUE.equals(shareRecord.getFile().getIsFolder()))")
+    ResolvedShareVO toResolvedShareVO(ShareRecord shareRecord);
+
+    @Mapping(target = "updatedAt", expression = "java(toLocalDateTime(resolved.getFileUpdatedAt()))")
+    FileDownloadVO toFileDownloadVO(ResolvedShareVO resolved);
+
+    default Long toEpochMilli(LocalDateTime time) {
+        return time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : null;
+    }
+
+    default LocalDateTime toLocalDateTime(Long epochMilli) {
+        return epochMilli != null ? LocalDateTime.ofInstant(Instant.ofEpochMilli(epochMilli), ZoneId.systemDefault()) : null;
+    }
+}
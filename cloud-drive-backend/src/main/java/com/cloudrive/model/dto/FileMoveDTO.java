@@ -0,0 +1,11 @@
+package com.cloudrive.model.dto;
+
+import lombok.Data;
+
+@Data
+public class FileMoveDTO {
+    /**
+     * 目标文件夹ID，为空表示移动到根目录
+     */
+    private Long targetParentId;
+}
@@ -0,0 +1,36 @@
+package com.cloudrive.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/**
+ * 文件分块摘要，按文件内容（SHA-256）存储树哈希的叶子节点，用于部分校验和断点续传
+ */
+@Data
+@Entity
+@Table(name = "t_file_chunk_digest",
+        uniqueConstraints = @UniqueConstraint(name = "uk_chunk_digest_hash_index", columnNames = {"sha256_hash", "chunk_index"}))
+public class FileChunkDigest {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "sha256_hash", nullable = false, length = 64)
+    private String sha256Hash;
+
+    @Column(name = "chunk_index", nullable = false)
+    private Integer chunkIndex;
+
+    @Column(name = "chunk_size", nullable = false)
+    private Integer chunkSize;
+
+    @Column(name = "digest", nullable = false, length = 64)
+    private String digest;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+}
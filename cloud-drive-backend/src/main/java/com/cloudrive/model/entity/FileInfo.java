@@ -1,5 +1,6 @@
 package com.cloudrive.model.entity;
 
+import com.cloudrive.common.constant.CommonConstants;
 import jakarta.persistence.*;
 import lombok.Data;
 import org.hibernate.annotations.CreationTimestamp;
@@ -10,6 +11,7 @@ import java.time.LocalDateTime;
 @Data
 @Entity
 @Table(name = "t_file_info")
+@EntityListeners(FileInfoListener.class)
 public class FileInfo {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,6 +35,9 @@ public class FileInfo {
     @Column(name = "sha256_hash")
     private String sha256Hash;
 
+    @Column(name = "tree_hash", length = 64)
+    private String treeHash;
+
     @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
@@ -40,6 +45,13 @@ public class FileInfo {
     @Column(name = "parent_id")
     private Long parentId;
 
+    /**
+     * 祖先路径，由根到父项的ID组成，如 /12/57/，根目录下的项为 /
+     * 子树查询按前缀匹配走 (user_id, ancestor_path) 索引
+     */
+    @Column(name = "ancestor_path", nullable = false, length = CommonConstants.File.MAX_ANCESTOR_PATH_LENGTH)
+    private String ancestorPath;
+
     @Column(nullable = false)
     private Boolean isFolder = false;
 
@@ -53,4 +65,17 @@ public class FileInfo {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    /**
+     * 加载时的父文件夹ID，移动后用于使原文件夹的列表缓存失效
+     */
+    @Transient
+    private Long loadedParentId;
+
+    /**
+     * 子项的祖先路径，即本项的祖先路径加上本项ID
+     */
+    public String childAncestorPath() {
+        return ancestorPath + id + CommonConstants.File.SLASH;
+    }
 } 
\ No newline at end of file
@@ -0,0 +1,69 @@
+package com.cloudrive.model.entity;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.service.FileListCacheService;
+import jakarta.persistence.PostLoad;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import jakarta.persistence.PrePersist;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * 文件信息实体监听器
+ * 新增前按父文件夹补齐祖先路径；文件新增、删除、重命名、移动时使所在文件夹的列表缓存失效，移动时新旧文件夹都失效。
+ * 由 Hibernate 通过 Spring 容器创建，JDBC 批量写入不经过这里，由 FileInfoRepositoryCustomImpl 自行处理
+ */
+public class FileInfoListener {
+
+    private final FileListCacheService fileListCacheService;
+    // 监听器随 EntityManagerFactory 创建，仓库依赖 EntityManagerFactory，使用时再获取
+    private final ObjectProvider<FileInfoRepository> fileInfoRepository;
+
+    public FileInfoListener(FileListCacheService fileListCacheService, ObjectProvider<FileInfoRepository> fileInfoRepository) {
+        this.fileListCacheService = fileListCacheService;
+        this.fileInfoRepository = fileInfoRepository;
+    }
+
+    @PrePersist
+    public void beforeInsert(FileInfo fileInfo) {
+        if (fileInfo.getAncestorPath() != null) {
+            return;
+        }
+        if (fileInfo.getParentId() == null) {
+            fileInfo.setAncestorPath(CommonConstants.File.ROOT_ANCESTOR_PATH);
+            return;
+        }
+        String ancestorPath = fileInfoRepository.getObject().lockChildAncestorPaths(List.of(fileInfo.getParentId())).get(fileInfo.getParentId());
+        ExceptionUtil.throwIfNull(ancestorPath, ErrorCode.FILE_NOT_FOUND);
+        fileInfo.setAncestorPath(ancestorPath);
+    }
+
+    @PostLoad
+    public void afterLoad(FileInfo fileInfo) {
+        fileInfo.setLoadedParentId(fileInfo.getParentId());
+    }
+
+    @PostPersist
+    @PostRemove
+    public void afterInsertOrDelete(FileInfo fileInfo) {
+        fileListCacheService.invalidate(fileInfo.getUser().getId(), fileInfo.getParentId());
+        fileInfo.setLoadedParentId(fileInfo.getParentId());
+    }
+
+    @PostUpdate
+    public void afterUpdate(FileInfo fileInfo) {
+        Long userId = fileInfo.getUser().getId();
+        fileListCacheService.invalidate(userId, fileInfo.getParentId());
+        if (!Objects.equals(fileInfo.getLoadedParentId(), fileInfo.getParentId())) {
+            fileListCacheService.invalidate(userId, fileInfo.getLoadedParentId());
+        }
+        fileInfo.setLoadedParentId(fileInfo.getParentId());
+    }
+}
@@ -0,0 +1,38 @@
+package com.cloudrive.model.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import org.hibernate.annotations.CreationTimestamp;
+import org.springframework.data.domain.Persistable;
+
+import java.time.LocalDateTime;
+
+/**
+ * 上传收尾任务的提交记录，与文件记录在同一事务内写入，用于识别重复投递的收尾任务
+ * 主键由任务ID指定，保存时总是插入而不是合并，并发提交同一任务时由主键冲突拒绝
+ */
+@Data
+@Entity
+@Table(name = "t_upload_task_commit")
+public class UploadTaskCommit implements Persistable<String> {
+    @Id
+    @Column(name = "task_id", length = 64)
+    private String taskId;
+
+    @Column(name = "file_id", nullable = false)
+    private Long fileId;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Override
+    public String getId() {
+        return taskId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return createdAt == null;
+    }
+}
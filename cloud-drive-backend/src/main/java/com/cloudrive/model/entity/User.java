@@ -27,6 +27,12 @@ public class User {
     @Column(name = "status", nullable = false)
     private Integer status;
 
+    /**
+     * 用户等级，决定传输带宽，为空时使用默认等级
+     */
+    @Column(name = "tier", length = 20)
+    private String tier;
+
     @CreationTimestamp
     @Column(name = "create_time", nullable = false, updatable = false)
     private LocalDateTime createTime;
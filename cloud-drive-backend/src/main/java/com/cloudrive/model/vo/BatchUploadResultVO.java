@@ -0,0 +1,14 @@
+package com.cloudrive.model.vo;
+
+import lombok.Data;
+
+/**
+ * 批量上传结果VO
+ */
+@Data
+public class BatchUploadResultVO {
+    private int fileCount;
+    private int folderCount;
+    private int fastUploadCount;
+    private long totalBytes;
+}
@@ -0,0 +1,13 @@
+package com.cloudrive.model.vo;
+
+import lombok.Data;
+
+/**
+ * 文件块签名VO
+ */
+@Data
+public class BlockSignatureVO {
+    private int index;
+    private int weak;
+    private String strong;
+}
@@ -0,0 +1,17 @@
+package com.cloudrive.model.vo;
+
+import lombok.Data;
+
+/**
+ * 批量导入结果VO
+ */
+@Data
+public class BulkImportResultVO {
+    private long fileCount;
+    private long folderCount;
+    private long fastUploadCount;
+    private long skippedCount;
+    private long failedCount;
+    private long totalBytes;
+    private long elapsedMillis;
+}
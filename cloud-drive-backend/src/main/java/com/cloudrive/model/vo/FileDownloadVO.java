@@ -0,0 +1,19 @@
+package com.cloudrive.model.vo;
+
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+/**
+ * 可下载文件信息VO，用于流式下载
+ */
+@Data
+public class FileDownloadVO {
+    private Long fileId;
+    private String filename;
+    private String path;
+    private Long fileSize;
+    private String fileType;
+    private String sha256Hash;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,18 @@
+package com.cloudrive.model.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 文件列表分页VO
+ */
+@Data
+public class FilePageVO {
+    private List<FileListVO> items;
+    /**
+     * 下一页游标，没有下一页时为null
+     */
+    private String nextCursor;
+    private boolean hasMore;
+}
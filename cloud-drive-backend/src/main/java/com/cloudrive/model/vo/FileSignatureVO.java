@@ -0,0 +1,17 @@
+package com.cloudrive.model.vo;
+
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 文件签名VO，用于增量上传
+ */
+@Data
+public class FileSignatureVO {
+    private Long fileId;
+    private Long fileSize;
+    private String sha256Hash;
+    private int blockSize;
+    private List<BlockSignatureVO> blocks;
+}
@@ -0,0 +1,30 @@
+package com.cloudrive.model.vo;
+
+import lombok.Data;
+
+/**
+ * 热点分享VO
+ */
+@Data
+public class HotShareVO {
+    /**
+     * 分享ID，分享已不存在时为null
+     */
+    private Long shareId;
+    /**
+     * 打码后的分享码，分享码即访问凭据，不对外返回原值
+     */
+    private String maskedShareCode;
+    /**
+     * 上一个完整统计窗口内全集群的访问次数
+     */
+    private long requests;
+    /**
+     * 每秒访问次数
+     */
+    private double rate;
+    /**
+     * 解析结果是否已常驻内存（只常驻分享与文件信息，不含文件内容）
+     */
+    private boolean pinned;
+}
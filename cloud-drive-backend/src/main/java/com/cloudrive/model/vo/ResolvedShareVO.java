@@ -0,0 +1,33 @@
+package com.cloudrive.model.vo;
+
+import lombok.Data;
+
+/**
+ * 分享解析结果VO，缓存分享访问路径所需的分享与文件信息
+ * 时间字段为毫秒时间戳；missing 为 true 表示分享码不存在（负缓存）
+ */
+@Data
+public class ResolvedShareVO {
+    private String shareCode;
+    private boolean missing;
+    private Long shareId;
+    private Long fileId;
+    private String filename;
+    private String path;
+    private Long fileSize;
+    private String fileType;
+    private String sha256Hash;
+    private Long fileUpdatedAt;
+    private Long expireTime;
+    private boolean passwordProtected;
+    private boolean expired;
+    private boolean fileDeleted;
+    private boolean folder;
+
+    public static ResolvedShareVO missing(String shareCode) {
+        ResolvedShareVO resolved = new ResolvedShareVO();
+        resolved.setShareCode(shareCode);
+        resolved.setMissing(true);
+        return resolved;
+    }
+}
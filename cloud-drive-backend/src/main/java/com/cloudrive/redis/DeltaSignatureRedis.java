@@ -0,0 +1,49 @@
+package com.cloudrive.redis;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.model.vo.BlockSignatureVO;
+import com.fasterxml.jackson.core.type.TypeReference;
+import org.redisson.api.RBucket;
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * 增量上传块签名 Redis 操作类
+ * 签名只取决于内容与块大小，按内容哈希保存，内容相同的文件共用
+ */
+@Component
+public class DeltaSignatureRedis {
+
+    private static final TypedJsonJacksonCodec CODEC = new TypedJsonJacksonCodec(new TypeReference<List<BlockSignatureVO>>() {
+    });
+
+    private final RedissonClient redissonClient;
+
+    public DeltaSignatureRedis(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    private RBucket<List<BlockSignatureVO>> getBucket(String sha256Hash, int blockSize) {
+        return redissonClient.getBucket(CommonConstants.Upload.DELTA_SIGNATURE_PREFIX + sha256Hash + ":" + blockSize, CODEC);
+    }
+
+    public List<BlockSignatureVO> get(String sha256Hash, int blockSize) {
+        return getBucket(sha256Hash, blockSize).get();
+    }
+
+    public void set(String sha256Hash, int blockSize, List<BlockSignatureVO> blocks, Duration ttl) {
+        getBucket(sha256Hash, blockSize).set(blocks, ttl);
+    }
+
+    /**
+     * 获取计算签名的锁
+     */
+    public RLock getLoadLock(String sha256Hash, int blockSize) {
+        return redissonClient.getLock(CommonConstants.Upload.DELTA_SIGNATURE_LOCK_PREFIX + sha256Hash + ":" + blockSize);
+    }
+}
@@ -0,0 +1,116 @@
+package com.cloudrive.redis;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.model.vo.FilePageVO;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.Data;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RLock;
+import org.redisson.api.RMap;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 文件列表缓存 Redis 操作类
+ * 每个文件夹一个 Hash，字段为分页键，失效时整体删除；代数在每次失效时递增，用于发现加载期间发生的失效
+ */
+@Component
+public class FileListCacheRedis {
+
+    private final RedissonClient redissonClient;
+    private final TypedJsonJacksonCodec codec;
+
+    public FileListCacheRedis(RedissonClient redissonClient, ObjectMapper objectMapper) {
+        this.redissonClient = redissonClient;
+        // 使用应用的 ObjectMapper 以支持 LocalDateTime
+        this.codec = new TypedJsonJacksonCodec(String.class, CachedPage.class, objectMapper);
+    }
+
+    private RMap<String, CachedPage> getMap(String folderKey) {
+        return redissonClient.getMap(CommonConstants.File.LIST_CACHE_PREFIX + folderKey, codec);
+    }
+
+    private RTopic getTopic() {
+        return redissonClient.getTopic(CommonConstants.File.LIST_INVALIDATE_TOPIC, StringCodec.INSTANCE);
+    }
+
+    public CachedPage get(String folderKey, String pageKey) {
+        return getMap(folderKey).get(pageKey);
+    }
+
+    public void put(String folderKey, String pageKey, CachedPage page, Duration ttl) {
+        RMap<String, CachedPage> map = getMap(folderKey);
+        map.fastPut(pageKey, page);
+        map.expire(ttl);
+    }
+
+    public void remove(String folderKey, String pageKey) {
+        getMap(folderKey).fastRemove(pageKey);
+    }
+
+    public void delete(String folderKey) {
+        getMap(folderKey).delete();
+    }
+
+    /**
+     * 获取文件夹的缓存代数
+     */
+    public long getGeneration(String folderKey) {
+        return redissonClient.getAtomicLong(CommonConstants.File.LIST_GENERATION_PREFIX + folderKey).get();
+    }
+
+    /**
+     * 递增文件夹的缓存代数
+     */
+    public void incrementGeneration(String folderKey, Duration ttl) {
+        RAtomicLong generation = redissonClient.getAtomicLong(CommonConstants.File.LIST_GENERATION_PREFIX + folderKey);
+        generation.incrementAndGet();
+        // 代数只需覆盖缓存有效期内的加载，过期后从0开始不影响判断
+        generation.expire(ttl);
+    }
+
+    /**
+     * 获取加载分页的锁
+     */
+    public RLock getLoadLock(String folderKey, String pageKey) {
+        return redissonClient.getLock(CommonConstants.File.LIST_LOCK_PREFIX + folderKey + ":" + pageKey);
+    }
+
+    /**
+     * 通知所有节点清除文件夹的本地缓存，消息为 文件夹键@发布时间
+     */
+    public void publishInvalidation(String folderKey) {
+        getTopic().publish(folderKey + "@" + System.currentTimeMillis());
+    }
+
+    /**
+     * 订阅失效通知
+     *
+     * @param listener 参数为文件夹键与发布时间
+     */
+    public void addInvalidationListener(InvalidationListener listener) {
+        getTopic().addListener(String.class, (channel, message) -> {
+            int at = message.lastIndexOf('@');
+            listener.onInvalidate(message.substring(0, at), Long.parseLong(message.substring(at + 1)));
+        });
+    }
+
+    @FunctionalInterface
+    public interface InvalidationListener {
+        void onInvalidate(String folderKey, long publishedAt);
+    }
+
+    /**
+     * 缓存的分页及其加载时间
+     */
+    @Data
+    public static class CachedPage {
+        private FilePageVO page;
+        private long cachedAt;
+    }
+}
@@ -0,0 +1,51 @@
+package com.cloudrive.redis;
+
+import com.cloudrive.common.constant.ShareConstants;
+import org.redisson.api.BatchOptions;
+import org.redisson.api.RBatch;
+import org.redisson.api.RScoredSortedSetAsync;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.client.protocol.ScoredEntry;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+
+/**
+ * 热点分享计数 Redis 操作类
+ * 每个统计窗口一个有序集合，成员为分享码，分值为全集群的访问次数
+ */
+@Component
+public class HotShareRedis {
+
+    private final RedissonClient redissonClient;
+
+    public HotShareRedis(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    private String key(long window) {
+        return ShareConstants.Redis.HOT_WINDOW_PREFIX + window;
+    }
+
+    /**
+     * 把本节点的计数累加到指定窗口，一次往返完成
+     */
+    public void addCounts(long window, Map<String, Long> counts, Duration ttl) {
+        RBatch batch = redissonClient.createBatch(BatchOptions.defaults());
+        RScoredSortedSetAsync<String> set = batch.getScoredSortedSet(key(window), StringCodec.INSTANCE);
+        counts.forEach((shareCode, count) -> set.addScoreAsync(shareCode, count));
+        set.expireAsync(ttl);
+        batch.execute();
+    }
+
+    /**
+     * 获取指定窗口内访问次数不少于 minCount 的分享，按次数降序
+     */
+    public Collection<ScoredEntry<String>> top(long window, double minCount, int limit) {
+        return redissonClient.<String>getScoredSortedSet(key(window), StringCodec.INSTANCE)
+                .entryRangeReversed(minCount, true, Double.POSITIVE_INFINITY, true, 0, limit);
+    }
+}
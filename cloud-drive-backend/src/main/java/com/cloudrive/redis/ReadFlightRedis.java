@@ -0,0 +1,79 @@
+package com.cloudrive.redis;
+
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RBucket;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * 跨节点读取合并 Redis 操作类
+ * 记录每个对象正在进行的拉取所写入的缓冲文件及已写入的字节数，-1 表示拉取失败
+ */
+@Component
+public class ReadFlightRedis {
+
+    public static final String READ_FLIGHT_PREFIX = "read_flight:";
+    public static final String READ_FLIGHT_PROGRESS_PREFIX = "read_flight:progress:";
+
+    public static final long FAILED = -1L;
+
+    private final RedissonClient redissonClient;
+
+    public ReadFlightRedis(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    private RBucket<String> getBucket(String path) {
+        return redissonClient.getBucket(READ_FLIGHT_PREFIX + path, StringCodec.INSTANCE);
+    }
+
+    private RAtomicLong getProgress(String path) {
+        return redissonClient.getAtomicLong(READ_FLIGHT_PROGRESS_PREFIX + path);
+    }
+
+    /**
+     * 登记本节点为该对象的拉取方
+     *
+     * @return 登记成功返回true，已有其他节点在拉取返回false
+     */
+    public boolean claim(String path, String spillName, Duration ttl) {
+        if (!getBucket(path).setIfAbsent(spillName, ttl)) {
+            return false;
+        }
+        getProgress(path).set(0);
+        getProgress(path).expire(ttl);
+        return true;
+    }
+
+    /**
+     * 获取正在拉取该对象的缓冲文件名，没有则返回null
+     */
+    public String getSpillName(String path) {
+        return getBucket(path).get();
+    }
+
+    public long getProgressBytes(String path) {
+        return getProgress(path).get();
+    }
+
+    /**
+     * 更新已写入的字节数，同时延长登记的有效期
+     */
+    public void updateProgress(String path, long bytes, Duration ttl) {
+        getProgress(path).set(bytes);
+        getProgress(path).expire(ttl);
+        getBucket(path).expire(ttl);
+    }
+
+    /**
+     * 拉取失败，删除登记并通知正在读取的节点
+     */
+    public void fail(String path, Duration ttl) {
+        getBucket(path).delete();
+        getProgress(path).set(FAILED);
+        getProgress(path).expire(ttl);
+    }
+}
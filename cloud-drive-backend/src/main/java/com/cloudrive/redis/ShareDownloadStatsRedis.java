@@ -0,0 +1,53 @@
+package com.cloudrive.redis;
+
+import com.cloudrive.common.constant.ShareConstants;
+import org.redisson.api.RMap;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.LongCodec;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+
+/**
+ * 分享下载统计 Redis 操作类
+ * 每个分享一个哈希，字段为下载方式，值为次数
+ */
+@Component
+public class ShareDownloadStatsRedis {
+
+    /**
+     * 最后一次下载后统计的保留时间
+     */
+    private static final Duration STATS_TTL = Duration.ofDays(30);
+
+    private final RedissonClient redissonClient;
+
+    public ShareDownloadStatsRedis(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    private RMap<String, Long> getMap(String shareCode) {
+        return redissonClient.getMap(ShareConstants.Redis.DOWNLOAD_STATS_PREFIX + shareCode, LongCodec.INSTANCE);
+    }
+
+    /**
+     * 增加分享指定下载方式的次数
+     */
+    public void increment(String shareCode, String mode) {
+        RMap<String, Long> stats = getMap(shareCode);
+        stats.addAndGet(mode, 1L);
+        stats.expire(STATS_TTL);
+    }
+
+    /**
+     * 获取分享各下载方式的次数
+     */
+    public Map<String, Long> getStats(String shareCode) {
+        return getMap(shareCode).readAllMap();
+    }
+
+    public void delete(String shareCode) {
+        getMap(shareCode).delete();
+    }
+}
@@ -0,0 +1,81 @@
+package com.cloudrive.redis;
+
+import com.cloudrive.common.constant.ShareConstants;
+import com.cloudrive.model.vo.ResolvedShareVO;
+import org.redisson.api.RAtomicLong;
+import org.redisson.api.RBucket;
+import org.redisson.api.RTopic;
+import org.redisson.api.RedissonClient;
+import org.redisson.client.codec.StringCodec;
+import org.redisson.codec.TypedJsonJacksonCodec;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * 分享解析结果 Redis 操作类
+ * 解析结果以 JSON 保存，失效时通过主题通知各节点清除本地缓存；代数在每次失效时递增，用于发现加载期间发生的失效
+ */
+@Component
+public class ShareResolutionRedis {
+
+    private static final TypedJsonJacksonCodec CODEC = new TypedJsonJacksonCodec(ResolvedShareVO.class);
+
+    private final RedissonClient redissonClient;
+
+    public ShareResolutionRedis(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    private RBucket<ResolvedShareVO> getBucket(String shareCode) {
+        return redissonClient.getBucket(ShareConstants.Redis.RESOLVED_PREFIX + shareCode, CODEC);
+    }
+
+    private RTopic getTopic() {
+        return redissonClient.getTopic(ShareConstants.Redis.RESOLVED_INVALIDATE_TOPIC, StringCodec.INSTANCE);
+    }
+
+    public ResolvedShareVO get(String shareCode) {
+        return getBucket(shareCode).get();
+    }
+
+    public void set(ResolvedShareVO resolved, Duration ttl) {
+        getBucket(resolved.getShareCode()).set(resolved, ttl);
+    }
+
+    public void delete(String shareCode) {
+        getBucket(shareCode).delete();
+    }
+
+    /**
+     * 获取分享码的缓存代数
+     */
+    public long getGeneration(String shareCode) {
+        return redissonClient.getAtomicLong(ShareConstants.Redis.RESOLVED_GENERATION_PREFIX + shareCode).get();
+    }
+
+    /**
+     * 递增分享码的缓存代数
+     */
+    public void incrementGeneration(String shareCode, Duration ttl) {
+        RAtomicLong generation = redissonClient.getAtomicLong(ShareConstants.Redis.RESOLVED_GENERATION_PREFIX + shareCode);
+        generation.incrementAndGet();
+        // 代数只需覆盖缓存有效期内的加载，过期后从0开始不影响判断
+        generation.expire(ttl);
+    }
+
+    /**
+     * 通知所有节点清除指定分享码的本地缓存
+     */
+    public void publishInvalidation(String shareCode) {
+        getTopic().publish(shareCode);
+    }
+
+    /**
+     * 订阅失效通知
+     */
+    public void addInvalidationListener(Consumer<String> listener) {
+        getTopic().addListener(String.class, (channel, shareCode) -> listener.accept(shareCode));
+    }
+}
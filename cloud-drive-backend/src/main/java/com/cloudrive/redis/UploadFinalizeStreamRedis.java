@@ -0,0 +1,109 @@
+package com.cloudrive.redis;
+
+import com.cloudrive.common.constant.CommonConstants;
+import org.redisson.api.AutoClaimResult;
+import org.redisson.api.PendingEntry;
+import org.redisson.api.RStream;
+import org.redisson.api.RedissonClient;
+import org.redisson.api.StreamGroup;
+import org.redisson.api.StreamMessageId;
+import org.redisson.api.stream.StreamAddArgs;
+import org.redisson.api.stream.StreamCreateGroupArgs;
+import org.redisson.api.stream.StreamReadGroupArgs;
+import org.redisson.client.RedisException;
+import org.redisson.client.codec.StringCodec;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 上传收尾任务流 Redis 操作类
+ */
+@Component
+public class UploadFinalizeStreamRedis {
+
+    private final RedissonClient redissonClient;
+
+    public UploadFinalizeStreamRedis(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    private RStream<String, String> getStream() {
+        return redissonClient.getStream(CommonConstants.Upload.FINALIZE_STREAM, StringCodec.INSTANCE);
+    }
+
+    /**
+     * 创建消费组，流不存在时一并创建；消费组已存在时忽略
+     */
+    public void ensureGroup() {
+        try {
+            getStream().createGroup(StreamCreateGroupArgs.name(CommonConstants.Upload.FINALIZE_GROUP).makeStream());
+        } catch (RedisException e) {
+            if (e.getMessage() == null || !e.getMessage().contains("BUSYGROUP")) {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * 投递任务
+     * 不按长度裁剪：裁剪会连同未确认的任务一起删除，已处理的任务在确认时删除
+     */
+    public StreamMessageId publish(Map<String, String> job) {
+        return getStream().add(StreamAddArgs.entries(job));
+    }
+
+    /**
+     * 以消费组方式读取从未投递过的任务
+     */
+    public Map<StreamMessageId, Map<String, String>> read(String consumer, int count, Duration timeout) {
+        return getStream().readGroup(CommonConstants.Upload.FINALIZE_GROUP, consumer,
+                StreamReadGroupArgs.neverDelivered().count(count).timeout(timeout));
+    }
+
+    /**
+     * 接管空闲时间超过 minIdle 的待确认任务
+     */
+    public AutoClaimResult<String, String> claimIdle(String consumer, Duration minIdle, StreamMessageId startId, int count) {
+        return getStream().autoClaim(CommonConstants.Upload.FINALIZE_GROUP, consumer, minIdle.toMillis(), TimeUnit.MILLISECONDS, startId, count);
+    }
+
+    /**
+     * 获取任务已被投递的次数
+     */
+    public long getDeliveryCount(StreamMessageId id) {
+        List<PendingEntry> entries = getStream().listPending(CommonConstants.Upload.FINALIZE_GROUP, id, id, 1);
+        return entries.isEmpty() ? 0 : entries.get(0).getLastTimeDelivered();
+    }
+
+    /**
+     * 确认任务已处理，并从流中删除
+     */
+    public void ack(StreamMessageId id) {
+        RStream<String, String> stream = getStream();
+        stream.ack(CommonConstants.Upload.FINALIZE_GROUP, id);
+        stream.remove(id);
+    }
+
+    /**
+     * 消费组尚未读取的任务数
+     */
+    public long getLag() {
+        for (StreamGroup group : getStream().listGroups()) {
+            if (CommonConstants.Upload.FINALIZE_GROUP.equals(group.getName())) {
+                return group.getLag();
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * 已投递但未确认的任务数
+     */
+    public long getPendingCount() {
+        return getStream().getPendingInfo(CommonConstants.Upload.FINALIZE_GROUP).getTotal();
+    }
+}
@@ -0,0 +1,27 @@
+package com.cloudrive.redis;
+
+import org.redisson.api.RLock;
+import org.redisson.api.RedissonClient;
+import org.springframework.stereotype.Component;
+
+/**
+ * 上传内容锁 Redis 操作类
+ */
+@Component
+public class UploadLockRedis {
+
+    public static final String UPLOAD_LOCK_PREFIX = "upload_lock:";
+
+    private final RedissonClient redissonClient;
+
+    public UploadLockRedis(RedissonClient redissonClient) {
+        this.redissonClient = redissonClient;
+    }
+
+    /**
+     * 获取指定用户、指定内容的上传锁
+     */
+    public RLock getLock(String key) {
+        return redissonClient.getLock(UPLOAD_LOCK_PREFIX + key);
+    }
+}
@@ -0,0 +1,20 @@
+package com.cloudrive.repository;
+
+import com.cloudrive.model.entity.FileChunkDigest;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface FileChunkDigestRepository extends JpaRepository<FileChunkDigest, Long>, FileChunkDigestRepositoryCustom {
+    /**
+     * 判断指定内容的分块摘要是否已存储
+     */
+    boolean existsBySha256Hash(String sha256Hash);
+
+    /**
+     * 按块序号获取指定内容的分块摘要
+     */
+    List<FileChunkDigest> findBySha256HashOrderByChunkIndexAsc(String sha256Hash);
+}
@@ -0,0 +1,16 @@
+package com.cloudrive.repository;
+
+import com.cloudrive.model.entity.FileChunkDigest;
+
+import java.util.List;
+
+/**
+ * 分块摘要的自定义持久化操作
+ */
+public interface FileChunkDigestRepositoryCustom {
+    /**
+     * 以 JDBC 批处理方式插入分块摘要，(sha256_hash, chunk_index) 已存在的行跳过
+     * 不同用户并发上传相同内容时各自写入同一组摘要，不会因唯一约束失败
+     */
+    void insertIgnoringDuplicates(List<FileChunkDigest> digests);
+}
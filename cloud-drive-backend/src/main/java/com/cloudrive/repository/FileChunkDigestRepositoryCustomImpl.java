@@ -0,0 +1,40 @@
+package com.cloudrive.repository;
+
+import com.cloudrive.model.entity.FileChunkDigest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public class FileChunkDigestRepositoryCustomImpl implements FileChunkDigestRepositoryCustom {
+
+    private static final int BATCH_SIZE = 500;
+
+    // 只忽略唯一约束冲突，其他错误照常抛出
+    private static final String INSERT_SQL = "INSERT INTO t_file_chunk_digest (sha256_hash, chunk_index, chunk_size, digest, created_at) "
+            + "VALUES (?, ?, ?, ?, ?) ON DUPLICATE KEY UPDATE chunk_index = chunk_index";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public FileChunkDigestRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    @Transactional
+    public void insertIgnoringDuplicates(List<FileChunkDigest> digests) {
+        if (digests.isEmpty()) {
+            return;
+        }
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_SQL, digests, BATCH_SIZE, (ps, digest) -> {
+            ps.setString(1, digest.getSha256Hash());
+            ps.setInt(2, digest.getChunkIndex());
+            ps.setInt(3, digest.getChunkSize());
+            ps.setString(4, digest.getDigest());
+            ps.setTimestamp(5, now);
+        });
+    }
+}
@@ -1,25 +1,46 @@
 package com.cloudrive.repository;
 
 import com.cloudrive.model.entity.FileInfo;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
-public interface FileInfoRepository extends JpaRepository<FileInfo, Long> {
+public interface FileInfoRepository extends JpaRepository<FileInfo, Long>, FileInfoRepositoryCustom {
     List<FileInfo> findByUserIdAndParentIdIsNullAndIsDeletedFalse(Long userId);
     List<FileInfo> findByUserIdAndParentIdAndIsDeletedFalse(Long userId, Long parentId);
     Optional<FileInfo> findByPathAndUserId(String path, Long userId);
     long countByParentIdAndIsDeletedFalse(Long parentId);
+
+    /**
+     * 以排他锁读取文件，读到的是最新提交的数据而不是事务快照
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT f FROM FileInfo f WHERE f.id = :id")
+    Optional<FileInfo> findByIdForUpdate(@Param("id") Long id);
     
     /**
      * 根据SHA-256哈希值和用户ID查找未删除的文件
      */
     List<FileInfo> findBySha256HashAndUserIdAndIsDeletedFalse(String sha256Hash, Long userId);
+
+    /**
+     * 批量查找用户未删除的、哈希值在给定集合中的文件，用于批量秒传判断
+     */
+    List<FileInfo> findBySha256HashInAndUserIdAndIsDeletedFalse(Collection<String> sha256Hashes, Long userId);
+
+    /**
+     * 查找父目录下指定名称的未删除文件夹
+     */
+    Optional<FileInfo> findFirstByUserIdAndParentIdAndFilenameAndIsFolderTrueAndIsDeletedFalse(Long userId, Long parentId, String filename);
     
     /**
      * 统计引用同一文件路径的文件数量
@@ -28,8 +49,22 @@ public interface FileInfoRepository extends JpaRepository<FileInfo, Long> {
     long countByPathAndIsDeletedFalse(@Param("path") String path);
 
     /**
-     * 根据文件名模糊搜索文件（不区分大小写）
+     * 统计用户未删除文件的总大小
+     */
+    @Query("SELECT COALESCE(SUM(f.fileSize), 0) FROM FileInfo f WHERE f.user.id = :userId AND f.isDeleted = false AND f.isFolder = false")
+    long sumFileSizeByUserId(@Param("userId") Long userId);
+
+    /**
+     * 按 (祖先路径, ID) 顺序分页查询子树中未删除的项（不含子树根），从游标之后开始
+     * 顺序与 (user_id, ancestor_path) 索引一致，逐页读取时不会重复扫描已读过的部分
+     *
+     * @param prefix    子树根的子项祖先路径
+     * @param afterPath 上一页最后一项的祖先路径，第一页传 prefix
+     * @param afterId   上一页最后一项的ID，第一页传 0
      */
-    @Query("SELECT f FROM FileInfo f WHERE f.user.id = :userId AND LOWER(f.filename) LIKE LOWER(CONCAT('%', :keyword, '%')) AND f.isDeleted = false")
-    List<FileInfo> searchByFilename(@Param("userId") Long userId, @Param("keyword") String keyword);
+    @Query("SELECT f FROM FileInfo f WHERE f.user.id = :userId AND f.ancestorPath LIKE CONCAT(:prefix, '%') AND f.isDeleted = false "
+            + "AND (f.ancestorPath > :afterPath OR (f.ancestorPath = :afterPath AND f.id > :afterId)) "
+            + "ORDER BY f.ancestorPath, f.id")
+    List<FileInfo> findSubtreePage(@Param("userId") Long userId, @Param("prefix") String prefix,
+                                   @Param("afterPath") String afterPath, @Param("afterId") Long afterId, Pageable pageable);
 } 
\ No newline at end of file
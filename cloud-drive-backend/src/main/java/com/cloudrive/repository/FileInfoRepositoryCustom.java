@@ -0,0 +1,60 @@
+package com.cloudrive.repository;
+
+import com.cloudrive.common.enums.FileSortField;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.vo.FileListVO;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 文件信息的自定义持久化操作
+ */
+public interface FileInfoRepositoryCustom {
+    /**
+     * 以 JDBC 批处理方式插入文件记录，不回填主键
+     * IDENTITY 主键会使 Hibernate 禁用插入批处理，大量记录时改用此方法
+     */
+    void batchInsert(List<FileInfo> fileInfos);
+
+    /**
+     * 按键集分页查询文件夹的直接子项，只查询列表需要的列
+     * 从上一页最后一项 (afterValue, afterId) 之后继续，不使用 OFFSET，每页的耗时与文件夹大小无关
+     *
+     * @param sort       排序字段
+     * @param descending 是否降序
+     * @param afterValue 上一页最后一项的排序列值，第一页或该值为空时为null
+     * @param afterId    上一页最后一项的ID，第一页为null
+     * @param limit      最多返回的条数
+     */
+    List<FileListVO> findChildrenPage(Long userId, Long parentId, FileSortField sort, boolean descending, Object afterValue, Long afterId, int limit);
+
+    /**
+     * 根据文件名模糊搜索用户未删除的文件（不区分大小写），只查询列表需要的列
+     */
+    List<FileListVO> searchByFilename(Long userId, String keyword);
+
+    /**
+     * 以共享锁读取父文件夹，返回其子项应使用的祖先路径
+     * 锁持有到事务结束，新建子项与移动父文件夹（或其祖先）互斥，不会写入移动前的旧路径
+     *
+     * @param parentIds 父文件夹ID
+     * @return 父文件夹ID到子项祖先路径的映射，不存在的父文件夹不在结果中
+     */
+    Map<Long, String> lockChildAncestorPaths(Collection<Long> parentIds);
+
+    /**
+     * 查询子树中最长的祖先路径长度，子树为空时返回0
+     *
+     * @param prefix 子树根的子项祖先路径
+     */
+    int findMaxAncestorPathLength(Long userId, String prefix);
+
+    /**
+     * 将子树中所有项的祖先路径前缀由 oldPrefix 替换为 newPrefix，一条语句完成
+     *
+     * @return 更新的条数
+     */
+    int moveSubtree(Long userId, String oldPrefix, String newPrefix);
+}
@@ -0,0 +1,209 @@
+package com.cloudrive.repository;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.enums.FileSortField;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.config.properties.ListingQueryProperties;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.vo.FileListVO;
+import com.cloudrive.service.FileListCacheService;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+public class FileInfoRepositoryCustomImpl implements FileInfoRepositoryCustom {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String INSERT_SQL = "INSERT INTO t_file_info "
+            + "(filename, original_filename, path, file_size, file_type, sha256_hash, tree_hash, user_id, parent_id, isFolder, isDeleted, created_at, updated_at, ancestor_path) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String SELECT_CHILDREN_SQL = "SELECT id, filename, original_filename, path, file_size, file_type, parent_id, isFolder, created_at, updated_at "
+            + "FROM t_file_info WHERE user_id = ? AND ";
+
+    private static final String SEARCH_SQL = "SELECT id, filename, original_filename, path, file_size, file_type, parent_id, isFolder, created_at, updated_at "
+            + "FROM t_file_info WHERE user_id = ? AND LOWER(filename) LIKE LOWER(CONCAT('%', ?, '%')) AND isDeleted = false";
+
+    private static final String MOVE_SUBTREE_SQL = "UPDATE t_file_info SET ancestor_path = CONCAT(?, SUBSTRING(ancestor_path, ?)) "
+            + "WHERE user_id = ? AND ancestor_path LIKE ?";
+
+    private static final RowMapper<FileListVO> FILE_LIST_ROW_MAPPER = (rs, rowNum) -> {
+        FileListVO vo = new FileListVO();
+        vo.setId(rs.getLong("id"));
+        vo.setFilename(rs.getString("filename"));
+        vo.setOriginalFilename(rs.getString("original_filename"));
+        vo.setPath(rs.getString("path"));
+        vo.setFileSize(rs.getLong("file_size"));
+        vo.setFileType(rs.getString("file_type"));
+        vo.setParentId(rs.getObject("parent_id", Long.class));
+        vo.setIsFolder(rs.getBoolean("isFolder"));
+        vo.setCreatedAt(rs.getObject("created_at", LocalDateTime.class));
+        vo.setUpdatedAt(rs.getObject("updated_at", LocalDateTime.class));
+        return vo;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FileListCacheService fileListCacheService;
+    private final ListingQueryProperties listingQueryProperties;
+
+    public FileInfoRepositoryCustomImpl(JdbcTemplate jdbcTemplate, FileListCacheService fileListCacheService, ListingQueryProperties listingQueryProperties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fileListCacheService = fileListCacheService;
+        this.listingQueryProperties = listingQueryProperties;
+    }
+
+    @Override
+    @Transactional
+    public void batchInsert(List<FileInfo> fileInfos) {
+        if (fileInfos.isEmpty()) {
+            return;
+        }
+        // JDBC 写入不触发实体监听器，在这里补齐祖先路径
+        Map<Long, String> childAncestorPaths = lockChildAncestorPaths(fileInfos.stream()
+                .filter(fileInfo -> fileInfo.getAncestorPath() == null && fileInfo.getParentId() != null)
+                .map(FileInfo::getParentId)
+                .collect(Collectors.toSet()));
+        for (FileInfo fileInfo : fileInfos) {
+            if (fileInfo.getAncestorPath() == null) {
+                String ancestorPath = fileInfo.getParentId() == null ? CommonConstants.File.ROOT_ANCESTOR_PATH : childAncestorPaths.get(fileInfo.getParentId());
+                ExceptionUtil.throwIfNull(ancestorPath, ErrorCode.FILE_NOT_FOUND);
+                fileInfo.setAncestorPath(ancestorPath);
+            }
+        }
+        jdbcTemplate.batchUpdate(INSERT_SQL, fileInfos, BATCH_SIZE, (ps, fileInfo) -> {
+            LocalDateTime now = LocalDateTime.now();
+            ps.setString(1, fileInfo.getFilename());
+            ps.setString(2, fileInfo.getOriginalFilename());
+            ps.setString(3, fileInfo.getPath());
+            ps.setLong(4, fileInfo.getFileSize());
+            ps.setString(5, fileInfo.getFileType());
+            ps.setString(6, fileInfo.getSha256Hash());
+            ps.setString(7, fileInfo.getTreeHash());
+            ps.setLong(8, fileInfo.getUser().getId());
+            if (fileInfo.getParentId() != null) {
+                ps.setLong(9, fileInfo.getParentId());
+            } else {
+                ps.setNull(9, Types.BIGINT);
+            }
+            ps.setBoolean(10, Boolean.TRUE.equals(fileInfo.getIsFolder()));
+            ps.setBoolean(11, Boolean.TRUE.equals(fileInfo.getIsDeleted()));
+            ps.setTimestamp(12, Timestamp.valueOf(fileInfo.getCreatedAt() != null ? fileInfo.getCreatedAt() : now));
+            ps.setTimestamp(13, Timestamp.valueOf(fileInfo.getUpdatedAt() != null ? fileInfo.getUpdatedAt() : now));
+            ps.setString(14, fileInfo.getAncestorPath());
+        });
+        // 同样使涉及的文件夹列表缓存失效
+        fileInfos.stream()
+                .map(fileInfo -> Arrays.asList(fileInfo.getUser().getId(), fileInfo.getParentId()))
+                .distinct()
+                .forEach(folder -> fileListCacheService.invalidate(folder.get(0), folder.get(1)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FileListVO> findChildrenPage(Long userId, Long parentId, FileSortField sort, boolean descending, Object afterValue, Long afterId, int limit) {
+        StringBuilder sql = new StringBuilder(SELECT_CHILDREN_SQL);
+        List<Object> args = new ArrayList<>();
+        args.add(userId);
+        if (parentId == null) {
+            sql.append("parent_id IS NULL");
+        } else {
+            sql.append("parent_id = ?");
+            args.add(parentId);
+        }
+        sql.append(" AND isDeleted = false");
+        if (afterId != null) {
+            appendKeyset(sql, args, sort.getColumn(), descending, afterValue, afterId);
+        }
+        String direction = descending ? " DESC" : " ASC";
+        sql.append(" ORDER BY ").append(sort.getColumn()).append(direction).append(", id").append(direction).append(" LIMIT ?");
+        args.add(limit);
+        return queryList(sql.toString(), args.toArray());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<FileListVO> searchByFilename(Long userId, String keyword) {
+        return queryList(SEARCH_SQL, userId, keyword);
+    }
+
+    @Override
+    public Map<Long, String> lockChildAncestorPaths(Collection<Long> parentIds) {
+        Map<Long, String> result = new HashMap<>();
+        if (parentIds.isEmpty()) {
+            return result;
+        }
+        String placeholders = String.join(", ", Collections.nCopies(parentIds.size(), "?"));
+        jdbcTemplate.query("SELECT id, ancestor_path FROM t_file_info WHERE id IN (" + placeholders + ") FOR SHARE",
+                rs -> {
+                    result.put(rs.getLong("id"), rs.getString("ancestor_path") + rs.getLong("id") + CommonConstants.File.SLASH);
+                }, parentIds.toArray());
+        return result;
+    }
+
+    @Override
+    public int findMaxAncestorPathLength(Long userId, String prefix) {
+        Integer length = jdbcTemplate.queryForObject("SELECT MAX(LENGTH(ancestor_path)) FROM t_file_info WHERE user_id = ? AND ancestor_path LIKE ?",
+                Integer.class, userId, prefix + "%");
+        return length != null ? length : 0;
+    }
+
+    @Override
+    public int moveSubtree(Long userId, String oldPrefix, String newPrefix) {
+        // 祖先路径只含数字与 /，前缀中没有 LIKE 通配符
+        return jdbcTemplate.update(MOVE_SUBTREE_SQL, newPrefix, oldPrefix.length() + 1, userId, oldPrefix + "%");
+    }
+
+    /**
+     * 以列表查询的 fetch size 执行投影查询，结果直接映射为 FileListVO，不经过持久化上下文
+     */
+    private List<FileListVO> queryList(String sql, Object... args) {
+        return jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(listingQueryProperties.getFetchSize());
+            new ArgumentPreparedStatementSetter(args).setValues(ps);
+            return ps;
+        }, FILE_LIST_ROW_MAPPER);
+    }
+
+    /**
+     * 追加"位于 (afterValue, afterId) 之后"的条件
+     * MySQL 中 NULL 小于任何值：升序时排在最前，降序时排在最后
+     */
+    private void appendKeyset(StringBuilder sql, List<Object> args, String column, boolean descending, Object afterValue, Long afterId) {
+        String compare = descending ? " < ?" : " > ?";
+        if (afterValue == null) {
+            if (descending) {
+                sql.append(" AND ").append(column).append(" IS NULL AND id < ?");
+            } else {
+                sql.append(" AND ((").append(column).append(" IS NULL AND id > ?) OR ").append(column).append(" IS NOT NULL)");
+            }
+            args.add(afterId);
+            return;
+        }
+        sql.append(" AND (").append(column).append(compare)
+                .append(" OR (").append(column).append(" = ? AND id").append(compare).append(")");
+        if (descending) {
+            sql.append(" OR ").append(column).append(" IS NULL");
+        }
+        sql.append(")");
+        args.add(afterValue);
+        args.add(afterValue);
+        args.add(afterId);
+    }
+}
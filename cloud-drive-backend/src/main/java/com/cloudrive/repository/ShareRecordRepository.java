@@ -17,6 +17,18 @@ public interface ShareRecordRepository extends JpaRepository<ShareRecord, Long>
      */
     Optional<ShareRecord> findByShareCode(String shareCode);
 
+    /**
+     * 根据分享码查找分享记录，同时加载分享的文件。
+     */
+    @Query("SELECT s FROM ShareRecord s LEFT JOIN FETCH s.file WHERE s.shareCode = ?1")
+    Optional<ShareRecord> findWithFileByShareCode(String shareCode);
+
+    /**
+     * 查询文件的所有分享码。
+     */
+    @Query("SELECT s.shareCode FROM ShareRecord s WHERE s.file.id = ?1")
+    List<String> findShareCodesByFileId(Long fileId);
+
 
     /**
      * 增加分享记录的访问次数。
@@ -0,0 +1,23 @@
+package com.cloudrive.repository;
+
+import com.cloudrive.model.entity.UploadTaskCommit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface UploadTaskCommitRepository extends JpaRepository<UploadTaskCommit, String> {
+    /**
+     * 删除早于指定时间的提交记录
+     *
+     * @return 删除的记录数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM UploadTaskCommit c WHERE c.createdAt < ?1")
+    int deleteCreatedBefore(LocalDateTime before);
+}
@@ -0,0 +1,19 @@
+package com.cloudrive.service;
+
+import com.cloudrive.model.vo.BatchUploadResultVO;
+
+import java.io.InputStream;
+
+/**
+ * 批量上传服务接口
+ */
+public interface BatchUploadService {
+    /**
+     * 上传 zip 压缩包中的全部文件，并按压缩包内的目录结构创建文件夹
+     *
+     * @param archive  zip 格式的压缩包内容
+     * @param parentId 目标父文件夹ID，为空表示根目录
+     * @return 上传结果统计
+     */
+    BatchUploadResultVO uploadArchive(InputStream archive, Long parentId);
+}
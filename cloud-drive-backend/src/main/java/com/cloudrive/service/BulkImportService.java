@@ -0,0 +1,21 @@
+package com.cloudrive.service;
+
+import com.cloudrive.model.vo.BulkImportResultVO;
+
+import java.nio.file.Path;
+
+/**
+ * 批量导入服务，用于将已有数据集离线迁移到网盘
+ */
+public interface BulkImportService {
+    /**
+     * 将源目录下的文件导入到指定用户的文件夹，保留目录结构
+     *
+     * @param source         源目录
+     * @param userId         导入到的用户ID
+     * @param parentId       导入到的父文件夹ID，为空表示根目录
+     * @param checkpointFile 检查点文件，已记录的文件不再导入
+     * @return 导入结果
+     */
+    BulkImportResultVO importDirectory(Path source, Long userId, Long parentId, Path checkpointFile);
+}
@@ -0,0 +1,95 @@
+package com.cloudrive.service;
+
+import com.cloudrive.config.properties.DeltaUploadProperties;
+import com.cloudrive.model.vo.BlockSignatureVO;
+import com.cloudrive.redis.DeltaSignatureRedis;
+import org.redisson.api.RLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 增量上传块签名缓存服务
+ * <p>
+ * 计算签名需要下载并逐块哈希整个已有文件，签名按内容哈希缓存在 Redis，内容不变时客户端反复同步不再重复计算。
+ * 未命中时节点之间通过 Redis 锁等待先到的节点计算，等待超时或 Redis 不可用时直接计算。
+ */
+@Service
+public class DeltaSignatureService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeltaSignatureService.class);
+
+    private final DeltaSignatureRedis deltaSignatureRedis;
+    private final DeltaUploadProperties properties;
+
+    public DeltaSignatureService(DeltaSignatureRedis deltaSignatureRedis, DeltaUploadProperties properties) {
+        this.deltaSignatureRedis = deltaSignatureRedis;
+        this.properties = properties;
+    }
+
+    /**
+     * 读取块签名，未命中时调用计算函数并回填缓存
+     *
+     * @param sha256Hash 文件内容哈希，为空时不缓存
+     * @param blockSize  块大小
+     * @param loader     下载文件并计算签名
+     * @return 块签名
+     */
+    public List<BlockSignatureVO> getSignatures(String sha256Hash, int blockSize, Supplier<List<BlockSignatureVO>> loader) {
+        if (sha256Hash == null || sha256Hash.isBlank()) {
+            return loader.get();
+        }
+        List<BlockSignatureVO> cached = readRedis(sha256Hash, blockSize);
+        if (cached != null) {
+            return cached;
+        }
+
+        RLock lock = null;
+        boolean locked = false;
+        try {
+            lock = deltaSignatureRedis.getLoadLock(sha256Hash, blockSize);
+            locked = lock.tryLock(properties.getSignatureLockWait().toMillis(), properties.getSignatureLockLease().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to acquire delta signature lock: hash={}, error={}", sha256Hash, e.getMessage());
+        }
+        try {
+            // 等锁期间其他节点可能已经计算完成
+            cached = readRedis(sha256Hash, blockSize);
+            if (cached != null) {
+                return cached;
+            }
+            List<BlockSignatureVO> blocks = loader.get();
+            if (blocks.size() <= properties.getSignatureMaxCachedBlocks()) {
+                try {
+                    deltaSignatureRedis.set(sha256Hash, blockSize, blocks, properties.getSignatureTtl());
+                } catch (Exception e) {
+                    logger.warn("Failed to write delta signature to Redis: hash={}, error={}", sha256Hash, e.getMessage());
+                }
+            }
+            return blocks;
+        } finally {
+            if (locked) {
+                try {
+                    lock.unlock();
+                } catch (Exception e) {
+                    logger.warn("Failed to release delta signature lock: hash={}, error={}", sha256Hash, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private List<BlockSignatureVO> readRedis(String sha256Hash, int blockSize) {
+        try {
+            return deltaSignatureRedis.get(sha256Hash, blockSize);
+        } catch (Exception e) {
+            logger.warn("Failed to read delta signature from Redis: hash={}, error={}", sha256Hash, e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.cloudrive.service;
+
+import com.cloudrive.model.vo.FileSignatureVO;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * 增量上传服务接口
+ */
+public interface DeltaUploadService {
+
+    /**
+     * 获取已有文件的块签名
+     *
+     * @param fileId 已有文件ID
+     * @return 文件签名
+     */
+    FileSignatureVO getSignature(Long fileId);
+
+    /**
+     * 基于已有文件和增量数据上传新文件
+     *
+     * @param baseFileId     已有文件ID
+     * @param delta          增量数据
+     * @param parentId       父文件夹ID，为空时使用已有文件所在目录
+     * @param filename       新文件名，为空时使用已有文件名
+     * @param expectedSha256 客户端计算的新文件SHA-256，用于校验重建结果，可为空
+     * @return 文件路径
+     */
+    String uploadDelta(Long baseFileId, MultipartFile delta, Long parentId, String filename, String expectedSha256);
+}
@@ -0,0 +1,264 @@
+package com.cloudrive.service;
+
+import com.cloudrive.config.properties.FileListCacheProperties;
+import com.cloudrive.model.vo.FilePageVO;
+import com.cloudrive.redis.FileListCacheRedis;
+import com.cloudrive.redis.FileListCacheRedis.CachedPage;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.redisson.api.RLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 文件列表缓存服务
+ * <p>
+ * 文件夹的列表分页缓存在本地（Caffeine）和 Redis 两级，按 (用户, 父文件夹) 组织，文件夹内容变化时整体失效。
+ * 上传、删除、重命名、移动由实体监听器在事务提交后触发失效，删除 Redis 缓存并通过主题通知各节点清除本地缓存。
+ * 未命中时同一节点上相同分页只加载一次，节点之间通过 Redis 锁等待先到的节点加载，等待超时后直接查询数据库。
+ */
+@Service
+public class FileListCacheService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileListCacheService.class);
+    private static final String ROOT = "root";
+
+    private final FileListCacheRedis fileListCacheRedis;
+    private final FileListCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, FolderPages> localCache;
+    private Counter localHitCounter;
+    private Counter redisHitCounter;
+    private Counter databaseCounter;
+    private Timer ageTimer;
+    private Timer invalidationLagTimer;
+
+    public FileListCacheService(FileListCacheRedis fileListCacheRedis, FileListCacheProperties properties, MeterRegistry meterRegistry) {
+        this.fileListCacheRedis = fileListCacheRedis;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxFolders())
+                .expireAfterWrite(properties.getLocalTtl())
+                .build();
+
+        localHitCounter = Counter.builder("file.list.cache").tag("result", "local").description("文件列表读取来源").register(meterRegistry);
+        redisHitCounter = Counter.builder("file.list.cache").tag("result", "redis").description("文件列表读取来源").register(meterRegistry);
+        databaseCounter = Counter.builder("file.list.cache").tag("result", "db").description("文件列表读取来源").register(meterRegistry);
+        ageTimer = Timer.builder("file.list.cache.age")
+                .description("命中缓存的文件列表自加载起经过的时间")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        invalidationLagTimer = Timer.builder("file.list.invalidation.lag")
+                .description("失效通知从发布到本节点清除本地缓存的延迟")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("file.list.cache.folders", localCache, Cache::estimatedSize)
+                .description("本地缓存的文件夹数")
+                .register(meterRegistry);
+
+        fileListCacheRedis.addInvalidationListener((folderKey, publishedAt) -> {
+            localCache.invalidate(folderKey);
+            invalidationLagTimer.record(Math.max(0, System.currentTimeMillis() - publishedAt), TimeUnit.MILLISECONDS);
+        });
+    }
+
+    /**
+     * 读取文件列表分页，未命中时调用加载函数并回填缓存
+     *
+     * @param userId   用户ID
+     * @param parentId 父文件夹ID，根目录为null
+     * @param pageKey  分页键，同一文件夹内唯一确定一页（排序、方向、条数、游标）
+     * @param loader   从数据库加载分页
+     * @return 分页
+     */
+    public FilePageVO get(Long userId, Long parentId, String pageKey, Supplier<FilePageVO> loader) {
+        if (!properties.isEnabled()) {
+            return loader.get();
+        }
+        String folderKey = folderKey(userId, parentId);
+        // 先取得文件夹的本地容器再加载，加载期间发生失效时结果写入已移出缓存的旧容器，不会留下陈旧数据
+        FolderPages folder = localCache.get(folderKey, key -> new FolderPages());
+        CompletableFuture<CachedPage> future = folder.pages.get(pageKey);
+        if (future == null) {
+            if (folder.pages.size() >= properties.getLocalMaxPages()) {
+                return loadShared(folderKey, pageKey, loader).getPage();
+            }
+            CompletableFuture<CachedPage> created = new CompletableFuture<>();
+            future = folder.pages.putIfAbsent(pageKey, created);
+            if (future == null) {
+                try {
+                    CachedPage loaded = loadShared(folderKey, pageKey, loader);
+                    created.complete(loaded);
+                    return loaded.getPage();
+                } catch (RuntimeException e) {
+                    folder.pages.remove(pageKey, created);
+                    created.completeExceptionally(e);
+                    throw e;
+                }
+            }
+        }
+
+        // 本地命中，或等待本节点上正在进行的同一分页加载
+        CachedPage cached;
+        try {
+            cached = future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+        localHitCounter.increment();
+        recordAge(cached);
+        return cached.getPage();
+    }
+
+    /**
+     * 使文件夹的列表缓存失效，处于事务中时在提交后执行
+     *
+     * @param userId   用户ID
+     * @param parentId 父文件夹ID，根目录为null
+     */
+    public void invalidate(Long userId, Long parentId) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        String folderKey = folderKey(userId, parentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doInvalidate(folderKey);
+                }
+            });
+        } else {
+            doInvalidate(folderKey);
+        }
+    }
+
+    private void doInvalidate(String folderKey) {
+        localCache.invalidate(folderKey);
+        try {
+            // 先递增代数再删除，加载期间发生的失效能被加载方发现
+            fileListCacheRedis.incrementGeneration(folderKey, properties.getRedisTtl());
+            fileListCacheRedis.delete(folderKey);
+            fileListCacheRedis.publishInvalidation(folderKey);
+        } catch (Exception e) {
+            logger.warn("Failed to invalidate file list cache: folder={}, error={}", folderKey, e.getMessage());
+        }
+    }
+
+    /**
+     * 先读 Redis，未命中时取得加载锁后再读一次，仍未命中再查询数据库；Redis 不可用时直接查询数据库
+     */
+    private CachedPage loadShared(String folderKey, String pageKey, Supplier<FilePageVO> loader) {
+        CachedPage cached = readRedis(folderKey, pageKey);
+        if (cached != null) {
+            return cached;
+        }
+
+        RLock lock = null;
+        boolean locked = false;
+        try {
+            lock = fileListCacheRedis.getLoadLock(folderKey, pageKey);
+            locked = lock.tryLock(properties.getLockWait().toMillis(), properties.getLockLease().toMillis(), TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to acquire file list load lock: folder={}, error={}", folderKey, e.getMessage());
+        }
+        try {
+            // 等锁期间其他节点可能已经加载完成
+            cached = readRedis(folderKey, pageKey);
+            if (cached != null) {
+                return cached;
+            }
+            return loadDatabase(folderKey, pageKey, loader);
+        } finally {
+            if (locked) {
+                try {
+                    lock.unlock();
+                } catch (Exception e) {
+                    logger.warn("Failed to release file list load lock: folder={}, error={}", folderKey, e.getMessage());
+                }
+            }
+        }
+    }
+
+    private CachedPage readRedis(String folderKey, String pageKey) {
+        try {
+            CachedPage cached = fileListCacheRedis.get(folderKey, pageKey);
+            if (cached != null) {
+                redisHitCounter.increment();
+                recordAge(cached);
+            }
+            return cached;
+        } catch (Exception e) {
+            logger.warn("Failed to read file list cache from Redis: folder={}, error={}", folderKey, e.getMessage());
+            return null;
+        }
+    }
+
+    private CachedPage loadDatabase(String folderKey, String pageKey, Supplier<FilePageVO> loader) {
+        Long generation = null;
+        try {
+            generation = fileListCacheRedis.getGeneration(folderKey);
+        } catch (Exception e) {
+            logger.warn("Failed to read file list cache generation: folder={}, error={}", folderKey, e.getMessage());
+        }
+
+        databaseCounter.increment();
+        CachedPage loaded = new CachedPage();
+        loaded.setPage(loader.get());
+        loaded.setCachedAt(System.currentTimeMillis());
+        if (generation == null) {
+            return loaded;
+        }
+        try {
+            fileListCacheRedis.put(folderKey, pageKey, loaded, properties.getRedisTtl());
+            // 写入后代数变化说明加载期间发生了失效，查询结果可能已陈旧，撤回写入
+            if (fileListCacheRedis.getGeneration(folderKey) != generation) {
+                fileListCacheRedis.remove(folderKey, pageKey);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to write file list cache to Redis: folder={}, error={}", folderKey, e.getMessage());
+        }
+        return loaded;
+    }
+
+    private void recordAge(CachedPage cached) {
+        ageTimer.record(Math.max(0, System.currentTimeMillis() - cached.getCachedAt()), TimeUnit.MILLISECONDS);
+    }
+
+    private static String folderKey(Long userId, Long parentId) {
+        return userId + ":" + (parentId != null ? parentId : ROOT);
+    }
+
+    /**
+     * 一个文件夹在本地缓存的分页
+     */
+    private static class FolderPages {
+        private final Map<String, CompletableFuture<CachedPage>> pages = new ConcurrentHashMap<>();
+    }
+}
@@ -1,8 +1,13 @@
 package com.cloudrive.service;
 
+import com.cloudrive.common.enums.FileSortField;
+import com.cloudrive.model.vo.FileDownloadVO;
 import com.cloudrive.model.vo.FileListVO;
+import com.cloudrive.model.vo.FilePageVO;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.time.Duration;
 import java.util.List;
 
 /**
@@ -26,15 +31,47 @@ public interface FileService {
      */
     void uploadFileWithProgressFromPath(String filePath, String originalFilename, long fileSize, Long parentId, String taskId, Long userId);
 
+    /**
+     * 流式上传文件，边接收边计算哈希并转发到存储，不在本地缓冲
+     *
+     * @param inputStream      文件内容输入流
+     * @param originalFilename 原始文件名
+     * @param parentId         父文件夹ID
+     * @param maxFileSize      文件大小上限
+     * @return 文件路径
+     */
+    String uploadFileStream(InputStream inputStream, String originalFilename, Long parentId, long maxFileSize);
+
     /**
      * 下载文件
      */
     byte[] downloadFile(Long fileId);
 
     /**
-     * 获取文件列表
+     * 获取当前用户可下载的文件信息
+     */
+    FileDownloadVO getDownloadableFile(Long fileId);
+
+    /**
+     * 打开文件内容输入流，调用方负责关闭
+     */
+    InputStream openFileStream(FileDownloadVO file);
+
+    /**
+     * 生成限时有效的签名下载地址
+     */
+    String generateDownloadUrl(FileDownloadVO file, Duration ttl);
+
+    /**
+     * 分页获取文件夹的直接子项
+     *
+     * @param parentId   父文件夹ID，根目录为null
+     * @param sort       排序字段
+     * @param descending 是否降序
+     * @param cursor     上一页返回的游标，第一页为null
+     * @param limit      每页条数
      */
-    List<FileListVO> listFiles(Long parentId);
+    FilePageVO listFiles(Long parentId, FileSortField sort, boolean descending, String cursor, int limit);
 
     /**
      * 删除文件
@@ -46,6 +83,13 @@ public interface FileService {
      */
     void renameFile(Long fileId, String newFilename);
 
+    /**
+     * 移动文件或文件夹
+     *
+     * @param targetParentId 目标文件夹ID，为空表示根目录
+     */
+    void moveFile(Long fileId, Long targetParentId);
+
     /**
      * 搜索文件
      */
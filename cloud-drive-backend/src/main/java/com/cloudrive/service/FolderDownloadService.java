@@ -0,0 +1,26 @@
+package com.cloudrive.service;
+
+import com.cloudrive.model.vo.FileDownloadVO;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * 文件夹打包下载服务
+ */
+public interface FolderDownloadService {
+    /**
+     * 获取当前用户可打包下载的文件夹信息
+     */
+    FileDownloadVO getDownloadableFolder(Long folderId);
+
+    /**
+     * 遍历文件夹子树，以 ZIP 格式写入输出流
+     * 在响应线程中执行，不依赖当前登录上下文
+     *
+     * @param folder 由 getDownloadableFolder 返回的文件夹信息
+     * @param userId 文件夹所属用户ID
+     * @param out    输出流，调用方负责关闭
+     */
+    void writeZip(FileDownloadVO folder, Long userId, OutputStream out) throws IOException;
+}
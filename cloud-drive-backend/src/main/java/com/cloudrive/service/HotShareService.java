@@ -0,0 +1,126 @@
+package com.cloudrive.service;
+
+import com.cloudrive.common.util.CountMinSketch;
+import com.cloudrive.config.properties.HotShareProperties;
+import com.cloudrive.model.vo.HotShareVO;
+import com.cloudrive.redis.HotShareRedis;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.redisson.client.protocol.ScoredEntry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * 热点分享检测服务
+ * <p>
+ * 每个节点用无锁的 Count-Min Sketch 统计分享访问次数，一个上报周期内达到 candidate-min-hits 的分享作为候选；
+ * 每个上报周期把候选计数累加到 Redis 中当前统计窗口的有序集合，再按上一个完整窗口的全集群访问速率判定热点，
+ * 热点分享的解析结果常驻内存，文件内容不常驻，仍按普通下载路径读取。
+ * 只上报本节点的候选，流量平均分散到很多节点且每个节点都达不到候选次数的分享会被低估。
+ */
+@Service
+public class HotShareService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HotShareService.class);
+
+    private final HotShareProperties properties;
+    private final HotShareRedis hotShareRedis;
+    private final ShareResolutionService shareResolutionService;
+
+    private final AtomicReference<Period> current;
+    private volatile List<HotShareVO> hotShares = List.of();
+
+    public HotShareService(HotShareProperties properties, HotShareRedis hotShareRedis, ShareResolutionService shareResolutionService, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hotShareRedis = hotShareRedis;
+        this.shareResolutionService = shareResolutionService;
+        this.current = new AtomicReference<>(new Period());
+        Gauge.builder("share.hot.count", this, service -> service.hotShares.size())
+                .description("当前热点分享数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次分享访问
+     */
+    public void record(String shareCode) {
+        if (!properties.isEnabled() || shareCode == null) {
+            return;
+        }
+        Period period = current.get();
+        if (period.sketch.increment(shareCode) >= properties.getCandidateMinHits()
+                && period.candidates.size() < properties.getMaxCandidates()) {
+            period.candidates.add(shareCode);
+        }
+    }
+
+    /**
+     * 上报本周期的候选计数，并按上一个完整窗口刷新热点与常驻集合
+     */
+    public void merge() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        Period period = current.getAndSet(new Period());
+        long windowMillis = properties.getWindow().toMillis();
+        long window = System.currentTimeMillis() / windowMillis;
+
+        if (!period.candidates.isEmpty()) {
+            Map<String, Long> counts = new HashMap<>();
+            period.candidates.forEach(shareCode -> counts.put(shareCode, period.sketch.estimate(shareCode)));
+            hotShareRedis.addCounts(window, counts, properties.getWindow().multipliedBy(3));
+        }
+
+        double windowSeconds = windowMillis / 1000.0;
+        Collection<ScoredEntry<String>> top = hotShareRedis.top(window - 1, properties.getThreshold() * windowSeconds, properties.getMaxPinned());
+        Map<String, Long> pinnedCodes = shareResolutionService.pin(top.stream().map(ScoredEntry::getValue).collect(Collectors.toList()));
+
+        List<HotShareVO> result = top.stream().map(entry -> {
+            HotShareVO vo = new HotShareVO();
+            // 分享码即访问凭据，对外只给出分享ID与打码后的分享码
+            vo.setShareId(pinnedCodes.get(entry.getValue()));
+            vo.setMaskedShareCode(maskShareCode(entry.getValue()));
+            vo.setRequests(entry.getScore().longValue());
+            vo.setRate(entry.getScore() / windowSeconds);
+            vo.setPinned(pinnedCodes.containsKey(entry.getValue()));
+            return vo;
+        }).toList();
+        if (result.size() != hotShares.size()) {
+            logger.info("Hot shares changed: count={}, pinned={}", result.size(), pinnedCodes.size());
+        }
+        hotShares = result;
+    }
+
+    /**
+     * 当前热点分享，按访问速率降序
+     */
+    public List<HotShareVO> getHotShares() {
+        return hotShares;
+    }
+
+    /**
+     * 只保留分享码的前两位，其余以 * 代替
+     */
+    private static String maskShareCode(String shareCode) {
+        int visible = Math.min(2, shareCode.length() / 2);
+        return shareCode.substring(0, visible) + "*".repeat(shareCode.length() - visible);
+    }
+
+    /**
+     * 一个上报周期的计数
+     */
+    private final class Period {
+        private final CountMinSketch sketch = new CountMinSketch(properties.getSketchDepth(), properties.getSketchWidth());
+        private final Set<String> candidates = ConcurrentHashMap.newKeySet();
+    }
+}
@@ -0,0 +1,28 @@
+package com.cloudrive.service;
+
+/**
+ * 存储空间配额服务接口
+ */
+public interface QuotaService {
+    /**
+     * 获取用户已使用的存储空间（字节）
+     */
+    long getUsedBytes(Long userId);
+
+    /**
+     * 检查用户剩余空间能否容纳指定大小的上传，不足时抛出 QUOTA_EXCEEDED 业务异常
+     *
+     * @param userId        用户ID
+     * @param incomingBytes 待上传的字节数
+     */
+    void checkQuota(Long userId, long incomingBytes);
+
+    /**
+     * 提交文件记录前按实际大小校验配额，须在提交文件记录的事务内调用
+     * 锁定用户行，同一用户的并发提交依次校验，不会各自通过后合计超出配额
+     *
+     * @param userId        用户ID
+     * @param incomingBytes 本次提交新增的字节数
+     */
+    void checkQuotaForCommit(Long userId, long incomingBytes);
+}
@@ -0,0 +1,449 @@
+package com.cloudrive.service;
+
+import com.cloudrive.config.ExecutorConfig;
+import com.cloudrive.config.properties.ReadCoalesceProperties;
+import com.cloudrive.redis.ReadFlightRedis;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 存储对象读取合并服务
+ * <p>
+ * 同一节点并发读取同一对象时只向存储拉取一次：首个读取方分配缓冲文件，由后台线程把对象写入其中，
+ * 所有读取方（包括拉取过程中加入的）各自按自己的进度从缓冲文件读取，数据尚未写到时等待。
+ * 最后一个读取方关闭后删除缓冲文件。
+ * 开启跨节点合并时，拉取方把缓冲文件名和进度登记到 Redis，其他节点从共享缓冲目录读取该文件代替访问存储。
+ * 缓冲空间不足、拉取线程用尽或 Redis 不可用时退回直接读取存储。
+ */
+@Service
+public class ReadCoalescingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReadCoalescingService.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final UploadSpoolService uploadSpoolService;
+    private final ReadFlightRedis readFlightRedis;
+    private final ReadCoalesceProperties properties;
+    private final Executor readCoalesceExecutor;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 本节点进行中的拉取，按存储路径索引
+     */
+    private final Map<String, Flight> flights = new ConcurrentHashMap<>();
+
+    public ReadCoalescingService(UploadSpoolService uploadSpoolService, ReadFlightRedis readFlightRedis, ReadCoalesceProperties properties,
+                                 @Qualifier(ExecutorConfig.READ_COALESCE_EXECUTOR) Executor readCoalesceExecutor, MeterRegistry meterRegistry) {
+        this.uploadSpoolService = uploadSpoolService;
+        this.readFlightRedis = readFlightRedis;
+        this.properties = properties;
+        this.readCoalesceExecutor = readCoalesceExecutor;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("download.coalesce.flights", flights, Map::size)
+                .description("进行中的合并读取数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 打开存储对象的输入流，同一对象的并发读取共享一次拉取，调用方负责关闭返回的流
+     *
+     * @param path     存储路径
+     * @param size     对象大小
+     * @param upstream 直接读取存储的方式
+     * @return 对象内容输入流
+     */
+    public InputStream open(String path, long size, Supplier<InputStream> upstream) {
+        if (!properties.isEnabled() || size <= 0 || size > properties.getMaxSize().toBytes()) {
+            return upstream.get();
+        }
+        Flight flight = flights.get(path);
+        if (flight == null || !flight.join()) {
+            flight = start(path, size, upstream);
+        } else {
+            count("joined");
+        }
+        if (flight == null) {
+            count("bypass");
+            return upstream.get();
+        }
+        return new FlightInputStream(flight);
+    }
+
+    /**
+     * 分配缓冲文件并开始拉取，已有其他读取方先开始时加入其拉取
+     *
+     * @return 加入的拉取，无法合并时返回null
+     */
+    private Flight start(String path, long size, Supplier<InputStream> upstream) {
+        File file = uploadSpoolService.tryAllocate(size);
+        if (file == null) {
+            return null;
+        }
+        Flight flight = new Flight(path, size, file);
+        Flight existing = flights.putIfAbsent(path, flight);
+        if (existing != null) {
+            uploadSpoolService.release(file);
+            if (existing.join()) {
+                count("joined");
+                return existing;
+            }
+            return null;
+        }
+        try {
+            // 先创建文件，读取方可以在拉取线程写入前打开
+            Files.createFile(file.toPath());
+            readCoalesceExecutor.execute(() -> fetch(flight, upstream));
+        } catch (IOException | RejectedExecutionException e) {
+            logger.warn("Failed to start coalesced read, fetching directly: path={}, error={}", path, e.getMessage());
+            flights.remove(path, flight);
+            uploadSpoolService.release(file);
+            return null;
+        }
+        return flight;
+    }
+
+    /**
+     * 把对象写入缓冲文件，在拉取线程中执行
+     */
+    private void fetch(Flight flight, Supplier<InputStream> upstream) {
+        try (InputStream inputStream = openSource(flight, upstream); OutputStream outputStream = new FileOutputStream(flight.file)) {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            long progressInterval = properties.getClusterProgressInterval().toBytes();
+            long reported = 0;
+            int n;
+            while (!flight.isAbandoned() && (n = inputStream.read(buffer)) != -1) {
+                outputStream.write(buffer, 0, n);
+                long written = flight.advance(n);
+                if (flight.clusterLeader && written - reported >= progressInterval) {
+                    readFlightRedis.updateProgress(flight.path, written, properties.getClusterLinger());
+                    reported = written;
+                }
+            }
+            if (!flight.isAbandoned()) {
+                if (flight.written() != flight.size) {
+                    throw new IOException("Object size mismatch: expected=" + flight.size + ", actual=" + flight.written());
+                }
+                flight.complete();
+                if (flight.clusterLeader) {
+                    readFlightRedis.updateProgress(flight.path, flight.size, properties.getClusterLinger());
+                }
+            }
+        } catch (Exception e) {
+            logger.warn("Coalesced read failed: path={}, error={}", flight.path, e.getMessage());
+            flight.fail(e);
+            flights.remove(flight.path, flight);
+            if (flight.clusterLeader) {
+                try {
+                    readFlightRedis.fail(flight.path, properties.getStallTimeout());
+                } catch (Exception redisException) {
+                    logger.warn("Failed to publish coalesced read failure: path={}, error={}", flight.path, redisException.getMessage());
+                }
+            }
+        } finally {
+            flight.fetchFinished();
+        }
+    }
+
+    /**
+     * 确定拉取来源：开启跨节点合并时，其他节点已在拉取则读取其缓冲文件，否则登记本节点后读取存储
+     */
+    private InputStream openSource(Flight flight, Supplier<InputStream> upstream) {
+        if (properties.isClusterEnabled()) {
+            try {
+                if (readFlightRedis.claim(flight.path, flight.file.getName(), properties.getClusterLinger())) {
+                    flight.clusterLeader = true;
+                } else {
+                    File remoteFile = uploadSpoolService.resolve(readFlightRedis.getSpillName(flight.path));
+                    if (remoteFile != null && remoteFile.isFile()) {
+                        count("remote");
+                        return new RemoteFlightInputStream(flight.path, flight.size, remoteFile);
+                    }
+                }
+            } catch (Exception e) {
+                logger.warn("Cluster read coalescing unavailable, fetching from storage: path={}, error={}", flight.path, e.getMessage());
+            }
+        }
+        count("upstream");
+        return upstream.get();
+    }
+
+    private void count(String result) {
+        meterRegistry.counter("download.coalesce", "result", result).increment();
+    }
+
+    /**
+     * 一次拉取及其读取方
+     */
+    private final class Flight {
+        private final String path;
+        private final long size;
+        private final File file;
+
+        /**
+         * 本节点是否为跨节点合并的拉取方，是则缓冲文件在拉取完成后保留 cluster-linger 供其他节点读取
+         */
+        private volatile boolean clusterLeader;
+
+        private int refs = 1;
+        private long written;
+        private boolean completed;
+        private boolean fetchFinished;
+        private boolean released;
+        private IOException failure;
+
+        private Flight(String path, long size, File file) {
+            this.path = path;
+            this.size = size;
+            this.file = file;
+        }
+
+        /**
+         * 加入拉取，拉取已失败或读取方已全部离开时返回false
+         */
+        private synchronized boolean join() {
+            if (refs == 0 || failure != null) {
+                return false;
+            }
+            refs++;
+            return true;
+        }
+
+        private synchronized long advance(int n) {
+            written += n;
+            notifyAll();
+            return written;
+        }
+
+        private synchronized long written() {
+            return written;
+        }
+
+        private synchronized void complete() {
+            completed = true;
+            notifyAll();
+        }
+
+        private synchronized void fail(Exception e) {
+            failure = e instanceof IOException ioException ? ioException : new IOException(e.getMessage(), e);
+            notifyAll();
+        }
+
+        /**
+         * 本节点的读取方已全部离开且没有其他节点依赖该缓冲文件时，拉取提前结束
+         */
+        private synchronized boolean isAbandoned() {
+            return refs == 0 && !clusterLeader;
+        }
+
+        /**
+         * 等待 position 之后有数据可读
+         *
+         * @return 已写入的字节数，已读到末尾时返回-1
+         */
+        private synchronized long awaitReadable(long position) throws IOException {
+            long deadline = System.nanoTime() + properties.getStallTimeout().toNanos();
+            while (written <= position && !completed && failure == null) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    throw new IOException("Timed out waiting for coalesced read: path=" + path);
+                }
+                try {
+                    wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for coalesced read: path=" + path);
+                }
+            }
+            if (failure != null) {
+                throw new IOException("Coalesced read failed: path=" + path, failure);
+            }
+            return written > position ? written : -1;
+        }
+
+        private void leave() {
+            synchronized (this) {
+                if (--refs > 0) {
+                    return;
+                }
+                flights.remove(path, this);
+            }
+            releaseIfIdle();
+        }
+
+        private void fetchFinished() {
+            synchronized (this) {
+                fetchFinished = true;
+                notifyAll();
+            }
+            releaseIfIdle();
+        }
+
+        /**
+         * 拉取结束且读取方全部离开后释放缓冲文件
+         */
+        private void releaseIfIdle() {
+            synchronized (this) {
+                if (released || refs > 0 || !fetchFinished) {
+                    return;
+                }
+                released = true;
+            }
+            if (clusterLeader && completed) {
+                CompletableFuture.delayedExecutor(properties.getClusterLinger().toMillis(), TimeUnit.MILLISECONDS)
+                        .execute(() -> uploadSpoolService.release(file));
+            } else {
+                uploadSpoolService.release(file);
+            }
+        }
+    }
+
+    /**
+     * 从缓冲文件读取一次拉取的内容
+     */
+    private static final class FlightInputStream extends InputStream {
+        private final Flight flight;
+        private FileChannel channel;
+        private long position;
+        private boolean closed;
+
+        private FlightInputStream(Flight flight) {
+            this.flight = flight;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (closed) {
+                throw new IOException("Stream closed");
+            }
+            if (len == 0) {
+                return 0;
+            }
+            long readable = flight.awaitReadable(position);
+            if (readable < 0) {
+                return -1;
+            }
+            if (channel == null) {
+                channel = FileChannel.open(flight.file.toPath(), StandardOpenOption.READ);
+            }
+            int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, readable - position)), position);
+            if (n < 0) {
+                throw new IOException("Unexpected end of spill file: path=" + flight.path + ", position=" + position);
+            }
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } finally {
+                flight.leave();
+            }
+        }
+    }
+
+    /**
+     * 读取其他节点写入共享缓冲目录的文件，写入进度从 Redis 获取
+     */
+    private final class RemoteFlightInputStream extends InputStream {
+        private final String path;
+        private final long size;
+        private final FileChannel channel;
+        private long readable;
+        private long position;
+
+        private RemoteFlightInputStream(String path, long size, File file) throws IOException {
+            this.path = path;
+            this.size = size;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            int n = read(single, 0, 1);
+            return n == -1 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (position >= size) {
+                return -1;
+            }
+            long deadline = System.nanoTime() + properties.getStallTimeout().toNanos();
+            while (true) {
+                if (position < readable) {
+                    // 共享存储上的文件长度可能滞后于 Redis 中的进度，读不到时稍后重试
+                    int n = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, readable - position)), position);
+                    if (n > 0) {
+                        position += n;
+                        return n;
+                    }
+                } else {
+                    long progress = readFlightRedis.getProgressBytes(path);
+                    if (progress == ReadFlightRedis.FAILED) {
+                        throw new IOException("Remote coalesced read failed: path=" + path);
+                    }
+                    if (progress > readable) {
+                        readable = Math.min(progress, size);
+                        continue;
+                    }
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new IOException("Timed out waiting for remote coalesced read: path=" + path);
+                }
+                try {
+                    Thread.sleep(properties.getClusterPollInterval().toMillis());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted waiting for remote coalesced read: path=" + path);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,231 @@
+package com.cloudrive.service;
+
+import com.cloudrive.config.properties.ShareCacheProperties;
+import com.cloudrive.mapper.ShareMapper;
+import com.cloudrive.model.entity.ShareRecord;
+import com.cloudrive.model.vo.ResolvedShareVO;
+import com.cloudrive.redis.ShareResolutionRedis;
+import com.cloudrive.repository.ShareRecordRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * 分享解析服务
+ * <p>
+ * 分享码到分享与文件信息的解析结果缓存在本地（Caffeine）和 Redis 两级，
+ * 不存在的分享码同样缓存（负缓存），扫描分享码的请求不会到达数据库。
+ * 取消、删除、过期、文件删除或重命名时，事务提交后递增缓存代数、删除 Redis 缓存并通过主题通知各节点清除本地缓存；
+ * 加载期间代数发生变化时撤回回填的 Redis 缓存并重新查询，失效前读到的旧结果不会写回缓存。
+ * 热点分享常驻内存（pin），不随本地缓存过期或淘汰，每个热点统计周期刷新一次。
+ */
+@Service
+public class ShareResolutionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShareResolutionService.class);
+
+    private final ShareRecordRepository shareRecordRepository;
+    private final ShareResolutionRedis shareResolutionRedis;
+    private final ShareMapper shareMapper;
+    private final ShareCacheProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private Cache<String, ResolvedShareVO> localCache;
+    private final Map<String, ResolvedShareVO> pinned = new ConcurrentHashMap<>();
+    private Counter pinnedHitCounter;
+    private Counter localHitCounter;
+    private Counter redisHitCounter;
+    private Counter databaseCounter;
+    private Counter negativeCounter;
+
+    public ShareResolutionService(ShareRecordRepository shareRecordRepository, ShareResolutionRedis shareResolutionRedis, ShareMapper shareMapper,
+                                  ShareCacheProperties properties, MeterRegistry meterRegistry) {
+        this.shareRecordRepository = shareRecordRepository;
+        this.shareResolutionRedis = shareResolutionRedis;
+        this.shareMapper = shareMapper;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() {
+        long localTtlNanos = properties.getLocalTtl().toNanos();
+        long negativeTtlNanos = Math.min(localTtlNanos, properties.getNegativeTtl().toNanos());
+        localCache = Caffeine.newBuilder()
+                .maximumSize(properties.getLocalMaxSize())
+                .expireAfter(new Expiry<String, ResolvedShareVO>() {
+                    @Override
+                    public long expireAfterCreate(String key, ResolvedShareVO value, long currentTime) {
+                        return value.isMissing() ? negativeTtlNanos : localTtlNanos;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, ResolvedShareVO value, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, value, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, ResolvedShareVO value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        pinnedHitCounter = Counter.builder("share.resolve").tag("source", "pinned").description("分享解析来源").register(meterRegistry);
+        localHitCounter = Counter.builder("share.resolve").tag("source", "local").description("分享解析来源").register(meterRegistry);
+        redisHitCounter = Counter.builder("share.resolve").tag("source", "redis").description("分享解析来源").register(meterRegistry);
+        databaseCounter = Counter.builder("share.resolve").tag("source", "db").description("分享解析来源").register(meterRegistry);
+        negativeCounter = Counter.builder("share.resolve.negative").description("解析为不存在的分享码次数").register(meterRegistry);
+
+        shareResolutionRedis.addInvalidationListener(this::invalidateLocal);
+    }
+
+    /**
+     * 解析分享码
+     *
+     * @param shareCode 分享码
+     * @return 解析结果，分享码不存在时返回null
+     */
+    public ResolvedShareVO resolve(String shareCode) {
+        if (shareCode == null || shareCode.isBlank()) {
+            return null;
+        }
+        ResolvedShareVO resolved = pinned.get(shareCode);
+        if (resolved != null) {
+            pinnedHitCounter.increment();
+        } else if ((resolved = localCache.getIfPresent(shareCode)) != null) {
+            localHitCounter.increment();
+        } else {
+            // 同一节点上相同分享码的并发未命中只加载一次
+            resolved = localCache.get(shareCode, this::load);
+        }
+        if (resolved.isMissing()) {
+            negativeCounter.increment();
+            return null;
+        }
+        return resolved;
+    }
+
+    /**
+     * 使分享码的缓存失效，处于事务中时在提交后执行
+     */
+    public void invalidate(String shareCode) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doInvalidate(shareCode);
+                }
+            });
+        } else {
+            doInvalidate(shareCode);
+        }
+    }
+
+    /**
+     * 使文件的所有分享的缓存失效
+     */
+    public void invalidateByFileId(Long fileId) {
+        shareRecordRepository.findShareCodesByFileId(fileId).forEach(this::invalidate);
+    }
+
+    /**
+     * 将热点分享的解析结果常驻内存，替换上一次的常驻集合，已常驻的分享重新加载
+     * 只常驻解析结果（分享与文件信息），文件内容仍按普通下载路径读取
+     *
+     * @param shareCodes 热点分享码
+     * @return 实际常驻的分享码到分享ID（不含不存在的分享）
+     */
+    public Map<String, Long> pin(Collection<String> shareCodes) {
+        pinned.keySet().retainAll(shareCodes);
+        for (String shareCode : shareCodes) {
+            ResolvedShareVO resolved = load(shareCode);
+            if (resolved.isMissing()) {
+                pinned.remove(shareCode);
+            } else {
+                pinned.put(shareCode, resolved);
+            }
+        }
+        return pinned.entrySet().stream().collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, entry -> entry.getValue().getShareId()));
+    }
+
+    private void doInvalidate(String shareCode) {
+        invalidateLocal(shareCode);
+        try {
+            // 先递增代数再删除，加载期间发生的失效能被加载方发现
+            shareResolutionRedis.incrementGeneration(shareCode, properties.getRedisTtl());
+            shareResolutionRedis.delete(shareCode);
+            shareResolutionRedis.publishInvalidation(shareCode);
+        } catch (Exception e) {
+            logger.warn("Failed to invalidate share cache: shareCode={}, error={}", shareCode, e.getMessage());
+        }
+        // 刷新常驻集合时可能在 Redis 删除前读到旧值，删除后再清一次
+        pinned.remove(shareCode);
+    }
+
+    private void invalidateLocal(String shareCode) {
+        localCache.invalidate(shareCode);
+        pinned.remove(shareCode);
+    }
+
+    /**
+     * 先读 Redis，未命中时查询数据库并回填 Redis；Redis 不可用时直接查询数据库
+     */
+    private ResolvedShareVO load(String shareCode) {
+        try {
+            ResolvedShareVO cached = shareResolutionRedis.get(shareCode);
+            if (cached != null) {
+                redisHitCounter.increment();
+                return cached;
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to read share cache from Redis: shareCode={}, error={}", shareCode, e.getMessage());
+        }
+
+        Long generation = null;
+        try {
+            generation = shareResolutionRedis.getGeneration(shareCode);
+        } catch (Exception e) {
+            logger.warn("Failed to read share cache generation: shareCode={}, error={}", shareCode, e.getMessage());
+        }
+
+        ResolvedShareVO resolved = loadDatabase(shareCode);
+        if (generation == null) {
+            return resolved;
+        }
+        Duration ttl = resolved.isMissing() ? properties.getNegativeTtl() : properties.getRedisTtl();
+        try {
+            shareResolutionRedis.set(resolved, ttl);
+            // 写入后代数变化说明加载期间发生了失效，查询结果可能已陈旧，撤回写入并重新查询
+            if (shareResolutionRedis.getGeneration(shareCode) != generation) {
+                shareResolutionRedis.delete(shareCode);
+                resolved = loadDatabase(shareCode);
+            }
+        } catch (Exception e) {
+            logger.warn("Failed to write share cache to Redis: shareCode={}, error={}", shareCode, e.getMessage());
+        }
+        return resolved;
+    }
+
+    private ResolvedShareVO loadDatabase(String shareCode) {
+        databaseCounter.increment();
+        ShareRecord shareRecord = shareRecordRepository.findWithFileByShareCode(shareCode).orElse(null);
+        return shareRecord != null && shareRecord.getFile() != null
+                ? shareMapper.toResolvedShareVO(shareRecord)
+                : ResolvedShareVO.missing(shareCode);
+    }
+}
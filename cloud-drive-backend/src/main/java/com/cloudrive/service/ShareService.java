@@ -1,5 +1,6 @@
 package com.cloudrive.service;
 
+import com.cloudrive.model.vo.FileDownloadVO;
 import com.cloudrive.model.vo.ShareFileVO;
 
 import java.time.LocalDateTime;
@@ -63,10 +64,26 @@ public interface ShareService {
      */
     byte[] downloadSharedFile(String shareCode, String token);
 
+    /**
+     * 获取可下载的分享文件信息，会校验访问令牌
+     * @param shareCode 分享码
+     * @param token 访问令牌
+     * @return 文件信息
+     */
+    FileDownloadVO getDownloadableSharedFile(String shareCode, String token);
+
     /**
      * 获取分享文件的文件名
      * @param shareCode 分享码
      * @return 文件名
      */
     String getFilename(String shareCode);
+
+    /**
+     * 决定分享文件的下载方式并记录：大文件返回存储的签名下载地址，由客户端直接从存储下载
+     * @param shareCode 分享码
+     * @param file 已校验的分享文件信息
+     * @return 签名下载地址，文件较小或无法签名时返回null，由应用节点直接返回内容
+     */
+    String resolveDownloadRedirect(String shareCode, FileDownloadVO file);
 } 
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.cloudrive.service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.InputStream;
+import java.time.Duration;
 
 /**
  * 文件存储服务接口
@@ -25,6 +27,22 @@ public interface StorageService {
      */
     String uploadFileWithProgressFromPath(File file, String path, String taskId, String originalFilename, long fileSize);
 
+    /**
+     * 上传本地文件
+     * @param file 本地文件
+     * @param path 目标路径
+     * @return 文件路径
+     */
+    String uploadFile(File file, String path);
+
+    /**
+     * 以流的方式上传文件，内容长度未知，边读边传
+     * @param inputStream 文件内容输入流
+     * @param path 目标路径
+     * @return 文件路径
+     */
+    String uploadFile(InputStream inputStream, String path);
+
     /**
      * 删除文件
      */
@@ -34,4 +52,28 @@ public interface StorageService {
      * 下载文件
      */
     byte[] downloadFile(String path);
+
+    /**
+     * 以流的方式下载文件，调用方负责关闭返回的流
+     * @param path 文件路径
+     * @return 文件内容输入流
+     */
+    InputStream downloadFileStream(String path);
+
+    /**
+     * 以流的方式下载已知大小的文件，大文件可并行分段拉取，调用方负责关闭返回的流
+     * @param path 文件路径
+     * @param fileSize 文件大小
+     * @return 文件内容输入流
+     */
+    InputStream downloadFileStream(String path, long fileSize);
+
+    /**
+     * 生成限时有效的下载地址，客户端可直接从存储下载
+     * @param path 文件路径
+     * @param filename 下载时保存的文件名
+     * @param ttl 有效期
+     * @return 签名的下载地址
+     */
+    String generateDownloadUrl(String path, String filename, Duration ttl);
 }
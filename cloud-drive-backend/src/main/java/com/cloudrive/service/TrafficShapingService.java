@@ -0,0 +1,374 @@
+package com.cloudrive.service;
+
+import cn.dev33.satoken.stp.StpUtil;
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.util.HttpUtil;
+import com.cloudrive.config.properties.TrafficShapingProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 传输限速服务
+ * <p>
+ * 在传输循环中按字节申请令牌，同时受四个令牌桶约束：本次传输的公平份额、用户、IP、本节点。
+ * 公平份额为节点带宽按并发传输的等级权重分配，传输开始或结束时重新计算。
+ * 令牌桶允许透支，透支量转化为等待时间，先到的传输先获得带宽。
+ * 用户和IP的令牌桶只在本节点内生效，无活跃传输时回收。
+ */
+@Service
+public class TrafficShapingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TrafficShapingService.class);
+
+    public enum Direction {
+        UPLOAD, DOWNLOAD
+    }
+
+    private final TrafficShapingProperties properties;
+
+    private final Map<Direction, DirectionState> states = new EnumMap<>(Direction.class);
+    private final Map<String, SharedBucket> sharedBuckets = new ConcurrentHashMap<>();
+
+    public TrafficShapingService(TrafficShapingProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        for (Direction direction : Direction.values()) {
+            long nodeRate = (direction == Direction.DOWNLOAD ? properties.getNodeDownloadRate() : properties.getNodeUploadRate()).toBytes();
+            DirectionState state = new DirectionState(nodeRate);
+            String tag = direction.name().toLowerCase();
+            state.bytesCounter = Counter.builder("traffic.bytes")
+                    .description("经过限速的传输字节数")
+                    .baseUnit("bytes")
+                    .tag("direction", tag)
+                    .register(meterRegistry);
+            state.throttledCounter = Counter.builder("traffic.throttled.seconds")
+                    .description("因限速而等待的累计时间")
+                    .baseUnit("seconds")
+                    .tag("direction", tag)
+                    .register(meterRegistry);
+            Gauge.builder("traffic.transfers.active", state.transfers, Set::size)
+                    .description("进行中的传输数")
+                    .tag("direction", tag)
+                    .register(meterRegistry);
+            states.put(direction, state);
+        }
+    }
+
+    /**
+     * 开始一次传输
+     *
+     * @param direction 传输方向
+     * @param userId    用户ID，匿名访问时为null
+     * @param tier      用户等级，为空时使用默认等级
+     * @param clientIp  客户端IP
+     * @return 传输句柄，传输结束后必须关闭
+     */
+    public Transfer open(Direction direction, Long userId, String tier, String clientIp) {
+        String tierName = tier != null ? tier : (userId != null ? properties.getDefaultTier() : properties.getAnonymousTier());
+        TrafficShapingProperties.Tier tierConfig = properties.getTiers().get(tierName);
+        if (tierConfig == null) {
+            logger.warn("Unknown traffic tier: {}, falling back to {}", tierName, properties.getDefaultTier());
+            tierConfig = properties.getTiers().getOrDefault(properties.getDefaultTier(), new TrafficShapingProperties.Tier());
+        }
+
+        String userKey = direction + ":user:" + (userId != null ? userId : "ip:" + clientIp);
+        String ipKey = direction + ":ip:" + clientIp;
+        Transfer transfer = new Transfer(states.get(direction), Math.max(1, tierConfig.getWeight()),
+                userKey, retain(userKey, tierConfig.getRate().toBytes()),
+                ipKey, retain(ipKey, properties.getIpRate().toBytes()));
+        transfer.state.join(transfer);
+        return transfer;
+    }
+
+    /**
+     * 以当前请求的登录用户、用户等级和客户端IP开始一次传输，需在请求线程中调用
+     */
+    public Transfer open(Direction direction, HttpServletRequest request) {
+        Long userId = null;
+        String tier = null;
+        if (StpUtil.isLogin()) {
+            userId = StpUtil.getLoginIdAsLong();
+            tier = StpUtil.getSession().getString(CommonConstants.Traffic.SESSION_TIER_KEY);
+        }
+        return open(direction, userId, tier, HttpUtil.getClientIp(request));
+    }
+
+    /**
+     * 以当前请求开始一次传输并包装已打开的内容流，需在请求线程中调用
+     * 内容流须在调用前打开：打开失败时不会遗留未关闭的传输；开始传输失败时关闭内容流
+     *
+     * @param direction 传输方向
+     * @param request   当前请求
+     * @param content   已打开的内容流
+     * @return 限速的内容流，关闭时同时结束传输
+     */
+    public InputStream wrap(Direction direction, HttpServletRequest request, InputStream content) {
+        try {
+            return open(direction, request).wrap(content);
+        } catch (RuntimeException e) {
+            try {
+                content.close();
+            } catch (IOException closeError) {
+                e.addSuppressed(closeError);
+            }
+            throw e;
+        }
+    }
+
+    private TokenBucket retain(String key, long rate) {
+        return sharedBuckets.compute(key, (k, shared) -> {
+            if (shared == null) {
+                shared = new SharedBucket(new TokenBucket(rate));
+            }
+            shared.refs++;
+            return shared;
+        }).bucket;
+    }
+
+    private void release(String key) {
+        sharedBuckets.computeIfPresent(key, (k, shared) -> --shared.refs > 0 ? shared : null);
+    }
+
+    /**
+     * 一次传输的限速句柄
+     */
+    public class Transfer implements AutoCloseable {
+        private final DirectionState state;
+        private final int weight;
+        private final TokenBucket fairShare = new TokenBucket(0);
+        private final String userKey;
+        private final TokenBucket userBucket;
+        private final String ipKey;
+        private final TokenBucket ipBucket;
+        private boolean closed;
+
+        private Transfer(DirectionState state, int weight, String userKey, TokenBucket userBucket, String ipKey, TokenBucket ipBucket) {
+            this.state = state;
+            this.weight = weight;
+            this.userKey = userKey;
+            this.userBucket = userBucket;
+            this.ipKey = ipKey;
+            this.ipBucket = ipBucket;
+        }
+
+        /**
+         * 申请传输指定字节数，超出速率时阻塞等待
+         */
+        public void acquire(int bytes) throws InterruptedIOException {
+            if (bytes <= 0) {
+                return;
+            }
+            state.bytesCounter.increment(bytes);
+            if (!properties.isEnabled()) {
+                return;
+            }
+            long waitNanos = Math.max(Math.max(fairShare.reserve(bytes), userBucket.reserve(bytes)),
+                    Math.max(ipBucket.reserve(bytes), state.nodeBucket.reserve(bytes)));
+            if (waitNanos > 0) {
+                state.throttledCounter.increment(waitNanos / 1e9);
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Interrupted while throttling transfer");
+                }
+            }
+        }
+
+        /**
+         * 包装输入流，读取时按读取字节数限速，关闭流时同时结束传输
+         */
+        public InputStream wrap(InputStream inputStream) {
+            return new ThrottledInputStream(inputStream);
+        }
+
+        /**
+         * 包装输出流，写入时按写入字节数限速，关闭流时同时结束传输
+         */
+        public OutputStream wrap(OutputStream outputStream) {
+            return new ThrottledOutputStream(outputStream);
+        }
+
+        @Override
+        public synchronized void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            state.leave(this);
+            release(userKey);
+            release(ipKey);
+        }
+
+        private class ThrottledInputStream extends FilterInputStream {
+            private final int chunkSize = (int) properties.getChunkSize().toBytes();
+
+            ThrottledInputStream(InputStream in) {
+                super(in);
+            }
+
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    acquire(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int n = super.read(b, off, Math.min(len, chunkSize));
+                acquire(n);
+                return n;
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    Transfer.this.close();
+                }
+            }
+        }
+
+        private class ThrottledOutputStream extends FilterOutputStream {
+            private final int chunkSize = (int) properties.getChunkSize().toBytes();
+
+            ThrottledOutputStream(OutputStream out) {
+                super(out);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                acquire(1);
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                while (len > 0) {
+                    int n = Math.min(len, chunkSize);
+                    acquire(n);
+                    out.write(b, off, n);
+                    off += n;
+                    len -= n;
+                }
+            }
+
+            @Override
+            public void close() throws IOException {
+                try {
+                    super.close();
+                } finally {
+                    Transfer.this.close();
+                }
+            }
+        }
+    }
+
+    /**
+     * 单个方向上的节点令牌桶与进行中的传输，负责按权重重新分配公平份额
+     */
+    private static class DirectionState {
+        private final long nodeRate;
+        private final TokenBucket nodeBucket;
+        private final Set<Transfer> transfers = ConcurrentHashMap.newKeySet();
+        private long totalWeight;
+        private Counter bytesCounter;
+        private Counter throttledCounter;
+
+        DirectionState(long nodeRate) {
+            this.nodeRate = nodeRate;
+            this.nodeBucket = new TokenBucket(nodeRate);
+        }
+
+        synchronized void join(Transfer transfer) {
+            transfers.add(transfer);
+            totalWeight += transfer.weight;
+            rebalance();
+        }
+
+        synchronized void leave(Transfer transfer) {
+            if (transfers.remove(transfer)) {
+                totalWeight -= transfer.weight;
+                rebalance();
+            }
+        }
+
+        private void rebalance() {
+            if (nodeRate <= 0 || totalWeight <= 0) {
+                return;
+            }
+            for (Transfer transfer : transfers) {
+                transfer.fairShare.setRate(Math.max(1, nodeRate * transfer.weight / totalWeight));
+            }
+        }
+    }
+
+    private static class SharedBucket {
+        private final TokenBucket bucket;
+        private int refs;
+
+        SharedBucket(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    /**
+     * 令牌桶，容量为一秒的速率；速率不大于0表示不限速
+     */
+    private static class TokenBucket {
+        private long rate;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+
+        TokenBucket(long rate) {
+            this.rate = rate;
+            this.tokens = rate;
+        }
+
+        synchronized void setRate(long rate) {
+            refill();
+            tokens = this.rate > 0 ? Math.min(tokens, rate) : rate;
+            this.rate = rate;
+        }
+
+        /**
+         * 扣除令牌，返回需要等待的纳秒数（令牌不足时透支）
+         */
+        synchronized long reserve(long permits) {
+            if (rate <= 0) {
+                return 0;
+            }
+            refill();
+            tokens -= permits;
+            return tokens >= 0 ? 0 : (long) (-tokens * 1e9 / rate);
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+            if (rate > 0) {
+                tokens = Math.min(rate, tokens + (now - lastRefill) * rate / 1e9);
+            }
+            lastRefill = now;
+        }
+    }
+}
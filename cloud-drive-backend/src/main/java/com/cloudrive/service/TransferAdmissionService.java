@@ -0,0 +1,216 @@
+package com.cloudrive.service;
+
+import com.cloudrive.common.exception.TransferOverloadedException;
+import com.cloudrive.config.properties.BatchUploadProperties;
+import com.cloudrive.config.properties.FolderDownloadProperties;
+import com.cloudrive.config.properties.ParallelDownloadProperties;
+import com.cloudrive.config.properties.TransferAdmissionProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 传输准入服务
+ * <p>
+ * 每个传输开始前按其需要的缓冲字节数申请内存预算，本节点进行中传输的缓冲总量不超过预算；
+ * 预算不足时排队等待，等待超时或排队已满时拒绝（503 + Retry-After），避免并发大传输导致频繁 GC 或内存溢出。
+ * 预算在传输结束（内容流关闭）时归还。
+ */
+@Service
+public class TransferAdmissionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransferAdmissionService.class);
+
+    private final TransferAdmissionProperties properties;
+    private final ParallelDownloadProperties parallelDownloadProperties;
+    private final FolderDownloadProperties folderDownloadProperties;
+    private final BatchUploadProperties batchUploadProperties;
+    private final long budget;
+
+    private long inFlightBytes;
+    private int queued;
+    private final Counter rejectedCounter;
+
+    public TransferAdmissionService(TransferAdmissionProperties properties, ParallelDownloadProperties parallelDownloadProperties,
+                                    FolderDownloadProperties folderDownloadProperties, BatchUploadProperties batchUploadProperties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.parallelDownloadProperties = parallelDownloadProperties;
+        this.folderDownloadProperties = folderDownloadProperties;
+        this.batchUploadProperties = batchUploadProperties;
+        this.budget = properties.getBudget() != null
+                ? properties.getBudget().toBytes()
+                : (long) (Runtime.getRuntime().maxMemory() * properties.getHeapFraction());
+        logger.info("Transfer memory budget: {} bytes", budget);
+
+        Gauge.builder("transfer.admission.inflight.bytes", this, TransferAdmissionService::getInFlightBytes)
+                .description("进行中的传输占用的缓冲字节数")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("transfer.admission.budget.bytes", this, service -> service.budget)
+                .description("传输缓冲预算")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("transfer.admission.queued", this, TransferAdmissionService::getQueued)
+                .description("等待内存预算的传输数")
+                .register(meterRegistry);
+        this.rejectedCounter = Counter.builder("transfer.admission.rejected")
+                .description("因内存预算不足被拒绝的传输数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 单文件下载需要的缓冲字节数：并行分段下载为正在读取的分段加窗口内的分段，其余为一个流式缓冲
+     */
+    public long downloadFootprint(long fileSize) {
+        if (parallelDownloadProperties.isEnabled() && fileSize >= parallelDownloadProperties.getThreshold().toBytes()) {
+            return (parallelDownloadProperties.getParallelism() + 1L) * parallelDownloadProperties.getChunkSize().toBytes();
+        }
+        return Math.min(Math.max(fileSize, 0), streamFootprint());
+    }
+
+    /**
+     * 文件夹打包下载需要的缓冲字节数，每个预取的文件一个流式缓冲
+     */
+    public long folderDownloadFootprint() {
+        return (folderDownloadProperties.getPrefetchWindow() + 1) * streamFootprint();
+    }
+
+    /**
+     * 批量上传需要的缓冲字节数，条目先写入缓冲文件，每个写存储的线程一个流式缓冲
+     */
+    public long batchUploadFootprint() {
+        return (batchUploadProperties.getStorageConcurrency() + 1) * streamFootprint();
+    }
+
+    /**
+     * 普通流式传输需要的缓冲字节数
+     */
+    public long streamFootprint() {
+        return properties.getStreamBuffer().toBytes();
+    }
+
+    /**
+     * 申请内存预算，预算不足时最多等待 queue-timeout
+     *
+     * @param bytes 传输需要的缓冲字节数，超过总预算时按总预算计，此时只能独占执行
+     * @return 预算租约，传输结束后必须关闭
+     * @throws TransferOverloadedException 等待超时、排队已满或等待被中断
+     */
+    public Lease acquire(long bytes) {
+        if (!properties.isEnabled() || bytes <= 0) {
+            return new Lease(0);
+        }
+        long need = Math.min(bytes, budget);
+        long deadline = System.nanoTime() + properties.getQueueTimeout().toNanos();
+        synchronized (this) {
+            if (inFlightBytes + need > budget) {
+                if (queued >= properties.getMaxQueued()) {
+                    throw reject(need);
+                }
+                queued++;
+                try {
+                    while (inFlightBytes + need > budget) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            throw reject(need);
+                        }
+                        wait(TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw reject(need);
+                } finally {
+                    queued--;
+                }
+            }
+            inFlightBytes += need;
+        }
+        return new Lease(need);
+    }
+
+    /**
+     * 申请内存预算后打开内容流，关闭返回的流时归还预算；打开失败时立即归还
+     *
+     * @param bytes  传输需要的缓冲字节数
+     * @param opener 打开内容流的方式
+     * @return 内容输入流
+     */
+    public InputStream admit(long bytes, Supplier<InputStream> opener) {
+        Lease lease = acquire(bytes);
+        try {
+            return lease.wrap(opener.get());
+        } catch (RuntimeException e) {
+            lease.close();
+            throw e;
+        }
+    }
+
+    private TransferOverloadedException reject(long need) {
+        rejectedCounter.increment();
+        logger.warn("Transfer rejected, memory budget exhausted: requested={}, inFlight={}, budget={}", need, inFlightBytes, budget);
+        return new TransferOverloadedException("服务器繁忙，请稍后重试", properties.getRetryAfter());
+    }
+
+    private synchronized void release(long bytes) {
+        inFlightBytes -= bytes;
+        notifyAll();
+    }
+
+    public synchronized long getInFlightBytes() {
+        return inFlightBytes;
+    }
+
+    public synchronized int getQueued() {
+        return queued;
+    }
+
+    /**
+     * 内存预算租约
+     */
+    public class Lease implements AutoCloseable {
+        private final long bytes;
+        private boolean closed;
+
+        private Lease(long bytes) {
+            this.bytes = bytes;
+        }
+
+        /**
+         * 包装输入流，关闭流时同时归还预算
+         */
+        public InputStream wrap(InputStream inputStream) {
+            return new FilterInputStream(inputStream) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        Lease.this.close();
+                    }
+                }
+            };
+        }
+
+        @Override
+        public void close() {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+            }
+            if (bytes > 0) {
+                release(bytes);
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package com.cloudrive.service;
+
+import com.cloudrive.config.properties.UploadCoalesceProperties;
+import com.cloudrive.redis.UploadLockRedis;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.redisson.api.RLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 相同内容并发上传合并服务
+ * <p>
+ * 同一用户并发上传相同内容时，按内容哈希加锁：先获得锁的上传正常写入存储，
+ * 其余上传等待其事务提交后再做秒传判断，从而以秒传完成，避免重复写入存储。
+ * 先取本节点锁，使同一节点的重复上传只有一个去竞争 Redis 分布式锁。
+ * 锁在文件记录提交后释放，保证等待者能查到新提交的文件记录。
+ */
+@Service
+public class UploadCoalescingService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadCoalescingService.class);
+
+    private final UploadLockRedis uploadLockRedis;
+    private final UploadCoalesceProperties properties;
+
+    private final Map<String, LocalLock> localLocks = new ConcurrentHashMap<>();
+    private final Counter waitCounter;
+    private final Counter timeoutCounter;
+
+    public UploadCoalescingService(UploadLockRedis uploadLockRedis, UploadCoalesceProperties properties, MeterRegistry meterRegistry) {
+        this.uploadLockRedis = uploadLockRedis;
+        this.properties = properties;
+        this.waitCounter = Counter.builder("upload.coalesce.waits")
+                .description("等待相同内容的上传完成的次数")
+                .register(meterRegistry);
+        this.timeoutCounter = Counter.builder("upload.coalesce.timeouts")
+                .description("等待相同内容的上传超时的次数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 获取内容锁，调用方应在文件记录提交之后关闭返回的许可（try-with-resources）
+     * 等待超时或 Redis 不可用时放弃合并，返回空许可，上传按普通流程继续
+     *
+     * @param userId     用户ID
+     * @param sha256Hash 内容哈希
+     * @return 锁许可，关闭时释放锁
+     */
+    public Permit acquire(Long userId, String sha256Hash) {
+        if (!properties.isEnabled() || sha256Hash == null) {
+            return Permit.NONE;
+        }
+        String key = userId + ":" + sha256Hash;
+        long deadline = System.nanoTime() + properties.getWaitTimeout().toNanos();
+
+        LocalLock localLock = localLocks.compute(key, (k, lock) -> {
+            LocalLock result = lock != null ? lock : new LocalLock();
+            result.refs++;
+            return result;
+        });
+        RLock distributedLock = uploadLockRedis.getLock(key);
+        boolean localAcquired = false;
+        try {
+            localAcquired = tryLock(localLock.lock, deadline);
+            if (localAcquired && tryLock(distributedLock, deadline)) {
+                return () -> release(key, localLock, distributedLock);
+            }
+            timeoutCounter.increment();
+            logger.warn("Timed out waiting for concurrent upload of same content: key={}", key);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.warn("Failed to acquire upload lock, skip coalescing: key={}, error={}", key, e.getMessage());
+        }
+        unlockLocal(key, localLock, localAcquired);
+        return Permit.NONE;
+    }
+
+    private boolean tryLock(Lock lock, long deadline) throws InterruptedException {
+        if (lock.tryLock()) {
+            return true;
+        }
+        waitCounter.increment();
+        return lock.tryLock(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private void release(String key, LocalLock localLock, RLock distributedLock) {
+        try {
+            distributedLock.unlock();
+        } catch (Exception e) {
+            logger.warn("Failed to release upload lock: key={}, error={}", key, e.getMessage());
+        } finally {
+            unlockLocal(key, localLock, true);
+        }
+    }
+
+    private void unlockLocal(String key, LocalLock localLock, boolean locked) {
+        if (locked) {
+            localLock.lock.unlock();
+        }
+        localLocks.computeIfPresent(key, (k, lock) -> --lock.refs > 0 ? lock : null);
+    }
+
+    /**
+     * 内容锁许可，须在获取锁的线程中关闭
+     */
+    @FunctionalInterface
+    public interface Permit extends AutoCloseable {
+        Permit NONE = () -> { };
+
+        @Override
+        void close();
+    }
+
+    private static class LocalLock {
+        private final ReentrantLock lock = new ReentrantLock();
+        private int refs;
+    }
+}
@@ -0,0 +1,70 @@
+package com.cloudrive.service;
+
+import com.cloudrive.redis.UploadFinalizeStreamRedis;
+import org.redisson.api.StreamMessageId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 上传收尾任务服务
+ * 上传内容写入缓冲目录后转为待收尾文件，收尾任务（计算哈希、秒传判断、上传存储、保存文件记录）
+ * 投递到 Redis Stream，由任意节点的收尾工作线程消费
+ */
+@Service
+public class UploadFinalizeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadFinalizeService.class);
+
+    public static final String FIELD_TASK_ID = "taskId";
+    public static final String FIELD_STAGED_FILE = "stagedFile";
+    public static final String FIELD_FILENAME = "filename";
+    public static final String FIELD_FILE_SIZE = "fileSize";
+    public static final String FIELD_PARENT_ID = "parentId";
+    public static final String FIELD_USER_ID = "userId";
+
+    private final UploadSpoolService uploadSpoolService;
+    private final UploadFinalizeStreamRedis uploadFinalizeStreamRedis;
+
+    public UploadFinalizeService(UploadSpoolService uploadSpoolService, UploadFinalizeStreamRedis uploadFinalizeStreamRedis) {
+        this.uploadSpoolService = uploadSpoolService;
+        this.uploadFinalizeStreamRedis = uploadFinalizeStreamRedis;
+    }
+
+    /**
+     * 提交收尾任务
+     *
+     * @param spoolFile        已写入完成的缓冲文件，提交后由收尾任务负责删除
+     * @param originalFilename 原始文件名
+     * @param fileSize         文件大小
+     * @param parentId         父文件夹ID
+     * @param taskId           上传任务ID
+     * @param userId           用户ID
+     */
+    public void submit(File spoolFile, String originalFilename, long fileSize, Long parentId, String taskId, Long userId) throws IOException {
+        String stagedFile = uploadSpoolService.stage(spoolFile);
+
+        Map<String, String> job = new HashMap<>();
+        job.put(FIELD_TASK_ID, taskId);
+        job.put(FIELD_STAGED_FILE, stagedFile);
+        job.put(FIELD_FILENAME, originalFilename);
+        job.put(FIELD_FILE_SIZE, String.valueOf(fileSize));
+        if (parentId != null) {
+            job.put(FIELD_PARENT_ID, String.valueOf(parentId));
+        }
+        job.put(FIELD_USER_ID, String.valueOf(userId));
+
+        try {
+            StreamMessageId id = uploadFinalizeStreamRedis.publish(job);
+            logger.info("Upload finalize job published: id={}, taskId={}, stagedFile={}", id, taskId, stagedFile);
+        } catch (RuntimeException e) {
+            uploadSpoolService.discardStaged(uploadSpoolService.resolveStaged(stagedFile));
+            throw e;
+        }
+    }
+}
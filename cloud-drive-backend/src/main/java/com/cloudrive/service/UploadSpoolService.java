@@ -0,0 +1,373 @@
+package com.cloudrive.service;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.config.properties.SpoolProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 上传缓冲目录服务
+ * 负责缓冲文件的分配与回收：按预计大小预留磁盘空间，空间不足时排队等待或拒绝，
+ * 文件名由服务端生成，不使用客户端提供的原始文件名。
+ * 多节点共享缓冲目录时，缓冲文件名以节点标识开头，各节点定期刷新自己的心跳文件；
+ * 节点只按进行中的文件清理自己的缓冲文件，其他节点的缓冲文件只在该节点心跳过期后才清理
+ */
+@Service
+public class UploadSpoolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadSpoolService.class);
+
+    public static final String SPOOL_FILE_SUFFIX = ".part";
+    public static final String STAGED_FILE_SUFFIX = ".staged";
+    public static final String HEARTBEAT_FILE_SUFFIX = ".alive";
+    private static final char NODE_SEPARATOR = '_';
+    /**
+     * 心跳超过该倍数的清理间隔未刷新，视为节点已下线
+     */
+    private static final int HEARTBEAT_TIMEOUT_INTERVALS = 3;
+
+    private final SpoolProperties spoolProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * 进行中的缓冲文件及其预留字节数
+     */
+    private final Map<String, Long> activeFiles = new ConcurrentHashMap<>();
+    private final Object admissionLock = new Object();
+    private long reservedBytes = 0;
+
+    private File spoolDir;
+    private String nodeId;
+    private Counter rejectedCounter;
+    private Counter sweptCounter;
+
+    public UploadSpoolService(SpoolProperties spoolProperties, MeterRegistry meterRegistry) {
+        this.spoolProperties = spoolProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    public void init() throws IOException {
+        spoolDir = Files.createDirectories(Path.of(spoolProperties.getDir())).toFile();
+        nodeId = resolveNodeId();
+        touchHeartbeat();
+        logger.info("Upload spool directory: {}, node: {}", spoolDir.getAbsolutePath(), nodeId);
+
+        Gauge.builder("upload.spool.files", activeFiles, Map::size)
+                .description("进行中的缓冲文件数")
+                .register(meterRegistry);
+        Gauge.builder("upload.spool.reserved.bytes", this, UploadSpoolService::getReservedBytes)
+                .description("已预留的缓冲空间")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("upload.spool.usable.bytes", spoolDir, File::getUsableSpace)
+                .description("缓冲目录所在磁盘的可用空间")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("upload.spool.rejected")
+                .description("因空间不足被拒绝的上传数")
+                .register(meterRegistry);
+        sweptCounter = Counter.builder("upload.spool.swept")
+                .description("被清理的孤儿缓冲文件数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 分配一个缓冲文件并预留空间
+     * 剩余空间不足时在 admission-timeout 内排队等待其他上传释放空间，超时后拒绝。
+     * 写入期间预留空间与实际占用会重复计算，属保守估计
+     *
+     * @param expectedSize 预计写入的字节数
+     * @return 缓冲文件（尚未创建）
+     */
+    public File allocate(long expectedSize) {
+        long reserve = Math.max(0, expectedSize);
+        admit(reserve);
+
+        String name = newSpoolFileName();
+        activeFiles.put(name, reserve);
+        return new File(spoolDir, name);
+    }
+
+    /**
+     * 写入量超过预留时扩大缓冲文件的预留空间，与分配相同地排队等待，超时后拒绝
+     * 用于写入前无法确定大小上限的文件，边写边扩大，避免实际占用超出预留而绕过磁盘水位保护
+     *
+     * @param file 由 allocate 分配的缓冲文件
+     * @param size 扩大后的预留字节数，不大于当前预留时不做任何事
+     */
+    public void extendReservation(File file, long size) {
+        Long previous = activeFiles.get(file.getName());
+        if (previous == null || size <= previous) {
+            return;
+        }
+        admit(size - previous);
+        activeFiles.put(file.getName(), size);
+    }
+
+    /**
+     * 在 admission-timeout 内等待剩余空间足够后计入预留，超时后拒绝
+     */
+    private void admit(long reserve) {
+        long deadline = System.currentTimeMillis() + spoolProperties.getAdmissionTimeout().toMillis();
+
+        synchronized (admissionLock) {
+            while (spoolDir.getUsableSpace() - reservedBytes - reserve < spoolProperties.getMinFreeBytes()) {
+                long waitMillis = deadline - System.currentTimeMillis();
+                if (waitMillis <= 0) {
+                    rejectedCounter.increment();
+                    logger.warn("Spool space insufficient: usable={}, reserved={}, requested={}",
+                            spoolDir.getUsableSpace(), reservedBytes, reserve);
+                    ExceptionUtil.throwBizException(ErrorCode.SPOOL_SPACE_INSUFFICIENT);
+                }
+                try {
+                    admissionLock.wait(waitMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    ExceptionUtil.throwBizException(ErrorCode.SPOOL_SPACE_INSUFFICIENT);
+                }
+            }
+            reservedBytes += reserve;
+        }
+    }
+
+    /**
+     * 空间充足时分配一个缓冲文件并预留空间，不足时立即返回null，不排队等待
+     *
+     * @param expectedSize 预计写入的字节数
+     * @return 缓冲文件（尚未创建），空间不足时返回null
+     */
+    public File tryAllocate(long expectedSize) {
+        long reserve = Math.max(0, expectedSize);
+        synchronized (admissionLock) {
+            if (spoolDir.getUsableSpace() - reservedBytes - reserve < spoolProperties.getMinFreeBytes()) {
+                return null;
+            }
+            reservedBytes += reserve;
+        }
+        String name = newSpoolFileName();
+        activeFiles.put(name, reserve);
+        return new File(spoolDir, name);
+    }
+
+    private String newSpoolFileName() {
+        return nodeId + NODE_SEPARATOR + UUID.randomUUID().toString().replace("-", "") + SPOOL_FILE_SUFFIX;
+    }
+
+    /**
+     * 按名称取得缓冲文件，用于读取其他节点写入共享缓冲目录的文件
+     *
+     * @param name 缓冲文件名称
+     * @return 缓冲文件，名称非法时返回null
+     */
+    public File resolve(String name) {
+        if (name == null || !name.endsWith(SPOOL_FILE_SUFFIX) || name.contains("/") || name.contains("\\") || name.contains("..")) {
+            return null;
+        }
+        return new File(spoolDir, name);
+    }
+
+    /**
+     * 写入完成后按实际大小调整缓冲文件的预留空间
+     * 分配时大小未知而按上限预留的文件，写完后只保留实际占用，多出的部分让给排队中的上传
+     *
+     * @param file       由 allocate 分配的缓冲文件
+     * @param actualSize 实际写入的字节数
+     */
+    public void adjustReservation(File file, long actualSize) {
+        long reserve = Math.max(0, actualSize);
+        Long previous = activeFiles.replace(file.getName(), reserve);
+        if (previous == null) {
+            return;
+        }
+        synchronized (admissionLock) {
+            reservedBytes += reserve - previous;
+            admissionLock.notifyAll();
+        }
+    }
+
+    /**
+     * 删除缓冲文件并释放预留空间
+     *
+     * @param file 由 allocate 分配的缓冲文件
+     */
+    public void release(File file) {
+        if (file == null) {
+            return;
+        }
+        if (file.exists() && !file.delete()) {
+            logger.warn("Failed to delete spool file: {}", file.getAbsolutePath());
+        }
+        Long reserve = activeFiles.remove(file.getName());
+        if (reserve != null) {
+            synchronized (admissionLock) {
+                reservedBytes -= reserve;
+                admissionLock.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 将写入完成的缓冲文件转为待收尾文件并释放预留空间
+     * 待收尾文件可由任意节点的收尾任务按名称取用，多节点部署时缓冲目录须为共享存储
+     *
+     * @param file 由 allocate 分配且已写入完成的缓冲文件
+     * @return 待收尾文件的名称
+     */
+    public String stage(File file) throws IOException {
+        String name = file.getName().substring(0, file.getName().length() - SPOOL_FILE_SUFFIX.length()) + STAGED_FILE_SUFFIX;
+        Files.move(file.toPath(), spoolDir.toPath().resolve(name));
+        release(file);
+        return name;
+    }
+
+    /**
+     * 按名称取得待收尾文件
+     *
+     * @param name stage 返回的名称
+     * @return 待收尾文件，名称非法时返回null
+     */
+    public File resolveStaged(String name) {
+        if (name == null || !name.endsWith(STAGED_FILE_SUFFIX) || name.contains("/") || name.contains("\\") || name.contains("..")) {
+            return null;
+        }
+        return new File(spoolDir, name);
+    }
+
+    /**
+     * 删除待收尾文件
+     */
+    public void discardStaged(File file) {
+        if (file != null && file.exists() && !file.delete()) {
+            logger.warn("Failed to delete staged file: {}", file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * 清理孤儿缓冲文件，并刷新本节点的心跳
+     * <ul>
+     *     <li>本节点的缓冲文件：不属于进行中的上传，且最后修改时间超过 orphan-ttl</li>
+     *     <li>其他节点的缓冲文件：所属节点心跳已过期，且最后修改时间超过 orphan-ttl；节点存活时由其自行清理</li>
+     *     <li>待收尾文件：由收尾队列而非节点持有，最后修改时间超过 staged-ttl 时清理</li>
+     * </ul>
+     * 进程异常退出时遗留的缓冲文件由此回收：节点以相同标识重启后自行清理，不再启动的节点由其他节点在其心跳过期后清理
+     *
+     * @return 清理的文件数
+     */
+    public int sweepOrphans() {
+        touchHeartbeat();
+        File[] files = spoolDir.listFiles();
+        if (files == null) {
+            return 0;
+        }
+        long now = System.currentTimeMillis();
+        long expireBefore = now - spoolProperties.getOrphanTtl().toMillis();
+        long stagedExpireBefore = now - spoolProperties.getStagedTtl().toMillis();
+        long heartbeatExpireBefore = now - spoolProperties.getSweepInterval().toMillis() * HEARTBEAT_TIMEOUT_INTERVALS;
+
+        Set<String> liveNodes = new HashSet<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(HEARTBEAT_FILE_SUFFIX) && file.lastModified() >= heartbeatExpireBefore) {
+                liveNodes.add(name.substring(0, name.length() - HEARTBEAT_FILE_SUFFIX.length()));
+            }
+        }
+
+        int swept = 0;
+        for (File file : files) {
+            if (file.isFile() && isOrphan(file, liveNodes, expireBefore, stagedExpireBefore)) {
+                if (file.delete()) {
+                    swept++;
+                } else {
+                    logger.warn("Failed to delete orphan spool file: {}", file.getAbsolutePath());
+                }
+            }
+        }
+        if (swept > 0) {
+            sweptCounter.increment(swept);
+            logger.info("Swept {} orphan spool files from {}", swept, spoolDir.getAbsolutePath());
+        }
+        return swept;
+    }
+
+    private boolean isOrphan(File file, Set<String> liveNodes, long expireBefore, long stagedExpireBefore) {
+        String name = file.getName();
+        if (name.endsWith(STAGED_FILE_SUFFIX)) {
+            return file.lastModified() < stagedExpireBefore;
+        }
+        if (file.lastModified() >= expireBefore) {
+            return false;
+        }
+        if (name.endsWith(HEARTBEAT_FILE_SUFFIX)) {
+            // 已下线节点的心跳文件
+            return !liveNodes.contains(name.substring(0, name.length() - HEARTBEAT_FILE_SUFFIX.length()));
+        }
+        if (!name.endsWith(SPOOL_FILE_SUFFIX)) {
+            return false;
+        }
+        int separator = name.indexOf(NODE_SEPARATOR);
+        String owner = separator > 0 ? name.substring(0, separator) : null;
+        if (nodeId.equals(owner)) {
+            return !activeFiles.containsKey(name);
+        }
+        return owner == null || !liveNodes.contains(owner);
+    }
+
+    /**
+     * 刷新本节点的心跳文件
+     */
+    private void touchHeartbeat() {
+        File heartbeat = new File(spoolDir, nodeId + HEARTBEAT_FILE_SUFFIX);
+        try {
+            if (!heartbeat.createNewFile() && !heartbeat.setLastModified(System.currentTimeMillis())) {
+                logger.warn("Failed to refresh spool heartbeat: {}", heartbeat.getAbsolutePath());
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to create spool heartbeat: {}, error={}", heartbeat.getAbsolutePath(), e.getMessage());
+        }
+    }
+
+    /**
+     * 节点标识：优先使用配置，未配置时使用主机名；只保留文件名安全的字符
+     */
+    private String resolveNodeId() {
+        String configured = spoolProperties.getNodeId();
+        String id = configured;
+        if (id == null || id.isBlank()) {
+            try {
+                id = InetAddress.getLocalHost().getHostName();
+            } catch (IOException e) {
+                id = UUID.randomUUID().toString();
+                logger.warn("Failed to resolve host name, using random spool node id {}", id);
+            }
+        }
+        return id.replaceAll("[^A-Za-z0-9.-]", "-");
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public long getReservedBytes() {
+        synchronized (admissionLock) {
+            return reservedBytes;
+        }
+    }
+}
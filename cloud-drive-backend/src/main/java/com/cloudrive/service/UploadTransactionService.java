@@ -0,0 +1,88 @@
+package com.cloudrive.service;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.entity.User;
+import com.cloudrive.repository.FileInfoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * 上传事务服务
+ * <p>
+ * 上传分为三个阶段：短事务校验父文件夹并确定上传路径；不持有数据库连接进行存储传输；
+ * 短事务提交文件记录，提交失败时删除已写入存储的对象作为补偿。
+ * 避免慢速上传长时间占用连接池中的连接。
+ */
+@Service
+public class UploadTransactionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UploadTransactionService.class);
+
+    private final FileInfoRepository fileInfoRepository;
+    private final StorageServiceFactory storageServiceFactory;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    public UploadTransactionService(FileInfoRepository fileInfoRepository, StorageServiceFactory storageServiceFactory, TransactionTemplate transactionTemplate) {
+        this.fileInfoRepository = fileInfoRepository;
+        this.storageServiceFactory = storageServiceFactory;
+        this.transactionTemplate = transactionTemplate;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+    }
+
+    /**
+     * 阶段一：校验父文件夹并返回上传路径
+     *
+     * @param parentId    父文件夹ID，为空表示根目录
+     * @param currentUser 当前用户
+     * @return 上传路径
+     */
+    public String resolveUploadPath(Long parentId, User currentUser) {
+        if (parentId == null) {
+            return CommonConstants.File.FILE_PATH_PREFIX + currentUser.getId();
+        }
+        return readOnlyTransactionTemplate.execute(status -> {
+            FileInfo parent = fileInfoRepository.findById(parentId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
+            ExceptionUtil.throwIf(!parent.getUser().getId().equals(currentUser.getId()), ErrorCode.NO_PERMISSION);
+            ExceptionUtil.throwIf(parent.getIsDeleted() || !parent.getIsFolder(), ErrorCode.FILE_NOT_FOUND);
+            return parent.getPath();
+        });
+    }
+
+    /**
+     * 在短事务中执行数据库操作
+     */
+    public <T> T inTransaction(Supplier<T> action) {
+        return transactionTemplate.execute(status -> action.get());
+    }
+
+    /**
+     * 阶段三：在短事务中提交文件记录，失败时删除已上传的存储对象
+     *
+     * @param uploadedPath 阶段二写入存储的路径
+     * @param action       提交文件记录的数据库操作
+     * @return 数据库操作的结果
+     */
+    public <T> T commit(String uploadedPath, Supplier<T> action) {
+        try {
+            return inTransaction(action);
+        } catch (RuntimeException e) {
+            logger.error("Failed to commit uploaded file, deleting stored object: path={}, error={}", uploadedPath, e.getMessage());
+            try {
+                storageServiceFactory.getStorageService().deleteFile(uploadedPath);
+            } catch (Exception deleteError) {
+                logger.warn("Compensating delete failed: path={}, error={}", uploadedPath, deleteError.getMessage());
+            }
+            throw e;
+        }
+    }
+}
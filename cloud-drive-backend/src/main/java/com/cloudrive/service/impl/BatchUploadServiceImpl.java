@@ -0,0 +1,380 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.common.util.FileHashUtil;
+import com.cloudrive.common.util.SizeLimitInputStream;
+import com.cloudrive.common.util.UserContext;
+import com.cloudrive.config.ExecutorConfig;
+import com.cloudrive.config.properties.BatchUploadProperties;
+import com.cloudrive.mapper.FileMapper;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.BatchUploadResultVO;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.service.BatchUploadService;
+import com.cloudrive.service.QuotaService;
+import com.cloudrive.service.StorageService;
+import com.cloudrive.service.StorageServiceFactory;
+import com.cloudrive.service.UploadSpoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * 批量上传服务实现类
+ * <p>
+ * 顺序读取压缩包，文件内容写入缓冲目录并同时计算哈希；每累计一批文件：
+ * 一次查询完成批内秒传判断，相同内容只写一次存储且并发写入，最后在一个事务内创建本批用到的文件夹并批量插入文件记录。
+ * 上传失败时不会留下只有文件夹没有文件的半成品目录。
+ */
+@Service
+public class BatchUploadServiceImpl implements BatchUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchUploadServiceImpl.class);
+
+    private final StorageServiceFactory storageServiceFactory;
+    private final FileInfoRepository fileInfoRepository;
+    private final FileMapper fileMapper;
+    private final UploadSpoolService uploadSpoolService;
+    private final BatchUploadProperties batchUploadProperties;
+    private final Executor batchUploadExecutor;
+    private final TransactionTemplate transactionTemplate;
+    private final QuotaService quotaService;
+
+    public BatchUploadServiceImpl(StorageServiceFactory storageServiceFactory, FileInfoRepository fileInfoRepository, FileMapper fileMapper,
+                                  UploadSpoolService uploadSpoolService, BatchUploadProperties batchUploadProperties,
+                                  @Qualifier(ExecutorConfig.BATCH_UPLOAD_EXECUTOR) Executor batchUploadExecutor,
+                                  TransactionTemplate transactionTemplate, QuotaService quotaService) {
+        this.storageServiceFactory = storageServiceFactory;
+        this.fileInfoRepository = fileInfoRepository;
+        this.fileMapper = fileMapper;
+        this.uploadSpoolService = uploadSpoolService;
+        this.batchUploadProperties = batchUploadProperties;
+        this.batchUploadExecutor = batchUploadExecutor;
+        this.transactionTemplate = transactionTemplate;
+        this.quotaService = quotaService;
+    }
+
+    @Override
+    public BatchUploadResultVO uploadArchive(InputStream archive, Long parentId) {
+        User currentUser = UserContext.getCurrentUser();
+        BatchUploadResultVO result = new BatchUploadResultVO();
+
+        // 压缩包内目录路径 -> 已创建（或已存在）的文件夹，空字符串表示目标父文件夹
+        Folders folders = new Folders(currentUser);
+        folders.saved.put("", getTargetFolder(parentId, currentUser));
+
+        List<PendingFile> window = new ArrayList<>();
+        int entryCount = 0;
+        try (ZipInputStream zip = new ZipInputStream(archive)) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                ExceptionUtil.throwIf(++entryCount > batchUploadProperties.getMaxEntries(), ErrorCode.TOO_MANY_ENTRIES);
+                String name = normalizeEntryName(entry.getName());
+                if (name.isEmpty()) {
+                    continue;
+                }
+                if (entry.isDirectory()) {
+                    folders.register(name);
+                    continue;
+                }
+
+                int slash = name.lastIndexOf(CommonConstants.File.SLASH);
+                String dir = slash < 0 ? "" : name.substring(0, slash);
+                folders.register(dir);
+                window.add(spool(zip, entry, name.substring(slash + 1), dir));
+
+                if (window.size() >= batchUploadProperties.getWindowSize()) {
+                    flush(window, folders, currentUser, result);
+                }
+            }
+            // 最后一批同时创建只有空目录条目的文件夹
+            flush(window, folders, currentUser, result);
+        } catch (IOException e) {
+            logger.error("Failed to read upload archive: error={}", e.getMessage());
+            throw new BusinessException(ErrorCode.INVALID_ARCHIVE, e);
+        } finally {
+            window.forEach(pending -> uploadSpoolService.release(pending.spoolFile));
+        }
+
+        logger.info("Batch upload completed: userId={}, files={}, folders={}, fastUploads={}, bytes={}",
+                currentUser.getId(), result.getFileCount(), result.getFolderCount(), result.getFastUploadCount(), result.getTotalBytes());
+        return result;
+    }
+
+    /**
+     * 将当前条目写入缓冲文件，同时计算SHA-256
+     * 条目未声明大小时（数据描述符格式）按单文件上限预留空间，写完后按实际大小调整预留
+     */
+    private PendingFile spool(ZipInputStream zip, ZipEntry entry, String filename, String dir) throws IOException {
+        long maxEntrySize = batchUploadProperties.getMaxEntrySize().toBytes();
+        File spoolFile = uploadSpoolService.allocate(entry.getSize() >= 0 ? Math.min(entry.getSize(), maxEntrySize) : maxEntrySize);
+        PendingFile pending = new PendingFile(filename, dir, spoolFile);
+        try {
+            // 不关闭压缩包流，只读取当前条目
+            SizeLimitInputStream limitedStream = new SizeLimitInputStream(zip, maxEntrySize);
+            MessageDigest digest = FileHashUtil.sha256();
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(spoolFile.toPath()), digest)) {
+                limitedStream.transferTo(out);
+            }
+            pending.sha256Hash = FileHashUtil.bytesToHex(digest.digest());
+            pending.fileSize = limitedStream.getCount();
+            uploadSpoolService.adjustReservation(spoolFile, pending.fileSize);
+            return pending;
+        } catch (IOException | RuntimeException e) {
+            uploadSpoolService.release(spoolFile);
+            throw e;
+        }
+    }
+
+    /**
+     * 处理一批文件：批量秒传判断、并发写存储，在一个事务内创建文件夹并批量插入记录
+     */
+    private void flush(List<PendingFile> window, Folders folders, User currentUser, BatchUploadResultVO result) {
+        if (window.isEmpty() && folders.pending.isEmpty()) {
+            return;
+        }
+
+        // 压缩包解压后的大小可能远大于请求体，写存储前按本批实际大小校验配额，提交时再在用户行锁下校验
+        long windowBytes = window.stream().mapToLong(pending -> pending.fileSize).sum();
+        quotaService.checkQuota(currentUser.getId(), windowBytes);
+
+        // 1. 一次查询判断整批文件是否可以秒传
+        Map<String, FileInfo> existingByHash = new HashMap<>();
+        List<String> hashes = window.stream().map(pending -> pending.sha256Hash).distinct().toList();
+        for (FileInfo existing : fileInfoRepository.findBySha256HashInAndUserIdAndIsDeletedFalse(hashes, currentUser.getId())) {
+            existingByHash.putIfAbsent(existing.getSha256Hash(), existing);
+        }
+
+        // 2. 批内相同内容只上传一次，不同内容并发写入存储
+        Map<String, PendingFile> toUpload = new LinkedHashMap<>();
+        for (PendingFile pending : window) {
+            if (!existingByHash.containsKey(pending.sha256Hash)) {
+                toUpload.putIfAbsent(pending.sha256Hash, pending);
+            }
+        }
+        Map<String, String> uploadedPaths = uploadAll(toUpload, folders, currentUser);
+
+        // 3. 一个事务内创建文件夹并批量插入文件记录，失败时删除本批新写入的对象
+        int createdFolders;
+        List<FileInfo> fileInfos = new ArrayList<>(window.size());
+        try {
+            createdFolders = transactionTemplate.execute(status -> {
+                quotaService.checkQuotaForCommit(currentUser.getId(), windowBytes);
+                int created = folders.createPending();
+                for (PendingFile pending : window) {
+                    FileInfo folder = folders.saved.get(pending.dir);
+                    Long folderId = folder != null ? folder.getId() : null;
+                    FileInfo existing = existingByHash.get(pending.sha256Hash);
+                    if (existing != null) {
+                        fileInfos.add(fileMapper.toFileInfoForFastUpload(pending.filename, existing, currentUser, folderId, pending.sha256Hash));
+                    } else {
+                        fileInfos.add(fileMapper.toFileInfoFromPath(pending.filename, uploadedPaths.get(pending.sha256Hash), pending.fileSize,
+                                currentUser, folderId, pending.sha256Hash));
+                    }
+                }
+                fileInfoRepository.batchInsert(fileInfos);
+                return created;
+            });
+        } catch (RuntimeException e) {
+            deleteQuietly(uploadedPaths.values());
+            throw e;
+        }
+        for (PendingFile pending : window) {
+            if (existingByHash.containsKey(pending.sha256Hash)) {
+                result.setFastUploadCount(result.getFastUploadCount() + 1);
+            }
+            result.setTotalBytes(result.getTotalBytes() + pending.fileSize);
+        }
+        result.setFolderCount(result.getFolderCount() + createdFolders);
+        result.setFileCount(result.getFileCount() + fileInfos.size());
+
+        window.forEach(pending -> uploadSpoolService.release(pending.spoolFile));
+        window.clear();
+    }
+
+    /**
+     * 并发上传缓冲文件，返回哈希值到存储路径的映射；任一失败时删除已成功写入的对象
+     */
+    private Map<String, String> uploadAll(Map<String, PendingFile> toUpload, Folders folders, User currentUser) {
+        StorageService storageService = storageServiceFactory.getStorageService();
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        toUpload.forEach((hash, pending) -> {
+            String path = folders.pathOf(pending.dir);
+            futures.put(hash, CompletableFuture.supplyAsync(() -> storageService.uploadFile(pending.spoolFile, path), batchUploadExecutor));
+        });
+
+        try {
+            CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+        } catch (CompletionException e) {
+            List<String> succeeded = futures.values().stream()
+                    .filter(future -> !future.isCompletedExceptionally())
+                    .map(CompletableFuture::join)
+                    .toList();
+            deleteQuietly(succeeded);
+            if (e.getCause() instanceof BusinessException businessException) {
+                throw businessException;
+            }
+            throw new BusinessException(ErrorCode.FILE_UPLOAD_FAILED, e.getCause());
+        }
+
+        Map<String, String> paths = new HashMap<>();
+        futures.forEach((hash, future) -> paths.put(hash, future.join()));
+        return paths;
+    }
+
+    /**
+     * 获取目标父文件夹，为空表示根目录
+     */
+    private FileInfo getTargetFolder(Long parentId, User currentUser) {
+        if (parentId == null) {
+            return null;
+        }
+        FileInfo parent = fileInfoRepository.findById(parentId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
+        ExceptionUtil.throwIf(!parent.getUser().getId().equals(currentUser.getId()), ErrorCode.NO_PERMISSION);
+        ExceptionUtil.throwIf(parent.getIsDeleted() || !parent.getIsFolder(), ErrorCode.FILE_NOT_FOUND);
+        return parent;
+    }
+
+    private String uploadPathOf(FileInfo folder, User currentUser) {
+        return folder != null ? folder.getPath() : CommonConstants.File.FILE_PATH_PREFIX + currentUser.getId();
+    }
+
+    /**
+     * 规范化压缩包条目名称，拒绝绝对路径和上级目录引用
+     */
+    private String normalizeEntryName(String entryName) {
+        String name = entryName.replace('\\', '/');
+        while (name.startsWith(CommonConstants.File.SLASH)) {
+            name = name.substring(1);
+        }
+        while (name.endsWith(CommonConstants.File.SLASH)) {
+            name = name.substring(0, name.length() - 1);
+        }
+        for (String segment : name.split(CommonConstants.File.SLASH)) {
+            ExceptionUtil.throwIf(segment.equals("..") || segment.equals(".") || (segment.isEmpty() && !name.isEmpty()), ErrorCode.INVALID_ARCHIVE,
+                    "压缩包包含非法路径: " + entryName);
+        }
+        return name;
+    }
+
+    private void deleteQuietly(Iterable<String> paths) {
+        StorageService storageService = storageServiceFactory.getStorageService();
+        for (String path : paths) {
+            try {
+                storageService.deleteFile(path);
+            } catch (Exception e) {
+                logger.warn("Failed to delete uploaded object after batch failure: path={}, error={}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 压缩包内目录与文件夹记录的对应关系
+     * 读取条目时只登记目录，文件夹在批次的插入事务内创建，同名文件夹已存在时直接复用
+     */
+    private class Folders {
+        private final User currentUser;
+        /**
+         * 目录路径 -> 已创建（或已存在）的文件夹
+         */
+        private final Map<String, FileInfo> saved = new HashMap<>();
+        /**
+         * 尚未创建的目录，上级目录排在下级目录之前
+         */
+        private final Set<String> pending = new LinkedHashSet<>();
+
+        Folders(User currentUser) {
+            this.currentUser = currentUser;
+        }
+
+        /**
+         * 登记目录及其上级目录
+         */
+        void register(String dir) {
+            if (saved.containsKey(dir) || pending.contains(dir)) {
+                return;
+            }
+            register(parentOf(dir));
+            pending.add(dir);
+        }
+
+        /**
+         * 在当前事务内创建已登记的目录，返回新建的文件夹数
+         */
+        int createPending() {
+            int created = 0;
+            for (String dir : pending) {
+                FileInfo parent = saved.get(parentOf(dir));
+                Long parentId = parent != null ? parent.getId() : null;
+                String name = dir.substring(dir.lastIndexOf(CommonConstants.File.SLASH) + 1);
+                FileInfo folder = fileInfoRepository.findFirstByUserIdAndParentIdAndFilenameAndIsFolderTrueAndIsDeletedFalse(currentUser.getId(), parentId, name)
+                        .orElse(null);
+                if (folder == null) {
+                    folder = fileInfoRepository.save(fileMapper.toFolderInfo(name, pathOf(dir), currentUser, parentId));
+                    created++;
+                }
+                saved.put(dir, folder);
+            }
+            pending.clear();
+            return created;
+        }
+
+        /**
+         * 目录对应的存储路径，尚未创建的目录按上级目录推算
+         */
+        String pathOf(String dir) {
+            if (saved.containsKey(dir)) {
+                return uploadPathOf(saved.get(dir), currentUser);
+            }
+            return pathOf(parentOf(dir)) + CommonConstants.File.SLASH + dir.substring(dir.lastIndexOf(CommonConstants.File.SLASH) + 1);
+        }
+
+        private String parentOf(String dir) {
+            int slash = dir.lastIndexOf(CommonConstants.File.SLASH);
+            return slash < 0 ? "" : dir.substring(0, slash);
+        }
+    }
+
+    /**
+     * 已写入缓冲目录、等待处理的文件
+     */
+    private static class PendingFile {
+        private final String filename;
+        private final String dir;
+        private final File spoolFile;
+        private String sha256Hash;
+        private long fileSize;
+
+        PendingFile(String filename, String dir, File spoolFile) {
+            this.filename = filename;
+            this.dir = dir;
+            this.spoolFile = spoolFile;
+        }
+    }
+}
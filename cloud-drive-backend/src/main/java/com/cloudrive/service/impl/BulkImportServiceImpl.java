@@ -0,0 +1,540 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.common.util.FileHashUtil;
+import com.cloudrive.config.properties.BulkImportProperties;
+import com.cloudrive.mapper.FileMapper;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.BulkImportResultVO;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.repository.UserRepository;
+import com.cloudrive.service.BulkImportService;
+import com.cloudrive.service.StorageService;
+import com.cloudrive.service.StorageServiceFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 批量导入服务实现类
+ * <p>
+ * 三段流水线：多线程遍历源目录，多线程计算SHA-256，单线程按批提交。
+ * 每批一次查询完成查重，相同内容只写一次存储且有界并发写入，文件记录以 JDBC 批处理插入。
+ * 每批提交后将相对路径追加到检查点文件并落盘，中断后重新执行时跳过已导入的文件；
+ * 提交与检查点落盘之间中断时，该批文件会在下次执行时重复导入。
+ */
+@Service
+public class BulkImportServiceImpl implements BulkImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportServiceImpl.class);
+
+    /**
+     * 遍历结束标记
+     */
+    private static final Path SCAN_DONE = Path.of("");
+
+    /**
+     * 哈希结束标记
+     */
+    private static final ImportItem HASH_DONE = new ImportItem(null, null, 0, null);
+
+    private final StorageServiceFactory storageServiceFactory;
+    private final FileInfoRepository fileInfoRepository;
+    private final UserRepository userRepository;
+    private final FileMapper fileMapper;
+    private final BulkImportProperties bulkImportProperties;
+    private final MeterRegistry meterRegistry;
+
+    public BulkImportServiceImpl(StorageServiceFactory storageServiceFactory, FileInfoRepository fileInfoRepository, UserRepository userRepository,
+                                 FileMapper fileMapper, BulkImportProperties bulkImportProperties, MeterRegistry meterRegistry) {
+        this.storageServiceFactory = storageServiceFactory;
+        this.fileInfoRepository = fileInfoRepository;
+        this.userRepository = userRepository;
+        this.fileMapper = fileMapper;
+        this.bulkImportProperties = bulkImportProperties;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public BulkImportResultVO importDirectory(Path source, Long userId, Long parentId, Path checkpointFile) {
+        ExceptionUtil.throwIf(source == null || !Files.isDirectory(source), ErrorCode.FILE_NOT_FOUND, "源目录不存在: " + source);
+        User user = userRepository.findById(userId).orElseThrow(() -> new BusinessException(ErrorCode.USER_NOT_FOUND));
+        FileInfo target = getTargetFolder(parentId, user);
+
+        try {
+            return new ImportRun(source.toAbsolutePath().normalize(), user, target, checkpointFile).execute();
+        } catch (IOException e) {
+            logger.error("Bulk import failed: source={}, error={}", source, e.getMessage());
+            throw new BusinessException(ErrorCode.FILE_UPLOAD_FAILED, e);
+        }
+    }
+
+    /**
+     * 获取目标父文件夹，为空表示根目录
+     */
+    private FileInfo getTargetFolder(Long parentId, User user) {
+        if (parentId == null) {
+            return null;
+        }
+        FileInfo parent = fileInfoRepository.findById(parentId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
+        ExceptionUtil.throwIf(!parent.getUser().getId().equals(user.getId()), ErrorCode.NO_PERMISSION);
+        ExceptionUtil.throwIf(parent.getIsDeleted() || !parent.getIsFolder(), ErrorCode.FILE_NOT_FOUND);
+        return parent;
+    }
+
+    private String uploadPathOf(FileInfo folder, User user) {
+        return folder != null ? folder.getPath() : CommonConstants.File.FILE_PATH_PREFIX + user.getId();
+    }
+
+    /**
+     * 一次导入的运行状态
+     */
+    private class ImportRun {
+        private final Path source;
+        private final User user;
+        private final Path checkpointFile;
+
+        /**
+         * 检查点中已导入的相对路径
+         */
+        private final Set<String> completed = new HashSet<>();
+
+        /**
+         * 源目录内的相对目录 -> 已创建（或已存在）的文件夹，空字符串表示目标父文件夹
+         */
+        private final Map<String, FileInfo> folders = new HashMap<>();
+
+        private final BlockingQueue<Path> pendingFiles;
+        private final BlockingQueue<ImportItem> hashedFiles;
+        private final AtomicInteger pendingDirs = new AtomicInteger(1);
+        private final AtomicInteger activeHashers;
+
+        private final AtomicLong fileCount = new AtomicLong();
+        private final AtomicLong folderCount = new AtomicLong();
+        private final AtomicLong fastUploadCount = new AtomicLong();
+        private final AtomicLong skippedCount = new AtomicLong();
+        private final AtomicLong failedCount = new AtomicLong();
+        private final AtomicLong totalBytes = new AtomicLong();
+        private final long startNanos = System.nanoTime();
+
+        private final Counter importedCounter;
+        private final Counter fastUploadCounter;
+        private final Counter failedCounter;
+        private final Counter bytesCounter;
+
+        private FileOutputStream checkpointOut;
+        private Writer checkpointWriter;
+
+        ImportRun(Path source, User user, FileInfo target, Path checkpointFile) {
+            this.source = source;
+            this.user = user;
+            this.checkpointFile = checkpointFile;
+            this.folders.put("", target);
+
+            int capacity = Math.max(1, bulkImportProperties.getBatchSize()) * 2;
+            this.pendingFiles = new ArrayBlockingQueue<>(capacity);
+            this.hashedFiles = new ArrayBlockingQueue<>(capacity);
+            this.activeHashers = new AtomicInteger(bulkImportProperties.getHashConcurrency());
+
+            this.importedCounter = Counter.builder("bulk.import.files").tag("result", "imported").register(meterRegistry);
+            this.fastUploadCounter = Counter.builder("bulk.import.files").tag("result", "fast_upload").register(meterRegistry);
+            this.failedCounter = Counter.builder("bulk.import.files").tag("result", "failed").register(meterRegistry);
+            this.bytesCounter = Counter.builder("bulk.import.bytes").baseUnit("bytes").register(meterRegistry);
+        }
+
+        BulkImportResultVO execute() throws IOException {
+            loadCheckpoint();
+            logger.info("Bulk import started: source={}, userId={}, checkpoint={}, alreadyImported={}",
+                    source, user.getId(), checkpointFile, completed.size());
+
+            ExecutorService scanPool = Executors.newFixedThreadPool(bulkImportProperties.getScanConcurrency(), new CustomizableThreadFactory("bulk-import-scan-"));
+            ExecutorService hashPool = Executors.newFixedThreadPool(bulkImportProperties.getHashConcurrency(), new CustomizableThreadFactory("bulk-import-hash-"));
+            ExecutorService storagePool = Executors.newFixedThreadPool(bulkImportProperties.getStorageConcurrency(), new CustomizableThreadFactory("bulk-import-storage-"));
+            ScheduledExecutorService progressReporter = Executors.newSingleThreadScheduledExecutor(new CustomizableThreadFactory("bulk-import-progress-"));
+            try {
+                long interval = bulkImportProperties.getProgressInterval().toMillis();
+                progressReporter.scheduleAtFixedRate(new ProgressLogger(), interval, interval, TimeUnit.MILLISECONDS);
+
+                scanPool.execute(() -> scanDirectory(scanPool, source));
+                for (int i = 0; i < bulkImportProperties.getHashConcurrency(); i++) {
+                    hashPool.execute(this::hashFiles);
+                }
+                commitFiles(storagePool);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("批量导入被中断", e);
+            } finally {
+                progressReporter.shutdownNow();
+                scanPool.shutdownNow();
+                hashPool.shutdownNow();
+                storagePool.shutdownNow();
+                closeCheckpoint();
+            }
+
+            BulkImportResultVO result = new BulkImportResultVO();
+            result.setFileCount(fileCount.get());
+            result.setFolderCount(folderCount.get());
+            result.setFastUploadCount(fastUploadCount.get());
+            result.setSkippedCount(skippedCount.get());
+            result.setFailedCount(failedCount.get());
+            result.setTotalBytes(totalBytes.get());
+            result.setElapsedMillis(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+            logger.info("Bulk import completed: files={}, folders={}, fastUploads={}, skipped={}, failed={}, bytes={}, {}",
+                    result.getFileCount(), result.getFolderCount(), result.getFastUploadCount(), result.getSkippedCount(),
+                    result.getFailedCount(), result.getTotalBytes(), formatRate(result.getFileCount(), result.getTotalBytes(), result.getElapsedMillis()));
+            return result;
+        }
+
+        /**
+         * 列出目录内容：子目录交给遍历线程池，文件放入待哈希队列；最后一个目录处理完时通知哈希线程结束
+         */
+        private void scanDirectory(ExecutorService scanPool, Path dir) {
+            try (DirectoryStream<Path> entries = Files.newDirectoryStream(dir)) {
+                for (Path entry : entries) {
+                    if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS)) {
+                        pendingDirs.incrementAndGet();
+                        scanPool.execute(() -> scanDirectory(scanPool, entry));
+                    } else if (Files.isRegularFile(entry, LinkOption.NOFOLLOW_LINKS) && !isCheckpointFile(entry)) {
+                        if (completed.contains(relativePath(entry))) {
+                            skippedCount.incrementAndGet();
+                        } else {
+                            pendingFiles.put(entry);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Failed to list directory: dir={}, error={}", dir, e.getMessage());
+                failedCount.incrementAndGet();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                if (pendingDirs.decrementAndGet() == 0) {
+                    signalScanDone();
+                }
+            }
+        }
+
+        private void signalScanDone() {
+            try {
+                for (int i = 0; i < bulkImportProperties.getHashConcurrency(); i++) {
+                    pendingFiles.put(SCAN_DONE);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * 从待哈希队列取文件计算SHA-256，结果放入待提交队列；最后一个哈希线程结束时通知提交线程
+         */
+        private void hashFiles() {
+            try {
+                Path path;
+                while ((path = pendingFiles.take()) != SCAN_DONE) {
+                    File file = path.toFile();
+                    long fileSize = file.length();
+                    String sha256Hash = null;
+                    try {
+                        sha256Hash = FileHashUtil.calculateSHA256(file);
+                    } catch (RuntimeException e) {
+                        logger.error("Unexpected error while hashing file: path={}, error={}", path, e.getMessage());
+                    }
+                    if (sha256Hash == null) {
+                        logger.error("Failed to hash file, skipped: path={}", path);
+                        failedCount.incrementAndGet();
+                        failedCounter.increment();
+                        continue;
+                    }
+                    hashedFiles.put(new ImportItem(relativePath(path), file, fileSize, sha256Hash));
+                }
+                if (activeHashers.decrementAndGet() == 0) {
+                    hashedFiles.put(HASH_DONE);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        /**
+         * 按批取出已计算哈希的文件并提交
+         */
+        private void commitFiles(ExecutorService storagePool) throws InterruptedException, IOException {
+            int batchSize = Math.max(1, bulkImportProperties.getBatchSize());
+            List<ImportItem> batch = new ArrayList<>(batchSize);
+            ImportItem item;
+            while ((item = hashedFiles.take()) != HASH_DONE) {
+                batch.add(item);
+                if (batch.size() >= batchSize) {
+                    flush(batch, storagePool);
+                }
+            }
+            flush(batch, storagePool);
+        }
+
+        /**
+         * 处理一批文件：批量查重、并发写存储、批量插入记录，成功后写检查点
+         * 一批失败时删除本批新写入的对象并计入失败，不写检查点，下次执行时重试
+         */
+        private void flush(List<ImportItem> batch, ExecutorService storagePool) throws IOException {
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            Map<String, String> uploadedPaths = Map.of();
+            try {
+                // 1. 一次查询判断整批文件是否可以秒传
+                Map<String, FileInfo> existingByHash = new HashMap<>();
+                List<String> hashes = batch.stream().map(ImportItem::sha256Hash).distinct().toList();
+                for (FileInfo existing : fileInfoRepository.findBySha256HashInAndUserIdAndIsDeletedFalse(hashes, user.getId())) {
+                    existingByHash.putIfAbsent(existing.getSha256Hash(), existing);
+                }
+
+                // 2. 批内相同内容只上传一次，不同内容并发写入存储
+                Map<String, ImportItem> toUpload = new LinkedHashMap<>();
+                Map<ImportItem, FileInfo> itemFolders = new HashMap<>();
+                for (ImportItem item : batch) {
+                    itemFolders.put(item, ensureFolder(parentDir(item.relativePath())));
+                    if (!existingByHash.containsKey(item.sha256Hash())) {
+                        toUpload.putIfAbsent(item.sha256Hash(), item);
+                    }
+                }
+                uploadedPaths = uploadAll(toUpload, itemFolders, storagePool);
+
+                // 3. 批量插入文件记录
+                List<FileInfo> fileInfos = new ArrayList<>(batch.size());
+                long fastUploads = 0;
+                long bytes = 0;
+                for (ImportItem item : batch) {
+                    FileInfo folder = itemFolders.get(item);
+                    Long folderId = folder != null ? folder.getId() : null;
+                    String filename = item.file().getName();
+                    FileInfo existing = existingByHash.get(item.sha256Hash());
+                    if (existing != null) {
+                        fileInfos.add(fileMapper.toFileInfoForFastUpload(filename, existing, user, folderId, item.sha256Hash()));
+                        fastUploads++;
+                    } else {
+                        fileInfos.add(fileMapper.toFileInfoFromPath(filename, uploadedPaths.get(item.sha256Hash()), item.fileSize(),
+                                user, folderId, item.sha256Hash()));
+                    }
+                    bytes += item.fileSize();
+                }
+                fileInfoRepository.batchInsert(fileInfos);
+
+                fileCount.addAndGet(fileInfos.size());
+                fastUploadCount.addAndGet(fastUploads);
+                totalBytes.addAndGet(bytes);
+                importedCounter.increment(fileInfos.size() - fastUploads);
+                fastUploadCounter.increment(fastUploads);
+                bytesCounter.increment(bytes);
+            } catch (RuntimeException e) {
+                logger.error("Failed to import batch, will retry on next run: firstPath={}, size={}, error={}",
+                        batch.get(0).relativePath(), batch.size(), e.getMessage());
+                deleteQuietly(uploadedPaths.values());
+                failedCount.addAndGet(batch.size());
+                failedCounter.increment(batch.size());
+                batch.clear();
+                return;
+            }
+
+            appendCheckpoint(batch);
+            batch.clear();
+        }
+
+        /**
+         * 并发上传文件，返回哈希值到存储路径的映射；任一失败时删除已成功写入的对象
+         */
+        private Map<String, String> uploadAll(Map<String, ImportItem> toUpload, Map<ImportItem, FileInfo> itemFolders, ExecutorService storagePool) {
+            StorageService storageService = storageServiceFactory.getStorageService();
+            Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+            toUpload.forEach((hash, item) -> {
+                String path = uploadPathOf(itemFolders.get(item), user);
+                futures.put(hash, CompletableFuture.supplyAsync(() -> storageService.uploadFile(item.file(), path), storagePool));
+            });
+
+            try {
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+            } catch (CompletionException e) {
+                List<String> succeeded = futures.values().stream()
+                        .filter(future -> future.isDone() && !future.isCompletedExceptionally())
+                        .map(CompletableFuture::join)
+                        .toList();
+                deleteQuietly(succeeded);
+                if (e.getCause() instanceof BusinessException businessException) {
+                    throw businessException;
+                }
+                throw new BusinessException(ErrorCode.FILE_UPLOAD_FAILED, e.getCause());
+            }
+
+            Map<String, String> paths = new HashMap<>();
+            futures.forEach((hash, future) -> paths.put(hash, future.join()));
+            return paths;
+        }
+
+        /**
+         * 确保相对目录及其上级目录都已创建，同名文件夹已存在时直接复用
+         */
+        private FileInfo ensureFolder(String dir) {
+            FileInfo folder = folders.get(dir);
+            if (folder != null || folders.containsKey(dir)) {
+                return folder;
+            }
+
+            FileInfo parent = ensureFolder(parentDir(dir));
+            String name = dir.substring(dir.lastIndexOf(CommonConstants.File.SLASH) + 1);
+            Long parentId = parent != null ? parent.getId() : null;
+
+            folder = fileInfoRepository.findFirstByUserIdAndParentIdAndFilenameAndIsFolderTrueAndIsDeletedFalse(user.getId(), parentId, name)
+                    .orElse(null);
+            if (folder == null) {
+                String path = uploadPathOf(parent, user) + CommonConstants.File.SLASH + name;
+                folder = fileInfoRepository.save(fileMapper.toFolderInfo(name, path, user, parentId));
+                folderCount.incrementAndGet();
+            }
+            folders.put(dir, folder);
+            return folder;
+        }
+
+        private boolean isCheckpointFile(Path path) {
+            return checkpointFile != null && path.equals(checkpointFile.toAbsolutePath().normalize());
+        }
+
+        private String relativePath(Path path) {
+            return source.relativize(path).toString().replace('\\', '/');
+        }
+
+        private String parentDir(String relativePath) {
+            int slash = relativePath.lastIndexOf(CommonConstants.File.SLASH);
+            return slash < 0 ? "" : relativePath.substring(0, slash);
+        }
+
+        private void loadCheckpoint() throws IOException {
+            if (checkpointFile == null) {
+                return;
+            }
+            if (Files.exists(checkpointFile)) {
+                try (BufferedReader reader = Files.newBufferedReader(checkpointFile, StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = reader.readLine()) != null) {
+                        if (!line.isEmpty()) {
+                            completed.add(line);
+                        }
+                    }
+                }
+            }
+            Path parent = checkpointFile.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            checkpointOut = new FileOutputStream(checkpointFile.toFile(), true);
+            checkpointWriter = new OutputStreamWriter(checkpointOut, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * 追加本批相对路径并同步到磁盘
+         */
+        private void appendCheckpoint(List<ImportItem> batch) throws IOException {
+            if (checkpointWriter == null) {
+                return;
+            }
+            for (ImportItem item : batch) {
+                checkpointWriter.write(item.relativePath());
+                checkpointWriter.write('\n');
+            }
+            checkpointWriter.flush();
+            checkpointOut.getFD().sync();
+        }
+
+        private void closeCheckpoint() {
+            if (checkpointWriter == null) {
+                return;
+            }
+            try {
+                checkpointWriter.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close checkpoint file: path={}, error={}", checkpointFile, e.getMessage());
+            }
+        }
+
+        /**
+         * 定期输出导入进度：累计数量及本周期的文件数/秒、MB/秒
+         */
+        private class ProgressLogger implements Runnable {
+            private long lastNanos = startNanos;
+            private long lastFiles;
+            private long lastBytes;
+
+            @Override
+            public void run() {
+                long now = System.nanoTime();
+                long files = fileCount.get();
+                long bytes = totalBytes.get();
+                long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(now - lastNanos);
+                logger.info("Bulk import progress: files={}, skipped={}, failed={}, bytes={}, queued={}, {}",
+                        files, skippedCount.get(), failedCount.get(), bytes, pendingFiles.size() + hashedFiles.size(),
+                        formatRate(files - lastFiles, bytes - lastBytes, elapsedMillis));
+                lastNanos = now;
+                lastFiles = files;
+                lastBytes = bytes;
+            }
+        }
+    }
+
+    private static String formatRate(long files, long bytes, long elapsedMillis) {
+        double seconds = Math.max(elapsedMillis, 1) / 1000.0;
+        return String.format("%.1f files/s, %.1f MB/s", files / seconds, bytes / seconds / (1024 * 1024));
+    }
+
+    private void deleteQuietly(Iterable<String> paths) {
+        StorageService storageService = storageServiceFactory.getStorageService();
+        for (String path : paths) {
+            try {
+                storageService.deleteFile(path);
+            } catch (Exception e) {
+                logger.warn("Failed to delete uploaded object after import failure: path={}, error={}", path, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 已计算哈希、等待提交的文件
+     */
+    private record ImportItem(String relativePath, File file, long fileSize, String sha256Hash) {
+    }
+}
@@ -0,0 +1,212 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.util.DeltaUtil;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.common.util.FileHashUtil;
+import com.cloudrive.common.util.UserContext;
+import com.cloudrive.config.properties.StreamingUploadProperties;
+import com.cloudrive.mapper.FileMapper;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.BlockSignatureVO;
+import com.cloudrive.model.vo.FileSignatureVO;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.service.DeltaSignatureService;
+import com.cloudrive.service.DeltaUploadService;
+import com.cloudrive.service.QuotaService;
+import com.cloudrive.service.StorageService;
+import com.cloudrive.service.StorageServiceFactory;
+import com.cloudrive.service.UploadCoalescingService;
+import com.cloudrive.service.UploadSpoolService;
+import com.cloudrive.service.UploadTransactionService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.util.List;
+
+/**
+ * 增量上传服务实现类
+ */
+@Service
+public class DeltaUploadServiceImpl implements DeltaUploadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeltaUploadServiceImpl.class);
+
+    private final StorageServiceFactory storageServiceFactory;
+    private final FileInfoRepository fileInfoRepository;
+    private final FileMapper fileMapper;
+    private final UploadSpoolService uploadSpoolService;
+    private final UploadCoalescingService uploadCoalescingService;
+    private final UploadTransactionService uploadTransactionService;
+    private final StreamingUploadProperties streamingUploadProperties;
+    private final QuotaService quotaService;
+    private final DeltaSignatureService deltaSignatureService;
+
+    public DeltaUploadServiceImpl(StorageServiceFactory storageServiceFactory, FileInfoRepository fileInfoRepository, FileMapper fileMapper, UploadSpoolService uploadSpoolService, UploadCoalescingService uploadCoalescingService, UploadTransactionService uploadTransactionService, StreamingUploadProperties streamingUploadProperties, QuotaService quotaService, DeltaSignatureService deltaSignatureService) {
+        this.storageServiceFactory = storageServiceFactory;
+        this.fileInfoRepository = fileInfoRepository;
+        this.fileMapper = fileMapper;
+        this.uploadSpoolService = uploadSpoolService;
+        this.uploadCoalescingService = uploadCoalescingService;
+        this.uploadTransactionService = uploadTransactionService;
+        this.streamingUploadProperties = streamingUploadProperties;
+        this.quotaService = quotaService;
+        this.deltaSignatureService = deltaSignatureService;
+    }
+
+    @Override
+    public FileSignatureVO getSignature(Long fileId) {
+        FileInfo baseFile = getAndValidateBaseFile(fileId, UserContext.getCurrentUserId());
+
+        FileSignatureVO signature = new FileSignatureVO();
+        signature.setFileId(baseFile.getId());
+        signature.setFileSize(baseFile.getFileSize());
+        signature.setSha256Hash(baseFile.getSha256Hash());
+        signature.setBlockSize(DeltaUtil.DEFAULT_BLOCK_SIZE);
+        signature.setBlocks(deltaSignatureService.getSignatures(baseFile.getSha256Hash(), DeltaUtil.DEFAULT_BLOCK_SIZE,
+                () -> computeSignatures(baseFile)));
+        return signature;
+    }
+
+    private List<BlockSignatureVO> computeSignatures(FileInfo baseFile) {
+        StorageService storageService = storageServiceFactory.getStorageService();
+        try (InputStream inputStream = storageService.downloadFileStream(baseFile.getPath())) {
+            return DeltaUtil.computeSignatures(inputStream, DeltaUtil.DEFAULT_BLOCK_SIZE);
+        } catch (IOException e) {
+            logger.error("Failed to compute signature: fileId={}, error={}", baseFile.getId(), e.getMessage());
+            throw new BusinessException(ErrorCode.FILE_DOWNLOAD_FAILED, e);
+        }
+    }
+
+    @Override
+    public String uploadDelta(Long baseFileId, MultipartFile delta, Long parentId, String filename, String expectedSha256) {
+        User currentUser = UserContext.getCurrentUser();
+        FileInfo baseFile = getAndValidateBaseFile(baseFileId, currentUser.getId());
+
+        Long targetParentId = parentId != null ? parentId : baseFile.getParentId();
+        String targetFilename = filename != null && !filename.isBlank() ? filename : baseFile.getFilename();
+        StorageService storageService = storageServiceFactory.getStorageService();
+
+        File baseCopy = null;
+        File rebuilt = null;
+        try {
+            // 1. 将已有文件拉取到本地，便于按块随机读取
+            baseCopy = uploadSpoolService.allocate(baseFile.getFileSize());
+            try (InputStream inputStream = storageService.downloadFileStream(baseFile.getPath())) {
+                Files.copy(inputStream, baseCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            // 2. 流式应用增量数据，边写边计算SHA-256，重建结果与普通上传使用同一大小上限。
+            // 复制指令可以重复引用已有块，已有文件与增量的大小之和不是重建结果的上限，写入超出预留时边写边扩大
+            long maxFileSize = streamingUploadProperties.getMaxFileSize().toBytes();
+            long estimatedSize = Math.min(baseFile.getFileSize() + delta.getSize(), maxFileSize);
+            rebuilt = uploadSpoolService.allocate(estimatedSize);
+            MessageDigest digest = FileHashUtil.sha256();
+            long fileSize;
+            try (RandomAccessFile base = new RandomAccessFile(baseCopy, "r");
+                 InputStream deltaStream = delta.getInputStream();
+                 OutputStream out = new DigestOutputStream(new BufferedOutputStream(
+                         new ReservingOutputStream(Files.newOutputStream(rebuilt.toPath()), rebuilt, estimatedSize, maxFileSize)), digest)) {
+                fileSize = DeltaUtil.applyDelta(base, DeltaUtil.DEFAULT_BLOCK_SIZE, deltaStream, out, maxFileSize);
+            }
+            uploadSpoolService.adjustReservation(rebuilt, fileSize);
+            String sha256Hash = FileHashUtil.bytesToHex(digest.digest());
+            ExceptionUtil.throwIf(expectedSha256 != null && !expectedSha256.equalsIgnoreCase(sha256Hash),
+                    ErrorCode.INVALID_DELTA, "重建文件校验失败");
+            logger.info("Delta applied: baseFileId={}, deltaSize={}, rebuiltSize={}", baseFileId, delta.getSize(), fileSize);
+            // 请求体只是增量，预校验按请求大小放行，这里按重建后的实际大小尽早拒绝，提交时再在用户行锁下校验
+            quotaService.checkQuota(currentUser.getId(), fileSize);
+
+            // 3. 重建结果与已有文件相同时直接秒传，相同内容正在上传时等待其提交
+            try (UploadCoalescingService.Permit permit = uploadCoalescingService.acquire(currentUser.getId(), sha256Hash)) {
+                String uploadPath = uploadTransactionService.resolveUploadPath(targetParentId, currentUser);
+                FileInfo fastUploaded = uploadTransactionService.inTransaction(() -> {
+                    List<FileInfo> existingFiles = fileInfoRepository.findBySha256HashAndUserIdAndIsDeletedFalse(sha256Hash, currentUser.getId());
+                    if (existingFiles.isEmpty()) {
+                        return null;
+                    }
+                    quotaService.checkQuotaForCommit(currentUser.getId(), fileSize);
+                    return fileInfoRepository.save(fileMapper.toFileInfoForFastUpload(targetFilename, existingFiles.get(0), currentUser, targetParentId, sha256Hash));
+                });
+                if (fastUploaded != null) {
+                    return fastUploaded.getPath();
+                }
+
+                // 4. 不持有数据库连接上传重建后的文件，再以短事务提交文件记录
+                String uploadedPath = storageService.uploadFile(rebuilt, uploadPath);
+                FileInfo fileInfo = fileMapper.toFileInfoFromPath(targetFilename, uploadedPath, fileSize, currentUser, targetParentId, sha256Hash);
+                return uploadTransactionService.commit(uploadedPath, () -> {
+                    quotaService.checkQuotaForCommit(currentUser.getId(), fileSize);
+                    return fileInfoRepository.save(fileInfo).getPath();
+                });
+            }
+        } catch (IOException e) {
+            logger.error("Delta upload failed: baseFileId={}, error={}", baseFileId, e.getMessage());
+            throw new BusinessException(ErrorCode.FILE_UPLOAD_FAILED, e);
+        } finally {
+            uploadSpoolService.release(baseCopy);
+            uploadSpoolService.release(rebuilt);
+        }
+    }
+
+    /**
+     * 写入超出预留时扩大缓冲文件的预留空间，每次至少翻倍，不超过重建结果的大小上限
+     * 位于缓冲输出流之下，预留总是先于数据落盘
+     */
+    private class ReservingOutputStream extends FilterOutputStream {
+        private final File file;
+        private final long maxSize;
+        private long reserved;
+        private long written;
+
+        ReservingOutputStream(OutputStream out, File file, long reserved, long maxSize) {
+            super(out);
+            this.file = file;
+            this.reserved = reserved;
+            this.maxSize = maxSize;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            reserve(1);
+            out.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            reserve(len);
+            out.write(b, off, len);
+        }
+
+        private void reserve(int len) {
+            written += len;
+            if (written > reserved) {
+                reserved = Math.max(written, Math.min(reserved * 2, maxSize));
+                uploadSpoolService.extendReservation(file, reserved);
+            }
+        }
+    }
+
+    private FileInfo getAndValidateBaseFile(Long fileId, Long userId) {
+        FileInfo fileInfo = fileInfoRepository.findById(fileId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
+        ExceptionUtil.throwIf(!fileInfo.getUser().getId().equals(userId), ErrorCode.NO_PERMISSION);
+        ExceptionUtil.throwIf(fileInfo.getIsDeleted(), ErrorCode.FILE_NOT_FOUND);
+        ExceptionUtil.throwIf(fileInfo.getIsFolder(), ErrorCode.CANNOT_DOWNLOAD_FOLDER);
+        return fileInfo;
+    }
+}
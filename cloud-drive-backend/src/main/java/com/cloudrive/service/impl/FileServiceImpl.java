@@ -2,20 +2,34 @@ package com.cloudrive.service.impl;
 
 import com.cloudrive.common.constant.CommonConstants;
 import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.enums.FileSortField;
 import com.cloudrive.common.exception.BusinessException;
 import com.cloudrive.common.util.ExceptionUtil;
 import com.cloudrive.common.util.FileHashUtil;
+import com.cloudrive.common.util.SizeLimitInputStream;
 import com.cloudrive.common.util.UserContext;
 import com.cloudrive.mapper.FileMapper;
+import com.cloudrive.model.entity.FileChunkDigest;
 import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.entity.UploadTaskCommit;
 import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.FileDownloadVO;
 import com.cloudrive.model.vo.FileListVO;
+import com.cloudrive.model.vo.FilePageVO;
+import com.cloudrive.repository.FileChunkDigestRepository;
 import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.repository.UploadTaskCommitRepository;
 import com.cloudrive.repository.UserRepository;
+import com.cloudrive.service.FileListCacheService;
 import com.cloudrive.service.FileService;
+import com.cloudrive.service.QuotaService;
+import com.cloudrive.service.ReadCoalescingService;
+import com.cloudrive.service.ShareResolutionService;
 import com.cloudrive.service.StorageService;
 import com.cloudrive.service.StorageServiceFactory;
+import com.cloudrive.service.UploadCoalescingService;
 import com.cloudrive.service.UploadProgressService;
+import com.cloudrive.service.UploadTransactionService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -23,9 +37,16 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.File;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Objects;
 
 /**
  * 文件服务实现类
@@ -40,55 +61,73 @@ public class FileServiceImpl implements FileService {
     private final UserRepository userRepository;
     private final FileMapper fileMapper;
     private final UploadProgressService uploadProgressService;
-
-    public FileServiceImpl(StorageServiceFactory storageServiceFactory, FileInfoRepository fileInfoRepository, UserRepository userRepository, FileMapper fileMapper, UploadProgressService uploadProgressService) {
+    private final FileChunkDigestRepository fileChunkDigestRepository;
+    private final UploadCoalescingService uploadCoalescingService;
+    private final UploadTransactionService uploadTransactionService;
+    private final ShareResolutionService shareResolutionService;
+    private final ReadCoalescingService readCoalescingService;
+    private final FileListCacheService fileListCacheService;
+    private final UploadTaskCommitRepository uploadTaskCommitRepository;
+    private final QuotaService quotaService;
+
+    public FileServiceImpl(StorageServiceFactory storageServiceFactory, FileInfoRepository fileInfoRepository, UserRepository userRepository, FileMapper fileMapper, UploadProgressService uploadProgressService, FileChunkDigestRepository fileChunkDigestRepository, UploadCoalescingService uploadCoalescingService, UploadTransactionService uploadTransactionService, ShareResolutionService shareResolutionService, ReadCoalescingService readCoalescingService, FileListCacheService fileListCacheService, UploadTaskCommitRepository uploadTaskCommitRepository, QuotaService quotaService) {
         this.storageServiceFactory = storageServiceFactory;
         this.fileInfoRepository = fileInfoRepository;
         this.userRepository = userRepository;
         this.fileMapper = fileMapper;
         this.uploadProgressService = uploadProgressService;
+        this.fileChunkDigestRepository = fileChunkDigestRepository;
+        this.uploadCoalescingService = uploadCoalescingService;
+        this.uploadTransactionService = uploadTransactionService;
+        this.shareResolutionService = shareResolutionService;
+        this.readCoalescingService = readCoalescingService;
+        this.fileListCacheService = fileListCacheService;
+        this.uploadTaskCommitRepository = uploadTaskCommitRepository;
+        this.quotaService = quotaService;
     }
 
     @Override
-    @Transactional
     public String uploadFile(MultipartFile file, Long parentId) {
         User currentUser = UserContext.getCurrentUser();
 
         // 1. 计算文件的SHA-256哈希值
         String sha256Hash = FileHashUtil.calculateSHA256(file);
 
-        // 2. 检查是否存在相同哈希值的文件（秒传逻辑）
-        if (sha256Hash != null && !sha256Hash.isEmpty()) {
-            // 查找当前用户是否已经上传过相同哈希值的文件
-            List<FileInfo> existingFiles = fileInfoRepository.findBySha256HashAndUserIdAndIsDeletedFalse(sha256Hash, currentUser.getId());
-
-            if (!existingFiles.isEmpty()) {
-                // 找到了相同哈希值的文件，实现秒传
-                FileInfo existingFile = existingFiles.get(0);
-                // 使用通用的秒传处理方法，传入null表示不需要进度跟踪
-                FileInfo newFileInfo = handleFastUpload(file.getOriginalFilename(), file.getSize(), existingFile, sha256Hash, parentId, null, currentUser);
-                return newFileInfo.getPath();
+        // 相同内容正在上传时等待其提交，之后以秒传完成
+        try (UploadCoalescingService.Permit permit = uploadCoalescingService.acquire(currentUser.getId(), sha256Hash)) {
+            // 2. 短事务校验父文件夹，并检查是否存在相同哈希值的文件（秒传逻辑）
+            String path = uploadTransactionService.resolveUploadPath(parentId, currentUser);
+            FileInfo fastUploaded = uploadTransactionService.inTransaction(() ->
+                    tryFastUpload(file.getOriginalFilename(), file.getSize(), sha256Hash, parentId, null, currentUser));
+            if (fastUploaded != null) {
+                return fastUploaded.getPath();
             }
-        }
 
-        // 3. 如果没有找到相同哈希值的文件，执行正常上传流程
-        StorageService storageService = storageServiceFactory.getStorageService();
-        String path = getUploadPath(parentId, currentUser);
-
-        // 上传文件
-        String filePath = storageService.uploadFile(file, path);
-        FileInfo fileInfo = fileMapper.toFileInfo(file, filePath, currentUser, parentId);
-        fileInfo.setSha256Hash(sha256Hash);
+            // 3. 如果没有找到相同哈希值的文件，不持有数据库连接上传到存储
+            String filePath = storageServiceFactory.getStorageService().uploadFile(file, path);
 
-        return fileInfoRepository.save(fileInfo).getPath();
+            // 4. 短事务保存文件记录，失败时删除已上传的对象
+            FileInfo fileInfo = fileMapper.toFileInfo(file, filePath, currentUser, parentId);
+            fileInfo.setSha256Hash(sha256Hash);
+            return uploadTransactionService.commit(filePath, () -> {
+                quotaService.checkQuotaForCommit(currentUser.getId(), fileInfo.getFileSize());
+                return fileInfoRepository.save(fileInfo).getPath();
+            });
+        }
     }
 
     @Override
-    @Transactional
     public void uploadFileWithProgressFromPath(String filePath, String originalFilename, long fileSize, Long parentId, String taskId, Long userId) {
         // 使用传入的userId获取用户信息
         User currentUser = userRepository.findById(userId).orElseThrow(() -> new BusinessException(ErrorCode.USER_NOT_FOUND));
 
+        // 收尾任务可能被重复投递，已提交过的任务直接视为完成
+        if (uploadTaskCommitRepository.existsById(taskId)) {
+            logger.info("Upload task already committed, skipping: taskId={}", taskId);
+            uploadProgressService.completeUploadTask(taskId, true, "上传完成");
+            return;
+        }
+
         try {
             // 从文件路径创建File对象
             File file = new File(filePath);
@@ -98,33 +137,44 @@ public class FileServiceImpl implements FileService {
                 throw new BusinessException(ErrorCode.FILE_NOT_FOUND);
             }
 
-            // 计算文件的SHA-256哈希值
-            String sha256Hash = FileHashUtil.calculateSHA256(file);
-
-            // 检查是否可以使用秒传逻辑
-            if (sha256Hash != null && !sha256Hash.isEmpty()) {
-                List<FileInfo> existingFiles = fileInfoRepository.findBySha256HashAndUserIdAndIsDeletedFalse(sha256Hash, currentUser.getId());
+            // 秒传仍以整体SHA-256为准；大文件在同一次顺序读取中同时计算分块摘要（树哈希），文件只读一遍
+            String sha256Hash;
+            FileHashUtil.TreeHash treeHash = null;
+            if (file.length() >= CommonConstants.Hash.TREE_HASH_THRESHOLD) {
+                FileHashUtil.FileHashes hashes = FileHashUtil.calculateHashes(file, CommonConstants.Hash.TREE_CHUNK_SIZE);
+                sha256Hash = hashes != null ? hashes.getSha256Hash() : null;
+                treeHash = hashes != null ? hashes.getTreeHash() : null;
+            } else {
+                sha256Hash = FileHashUtil.calculateSHA256(file);
+            }
 
-                if (!existingFiles.isEmpty()) {
-                    // 处理秒传逻辑
-                    FileInfo existingFile = existingFiles.get(0);
-                    // 使用通用的秒传处理方法，传入taskId进行进度跟踪
-                    handleFastUpload(originalFilename, fileSize, existingFile, sha256Hash, parentId, taskId, currentUser);
+            // 相同内容正在上传时等待其提交，之后以秒传完成
+            try (UploadCoalescingService.Permit permit = uploadCoalescingService.acquire(currentUser.getId(), sha256Hash)) {
+                // 短事务校验父文件夹并检查是否可以秒传
+                String uploadPath = uploadTransactionService.resolveUploadPath(parentId, currentUser);
+                FileInfo fastUploaded = uploadTransactionService.inTransaction(
+                        () -> recordTaskCommit(taskId, tryFastUpload(originalFilename, fileSize, sha256Hash, parentId, taskId, currentUser)));
+                if (fastUploaded != null) {
+                    saveChunkDigests(sha256Hash, treeHash);
                     return;
                 }
-            }
-
-            // 如果没有找到相同哈希值的文件，执行正常上传流程
-            String uploadPath = getUploadPath(parentId, currentUser);
 
-            // 使用带进度跟踪的上传方法
-            StorageService storageService = storageServiceFactory.getStorageService();
-            String uploadedPath = storageService.uploadFileWithProgressFromPath(file, uploadPath, taskId, originalFilename, fileSize);
+                // 使用带进度跟踪的上传方法，传输期间不持有数据库连接
+                StorageService storageService = storageServiceFactory.getStorageService();
+                String uploadedPath = storageService.uploadFileWithProgressFromPath(file, uploadPath, taskId, originalFilename, fileSize);
 
-            // 使用MapStruct创建文件信息记录
-            // 注意：这里的originalFilename是文件名，uploadedPath是文件路径
-            FileInfo fileInfo = fileMapper.toFileInfoFromPath(originalFilename, uploadedPath, fileSize, currentUser, parentId, sha256Hash);
-            fileInfoRepository.save(fileInfo);
+                // 使用MapStruct创建文件信息记录
+                // 注意：这里的originalFilename是文件名，uploadedPath是文件路径
+                FileInfo fileInfo = fileMapper.toFileInfoFromPath(originalFilename, uploadedPath, fileSize, currentUser, parentId, sha256Hash);
+                if (treeHash != null) {
+                    fileInfo.setTreeHash(treeHash.getRootHash());
+                }
+                uploadTransactionService.commit(uploadedPath, () -> {
+                    quotaService.checkQuotaForCommit(currentUser.getId(), fileSize);
+                    return recordTaskCommit(taskId, fileInfoRepository.save(fileInfo));
+                });
+                saveChunkDigests(sha256Hash, treeHash);
+            }
         } catch (Exception e) {
             // 标记任务失败
             logger.error("Error uploading file from path: {}, error: {}", filePath, e.getMessage());
@@ -133,6 +183,60 @@ public class FileServiceImpl implements FileService {
         }
     }
 
+    @Override
+    public String uploadFileStream(InputStream inputStream, String originalFilename, Long parentId, long maxFileSize) {
+        User currentUser = UserContext.getCurrentUser();
+        String path = uploadTransactionService.resolveUploadPath(parentId, currentUser);
+
+        // 边读边计算SHA-256并统计大小，内容直接转发到存储，传输期间不持有数据库连接
+        MessageDigest digest = FileHashUtil.newSha256();
+        SizeLimitInputStream limitedStream = new SizeLimitInputStream(inputStream, maxFileSize);
+        StorageService storageService = storageServiceFactory.getStorageService();
+        String uploadedPath;
+        try {
+            uploadedPath = storageService.uploadFile(new DigestInputStream(limitedStream, digest), path);
+        } catch (BusinessException e) {
+            ExceptionUtil.throwIf(limitedStream.isLimitExceeded(), ErrorCode.FILE_TOO_LARGE);
+            throw e;
+        }
+        String sha256Hash = FileHashUtil.bytesToHex(digest.digest());
+        long fileSize = limitedStream.getCount();
+
+        // 内容已存在时删除刚上传的对象，改为秒传记录；加锁避免相同内容的并发上传都保存为新文件
+        try (UploadCoalescingService.Permit permit = uploadCoalescingService.acquire(currentUser.getId(), sha256Hash)) {
+            FileInfo saved = uploadTransactionService.commit(uploadedPath, () -> {
+                FileInfo fastUploaded = tryFastUpload(originalFilename, fileSize, sha256Hash, parentId, null, currentUser);
+                if (fastUploaded != null) {
+                    return fastUploaded;
+                }
+                quotaService.checkQuotaForCommit(currentUser.getId(), fileSize);
+                return fileInfoRepository.save(fileMapper.toFileInfoFromPath(originalFilename, uploadedPath, fileSize, currentUser, parentId, sha256Hash));
+            });
+            if (!saved.getPath().equals(uploadedPath)) {
+                storageService.deleteFile(uploadedPath);
+            } else {
+                logger.info("Streamed upload completed: path={}, size={}", uploadedPath, fileSize);
+            }
+            return saved.getPath();
+        }
+    }
+
+    /**
+     * 当前用户已存在相同哈希值的文件时以秒传完成，须在事务内调用
+     *
+     * @return 秒传创建的文件记录，不能秒传时返回null
+     */
+    private FileInfo tryFastUpload(String filename, long fileSize, String sha256Hash, Long parentId, String taskId, User currentUser) {
+        if (sha256Hash == null || sha256Hash.isEmpty()) {
+            return null;
+        }
+        List<FileInfo> existingFiles = fileInfoRepository.findBySha256HashAndUserIdAndIsDeletedFalse(sha256Hash, currentUser.getId());
+        if (existingFiles.isEmpty()) {
+            return null;
+        }
+        return handleFastUpload(filename, fileSize, existingFiles.get(0), sha256Hash, parentId, taskId, currentUser);
+    }
+
     /**
      * 处理秒传逻辑，可用于普通上传和带进度上传
      * 
@@ -146,6 +250,9 @@ public class FileServiceImpl implements FileService {
      * @return 新创建的文件信息对象
      */
     private FileInfo handleFastUpload(String filename, long fileSize, FileInfo existingFile, String sha256Hash, Long parentId, String taskId, User currentUser) {
+        // 秒传记录同样计入已用空间
+        quotaService.checkQuotaForCommit(currentUser.getId(), existingFile.getFileSize());
+
         // 使用MapStruct创建一个新的文件记录
         FileInfo newFileInfo = fileMapper.toFileInfoForFastUpload(filename, existingFile, currentUser, parentId, sha256Hash);
 
@@ -161,15 +268,46 @@ public class FileServiceImpl implements FileService {
     }
 
     /**
-     * 获取上传路径
+     * 在保存文件记录的事务内记录任务已提交，同一任务并发提交时主键冲突，后提交的事务回滚
+     *
+     * @param saved 保存的文件记录，为null时不记录
+     * @return saved
      */
-    private String getUploadPath(Long parentId, User currentUser) {
-        String path = CommonConstants.File.FILE_PATH_PREFIX + currentUser.getId();
-        if (parentId != null) {
-            FileInfo parent = fileInfoRepository.findById(parentId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
-            path = parent.getPath();
+    private FileInfo recordTaskCommit(String taskId, FileInfo saved) {
+        if (saved != null) {
+            UploadTaskCommit commit = new UploadTaskCommit();
+            commit.setTaskId(taskId);
+            commit.setFileId(saved.getId());
+            uploadTaskCommitRepository.save(commit);
+        }
+        return saved;
+    }
+
+    /**
+     * 文件记录提交后保存树哈希的分块摘要，同一内容只保存一次
+     * 摘要只用于部分校验，保存失败不影响已完成的上传
+     */
+    private void saveChunkDigests(String sha256Hash, FileHashUtil.TreeHash treeHash) {
+        if (sha256Hash == null || treeHash == null) {
+            return;
+        }
+        List<String> chunkHashes = treeHash.getChunkHashes();
+        List<FileChunkDigest> digests = new ArrayList<>(chunkHashes.size());
+        for (int i = 0; i < chunkHashes.size(); i++) {
+            FileChunkDigest digest = new FileChunkDigest();
+            digest.setSha256Hash(sha256Hash);
+            digest.setChunkIndex(i);
+            digest.setChunkSize(treeHash.getChunkSize());
+            digest.setDigest(chunkHashes.get(i));
+            digests.add(digest);
+        }
+        try {
+            if (!fileChunkDigestRepository.existsBySha256Hash(sha256Hash)) {
+                fileChunkDigestRepository.insertIgnoringDuplicates(digests);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to save chunk digests: sha256={}, error={}", sha256Hash, e.getMessage());
         }
-        return path;
     }
 
     @Override
@@ -180,11 +318,83 @@ public class FileServiceImpl implements FileService {
     }
 
     @Override
-    public List<FileListVO> listFiles(Long parentId) {
+    public FileDownloadVO getDownloadableFile(Long fileId) {
+        FileInfo fileInfo = getAndValidateFile(fileId, UserContext.getCurrentUser());
+        ExceptionUtil.throwIf(fileInfo.getIsFolder(), ErrorCode.CANNOT_DOWNLOAD_FOLDER);
+        return fileMapper.toFileDownloadVO(fileInfo);
+    }
+
+    @Override
+    public InputStream openFileStream(FileDownloadVO file) {
+        StorageService storageService = storageServiceFactory.getStorageService();
+        if (file.getFileSize() == null) {
+            return storageService.downloadFileStream(file.getPath());
+        }
+        // 同一对象的并发下载共享一次存储读取
+        return readCoalescingService.open(file.getPath(), file.getFileSize(),
+                () -> storageService.downloadFileStream(file.getPath(), file.getFileSize()));
+    }
+
+    @Override
+    public String generateDownloadUrl(FileDownloadVO file, Duration ttl) {
+        return storageServiceFactory.getStorageService().generateDownloadUrl(file.getPath(), file.getFilename(), ttl);
+    }
+
+    @Override
+    public FilePageVO listFiles(Long parentId, FileSortField sort, boolean descending, String cursor, int limit) {
         Long userId = UserContext.getCurrentUserId();
-        List<FileInfo> fileInfos = fileInfoRepository.findByUserIdAndParentIdAndIsDeletedFalse(userId, parentId);
+        Object afterValue = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isBlank()) {
+            // 游标格式：排序字段:方向:ID:值，值为空时以 - 表示，否则以 = 开头
+            String[] parts = decodeCursor(cursor);
+            ExceptionUtil.throwIf(parts.length != 4 || !sort.name().equals(parts[0]) || !(descending ? "d" : "a").equals(parts[1]),
+                    ErrorCode.INVALID_CURSOR);
+            try {
+                afterId = Long.valueOf(parts[2]);
+                afterValue = parts[3].startsWith("=") ? sort.getParser().apply(parts[3].substring(1)) : null;
+            } catch (RuntimeException e) {
+                throw new BusinessException(ErrorCode.INVALID_CURSOR, e);
+            }
+        }
 
-        return fileInfos.stream().map(fileMapper::toFileListVO).collect(Collectors.toList());
+        // 游标已校验，非法游标不会进入缓存
+        Object keysetValue = afterValue;
+        Long keysetId = afterId;
+        String pageKey = sort.name() + ":" + (descending ? "d" : "a") + ":" + limit + ":" + (afterId != null ? cursor : "");
+        return fileListCacheService.get(userId, parentId, pageKey,
+                () -> loadPage(userId, parentId, sort, descending, keysetValue, keysetId, limit));
+    }
+
+    private FilePageVO loadPage(Long userId, Long parentId, FileSortField sort, boolean descending, Object afterValue, Long afterId, int limit) {
+        // 多取一条判断是否还有下一页
+        List<FileListVO> rows = fileInfoRepository.findChildrenPage(userId, parentId, sort, descending, afterValue, afterId, limit + 1);
+        boolean hasMore = rows.size() > limit;
+        List<FileListVO> items = hasMore ? rows.subList(0, limit) : rows;
+
+        FilePageVO page = new FilePageVO();
+        page.setItems(items);
+        page.setHasMore(hasMore);
+        if (hasMore) {
+            FileListVO last = items.get(items.size() - 1);
+            Object lastValue = switch (sort) {
+                case NAME -> last.getFilename();
+                case SIZE -> last.getFileSize();
+                case TYPE -> last.getFileType();
+                case UPDATED -> last.getUpdatedAt();
+            };
+            String token = sort.name() + ":" + (descending ? "d" : "a") + ":" + last.getId() + ":" + (lastValue == null ? "-" : "=" + lastValue);
+            page.setNextCursor(Base64.getUrlEncoder().withoutPadding().encodeToString(token.getBytes(StandardCharsets.UTF_8)));
+        }
+        return page;
+    }
+
+    private String[] decodeCursor(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":", 4);
+        } catch (IllegalArgumentException e) {
+            throw new BusinessException(ErrorCode.INVALID_CURSOR, e);
+        }
     }
 
     @Override
@@ -214,6 +424,7 @@ public class FileServiceImpl implements FileService {
         fileInfo.setIsDeleted(true);
         fileInfo.setUpdatedAt(LocalDateTime.now());
         fileInfoRepository.save(fileInfo);
+        shareResolutionService.invalidateByFileId(fileId);
     }
 
     @Override
@@ -225,14 +436,53 @@ public class FileServiceImpl implements FileService {
         fileInfo.setFilename(newFilename);
         fileInfo.setUpdatedAt(LocalDateTime.now());
         fileInfoRepository.save(fileInfo);
+        shareResolutionService.invalidateByFileId(fileId);
+    }
+
+    @Override
+    @Transactional
+    public void moveFile(Long fileId, Long targetParentId) {
+        // 同一用户的移动串行执行，并发的交叉移动（A 移入 B 的同时 B 移入 A）不会形成环。
+        // 加锁必须是事务内的第一次读取：可重复读下快照在第一次普通读取时建立，先读后等锁会拿着等锁前的快照，
+        // 看不到前一个移动提交的父文件夹与祖先路径；文件与目标文件夹也用加锁读取，总是读到最新提交的数据
+        User currentUser = userRepository.findByIdForUpdate(UserContext.getCurrentUserId())
+                .orElseThrow(() -> new BusinessException(ErrorCode.USER_NOT_FOUND));
+        FileInfo fileInfo = getAndValidateFileForUpdate(fileId, currentUser);
+        if (Objects.equals(fileInfo.getParentId(), targetParentId)) {
+            return;
+        }
+
+        String ancestorPath = CommonConstants.File.ROOT_ANCESTOR_PATH;
+        if (targetParentId != null) {
+            FileInfo target = getAndValidateFileForUpdate(targetParentId, currentUser);
+            ExceptionUtil.throwIf(!target.getIsFolder(), ErrorCode.TARGET_NOT_FOLDER);
+            ancestorPath = target.childAncestorPath();
+        }
+
+        if (fileInfo.getIsFolder()) {
+            String oldPrefix = fileInfo.childAncestorPath();
+            ExceptionUtil.throwIf(ancestorPath.startsWith(oldPrefix), ErrorCode.INVALID_MOVE_TARGET);
+            String newPrefix = ancestorPath + fileInfo.getId() + CommonConstants.File.SLASH;
+            int deepest = Math.max(fileInfoRepository.findMaxAncestorPathLength(currentUser.getId(), oldPrefix), oldPrefix.length());
+            ExceptionUtil.throwIf(deepest - oldPrefix.length() + newPrefix.length() > CommonConstants.File.MAX_ANCESTOR_PATH_LENGTH,
+                    ErrorCode.FOLDER_TOO_DEEP);
+            int moved = fileInfoRepository.moveSubtree(currentUser.getId(), oldPrefix, newPrefix);
+            logger.info("Moved folder subtree: folderId={}, targetParentId={}, descendants={}", fileId, targetParentId, moved);
+        } else {
+            ExceptionUtil.throwIf(ancestorPath.length() > CommonConstants.File.MAX_ANCESTOR_PATH_LENGTH, ErrorCode.FOLDER_TOO_DEEP);
+        }
+
+        // 父文件夹变化由实体监听器使新旧文件夹的列表缓存失效
+        fileInfo.setParentId(targetParentId);
+        fileInfo.setAncestorPath(ancestorPath);
+        fileInfo.setUpdatedAt(LocalDateTime.now());
+        fileInfoRepository.save(fileInfo);
     }
 
     @Override
     public List<FileListVO> searchFiles(String keyword) {
         Long userId = UserContext.getCurrentUserId();
-        List<FileInfo> fileInfos = fileInfoRepository.searchByFilename(userId, keyword);
-
-        return fileInfos.stream().map(fileMapper::toFileListVO).collect(Collectors.toList());
+        return fileInfoRepository.searchByFilename(userId, keyword);
     }
 
     @Override
@@ -256,6 +506,16 @@ public class FileServiceImpl implements FileService {
         return fileInfo;
     }
 
+    private FileInfo getAndValidateFileForUpdate(Long fileId, User currentUser) {
+        FileInfo fileInfo = fileInfoRepository.findByIdForUpdate(fileId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
+
+        ExceptionUtil.throwIf(!fileInfo.getUser().getId().equals(currentUser.getId()), ErrorCode.NO_PERMISSION);
+
+        ExceptionUtil.throwIf(fileInfo.getIsDeleted(), ErrorCode.FILE_NOT_FOUND);
+
+        return fileInfo;
+    }
+
     private void validateFolderIsEmpty(Long folderId) {
         long childCount = fileInfoRepository.countByParentIdAndIsDeletedFalse(folderId);
         ExceptionUtil.throwIf(childCount > 0, ErrorCode.FOLDER_NOT_EMPTY);
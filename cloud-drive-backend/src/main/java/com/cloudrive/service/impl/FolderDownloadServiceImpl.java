@@ -0,0 +1,320 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.common.util.UserContext;
+import com.cloudrive.config.ExecutorConfig;
+import com.cloudrive.config.properties.FolderDownloadProperties;
+import com.cloudrive.mapper.FileMapper;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.vo.FileDownloadVO;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.service.FolderDownloadService;
+import com.cloudrive.service.StorageService;
+import com.cloudrive.service.StorageServiceFactory;
+import com.cloudrive.service.UploadSpoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 文件夹打包下载服务实现类
+ * <p>
+ * 按祖先路径前缀分页读取子树，边遍历边写 ZIP；文件内容由共享线程池提前拉取到缓冲目录，
+ * 每个下载最多同时拉取 prefetch-window 个文件，内存与磁盘占用与文件夹大小无关。
+ * 已压缩的文件类型直接存储，其余文件使用 DEFLATE 压缩；条目超过 4GB 或数量超过 65535 时自动使用 ZIP64。
+ */
+@Service
+public class FolderDownloadServiceImpl implements FolderDownloadService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FolderDownloadServiceImpl.class);
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
+
+    private final FileInfoRepository fileInfoRepository;
+    private final FileMapper fileMapper;
+    private final StorageServiceFactory storageServiceFactory;
+    private final UploadSpoolService uploadSpoolService;
+    private final FolderDownloadProperties folderDownloadProperties;
+    private final Executor folderDownloadExecutor;
+
+    public FolderDownloadServiceImpl(FileInfoRepository fileInfoRepository, FileMapper fileMapper, StorageServiceFactory storageServiceFactory,
+                                     UploadSpoolService uploadSpoolService, FolderDownloadProperties folderDownloadProperties,
+                                     @Qualifier(ExecutorConfig.FOLDER_DOWNLOAD_EXECUTOR) Executor folderDownloadExecutor) {
+        this.fileInfoRepository = fileInfoRepository;
+        this.fileMapper = fileMapper;
+        this.storageServiceFactory = storageServiceFactory;
+        this.uploadSpoolService = uploadSpoolService;
+        this.folderDownloadProperties = folderDownloadProperties;
+        this.folderDownloadExecutor = folderDownloadExecutor;
+    }
+
+    @Override
+    public FileDownloadVO getDownloadableFolder(Long folderId) {
+        FileInfo folder = fileInfoRepository.findById(folderId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
+        ExceptionUtil.throwIf(!folder.getUser().getId().equals(UserContext.getCurrentUserId()), ErrorCode.NO_PERMISSION);
+        ExceptionUtil.throwIf(folder.getIsDeleted(), ErrorCode.FILE_NOT_FOUND);
+        ExceptionUtil.throwIf(!folder.getIsFolder(), ErrorCode.NOT_A_FOLDER);
+        return fileMapper.toFileDownloadVO(folder);
+    }
+
+    @Override
+    public void writeZip(FileDownloadVO folder, Long userId, OutputStream out) throws IOException {
+        Iterator<ZipItem> items = new SubtreeIterator(folder.getFileId(), userId);
+        Deque<PendingItem> window = new ArrayDeque<>();
+        int prefetchWindow = Math.max(1, folderDownloadProperties.getPrefetchWindow());
+        long entryCount = 0;
+        long totalBytes = 0;
+
+        ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(out, OUTPUT_BUFFER_SIZE));
+        try {
+            while (true) {
+                // 保持窗口内有 prefetch-window 个条目在拉取
+                while (window.size() < prefetchWindow && items.hasNext()) {
+                    ZipItem item = items.next();
+                    window.addLast(new PendingItem(item, item.file() != null ? prefetch(item.file()) : null));
+                }
+                PendingItem pending = window.pollFirst();
+                if (pending == null) {
+                    break;
+                }
+                totalBytes += writeEntry(zip, pending);
+                entryCount++;
+            }
+            zip.finish();
+            zip.flush();
+            logger.info("Folder zip completed: folderId={}, entries={}, bytes={}", folder.getFileId(), entryCount, totalBytes);
+        } finally {
+            // 客户端中断时仍在拉取的文件，拉取结束后释放缓冲
+            for (PendingItem pending : window) {
+                if (pending.content() != null) {
+                    pending.content().whenComplete((content, e) -> {
+                        if (content != null) {
+                            uploadSpoolService.release(content.file());
+                        }
+                    });
+                }
+            }
+        }
+    }
+
+    /**
+     * 写入一个条目，返回写入的内容字节数
+     */
+    private long writeEntry(ZipOutputStream zip, PendingItem pending) throws IOException {
+        ZipItem item = pending.item();
+        ZipEntry entry = new ZipEntry(item.name());
+        if (item.modifiedAt() != null) {
+            entry.setTime(item.modifiedAt());
+        }
+        if (pending.content() == null) {
+            zip.putNextEntry(entry);
+            zip.closeEntry();
+            return 0;
+        }
+
+        Prefetched content = awaitContent(pending.content());
+        try {
+            entry.setSize(content.size());
+            if (isStored(item.name())) {
+                // STORED 条目须预先写入大小和 CRC
+                entry.setMethod(ZipEntry.STORED);
+                entry.setCompressedSize(content.size());
+                entry.setCrc(content.crc());
+            }
+            zip.putNextEntry(entry);
+            Files.copy(content.file().toPath(), zip);
+            zip.closeEntry();
+            return content.size();
+        } finally {
+            uploadSpoolService.release(content.file());
+        }
+    }
+
+    /**
+     * 在线程池中将文件内容拉取到缓冲目录，同时计算 CRC32
+     */
+    private CompletableFuture<Prefetched> prefetch(FileDownloadVO file) {
+        StorageService storageService = storageServiceFactory.getStorageService();
+        return CompletableFuture.supplyAsync(() -> {
+            File spoolFile = uploadSpoolService.allocate(file.getFileSize());
+            CRC32 crc = new CRC32();
+            try (InputStream inputStream = new CheckedInputStream(storageService.downloadFileStream(file.getPath()), crc)) {
+                long size = Files.copy(inputStream, spoolFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                return new Prefetched(spoolFile, size, crc.getValue());
+            } catch (IOException e) {
+                uploadSpoolService.release(spoolFile);
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                uploadSpoolService.release(spoolFile);
+                throw e;
+            }
+        }, folderDownloadExecutor);
+    }
+
+    private Prefetched awaitContent(CompletableFuture<Prefetched> future) throws IOException {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException ioException) {
+                throw ioException.getCause();
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new BusinessException(ErrorCode.FILE_DOWNLOAD_FAILED, e.getCause());
+        }
+    }
+
+    private boolean isStored(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0 || dot < name.lastIndexOf(CommonConstants.File.SLASH)) {
+            return false;
+        }
+        return folderDownloadProperties.getStoredExtensions().contains(name.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * 按 (祖先路径, ID) 顺序分页遍历文件夹子树，内存中只保留一页
+     * 祖先路径有序时父文件夹总在子项之前，同一文件夹的子项相邻，每个文件夹的整个子树也相邻，
+     * 因此只需记住之后还可能出现子项的文件夹的目录名，重名检查也只针对当前这组兄弟项，追加序号避免 ZIP 中出现重复条目
+     */
+    private class SubtreeIterator implements Iterator<ZipItem> {
+        private final Long userId;
+        private final String rootPrefix;
+        private final int pageSize;
+        // 文件夹的子项祖先路径 -> 该文件夹在 ZIP 中的目录名
+        private final TreeMap<String, String> folderNames = new TreeMap<>();
+        private final Set<String> usedNames = new HashSet<>();
+        private Iterator<FileInfo> page = Collections.emptyIterator();
+        private boolean lastPage;
+        private String afterPath;
+        private long afterId;
+        private String siblingPath;
+        private ZipItem next;
+
+        SubtreeIterator(Long folderId, Long userId) {
+            FileInfo folder = fileInfoRepository.findById(folderId).orElseThrow(() -> new BusinessException(ErrorCode.FILE_NOT_FOUND));
+            this.userId = userId;
+            this.rootPrefix = folder.childAncestorPath();
+            this.pageSize = Math.max(1, folderDownloadProperties.getSubtreePageSize());
+            this.afterPath = rootPrefix;
+            folderNames.put(rootPrefix, "");
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (!page.hasNext()) {
+                    if (lastPage) {
+                        return false;
+                    }
+                    List<FileInfo> rows = fileInfoRepository.findSubtreePage(userId, rootPrefix, afterPath, afterId, PageRequest.of(0, pageSize));
+                    lastPage = rows.size() < pageSize;
+                    page = rows.iterator();
+                    continue;
+                }
+                FileInfo child = page.next();
+                afterPath = child.getAncestorPath();
+                afterId = child.getId();
+                if (!child.getAncestorPath().equals(siblingPath)) {
+                    enterSiblings(child.getAncestorPath());
+                }
+                String parentName = folderNames.get(siblingPath);
+                if (parentName == null) {
+                    // 父文件夹已删除，其下的项不打包
+                    continue;
+                }
+                String name = parentName + uniqueName(child.getFilename());
+                Long modifiedAt = child.getUpdatedAt() != null
+                        ? child.getUpdatedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                        : null;
+                if (child.getIsFolder()) {
+                    folderNames.put(child.childAncestorPath(), name + CommonConstants.File.SLASH);
+                    next = new ZipItem(name + CommonConstants.File.SLASH, null, modifiedAt);
+                } else {
+                    next = new ZipItem(name, fileMapper.toFileDownloadVO(child), modifiedAt);
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public ZipItem next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ZipItem item = next;
+            next = null;
+            return item;
+        }
+
+        /**
+         * 进入下一组兄弟项；之后的祖先路径都不小于它，比它小又不是它前缀的文件夹不会再有子项，不再保留
+         */
+        private void enterSiblings(String ancestorPath) {
+            siblingPath = ancestorPath;
+            usedNames.clear();
+            folderNames.headMap(ancestorPath, false).keySet().removeIf(prefix -> !ancestorPath.startsWith(prefix));
+        }
+
+        private String uniqueName(String filename) {
+            String name = filename.replace('/', '_').replace('\\', '_');
+            if (usedNames.add(name)) {
+                return name;
+            }
+            int dot = name.lastIndexOf('.');
+            String base = dot > 0 ? name.substring(0, dot) : name;
+            String extension = dot > 0 ? name.substring(dot) : "";
+            for (int i = 1; ; i++) {
+                String candidate = base + " (" + i + ")" + extension;
+                if (usedNames.add(candidate)) {
+                    return candidate;
+                }
+            }
+        }
+    }
+
+    /**
+     * ZIP 条目：file 为空表示目录
+     */
+    private record ZipItem(String name, FileDownloadVO file, Long modifiedAt) {
+    }
+
+    private record PendingItem(ZipItem item, CompletableFuture<Prefetched> content) {
+    }
+
+    private record Prefetched(File file, long size, long crc) {
+    }
+}
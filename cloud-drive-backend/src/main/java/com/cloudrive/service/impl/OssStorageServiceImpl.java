@@ -1,27 +1,54 @@
 package com.cloudrive.service.impl;
 
 import com.aliyun.oss.OSS;
+import com.aliyun.oss.HttpMethod;
 import com.aliyun.oss.OSSClientBuilder;
 import com.aliyun.oss.event.ProgressEvent;
 import com.aliyun.oss.event.ProgressEventType;
 import com.aliyun.oss.event.ProgressListener;
+import com.aliyun.oss.model.AbortMultipartUploadRequest;
+import com.aliyun.oss.model.CompleteMultipartUploadRequest;
+import com.aliyun.oss.model.GeneratePresignedUrlRequest;
+import com.aliyun.oss.model.GetObjectRequest;
+import com.aliyun.oss.model.InitiateMultipartUploadRequest;
 import com.aliyun.oss.model.OSSObject;
+import com.aliyun.oss.model.ObjectMetadata;
+import com.aliyun.oss.model.PartETag;
 import com.aliyun.oss.model.PutObjectRequest;
+import com.aliyun.oss.model.ResponseHeaderOverrides;
+import com.aliyun.oss.model.UploadPartRequest;
 import com.cloudrive.common.constant.CommonConstants;
 import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
 import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.common.util.ParallelRangeInputStream;
+import com.cloudrive.config.ExecutorConfig;
 import com.cloudrive.config.properties.OssProperties;
+import com.cloudrive.config.properties.ParallelDownloadProperties;
 import com.cloudrive.service.StorageService;
 import com.cloudrive.service.UploadProgressService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
 
 /**
  * 基于阿里云OSS的存储服务实现
@@ -31,13 +58,33 @@ public class OssStorageServiceImpl implements StorageService {
 
     private static final Logger logger = LoggerFactory.getLogger(OssStorageServiceImpl.class);
 
+    /**
+     * 简单上传（PutObject）的对象大小上限，超过时须分片上传
+     */
+    private static final long MAX_PUT_OBJECT_SIZE = 5L * 1024 * 1024 * 1024;
+    /**
+     * 分片上传的分片数上限
+     */
+    private static final int MAX_PARTS = 10000;
+
     private final OssProperties ossProperties;
     private final UploadProgressService uploadProgressService;
+    private final ParallelDownloadProperties parallelDownloadProperties;
+    private final Executor rangeDownloadExecutor;
+
+    /**
+     * 并行下载名额，限制分段缓冲占用的总内存
+     */
+    private final Semaphore parallelDownloadPermits;
 
     @Autowired
-    public OssStorageServiceImpl(OssProperties ossProperties, UploadProgressService uploadProgressService) {
+    public OssStorageServiceImpl(OssProperties ossProperties, UploadProgressService uploadProgressService, ParallelDownloadProperties parallelDownloadProperties,
+                                 @Qualifier(ExecutorConfig.RANGE_DOWNLOAD_EXECUTOR) Executor rangeDownloadExecutor) {
         this.ossProperties = ossProperties;
         this.uploadProgressService = uploadProgressService;
+        this.parallelDownloadProperties = parallelDownloadProperties;
+        this.rangeDownloadExecutor = rangeDownloadExecutor;
+        this.parallelDownloadPermits = new Semaphore(parallelDownloadProperties.getMaxStreams());
     }
 
     @Override
@@ -61,6 +108,155 @@ public class OssStorageServiceImpl implements StorageService {
         }
     }
 
+    @Override
+    public String uploadFile(File file, String path) {
+        checkOssEnabled();
+
+        String fileName = generateUniqueFileName();
+        String objectName = buildObjectName(path, fileName);
+
+        OSS ossClient = null;
+        try {
+            ossClient = getOssClient();
+            if (file.length() > MAX_PUT_OBJECT_SIZE) {
+                try (InputStream input = new FileInputStream(file)) {
+                    multipartUpload(ossClient, objectName, input);
+                }
+            } else {
+                ossClient.putObject(ossProperties.getBucketName(), objectName, file);
+            }
+            return objectName;
+        } catch (Exception e) {
+            logger.error("Failed to upload local file to OSS: bucket={}, objectName={}, error={}", ossProperties.getBucketName(), objectName, e.getMessage());
+            ExceptionUtil.throwBizException(ErrorCode.OSS_UPLOAD_FAILED, e.getMessage());
+            return null; // 不会执行到这里，为了编译通过
+        } finally {
+            closeOssClient(ossClient);
+        }
+    }
+
+    @Override
+    public String uploadFile(InputStream inputStream, String path) {
+        checkOssEnabled();
+
+        String fileName = generateUniqueFileName();
+        String objectName = buildObjectName(path, fileName);
+
+        OSS ossClient = null;
+        try {
+            ossClient = getOssClient();
+            // 长度未知，按分片上传，不受简单上传 5GB 的限制，也无需在本地缓冲整个文件
+            multipartUpload(ossClient, objectName, inputStream);
+            return objectName;
+        } catch (BusinessException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Failed to upload stream to OSS: bucket={}, objectName={}, error={}", ossProperties.getBucketName(), objectName, e.getMessage());
+            ExceptionUtil.throwBizException(ErrorCode.OSS_UPLOAD_FAILED, e.getMessage());
+            return null; // 不会执行到这里，为了编译通过
+        } finally {
+            closeOssClient(ossClient);
+        }
+    }
+
+    /**
+     * 按 oss.multipart-part-size 分片上传长度未知的流，每次只在内存中缓冲一个分片
+     * 内容不足一个分片时以单次请求上传；任一分片失败时取消分片上传，不在存储桶中遗留碎片
+     */
+    private void multipartUpload(OSS ossClient, String objectName, InputStream input) throws IOException {
+        String bucketName = ossProperties.getBucketName();
+        int partSize = (int) ossProperties.getMultipartPartSize().toBytes();
+        byte[] part = input.readNBytes(partSize);
+        if (part.length < partSize) {
+            ObjectMetadata metadata = new ObjectMetadata();
+            metadata.setContentLength(part.length);
+            ossClient.putObject(bucketName, objectName, new ByteArrayInputStream(part), metadata);
+            return;
+        }
+
+        String uploadId = ossClient.initiateMultipartUpload(new InitiateMultipartUploadRequest(bucketName, objectName)).getUploadId();
+        try {
+            List<PartETag> partETags = new ArrayList<>();
+            for (int partNumber = 1; part.length > 0; partNumber++) {
+                if (partNumber > MAX_PARTS) {
+                    ExceptionUtil.throwBizException(ErrorCode.FILE_TOO_LARGE);
+                }
+                UploadPartRequest request = new UploadPartRequest(bucketName, objectName, uploadId, partNumber, new ByteArrayInputStream(part), part.length);
+                partETags.add(ossClient.uploadPart(request).getPartETag());
+                part = input.readNBytes(partSize);
+            }
+            ossClient.completeMultipartUpload(new CompleteMultipartUploadRequest(bucketName, objectName, uploadId, partETags));
+        } catch (IOException | RuntimeException e) {
+            try {
+                ossClient.abortMultipartUpload(new AbortMultipartUploadRequest(bucketName, objectName, uploadId));
+            } catch (Exception abortError) {
+                logger.warn("Failed to abort multipart upload: bucket={}, objectName={}, uploadId={}, error={}",
+                        bucketName, objectName, uploadId, abortError.getMessage());
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public InputStream downloadFileStream(String path) {
+        checkOssEnabled();
+
+        OSS ossClient = null;
+        try {
+            ossClient = getOssClient();
+            OSSObject ossObject = ossClient.getObject(ossProperties.getBucketName(), path);
+            if (ossObject == null) {
+                logger.error("File not found in OSS: bucket={}, path={}", ossProperties.getBucketName(), path);
+                ExceptionUtil.throwBizException(ErrorCode.FILE_NOT_FOUND);
+                return null;
+            }
+            // 流关闭时同时关闭OSS对象和客户端
+            return new OssObjectInputStream(ossObject, ossClient);
+        } catch (Exception e) {
+            closeOssClient(ossClient);
+            logger.error("Failed to open file stream from OSS: bucket={}, path={}, error={}", ossProperties.getBucketName(), path, e.getMessage());
+            ExceptionUtil.throwBizException(ErrorCode.OSS_DOWNLOAD_FAILED, e.getMessage());
+            return null; // 不会执行到这里，为了编译通过
+        }
+    }
+
+    @Override
+    public InputStream downloadFileStream(String path, long fileSize) {
+        if (!parallelDownloadProperties.isEnabled() || parallelDownloadProperties.getParallelism() <= 1
+                || fileSize < parallelDownloadProperties.getThreshold().toBytes() || !parallelDownloadPermits.tryAcquire()) {
+            return downloadFileStream(path);
+        }
+        // 所有分段共用一个客户端，流关闭且进行中的分段拉取结束后释放客户端和并行名额
+        OSS ossClient = null;
+        try {
+            checkOssEnabled();
+            ossClient = getOssClient();
+        } catch (RuntimeException e) {
+            closeOssClient(ossClient);
+            parallelDownloadPermits.release();
+            throw e;
+        }
+        OSS client = ossClient;
+        String bucketName = ossProperties.getBucketName();
+        return new ParallelRangeInputStream(fileSize, (int) parallelDownloadProperties.getChunkSize().toBytes(), parallelDownloadProperties.getParallelism(),
+                (start, end) -> {
+                    GetObjectRequest request = new GetObjectRequest(bucketName, path);
+                    request.setRange(start, end);
+                    try (OSSObject ossObject = client.getObject(request); InputStream content = ossObject.getObjectContent()) {
+                        return content.readNBytes((int) (end - start + 1));
+                    } catch (IOException e) {
+                        throw e;
+                    } catch (Exception e) {
+                        throw new IOException("OSS ranged get failed: path=" + path + ", range=" + start + "-" + end, e);
+                    }
+                },
+                rangeDownloadExecutor,
+                () -> {
+                    closeOssClient(client);
+                    parallelDownloadPermits.release();
+                });
+    }
+
     @Override
     public byte[] downloadFile(String path) {
         checkOssEnabled();
@@ -172,6 +368,29 @@ public class OssStorageServiceImpl implements StorageService {
         };
     }
 
+    @Override
+    public String generateDownloadUrl(String path, String filename, Duration ttl) {
+        checkOssEnabled();
+
+        OSS ossClient = null;
+        try {
+            ossClient = getOssClient();
+            GeneratePresignedUrlRequest request = new GeneratePresignedUrlRequest(ossProperties.getBucketName(), path, HttpMethod.GET);
+            request.setExpiration(new Date(System.currentTimeMillis() + ttl.toMillis()));
+            // 覆盖响应头，使浏览器按原文件名保存
+            ResponseHeaderOverrides overrides = new ResponseHeaderOverrides();
+            overrides.setContentDisposition("attachment; filename*=UTF-8''" + URLEncoder.encode(filename, StandardCharsets.UTF_8).replace("+", "%20"));
+            request.setResponseHeaders(overrides);
+            // 签名在本地计算，不发起网络请求
+            return ossClient.generatePresignedUrl(request).toString();
+        } catch (Exception e) {
+            logger.error("Failed to sign download url: bucket={}, path={}, error={}", ossProperties.getBucketName(), path, e.getMessage());
+            throw new BusinessException(ErrorCode.OSS_DOWNLOAD_FAILED, e);
+        } finally {
+            closeOssClient(ossClient);
+        }
+    }
+
     @Override
     public void deleteFile(String path) {
         checkOssEnabled();
@@ -237,4 +456,27 @@ public class OssStorageServiceImpl implements StorageService {
     private String buildObjectName(String path, String fileName) {
         return path.endsWith(CommonConstants.File.SLASH) ? path + fileName : path + CommonConstants.File.SLASH + fileName;
     }
+
+    /**
+     * 包装OSS对象内容流，关闭时释放OSS对象和客户端
+     */
+    private class OssObjectInputStream extends FilterInputStream {
+        private final OSSObject ossObject;
+        private final OSS ossClient;
+
+        OssObjectInputStream(OSSObject ossObject, OSS ossClient) {
+            super(ossObject.getObjectContent());
+            this.ossObject = ossObject;
+            this.ossClient = ossClient;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                ossObject.close();
+            } finally {
+                closeOssClient(ossClient);
+            }
+        }
+    }
 }
@@ -0,0 +1,55 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.util.ExceptionUtil;
+import com.cloudrive.config.properties.QuotaProperties;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.repository.UserRepository;
+import com.cloudrive.service.QuotaService;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 存储空间配额服务实现类
+ * 已使用空间按用户未删除文件的大小之和计算，秒传文件同样计入。
+ * 上传前按声明的大小预校验（UploadPreValidationFilter），提交文件记录时再按实际大小在用户行锁下校验
+ */
+@Service
+public class QuotaServiceImpl implements QuotaService {
+
+    private final FileInfoRepository fileInfoRepository;
+    private final QuotaProperties quotaProperties;
+    private final UserRepository userRepository;
+
+    public QuotaServiceImpl(FileInfoRepository fileInfoRepository, QuotaProperties quotaProperties, UserRepository userRepository) {
+        this.fileInfoRepository = fileInfoRepository;
+        this.quotaProperties = quotaProperties;
+        this.userRepository = userRepository;
+    }
+
+    @Override
+    public long getUsedBytes(Long userId) {
+        return fileInfoRepository.sumFileSizeByUserId(userId);
+    }
+
+    @Override
+    public void checkQuota(Long userId, long incomingBytes) {
+        long quota = quotaProperties.getPerUser().toBytes();
+        if (quota <= 0) {
+            return;
+        }
+        ExceptionUtil.throwIf(getUsedBytes(userId) + Math.max(0, incomingBytes) > quota, ErrorCode.QUOTA_EXCEEDED);
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void checkQuotaForCommit(Long userId, long incomingBytes) {
+        if (quotaProperties.getPerUser().toBytes() <= 0) {
+            return;
+        }
+        userRepository.findByIdForUpdate(userId).orElseThrow(() -> new BusinessException(ErrorCode.USER_NOT_FOUND));
+        checkQuota(userId, incomingBytes);
+    }
+}
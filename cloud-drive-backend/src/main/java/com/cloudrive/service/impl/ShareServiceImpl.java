@@ -4,17 +4,25 @@ import com.cloudrive.common.enums.ErrorCode;
 import com.cloudrive.common.exception.BusinessException;
 import com.cloudrive.common.util.ExceptionUtil;
 import com.cloudrive.common.util.UserContext;
+import com.cloudrive.config.properties.DownloadRedirectProperties;
+import com.cloudrive.mapper.FileMapper;
 import com.cloudrive.mapper.ShareMapper;
 import com.cloudrive.model.entity.FileInfo;
 import com.cloudrive.model.entity.ShareRecord;
 import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.FileDownloadVO;
+import com.cloudrive.model.vo.ResolvedShareVO;
 import com.cloudrive.model.vo.ShareFileVO;
+import com.cloudrive.redis.ShareDownloadStatsRedis;
 import com.cloudrive.redis.ShareQueueRedis;
 import com.cloudrive.redis.ShareTokenRedis;
 import com.cloudrive.repository.FileInfoRepository;
 import com.cloudrive.repository.ShareRecordRepository;
 import com.cloudrive.service.FileService;
+import com.cloudrive.service.HotShareService;
+import com.cloudrive.service.ShareResolutionService;
 import com.cloudrive.service.ShareService;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
@@ -33,6 +41,10 @@ public class ShareServiceImpl implements ShareService {
 
     private static final Logger logger = LoggerFactory.getLogger(ShareServiceImpl.class);
 
+    private static final String DOWNLOAD_MODE_REDIRECT = "redirect";
+
+    private static final String DOWNLOAD_MODE_INLINE = "inline";
+
     private final ShareRecordRepository shareRecordRepository;
 
     private final FileInfoRepository fileInfoRepository;
@@ -45,13 +57,32 @@ public class ShareServiceImpl implements ShareService {
 
     private final FileService fileService;
 
-    public ShareServiceImpl(ShareRecordRepository shareRecordRepository, FileInfoRepository fileInfoRepository, ShareTokenRedis shareTokenRedis, ShareMapper shareMapper, ShareQueueRedis shareQueueRedis, FileService fileService) {
+    private final FileMapper fileMapper;
+
+    private final ShareResolutionService shareResolutionService;
+
+    private final ShareDownloadStatsRedis shareDownloadStatsRedis;
+
+    private final DownloadRedirectProperties downloadRedirectProperties;
+
+    private final HotShareService hotShareService;
+
+    private final MeterRegistry meterRegistry;
+
+    public ShareServiceImpl(ShareRecordRepository shareRecordRepository, FileInfoRepository fileInfoRepository, ShareTokenRedis shareTokenRedis, ShareMapper shareMapper, ShareQueueRedis shareQueueRedis, FileService fileService, FileMapper fileMapper, ShareResolutionService shareResolutionService,
+                            ShareDownloadStatsRedis shareDownloadStatsRedis, DownloadRedirectProperties downloadRedirectProperties, HotShareService hotShareService, MeterRegistry meterRegistry) {
         this.shareRecordRepository = shareRecordRepository;
         this.fileInfoRepository = fileInfoRepository;
         this.shareTokenRedis = shareTokenRedis;
         this.shareMapper = shareMapper;
         this.shareQueueRedis = shareQueueRedis;
         this.fileService = fileService;
+        this.fileMapper = fileMapper;
+        this.shareResolutionService = shareResolutionService;
+        this.shareDownloadStatsRedis = shareDownloadStatsRedis;
+        this.downloadRedirectProperties = downloadRedirectProperties;
+        this.hotShareService = hotShareService;
+        this.meterRegistry = meterRegistry;
     }
 
     @Override
@@ -76,6 +107,8 @@ public class ShareServiceImpl implements ShareService {
         // 创建分享记录
         ShareRecord shareRecord = shareMapper.toShareRecord(file, currentUser, shareCode, password, expireTime);
         shareRecord = shareRecordRepository.save(shareRecord);
+        // 清除该分享码可能存在的负缓存
+        shareResolutionService.invalidate(shareCode);
         
         // 添加到延时队列
         addToDelayedQueue(shareRecord.getId(), expireTime);
@@ -87,16 +120,16 @@ public class ShareServiceImpl implements ShareService {
     @Override
     @Transactional
     public ShareFileVO accessShare(String shareCode, String password) {
+        // 先查缓存，不存在、已过期或文件已删除的分享不访问数据库
+        ResolvedShareVO resolved = requireShare(shareCode);
+        ExceptionUtil.throwIf(isExpired(resolved), ErrorCode.SHARE_EXPIRED);
+        ExceptionUtil.throwIf(resolved.isFileDeleted(), ErrorCode.FILE_NOT_FOUND);
+        hotShareService.record(shareCode);
+
         // 获取分享记录
         ShareRecord shareRecord = shareRecordRepository.findByShareCode(shareCode)
                 .orElseThrow(() -> new BusinessException(ErrorCode.SHARE_NOT_FOUND));
         
-        // 检查是否过期
-        ExceptionUtil.throwIf(
-            shareRecord.getIsExpired() || shareRecord.getExpireTime().isBefore(LocalDateTime.now()),
-            ErrorCode.SHARE_EXPIRED
-        );
-        
         // 验证密码
         if (shareRecord.getPassword() != null && !shareRecord.getPassword().isEmpty()) {
             // 如果没有提供密码，抛出缺少密码异常
@@ -119,10 +152,7 @@ public class ShareServiceImpl implements ShareService {
 
     @Override
     public boolean isShareExpired(String shareCode) {
-        ShareRecord shareRecord = shareRecordRepository.findByShareCode(shareCode)
-                .orElseThrow(() -> new BusinessException(ErrorCode.SHARE_NOT_FOUND));
-        
-        return shareRecord.getIsExpired() || shareRecord.getExpireTime().isBefore(LocalDateTime.now());
+        return isExpired(requireShare(shareCode));
     }
 
     @Override
@@ -134,6 +164,7 @@ public class ShareServiceImpl implements ShareService {
         // 标记为过期
         for (ShareRecord share : expiredShares) {
             share.setIsExpired(true);
+            shareResolutionService.invalidate(share.getShareCode());
         }
         
         // 批量保存
@@ -178,10 +209,19 @@ public class ShareServiceImpl implements ShareService {
         
         // 删除token
         shareTokenRedis.deleteToken(shareCode);
+
+        // 使分享缓存失效，删除下载统计
+        shareResolutionService.invalidate(shareCode);
+        shareDownloadStatsRedis.delete(shareCode);
     }
 
     @Override
     public String generateShareToken(String shareCode, String password) {
+        // 无密码的分享只需确认分享存在
+        if (!requireShare(shareCode).isPasswordProtected()) {
+            return shareTokenRedis.generateAndStoreToken(shareCode);
+        }
+
         ShareRecord shareRecord = shareRecordRepository.findByShareCode(shareCode)
                 .orElseThrow(() -> new BusinessException(ErrorCode.SHARE_NOT_FOUND));
         
@@ -207,14 +247,13 @@ public class ShareServiceImpl implements ShareService {
             !validateShareToken(shareCode, token),
             ErrorCode.INVALID_TOKEN
         );
-        
+
+        // 检查文件是否存在且未被删除
+        ExceptionUtil.throwIf(requireShare(shareCode).isFileDeleted(), ErrorCode.FILE_NOT_FOUND);
+        hotShareService.record(shareCode);
+
         ShareRecord shareRecord = shareRecordRepository.findByShareCode(shareCode)
                 .orElseThrow(() -> new BusinessException(ErrorCode.SHARE_NOT_FOUND));
-                
-        // 检查文件是否存在且未被删除
-        FileInfo fileInfo = shareRecord.getFile();
-        ExceptionUtil.throwIfNull(fileInfo, ErrorCode.FILE_NOT_FOUND);
-        ExceptionUtil.throwIf(fileInfo.getIsDeleted(), ErrorCode.FILE_NOT_FOUND);
         
         shareRecord.setVisitCount(shareRecord.getVisitCount() + 1);
         shareRecordRepository.save(shareRecord);
@@ -224,50 +263,73 @@ public class ShareServiceImpl implements ShareService {
 
     @Override
     public byte[] downloadSharedFile(String shareCode, String token) {
+        FileDownloadVO file = getDownloadableSharedFile(shareCode, token);
+
+        // 使用getFileContent获取文件内容
+        byte[] content = fileService.getFileContent(file.getFileId());
+        logger.debug("File content size: {} bytes", content.length);
+        
+        return content;
+    }
+
+    @Override
+    public FileDownloadVO getDownloadableSharedFile(String shareCode, String token) {
         // 验证token
         ExceptionUtil.throwIf(
             !validateShareToken(shareCode, token),
             ErrorCode.INVALID_TOKEN
         );
 
-        // 获取分享记录
-        ShareRecord shareRecord = shareRecordRepository.findByShareCode(shareCode)
-                .orElseThrow(() -> new BusinessException(ErrorCode.SHARE_NOT_FOUND));
+        // 从缓存解析分享，不查询数据库
+        ResolvedShareVO resolved = requireShare(shareCode);
+        ExceptionUtil.throwIf(isExpired(resolved), ErrorCode.SHARE_EXPIRED);
+        ExceptionUtil.throwIf(resolved.isFileDeleted(), ErrorCode.FILE_NOT_FOUND);
+        ExceptionUtil.throwIf(resolved.isFolder(), ErrorCode.CANNOT_DOWNLOAD_FOLDER);
+        hotShareService.record(shareCode);
 
-        // 获取文件信息
-        FileInfo fileInfo = shareRecord.getFile();
-        ExceptionUtil.throwIfNull(fileInfo, ErrorCode.FILE_NOT_FOUND);
+        logger.debug("Downloading shared file: id={}, path={}", resolved.getFileId(), resolved.getPath());
+        return shareMapper.toFileDownloadVO(resolved);
+    }
+
+    @Override
+    public String getFilename(String shareCode) {
+        ResolvedShareVO resolved = requireShare(shareCode);
         
         // 检查文件是否已被删除
-        ExceptionUtil.throwIf(
-            fileInfo.getIsDeleted(),
-            ErrorCode.FILE_NOT_FOUND
-        );
+        ExceptionUtil.throwIf(resolved.isFileDeleted(), ErrorCode.FILE_NOT_FOUND);
 
-        logger.debug("Downloading shared file: id={}, path={}", fileInfo.getId(), fileInfo.getPath());
-        
-        // 使用getFileContent获取文件内容
-        byte[] content = fileService.getFileContent(fileInfo.getId());
-        logger.debug("File content size: {} bytes", content.length);
-        
-        return content;
+        return resolved.getFilename();
     }
 
     @Override
-    public String getFilename(String shareCode) {
-        ShareRecord shareRecord = shareRecordRepository.findByShareCode(shareCode)
-                .orElseThrow(() -> new BusinessException(ErrorCode.SHARE_NOT_FOUND));
+    public String resolveDownloadRedirect(String shareCode, FileDownloadVO file) {
+        String redirectUrl = null;
+        if (downloadRedirectProperties.isEnabled() && file.getFileSize() >= downloadRedirectProperties.getThreshold().toBytes()) {
+            try {
+                redirectUrl = fileService.generateDownloadUrl(file, downloadRedirectProperties.getUrlTtl());
+            } catch (BusinessException e) {
+                logger.warn("Failed to sign share download url, serving inline: shareCode={}, error={}", shareCode, e.getMessage());
+            }
+        }
 
-        FileInfo fileInfo = shareRecord.getFile();
-        ExceptionUtil.throwIfNull(fileInfo, ErrorCode.FILE_NOT_FOUND);
-        
-        // 检查文件是否已被删除
-        ExceptionUtil.throwIf(
-            fileInfo.getIsDeleted(),
-            ErrorCode.FILE_NOT_FOUND
-        );
+        String mode = redirectUrl != null ? DOWNLOAD_MODE_REDIRECT : DOWNLOAD_MODE_INLINE;
+        meterRegistry.counter("share.download", "mode", mode).increment();
+        try {
+            shareDownloadStatsRedis.increment(shareCode, mode);
+        } catch (Exception e) {
+            logger.warn("Failed to record share download: shareCode={}, mode={}, error={}", shareCode, mode, e.getMessage());
+        }
+        return redirectUrl;
+    }
+
+    private ResolvedShareVO requireShare(String shareCode) {
+        ResolvedShareVO resolved = shareResolutionService.resolve(shareCode);
+        ExceptionUtil.throwIfNull(resolved, ErrorCode.SHARE_NOT_FOUND);
+        return resolved;
+    }
 
-        return fileInfo.getFilename();
+    private boolean isExpired(ResolvedShareVO resolved) {
+        return resolved.isExpired() || resolved.getExpireTime() != null && resolved.getExpireTime() < System.currentTimeMillis();
     }
 
     private String generateShareCode() {
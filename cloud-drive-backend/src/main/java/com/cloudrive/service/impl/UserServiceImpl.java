@@ -1,6 +1,7 @@
 package com.cloudrive.service.impl;
 
 import cn.dev33.satoken.stp.StpUtil;
+import com.cloudrive.common.constant.CommonConstants;
 import com.cloudrive.common.enums.ErrorCode;
 import com.cloudrive.common.util.ExceptionUtil;
 import com.cloudrive.common.util.PasswordUtil;
@@ -120,6 +121,10 @@ public class UserServiceImpl implements UserService {
 
         // 登录
         StpUtil.login(user.getId());
+        // 保存用户等级，传输限速时按等级分配带宽
+        if (user.getTier() != null) {
+            StpUtil.getSession().set(CommonConstants.Traffic.SESSION_TIER_KEY, user.getTier());
+        }
         
         // 返回token
         String token = StpUtil.getTokenValue();
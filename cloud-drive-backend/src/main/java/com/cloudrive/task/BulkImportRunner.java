@@ -0,0 +1,61 @@
+package com.cloudrive.task;
+
+import com.cloudrive.config.properties.BulkImportProperties;
+import com.cloudrive.model.vo.BulkImportResultVO;
+import com.cloudrive.service.BulkImportService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.nio.file.Path;
+
+/**
+ * 启动时执行批量导入
+ * 以 --upload.bulk-import.enabled=true --upload.bulk-import.source=... --upload.bulk-import.user-id=... 启动，
+ * 未指定检查点文件时使用源目录下的 .bulk-import.checkpoint
+ */
+@Component
+@ConditionalOnProperty(prefix = "upload.bulk-import", name = "enabled", havingValue = "true")
+public class BulkImportRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(BulkImportRunner.class);
+
+    private static final String DEFAULT_CHECKPOINT_FILE = ".bulk-import.checkpoint";
+
+    private final BulkImportService bulkImportService;
+    private final BulkImportProperties bulkImportProperties;
+    private final ConfigurableApplicationContext applicationContext;
+
+    public BulkImportRunner(BulkImportService bulkImportService, BulkImportProperties bulkImportProperties, ConfigurableApplicationContext applicationContext) {
+        this.bulkImportService = bulkImportService;
+        this.bulkImportProperties = bulkImportProperties;
+        this.applicationContext = applicationContext;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Path source = Path.of(bulkImportProperties.getSource());
+        Path checkpointFile = StringUtils.hasText(bulkImportProperties.getCheckpointFile())
+                ? Path.of(bulkImportProperties.getCheckpointFile())
+                : source.resolve(DEFAULT_CHECKPOINT_FILE);
+
+        int exitCode = 0;
+        try {
+            BulkImportResultVO result = bulkImportService.importDirectory(source, bulkImportProperties.getUserId(), bulkImportProperties.getParentId(), checkpointFile);
+            exitCode = result.getFailedCount() > 0 ? 1 : 0;
+        } catch (Exception e) {
+            logger.error("批量导入失败", e);
+            exitCode = 1;
+        }
+
+        if (bulkImportProperties.isExitOnCompletion()) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(applicationContext, () -> code));
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.cloudrive.task;
+
+import com.cloudrive.service.HotShareService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class HotShareMergeTask {
+    private static final Logger logger = LoggerFactory.getLogger(HotShareMergeTask.class);
+
+    private final HotShareService hotShareService;
+
+    public HotShareMergeTask(HotShareService hotShareService) {
+        this.hotShareService = hotShareService;
+    }
+
+    /**
+     * 定期上报本节点的热点候选并刷新热点分享
+     * 每个节点都要上报自己的计数，不需要分布式锁
+     */
+    @Scheduled(fixedDelayString = "${share.hot.merge-interval:PT10S}", initialDelayString = "${share.hot.merge-interval:PT10S}")
+    public void merge() {
+        try {
+            hotShareService.merge();
+        } catch (Exception e) {
+            logger.error("热点分享统计合并失败", e);
+        }
+    }
+}
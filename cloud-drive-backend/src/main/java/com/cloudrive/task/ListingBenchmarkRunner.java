@@ -0,0 +1,117 @@
+package com.cloudrive.task;
+
+import com.cloudrive.common.constant.CommonConstants;
+import com.cloudrive.common.enums.FileSortField;
+import com.cloudrive.config.properties.ListingBenchmarkProperties;
+import com.cloudrive.mapper.FileMapper;
+import com.cloudrive.model.vo.FileListVO;
+import com.cloudrive.repository.FileInfoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * 启动时对比文件列表的实体加载与投影查询的内存分配
+ * 以 --db.listing-benchmark.enabled=true 启动，取示例用户子项最多的文件夹，分别以实体加载后映射为 VO、
+ * 以投影查询直接映射为 VO 的方式读取整个文件夹，统计每次读取在当前线程上分配的字节数与耗时
+ */
+@Component
+@ConditionalOnProperty(prefix = "db.listing-benchmark", name = "enabled", havingValue = "true")
+public class ListingBenchmarkRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(ListingBenchmarkRunner.class);
+
+    private final FileInfoRepository fileInfoRepository;
+    private final FileMapper fileMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ListingBenchmarkProperties properties;
+    private final ConfigurableApplicationContext applicationContext;
+
+    public ListingBenchmarkRunner(FileInfoRepository fileInfoRepository, FileMapper fileMapper, JdbcTemplate jdbcTemplate,
+                                  TransactionTemplate transactionTemplate, ListingBenchmarkProperties properties,
+                                  ConfigurableApplicationContext applicationContext) {
+        this.fileInfoRepository = fileInfoRepository;
+        this.fileMapper = fileMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.properties = properties;
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * 一种读取方式的计量结果
+     */
+    private record Measurement(long bytesPerRun, double millisPerRun) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long userId = properties.getSampleUserId();
+        Long parentId = jdbcTemplate.query("SELECT parent_id FROM t_file_info WHERE user_id = ? AND parent_id IS NOT NULL AND isDeleted = false "
+                        + "GROUP BY parent_id ORDER BY COUNT(*) DESC LIMIT 1",
+                rs -> rs.next() ? rs.getLong(1) : null, userId);
+
+        if (parentId == null) {
+            logger.warn("Listing benchmark skipped: user {} has no folder with children", userId);
+        } else if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threadMXBean)
+                || !threadMXBean.isThreadAllocatedMemorySupported()) {
+            logger.warn("Listing benchmark skipped: thread allocation accounting is not supported by this JVM");
+        } else {
+            threadMXBean.setThreadAllocatedMemoryEnabled(true);
+            // 与改造前的 listFiles 相同：加载受管实体（含 User 代理与脏检查快照），再由 MapStruct 复制为 VO
+            Supplier<List<FileListVO>> entity = () -> transactionTemplate.execute(status ->
+                    fileInfoRepository.findByUserIdAndParentIdAndIsDeletedFalse(userId, parentId).stream()
+                            .map(fileMapper::toFileListVO)
+                            .toList());
+            Supplier<List<FileListVO>> projection = () -> fileInfoRepository.findChildrenPage(userId, parentId, FileSortField.NAME, false,
+                    null, null, Integer.MAX_VALUE);
+
+            int rows = projection.get().size();
+            Measurement entityResult = measure(threadMXBean, entity);
+            Measurement projectionResult = measure(threadMXBean, projection);
+            logger.info("Listing benchmark: folder={}, rows={}, iterations={}", parentId, rows, properties.getIterations());
+            logger.info("  entity + mapper: {} bytes/run ({} bytes/row), {}ms/run",
+                    entityResult.bytesPerRun(), entityResult.bytesPerRun() / Math.max(1, rows), String.format("%.3f", entityResult.millisPerRun()));
+            logger.info("  projection:      {} bytes/run ({} bytes/row), {}ms/run",
+                    projectionResult.bytesPerRun(), projectionResult.bytesPerRun() / Math.max(1, rows), String.format("%.3f", projectionResult.millisPerRun()));
+            if (rows > CommonConstants.File.MAX_PAGE_SIZE) {
+                logger.info("  (folder exceeds one page; the listing API reads at most {} rows per request)", CommonConstants.File.MAX_PAGE_SIZE);
+            }
+        }
+
+        if (properties.isExitOnCompletion()) {
+            System.exit(SpringApplication.exit(applicationContext, () -> 0));
+        }
+    }
+
+    /**
+     * 预热后执行 iterations 次，统计当前线程的平均分配字节数与耗时
+     */
+    private Measurement measure(com.sun.management.ThreadMXBean threadMXBean, Supplier<List<FileListVO>> listing) {
+        for (int i = 0; i < properties.getWarmup(); i++) {
+            listing.get();
+        }
+        int iterations = Math.max(1, properties.getIterations());
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            listing.get();
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = threadMXBean.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        return new Measurement(allocated / iterations, TimeUnit.NANOSECONDS.toMicros(elapsed) / 1000.0 / iterations);
+    }
+}
@@ -0,0 +1,131 @@
+package com.cloudrive.task;
+
+import com.cloudrive.config.properties.QueryPlanCheckProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 启动时检查热点查询的执行计划并计时
+ * 以 --db.query-plan-check.enabled=true 启动，对每个查询执行 EXPLAIN，确认使用了迁移脚本创建的索引，
+ * 再执行 iterations 次统计平均耗时。数据量很小时优化器可能选择全表扫描，应在接近生产规模的数据上运行
+ */
+@Component
+@ConditionalOnProperty(prefix = "db.query-plan-check", name = "enabled", havingValue = "true")
+public class QueryPlanCheckRunner implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(QueryPlanCheckRunner.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final QueryPlanCheckProperties properties;
+    private final ConfigurableApplicationContext applicationContext;
+
+    public QueryPlanCheckRunner(JdbcTemplate jdbcTemplate, QueryPlanCheckProperties properties, ConfigurableApplicationContext applicationContext) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.properties = properties;
+        this.applicationContext = applicationContext;
+    }
+
+    /**
+     * 热点查询及其应使用的索引
+     */
+    private record HotQuery(String name, String expectedIndex, String sql, Object... args) {
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        Long userId = properties.getSampleUserId();
+        Long parentId = jdbcTemplate.query("SELECT parent_id FROM t_file_info WHERE user_id = ? AND parent_id IS NOT NULL LIMIT 1",
+                rs -> rs.next() ? rs.getLong(1) : 0L, userId);
+        String sha256Hash = jdbcTemplate.query("SELECT sha256_hash FROM t_file_info WHERE user_id = ? AND sha256_hash IS NOT NULL LIMIT 1",
+                rs -> rs.next() ? rs.getString(1) : "", userId);
+        String path = jdbcTemplate.query("SELECT path FROM t_file_info WHERE user_id = ? LIMIT 1",
+                rs -> rs.next() ? rs.getString(1) : "", userId);
+
+        List<HotQuery> queries = List.of(
+                new HotQuery("list children by name", "idx_file_children_name",
+                        "SELECT id, filename, file_size, updated_at FROM t_file_info WHERE user_id = ? AND parent_id = ? AND isDeleted = false ORDER BY filename, id LIMIT 101",
+                        userId, parentId),
+                new HotQuery("list children by size", "idx_file_children_size",
+                        "SELECT id, filename, file_size, updated_at FROM t_file_info WHERE user_id = ? AND parent_id = ? AND isDeleted = false ORDER BY file_size DESC, id DESC LIMIT 101",
+                        userId, parentId),
+                new HotQuery("list children by type", "idx_file_children_type",
+                        "SELECT id, filename, file_size, updated_at FROM t_file_info WHERE user_id = ? AND parent_id = ? AND isDeleted = false ORDER BY file_type, id LIMIT 101",
+                        userId, parentId),
+                new HotQuery("list children by updated", "idx_file_children_updated",
+                        "SELECT id, filename, file_size, updated_at FROM t_file_info WHERE user_id = ? AND parent_id = ? AND isDeleted = false ORDER BY updated_at DESC, id DESC LIMIT 101",
+                        userId, parentId),
+                new HotQuery("subtree by ancestor path", "idx_file_subtree",
+                        "SELECT id FROM t_file_info WHERE user_id = ? AND ancestor_path LIKE ? AND isDeleted = false "
+                                + "AND (ancestor_path > ? OR (ancestor_path = ? AND id > ?)) ORDER BY ancestor_path, id LIMIT 500",
+                        userId, "/" + parentId + "/%", "/" + parentId + "/", "/" + parentId + "/", 0),
+                new HotQuery("dedup by sha256", "idx_file_user_sha256",
+                        "SELECT id FROM t_file_info WHERE sha256_hash = ? AND user_id = ? AND isDeleted = false",
+                        sha256Hash, userId),
+                new HotQuery("count path references", "idx_file_path",
+                        "SELECT COUNT(*) FROM t_file_info WHERE path = ? AND isDeleted = false",
+                        path),
+                new HotQuery("count folder children", "idx_file_parent",
+                        "SELECT COUNT(*) FROM t_file_info WHERE parent_id = ? AND isDeleted = false",
+                        parentId),
+                new HotQuery("sum user usage", "idx_file_user_usage",
+                        "SELECT COALESCE(SUM(file_size), 0) FROM t_file_info WHERE user_id = ? AND isDeleted = false AND isFolder = false",
+                        userId),
+                new HotQuery("expired shares", "idx_share_expire",
+                        "SELECT id FROM t_share_record WHERE expire_time < ? AND is_expired = false",
+                        LocalDateTime.now()),
+                new HotQuery("user shares", "idx_share_user_created",
+                        "SELECT id FROM t_share_record WHERE user_id = ? ORDER BY create_time DESC",
+                        userId)
+        );
+
+        int mismatches = 0;
+        for (HotQuery query : queries) {
+            if (!check(query)) {
+                mismatches++;
+            }
+        }
+        logger.info("Query plan check finished: queries={}, mismatches={}", queries.size(), mismatches);
+
+        if (properties.isExitOnCompletion()) {
+            int code = mismatches > 0 ? 1 : 0;
+            System.exit(SpringApplication.exit(applicationContext, () -> code));
+        }
+    }
+
+    /**
+     * 执行 EXPLAIN 并计时
+     *
+     * @return 是否使用了预期的索引
+     */
+    private boolean check(HotQuery query) {
+        Map<String, Object> plan = jdbcTemplate.queryForList("EXPLAIN " + query.sql(), query.args()).get(0);
+        Object key = plan.get("key");
+        boolean usesIndex = query.expectedIndex().equals(key);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < properties.getIterations(); i++) {
+            jdbcTemplate.queryForList(query.sql(), query.args());
+        }
+        double avgMillis = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start) / 1000.0 / Math.max(1, properties.getIterations());
+
+        if (usesIndex) {
+            logger.info("[OK] {}: key={}, type={}, rows={}, extra={}, avg={}ms",
+                    query.name(), key, plan.get("type"), plan.get("rows"), plan.get("Extra"), String.format("%.3f", avgMillis));
+        } else {
+            logger.warn("[MISS] {}: expected={}, key={}, type={}, rows={}, extra={}, avg={}ms",
+                    query.name(), query.expectedIndex(), key, plan.get("type"), plan.get("rows"), plan.get("Extra"), String.format("%.3f", avgMillis));
+        }
+        return usesIndex;
+    }
+}
@@ -0,0 +1,246 @@
+package com.cloudrive.task;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.config.properties.UploadFinalizeProperties;
+import com.cloudrive.redis.UploadFinalizeStreamRedis;
+import com.cloudrive.service.FileService;
+import com.cloudrive.service.UploadFinalizeService;
+import com.cloudrive.service.UploadProgressService;
+import com.cloudrive.service.UploadSpoolService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.redisson.api.AutoClaimResult;
+import org.redisson.api.StreamMessageId;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongSupplier;
+
+/**
+ * 上传收尾工作线程
+ * 以消费组方式从 Redis Stream 读取收尾任务，成功或遇到不可重试的业务错误时确认并删除；
+ * 存储、数据库等临时故障不确认，任务保留在待确认列表中，claim-idle 之后由消费者重新接管，超过最大投递次数的任务标记为失败。
+ * 同一任务可能被处理多次，由文件服务按任务ID保证只提交一次
+ */
+@Component
+public class UploadFinalizeWorker implements SmartLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(UploadFinalizeWorker.class);
+
+    private static final int CLAIM_BATCH_SIZE = 10;
+    private static final StreamMessageId CLAIM_START_ID = new StreamMessageId(0, 0);
+
+    private final UploadFinalizeStreamRedis uploadFinalizeStreamRedis;
+    private final UploadFinalizeProperties uploadFinalizeProperties;
+    private final FileService fileService;
+    private final UploadProgressService uploadProgressService;
+    private final UploadSpoolService uploadSpoolService;
+
+    private final Counter completedCounter;
+    private final Counter failedCounter;
+    private final Counter reclaimedCounter;
+
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean running;
+
+    public UploadFinalizeWorker(UploadFinalizeStreamRedis uploadFinalizeStreamRedis, UploadFinalizeProperties uploadFinalizeProperties,
+                                FileService fileService, UploadProgressService uploadProgressService, UploadSpoolService uploadSpoolService,
+                                MeterRegistry meterRegistry) {
+        this.uploadFinalizeStreamRedis = uploadFinalizeStreamRedis;
+        this.uploadFinalizeProperties = uploadFinalizeProperties;
+        this.fileService = fileService;
+        this.uploadProgressService = uploadProgressService;
+        this.uploadSpoolService = uploadSpoolService;
+
+        completedCounter = Counter.builder("upload.finalize.completed")
+                .description("处理完成的收尾任务数")
+                .register(meterRegistry);
+        failedCounter = Counter.builder("upload.finalize.failed")
+                .description("处理失败的收尾任务数")
+                .register(meterRegistry);
+        reclaimedCounter = Counter.builder("upload.finalize.reclaimed")
+                .description("从崩溃消费者接管的收尾任务数")
+                .register(meterRegistry);
+        Gauge.builder("upload.finalize.lag", this, worker -> worker.safeRead(uploadFinalizeStreamRedis::getLag))
+                .description("消费组尚未读取的收尾任务数")
+                .register(meterRegistry);
+        Gauge.builder("upload.finalize.pending", this, worker -> worker.safeRead(uploadFinalizeStreamRedis::getPendingCount))
+                .description("已投递但未确认的收尾任务数")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public void start() {
+        running = true;
+        ensureGroupQuietly();
+        String nodeName = ManagementFactory.getRuntimeMXBean().getName();
+        for (int i = 0; i < uploadFinalizeProperties.getWorkers(); i++) {
+            String consumer = nodeName + "-" + i;
+            Thread thread = new Thread(() -> consume(consumer), "upload-finalize-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workers.add(thread);
+        }
+        logger.info("Started {} upload finalize workers on {}", workers.size(), nodeName);
+    }
+
+    /**
+     * 不中断工作线程：中断会打断进行中的存储上传和数据库提交，只停止领取新任务并等待当前任务处理完成。
+     * 超过 shutdown-timeout 仍未完成的任务保持未确认，由其他节点接管
+     */
+    @Override
+    public void stop() {
+        running = false;
+        long deadline = System.currentTimeMillis() + uploadFinalizeProperties.getShutdownTimeout().toMillis();
+        for (Thread worker : workers) {
+            try {
+                worker.join(Math.max(1, deadline - System.currentTimeMillis()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (worker.isAlive()) {
+                logger.warn("Upload finalize worker {} did not finish within shutdown timeout, its job will be reclaimed", worker.getName());
+            }
+        }
+        workers.clear();
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void consume(String consumer) {
+        long nextClaimAt = 0;
+        while (running) {
+            try {
+                // 定期接管崩溃消费者遗留的任务
+                if (System.currentTimeMillis() >= nextClaimAt) {
+                    reclaim(consumer);
+                    nextClaimAt = System.currentTimeMillis() + uploadFinalizeProperties.getClaimIdle().toMillis() / 2;
+                }
+
+                Map<StreamMessageId, Map<String, String>> messages = uploadFinalizeStreamRedis.read(consumer, 1, uploadFinalizeProperties.getPollTimeout());
+                if (messages != null) {
+                    messages.forEach(this::process);
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                logger.error("Upload finalize worker {} failed to poll: {}", consumer, e.getMessage());
+                sleepQuietly();
+                // 流或消费组可能被删除，重新创建
+                ensureGroupQuietly();
+            }
+        }
+    }
+
+    private void reclaim(String consumer) {
+        StreamMessageId startId = CLAIM_START_ID;
+        do {
+            AutoClaimResult<String, String> result = uploadFinalizeStreamRedis.claimIdle(consumer, uploadFinalizeProperties.getClaimIdle(), startId, CLAIM_BATCH_SIZE);
+            result.getMessages().forEach((id, job) -> {
+                if (!running) {
+                    // 已接管但未处理的任务保持未确认，之后再被接管
+                    return;
+                }
+                reclaimedCounter.increment();
+                if (uploadFinalizeStreamRedis.getDeliveryCount(id) > uploadFinalizeProperties.getMaxDeliveries()) {
+                    logger.error("Upload finalize job exceeded max deliveries: id={}, taskId={}", id, job.get(UploadFinalizeService.FIELD_TASK_ID));
+                    giveUp(id, job);
+                } else {
+                    logger.warn("Reclaimed upload finalize job: id={}, taskId={}", id, job.get(UploadFinalizeService.FIELD_TASK_ID));
+                    process(id, job);
+                }
+            });
+            startId = result.getNextId();
+        } while (running && startId != null && !CLAIM_START_ID.equals(startId));
+    }
+
+    void process(StreamMessageId id, Map<String, String> job) {
+        String taskId = job.get(UploadFinalizeService.FIELD_TASK_ID);
+        File stagedFile = uploadSpoolService.resolveStaged(job.get(UploadFinalizeService.FIELD_STAGED_FILE));
+        try {
+            if (stagedFile == null) {
+                logger.error("Invalid staged file for upload finalize job: id={}, taskId={}", id, taskId);
+                uploadProgressService.completeUploadTask(taskId, false, "上传缓冲文件不存在");
+                failedCounter.increment();
+            } else {
+                // 任务已提交过（重复投递）时文件服务直接返回，缓冲文件缺失时抛出业务异常
+                String parentId = job.get(UploadFinalizeService.FIELD_PARENT_ID);
+                fileService.uploadFileWithProgressFromPath(stagedFile.getAbsolutePath(),
+                        job.get(UploadFinalizeService.FIELD_FILENAME),
+                        Long.parseLong(job.get(UploadFinalizeService.FIELD_FILE_SIZE)),
+                        parentId != null ? Long.valueOf(parentId) : null,
+                        taskId,
+                        Long.valueOf(job.get(UploadFinalizeService.FIELD_USER_ID)));
+                completedCounter.increment();
+            }
+        } catch (Exception e) {
+            if (isRetryable(e)) {
+                // 不确认，保留缓冲文件，claim-idle 之后重新投递
+                logger.warn("Upload finalize job failed, will be retried: id={}, taskId={}, error={}", id, taskId, e.getMessage());
+                return;
+            }
+            // 业务失败已记录到上传进度，不再重试
+            logger.error("Upload finalize job failed: id={}, taskId={}, error={}", id, taskId, e.getMessage());
+            failedCounter.increment();
+        }
+        uploadSpoolService.discardStaged(stagedFile);
+        uploadFinalizeStreamRedis.ack(id);
+    }
+
+    /**
+     * 业务校验失败（父文件夹不存在、无权限、空间不足等）重试也不会成功；
+     * 存储、数据库、Redis 等基础设施故障以及系统错误码的业务异常视为临时故障
+     */
+    private boolean isRetryable(Exception e) {
+        return !(e instanceof BusinessException businessException)
+                || ErrorCode.SYSTEM_ERROR.getCode().equals(businessException.getCode());
+    }
+
+    private void giveUp(StreamMessageId id, Map<String, String> job) {
+        try {
+            uploadProgressService.completeUploadTask(job.get(UploadFinalizeService.FIELD_TASK_ID), false, "文件处理失败，请重新上传");
+        } catch (Exception e) {
+            logger.warn("Failed to mark upload task failed: {}", e.getMessage());
+        }
+        failedCounter.increment();
+        uploadSpoolService.discardStaged(uploadSpoolService.resolveStaged(job.get(UploadFinalizeService.FIELD_STAGED_FILE)));
+        uploadFinalizeStreamRedis.ack(id);
+    }
+
+    private void ensureGroupQuietly() {
+        try {
+            uploadFinalizeStreamRedis.ensureGroup();
+        } catch (Exception e) {
+            logger.warn("Failed to create upload finalize consumer group: {}", e.getMessage());
+        }
+    }
+
+    private double safeRead(LongSupplier supplier) {
+        try {
+            return supplier.getAsLong();
+        } catch (Exception e) {
+            return Double.NaN;
+        }
+    }
+
+    private void sleepQuietly() {
+        try {
+            Thread.sleep(uploadFinalizeProperties.getPollTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
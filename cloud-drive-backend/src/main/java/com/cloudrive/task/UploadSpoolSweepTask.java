@@ -0,0 +1,31 @@
+package com.cloudrive.task;
+
+import com.cloudrive.service.UploadSpoolService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class UploadSpoolSweepTask {
+    private static final Logger logger = LoggerFactory.getLogger(UploadSpoolSweepTask.class);
+
+    private final UploadSpoolService uploadSpoolService;
+
+    public UploadSpoolSweepTask(UploadSpoolService uploadSpoolService) {
+        this.uploadSpoolService = uploadSpoolService;
+    }
+
+    /**
+     * 定期清理孤儿缓冲文件
+     * 每个节点各自清理，按文件名中的节点标识与心跳区分归属，不会删除其他存活节点进行中的缓冲文件
+     */
+    @Scheduled(fixedDelayString = "${upload.spool.sweep-interval:PT10M}", initialDelayString = "${upload.spool.sweep-interval:PT10M}")
+    public void sweepOrphans() {
+        try {
+            uploadSpoolService.sweepOrphans();
+        } catch (Exception e) {
+            logger.error("清理孤儿缓冲文件失败", e);
+        }
+    }
+}
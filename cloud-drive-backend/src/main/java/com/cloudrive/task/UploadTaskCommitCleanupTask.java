@@ -0,0 +1,38 @@
+package com.cloudrive.task;
+
+import com.cloudrive.config.properties.UploadFinalizeProperties;
+import com.cloudrive.repository.UploadTaskCommitRepository;
+import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+@Component
+public class UploadTaskCommitCleanupTask {
+    private static final Logger logger = LoggerFactory.getLogger(UploadTaskCommitCleanupTask.class);
+
+    private final UploadTaskCommitRepository uploadTaskCommitRepository;
+    private final UploadFinalizeProperties uploadFinalizeProperties;
+
+    public UploadTaskCommitCleanupTask(UploadTaskCommitRepository uploadTaskCommitRepository, UploadFinalizeProperties uploadFinalizeProperties) {
+        this.uploadTaskCommitRepository = uploadTaskCommitRepository;
+        this.uploadFinalizeProperties = uploadFinalizeProperties;
+    }
+
+    /**
+     * 每天凌晨3点清理超过保留时间的上传任务提交记录
+     */
+    @Scheduled(cron = "0 0 3 * * ?")
+    @SchedulerLock(name = "cleanupUploadTaskCommits", lockAtLeastFor = "PT5M", lockAtMostFor = "PT10M")
+    public void cleanupCommits() {
+        try {
+            int deleted = uploadTaskCommitRepository.deleteCreatedBefore(LocalDateTime.now().minus(uploadFinalizeProperties.getCommitRetention()));
+            logger.info("Deleted {} expired upload task commits", deleted);
+        } catch (Exception e) {
+            logger.error("清理上传任务提交记录失败", e);
+        }
+    }
+}
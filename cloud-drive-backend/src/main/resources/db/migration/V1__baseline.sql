@@ -0,0 +1,51 @@
+-- 基线表结构，与此前 ddl-auto: update 生成的结构一致
+-- 已有数据的库以 V1 为基线（spring.flyway.baseline-on-migrate），不会执行本脚本
+
+CREATE TABLE IF NOT EXISTS t_user (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    username    VARCHAR(50)  NOT NULL,
+    password    VARCHAR(100) NOT NULL,
+    email       VARCHAR(100) NOT NULL,
+    status      INT          NOT NULL,
+    create_time DATETIME(6)  NOT NULL,
+    update_time DATETIME(6)  NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_user_username UNIQUE (username),
+    CONSTRAINT uk_user_email UNIQUE (email)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS t_file_info (
+    id                BIGINT       NOT NULL AUTO_INCREMENT,
+    filename          VARCHAR(255) NOT NULL,
+    original_filename VARCHAR(255) NOT NULL,
+    path              VARCHAR(255) NOT NULL,
+    file_size         BIGINT       NOT NULL,
+    file_type         VARCHAR(255),
+    sha256_hash       VARCHAR(255),
+    user_id           BIGINT       NOT NULL,
+    parent_id         BIGINT,
+    isFolder          BIT          NOT NULL,
+    isDeleted         BIT          NOT NULL,
+    created_at        DATETIME(6),
+    updated_at        DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT fk_file_info_user FOREIGN KEY (user_id) REFERENCES t_user (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
+
+CREATE TABLE IF NOT EXISTS t_share_record (
+    id          BIGINT       NOT NULL AUTO_INCREMENT,
+    file_id     BIGINT       NOT NULL,
+    user_id     BIGINT       NOT NULL,
+    share_code  VARCHAR(255) NOT NULL,
+    password    VARCHAR(255),
+    expire_time DATETIME(6)  NOT NULL,
+    create_time DATETIME(6)  NOT NULL,
+    is_expired  BIT          NOT NULL,
+    visit_count INT          NOT NULL,
+    created_at  DATETIME(6),
+    updated_at  DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_share_record_code UNIQUE (share_code),
+    CONSTRAINT fk_share_record_file FOREIGN KEY (file_id) REFERENCES t_file_info (id),
+    CONSTRAINT fk_share_record_user FOREIGN KEY (user_id) REFERENCES t_user (id)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
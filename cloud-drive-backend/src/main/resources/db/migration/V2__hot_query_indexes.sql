@@ -0,0 +1,94 @@
+-- 热点查询所需的索引
+-- ALGORITHM=INPLACE, LOCK=NONE：在线建索引，期间不阻塞读写，条件不满足时直接报错而不是退化为锁表。
+-- 每个索引先检查是否已存在（此前 ddl-auto 可能已创建同名索引），脚本失败修复后可重复执行。
+-- 超大表可先用 gh-ost / pt-online-schema-change 建好同名索引，本脚本检测到已存在时跳过。
+
+-- 文件列表按名称分页；前缀 (user_id, parent_id, isDeleted) 同时用于按父文件夹查询子项、按名称查找同名文件夹
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_children_name') = 0,
+              'CREATE INDEX idx_file_children_name ON t_file_info (user_id, parent_id, isDeleted, filename, id) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 文件列表按大小分页
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_children_size') = 0,
+              'CREATE INDEX idx_file_children_size ON t_file_info (user_id, parent_id, isDeleted, file_size, id) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 文件列表按类型分页
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_children_type') = 0,
+              'CREATE INDEX idx_file_children_type ON t_file_info (user_id, parent_id, isDeleted, file_type, id) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 文件列表按修改时间分页
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_children_updated') = 0,
+              'CREATE INDEX idx_file_children_updated ON t_file_info (user_id, parent_id, isDeleted, updated_at, id) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 秒传与批量上传按内容哈希查重
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_user_sha256') = 0,
+              'CREATE INDEX idx_file_user_sha256 ON t_file_info (user_id, sha256_hash, isDeleted) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 删除文件时统计存储对象的引用数
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_path') = 0,
+              'CREATE INDEX idx_file_path ON t_file_info (path, isDeleted) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 删除文件夹前检查是否为空
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_parent') = 0,
+              'CREATE INDEX idx_file_parent ON t_file_info (parent_id, isDeleted) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 统计用户已用空间，覆盖索引不回表
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_user_usage') = 0,
+              'CREATE INDEX idx_file_user_usage ON t_file_info (user_id, isDeleted, isFolder, file_size) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 过期扫描：等值列在前，expire_time 范围扫描
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_share_record' AND index_name = 'idx_share_expire') = 0,
+              'CREATE INDEX idx_share_expire ON t_share_record (is_expired, expire_time) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 按创建时间倒序列出用户的分享
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_share_record' AND index_name = 'idx_share_user_created') = 0,
+              'CREATE INDEX idx_share_user_created ON t_share_record (user_id, create_time) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,69 @@
+-- 文件树的祖先路径：由根到父项的ID组成，如 /12/57/，根目录下的项为 /
+-- 子树查询、移动按前缀匹配 (user_id, ancestor_path) 索引，一条语句完成，不再逐层递归查询。
+-- 只含数字与 /，使用 ascii 字符集，2000 字节与 user_id 一起在 InnoDB 索引长度上限之内。
+
+-- 先检查列是否已存在，脚本失败修复后可重复执行；MySQL 8 在表尾追加可空列为即时操作，不重建表
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND column_name = 'ancestor_path') = 0,
+              'ALTER TABLE t_file_info ADD COLUMN ancestor_path VARCHAR(2000) CHARACTER SET ascii COLLATE ascii_bin NULL, ALGORITHM=INSTANT',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 由 parent_id 分批回填已有数据，每批按主键区间更新并立即提交，不在一个大事务中锁住整张表。
+-- 每一轮回填父项已有祖先路径的行，没有父项或父项已不存在的行挂到根目录下，每轮至少向下推进一层，直到某一轮没有可回填的行。
+-- 只处理仍为空的行，中断后重新执行从断点继续。
+DROP PROCEDURE IF EXISTS backfill_ancestor_path;
+
+DELIMITER //
+CREATE PROCEDURE backfill_ancestor_path()
+BEGIN
+    DECLARE batch_size BIGINT DEFAULT 10000;
+    DECLARE min_id BIGINT;
+    DECLARE max_id BIGINT;
+    DECLARE lo BIGINT;
+    DECLARE filled BIGINT DEFAULT 1;
+
+    SELECT MIN(id), MAX(id) INTO min_id, max_id FROM t_file_info;
+
+    WHILE min_id IS NOT NULL AND filled > 0 DO
+        SET filled = 0;
+        SET lo = min_id;
+        WHILE lo <= max_id DO
+            UPDATE t_file_info c
+                LEFT JOIN t_file_info p ON c.parent_id = p.id
+            SET c.ancestor_path = IF(p.id IS NULL, '/', CONCAT(p.ancestor_path, p.id, '/'))
+            WHERE c.id BETWEEN lo AND lo + batch_size - 1
+              AND c.ancestor_path IS NULL
+              AND (p.id IS NULL OR p.ancestor_path IS NOT NULL);
+            SET filled = filled + ROW_COUNT();
+            COMMIT;
+            SET lo = lo + batch_size;
+        END WHILE;
+    END WHILE;
+
+    -- 仍为空的行 parent_id 成环（数据损坏），挂到根目录下
+    SET lo = min_id;
+    WHILE min_id IS NOT NULL AND lo <= max_id DO
+        UPDATE t_file_info SET ancestor_path = '/'
+        WHERE id BETWEEN lo AND lo + batch_size - 1 AND ancestor_path IS NULL;
+        COMMIT;
+        SET lo = lo + batch_size;
+    END WHILE;
+END //
+DELIMITER ;
+
+CALL backfill_ancestor_path();
+DROP PROCEDURE backfill_ancestor_path;
+
+ALTER TABLE t_file_info MODIFY ancestor_path VARCHAR(2000) CHARACTER SET ascii COLLATE ascii_bin NOT NULL, ALGORITHM=INPLACE, LOCK=NONE;
+
+-- 子树查询与移动
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND index_name = 'idx_file_subtree') = 0,
+              'CREATE INDEX idx_file_subtree ON t_file_info (user_id, ancestor_path) ALGORITHM=INPLACE LOCK=NONE',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,10 @@
+-- 上传收尾任务的提交记录
+-- 与文件记录在同一事务内写入，收尾任务被重复投递（消费者超时被接管、确认前崩溃）时据此跳过，不会重复创建文件记录。
+-- 记录只需覆盖任务可能被重新投递的时间，过期后由定时任务清理。
+CREATE TABLE IF NOT EXISTS t_upload_task_commit (
+    task_id    VARCHAR(64) NOT NULL,
+    file_id    BIGINT      NOT NULL,
+    created_at DATETIME(6),
+    PRIMARY KEY (task_id),
+    INDEX idx_upload_task_commit_created (created_at)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
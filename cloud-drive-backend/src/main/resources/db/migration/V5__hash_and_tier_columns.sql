@@ -0,0 +1,34 @@
+-- 树哈希、分块摘要与用户流量等级
+-- V1 为引入这些字段之前的基线，已有库以 V1 为基线不会执行它，字段和表由本脚本补齐。
+-- 每一项先检查是否已存在（此前 ddl-auto 或早期版本的 V1 可能已创建），脚本失败修复后可重复执行。
+-- 新增的都是可空列且位于表尾，ALGORITHM=INSTANT 只修改元数据，不重建表。
+
+-- 用户流量等级，为空时使用默认等级
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 't_user' AND column_name = 'tier') = 0,
+              'ALTER TABLE t_user ADD COLUMN tier VARCHAR(20), ALGORITHM=INSTANT',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 大文件的 Merkle 树根哈希
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 't_file_info' AND column_name = 'tree_hash') = 0,
+              'ALTER TABLE t_file_info ADD COLUMN tree_hash VARCHAR(64), ALGORITHM=INSTANT',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- 按文件内容存储的树哈希叶子节点
+CREATE TABLE IF NOT EXISTS t_file_chunk_digest (
+    id          BIGINT      NOT NULL AUTO_INCREMENT,
+    sha256_hash VARCHAR(64) NOT NULL,
+    chunk_index INT         NOT NULL,
+    chunk_size  INT         NOT NULL,
+    digest      VARCHAR(64) NOT NULL,
+    created_at  DATETIME(6),
+    PRIMARY KEY (id),
+    CONSTRAINT uk_chunk_digest_hash_index UNIQUE (sha256_hash, chunk_index)
+) ENGINE = InnoDB DEFAULT CHARSET = utf8mb4;
@@ -0,0 +1,61 @@
+package com.cloudrive.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运行 benchmark 包下的 JMH 基准，附带 GC profiler
+ * 额外参数按 JMH 命令行格式传入，例如 -p size=1048576 -f 0
+ * 结束后按 size 参数把吞吐量换算为 MB/s，并输出每次操作的分配字节数（gc.alloc.rate.norm）
+ */
+public class BenchmarkRunner {
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        Options options = new OptionsBuilder()
+                .parent(new CommandLineOptions(args))
+                .include(BenchmarkRunner.class.getPackageName() + ".*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        Collection<RunResult> results = new Runner(options).run();
+
+        System.out.println();
+        System.out.printf("%-40s %12s %12s %16s%n", "Benchmark", "size", "MB/s", "alloc B/op");
+        for (RunResult result : results) {
+            String benchmark = result.getParams().getBenchmark();
+            String size = result.getParams().getParam("size");
+            Result<?> primary = result.getPrimaryResult();
+            double opsPerSecond = primary.getScore() * TimeUnit.SECONDS.toNanos(1) / unitNanos(primary.getScoreUnit());
+            String megabytesPerSecond = size != null
+                    ? String.format("%.1f", opsPerSecond * Long.parseLong(size) / (1024 * 1024))
+                    : "-";
+            Result<?> allocation = result.getSecondaryResults().get("gc.alloc.rate.norm");
+            String allocated = allocation != null ? String.format("%.0f", allocation.getScore()) : "-";
+            System.out.printf("%-40s %12s %12s %16s%n", benchmark.substring(benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1),
+                    size != null ? size : "-", megabytesPerSecond, allocated);
+        }
+    }
+
+    /**
+     * 吞吐量单位（如 ops/s、ops/ms）对应的纳秒数
+     */
+    private static double unitNanos(String scoreUnit) {
+        String unit = scoreUnit.substring(scoreUnit.indexOf('/') + 1);
+        return switch (unit) {
+            case "ns" -> 1;
+            case "us" -> TimeUnit.MICROSECONDS.toNanos(1);
+            case "ms" -> TimeUnit.MILLISECONDS.toNanos(1);
+            case "min" -> TimeUnit.MINUTES.toNanos(1);
+            default -> TimeUnit.SECONDS.toNanos(1);
+        };
+    }
+}
@@ -0,0 +1,42 @@
+package com.cloudrive.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CountMinSketchTest {
+
+    @Test
+    void murmur3MatchesReferenceVectors() {
+        assertThat(CountMinSketch.murmur3(new byte[0], 0)).isZero();
+        assertThat(CountMinSketch.murmur3(new byte[0], 1)).isEqualTo(0x514E28B7);
+        assertThat(CountMinSketch.murmur3("hello".getBytes(StandardCharsets.UTF_8), 0)).isEqualTo(0x248BFA47);
+        assertThat(CountMinSketch.murmur3("The quick brown fox jumps over the lazy dog".getBytes(StandardCharsets.UTF_8), 0x9747B28C))
+                .isEqualTo(0x2FA826CD);
+    }
+
+    @Test
+    void estimateNeverUnderCounts() {
+        CountMinSketch sketch = new CountMinSketch(4, 64);
+        for (int i = 0; i < 500; i++) {
+            sketch.increment("share-" + (i % 50));
+        }
+        for (int i = 0; i < 50; i++) {
+            assertThat(sketch.estimate("share-" + i)).isGreaterThanOrEqualTo(10);
+        }
+    }
+
+    @Test
+    void stringHashCodeCollisionsDoNotShareCounters() {
+        // "Aa" 与 "BB" 的 String.hashCode 相同，按字节独立哈希后不应在所有行冲突
+        assertThat("Aa".hashCode()).isEqualTo("BB".hashCode());
+        CountMinSketch sketch = new CountMinSketch(4, 1024);
+        for (int i = 0; i < 100; i++) {
+            sketch.increment("Aa");
+        }
+        assertThat(sketch.estimate("Aa")).isEqualTo(100);
+        assertThat(sketch.estimate("BB")).isZero();
+    }
+}
@@ -0,0 +1,131 @@
+package com.cloudrive.common.util;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.model.vo.BlockSignatureVO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeltaUtilTest {
+
+    private static final int BLOCK_SIZE = 16;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void rollingChecksumMatchesFullComputation() {
+        byte[] data = new byte[256];
+        new Random(42).nextBytes(data);
+        int checksum = DeltaUtil.weakChecksum(data, 0, BLOCK_SIZE);
+        for (int i = 1; i + BLOCK_SIZE <= data.length; i++) {
+            checksum = DeltaUtil.roll(checksum, data[i - 1], data[i + BLOCK_SIZE - 1], BLOCK_SIZE);
+            assertThat(checksum).isEqualTo(DeltaUtil.weakChecksum(data, i, BLOCK_SIZE));
+        }
+    }
+
+    @Test
+    void signaturesCoverEveryBlockIncludingShortTail() throws IOException {
+        byte[] data = new byte[BLOCK_SIZE * 2 + 5];
+        List<BlockSignatureVO> signatures = DeltaUtil.computeSignatures(new ByteArrayInputStream(data), BLOCK_SIZE);
+        assertThat(signatures).hasSize(3);
+        assertThat(signatures.get(2).getWeak()).isEqualTo(DeltaUtil.weakChecksum(data, BLOCK_SIZE * 2, 5));
+    }
+
+    @Test
+    void rebuildsFromCopiesAndLiterals() throws IOException {
+        byte[] baseData = "0123456789abcdefGHIJKLMNOPQRSTUVxyz".getBytes();
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        DataOutputStream ops = new DataOutputStream(delta);
+        ops.writeByte(DeltaUtil.OP_COPY);
+        ops.writeInt(1);
+        ops.writeByte(DeltaUtil.OP_LITERAL);
+        ops.writeInt(3);
+        ops.write("new".getBytes());
+        ops.writeByte(DeltaUtil.OP_COPY);
+        ops.writeInt(2);
+        ops.writeByte(DeltaUtil.OP_END);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written;
+        try (RandomAccessFile base = baseFile(baseData)) {
+            written = DeltaUtil.applyDelta(base, BLOCK_SIZE, new ByteArrayInputStream(delta.toByteArray()), out, Long.MAX_VALUE);
+        }
+        assertThat(out.toString()).isEqualTo("GHIJKLMNOPQRSTUVnewxyz");
+        assertThat(written).isEqualTo(out.size());
+    }
+
+    @Test
+    void repeatedCopiesStopAtOutputLimit() throws IOException {
+        // 五个字节的引用即可写出一整块，不限制时几 KB 的增量能写满磁盘
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        DataOutputStream ops = new DataOutputStream(delta);
+        for (int i = 0; i < 1000; i++) {
+            ops.writeByte(DeltaUtil.OP_COPY);
+            ops.writeInt(0);
+        }
+        ops.writeByte(DeltaUtil.OP_END);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RandomAccessFile base = baseFile(new byte[BLOCK_SIZE])) {
+            assertThatThrownBy(() -> DeltaUtil.applyDelta(base, BLOCK_SIZE, new ByteArrayInputStream(delta.toByteArray()), out, BLOCK_SIZE * 10L))
+                    .isInstanceOf(BusinessException.class)
+                    .extracting("code").isEqualTo(ErrorCode.FILE_TOO_LARGE.getCode());
+        }
+        assertThat(out.size()).isLessThanOrEqualTo(BLOCK_SIZE * 10);
+    }
+
+    @Test
+    void literalBeyondLimitIsRejectedBeforeWriting() throws IOException {
+        ByteArrayOutputStream delta = new ByteArrayOutputStream();
+        DataOutputStream ops = new DataOutputStream(delta);
+        ops.writeByte(DeltaUtil.OP_LITERAL);
+        ops.writeInt(100);
+        ops.write(new byte[100]);
+        ops.writeByte(DeltaUtil.OP_END);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (RandomAccessFile base = baseFile(new byte[BLOCK_SIZE])) {
+            assertThatThrownBy(() -> DeltaUtil.applyDelta(base, BLOCK_SIZE, new ByteArrayInputStream(delta.toByteArray()), out, 50))
+                    .isInstanceOf(BusinessException.class)
+                    .extracting("code").isEqualTo(ErrorCode.FILE_TOO_LARGE.getCode());
+        }
+        assertThat(out.size()).isZero();
+    }
+
+    @Test
+    void rejectsOutOfRangeBlockAndMissingEndMarker() throws IOException {
+        ByteArrayOutputStream outOfRange = new ByteArrayOutputStream();
+        DataOutputStream ops = new DataOutputStream(outOfRange);
+        ops.writeByte(DeltaUtil.OP_COPY);
+        ops.writeInt(5);
+
+        try (RandomAccessFile base = baseFile(new byte[BLOCK_SIZE])) {
+            assertThatThrownBy(() -> DeltaUtil.applyDelta(base, BLOCK_SIZE, new ByteArrayInputStream(outOfRange.toByteArray()), new ByteArrayOutputStream(), Long.MAX_VALUE))
+                    .isInstanceOf(BusinessException.class)
+                    .extracting("code").isEqualTo(ErrorCode.INVALID_DELTA.getCode());
+            assertThatThrownBy(() -> DeltaUtil.applyDelta(base, BLOCK_SIZE, new ByteArrayInputStream(new byte[0]), new ByteArrayOutputStream(), Long.MAX_VALUE))
+                    .isInstanceOf(BusinessException.class)
+                    .extracting("code").isEqualTo(ErrorCode.INVALID_DELTA.getCode());
+        }
+    }
+
+    private RandomAccessFile baseFile(byte[] content) throws IOException {
+        Path file = Files.createTempFile(tempDir, "base", ".bin");
+        Files.write(file, content);
+        return new RandomAccessFile(file.toFile(), "r");
+    }
+}
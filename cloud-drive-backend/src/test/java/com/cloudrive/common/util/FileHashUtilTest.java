@@ -0,0 +1,35 @@
+package com.cloudrive.common.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileHashUtilTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void singlePassMatchesSeparateHashes() throws IOException {
+        Random random = new Random(42);
+        // 空文件、不足一块、恰好整块、块大小与读缓冲区不对齐
+        int[][] cases = {{0, 1000}, {700, 1000}, {4000, 1000}, {600_000, 100_000}, {1_000_003, 300_001}};
+        for (int[] c : cases) {
+            byte[] content = new byte[c[0]];
+            random.nextBytes(content);
+            File file = Files.write(tempDir.resolve("f" + c[0]), content).toFile();
+
+            FileHashUtil.FileHashes hashes = FileHashUtil.calculateHashes(file, c[1]);
+            FileHashUtil.TreeHash expected = FileHashUtil.calculateTreeHash(file, c[1]);
+            assertThat(hashes.getSha256Hash()).as("size %d", c[0]).isEqualTo(FileHashUtil.calculateSHA256(file));
+            assertThat(hashes.getTreeHash()).as("size %d", c[0]).isEqualTo(expected);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.cloudrive.common.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParallelRangeInputStreamTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void readsAllRangesInOrder() throws IOException {
+        byte[] data = new byte[10_000];
+        new Random(7).nextBytes(data);
+
+        try (ParallelRangeInputStream in = new ParallelRangeInputStream(data.length, 333, 3,
+                (start, end) -> Arrays.copyOfRange(data, (int) start, (int) end + 1), executor, null)) {
+            assertThat(in.readAllBytes()).isEqualTo(data);
+        }
+    }
+
+    @Test
+    void holdsAtMostWindowPlusCurrentChunk() throws IOException {
+        AtomicInteger fetches = new AtomicInteger();
+        // 同步执行拉取，拉取次数即持有的分段数
+        try (ParallelRangeInputStream in = new ParallelRangeInputStream(100, 10, 3, (start, end) -> {
+            fetches.incrementAndGet();
+            return new byte[(int) (end - start + 1)];
+        }, Runnable::run, null)) {
+            in.read();
+            assertThat(fetches).hasValue(3 + 1);
+            in.readNBytes(9);
+            assertThat(fetches).hasValue(3 + 1);
+            in.read();
+            assertThat(fetches).hasValue(3 + 2);
+        }
+    }
+
+    @Test
+    void shortRangeFailsTheRead() {
+        ParallelRangeInputStream in = new ParallelRangeInputStream(100, 10, 2, (start, end) -> new byte[1], executor, null);
+
+        assertThatThrownBy(in::read).isInstanceOf(IOException.class).hasMessageContaining("Short range read");
+    }
+
+    @Test
+    void onCloseWaitsForInFlightFetches() throws Exception {
+        CountDownLatch fetchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFetch = new CountDownLatch(1);
+        CountDownLatch closed = new CountDownLatch(1);
+        ParallelRangeInputStream in = new ParallelRangeInputStream(20, 10, 2, (start, end) -> {
+            if (start == 10) {
+                fetchStarted.countDown();
+                try {
+                    releaseFetch.await();
+                } catch (InterruptedException e) {
+                    throw new IOException(e);
+                }
+            }
+            return new byte[(int) (end - start + 1)];
+        }, executor, closed::countDown);
+
+        in.read();
+        assertThat(fetchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+        in.close();
+        // 第二个分段仍在拉取，客户端和名额不能释放
+        assertThat(closed.await(200, TimeUnit.MILLISECONDS)).isFalse();
+
+        releaseFetch.countDown();
+        assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void queuedFetchesAreSkippedAfterClose() throws Exception {
+        ExecutorService single = Executors.newSingleThreadExecutor();
+        CountDownLatch blocker = new CountDownLatch(1);
+        single.execute(() -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        AtomicInteger fetches = new AtomicInteger();
+        CountDownLatch closed = new CountDownLatch(1);
+        ParallelRangeInputStream in = new ParallelRangeInputStream(40, 10, 4, (start, end) -> {
+            fetches.incrementAndGet();
+            return new byte[(int) (end - start + 1)];
+        }, single, closed::countDown);
+
+        // 读取会排队拉取请求；在拉取线程空出之前关闭
+        Thread reader = new Thread(() -> {
+            try {
+                in.read();
+            } catch (IOException ignored) {
+                // 关闭后读取失败是预期的
+            }
+        });
+        reader.start();
+        Thread.sleep(100);
+        in.close();
+        blocker.countDown();
+
+        assertThat(closed.await(5, TimeUnit.SECONDS)).isTrue();
+        single.shutdownNow();
+        reader.join(5000);
+        assertThat(fetches.get()).isLessThanOrEqualTo(1);
+    }
+}
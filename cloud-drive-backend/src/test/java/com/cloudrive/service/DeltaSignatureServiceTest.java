@@ -0,0 +1,82 @@
+package com.cloudrive.service;
+
+import com.cloudrive.config.properties.DeltaUploadProperties;
+import com.cloudrive.model.vo.BlockSignatureVO;
+import com.cloudrive.redis.DeltaSignatureRedis;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.redisson.api.RLock;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 块签名按内容哈希缓存：命中时不再计算，Redis 不可用时直接计算
+ */
+class DeltaSignatureServiceTest {
+
+    private DeltaSignatureRedis redis;
+    private DeltaUploadProperties properties;
+    private DeltaSignatureService service;
+    private final AtomicInteger computed = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        redis = mock(DeltaSignatureRedis.class);
+        RLock lock = mock(RLock.class);
+        when(lock.tryLock(anyLong(), anyLong(), any())).thenReturn(true);
+        when(redis.getLoadLock(anyString(), anyInt())).thenReturn(lock);
+        when(redis.get(anyString(), anyInt())).thenReturn(null);
+        properties = new DeltaUploadProperties();
+        service = new DeltaSignatureService(redis, properties);
+    }
+
+    @Test
+    void computesOnceAndServesFromCache() {
+        List<BlockSignatureVO> blocks = compute();
+        // 加锁前后两次未命中，回填后命中
+        when(redis.get("abc", 64)).thenReturn(null, null, blocks);
+
+        assertThat(service.getSignatures("abc", 64, this::compute)).hasSize(2);
+        verify(redis).set("abc", 64, blocks, properties.getSignatureTtl());
+        assertThat(service.getSignatures("abc", 64, this::compute)).isEqualTo(blocks);
+        // compute() 在 stub 准备时调用过一次
+        assertThat(computed).hasValue(2);
+    }
+
+    @Test
+    void skipsCacheWithoutHashOrForLargeFiles() {
+        assertThat(service.getSignatures(null, 64, this::compute)).hasSize(2);
+        properties.setSignatureMaxCachedBlocks(1);
+        assertThat(service.getSignatures("abc", 64, this::compute)).hasSize(2);
+        verify(redis, never()).set(anyString(), anyInt(), any(), any(Duration.class));
+    }
+
+    @Test
+    void computesDirectlyWhenRedisFails() {
+        when(redis.get(anyString(), anyInt())).thenThrow(new IllegalStateException("down"));
+        when(redis.getLoadLock(anyString(), anyInt())).thenThrow(new IllegalStateException("down"));
+
+        assertThat(service.getSignatures("abc", 64, this::compute)).hasSize(2);
+    }
+
+    private List<BlockSignatureVO> compute() {
+        computed.incrementAndGet();
+        BlockSignatureVO first = new BlockSignatureVO();
+        first.setIndex(0);
+        BlockSignatureVO second = new BlockSignatureVO();
+        second.setIndex(1);
+        return List.of(first, second);
+    }
+}
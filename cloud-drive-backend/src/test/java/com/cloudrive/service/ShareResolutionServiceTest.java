@@ -0,0 +1,86 @@
+package com.cloudrive.service;
+
+import com.cloudrive.config.properties.ShareCacheProperties;
+import com.cloudrive.mapper.ShareMapper;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.entity.ShareRecord;
+import com.cloudrive.model.vo.ResolvedShareVO;
+import com.cloudrive.redis.ShareResolutionRedis;
+import com.cloudrive.repository.ShareRecordRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShareResolutionServiceTest {
+
+    private static final String CODE = "abc123";
+
+    private ShareRecordRepository shareRecordRepository;
+    private ShareResolutionRedis shareResolutionRedis;
+    private ShareMapper shareMapper;
+    private ShareResolutionService service;
+
+    @BeforeEach
+    void setUp() {
+        shareRecordRepository = mock(ShareRecordRepository.class);
+        shareResolutionRedis = mock(ShareResolutionRedis.class);
+        shareMapper = mock(ShareMapper.class);
+        service = new ShareResolutionService(shareRecordRepository, shareResolutionRedis, shareMapper, new ShareCacheProperties(), new SimpleMeterRegistry());
+        service.init();
+    }
+
+    @Test
+    void cachesLoadWhenGenerationIsUnchanged() {
+        ResolvedShareVO current = share("a.txt");
+        when(shareResolutionRedis.getGeneration(CODE)).thenReturn(3L);
+
+        assertThat(service.resolve(CODE)).isSameAs(current);
+        verify(shareResolutionRedis).set(any(), any());
+        verify(shareResolutionRedis, never()).delete(CODE);
+    }
+
+    @Test
+    void withdrawsLoadRacingAnInvalidation() {
+        ResolvedShareVO stale = share("old.txt");
+        ResolvedShareVO fresh = share("new.txt");
+        // 第一次查询读到旧值，回填后发现代数已被并发的失效递增
+        when(shareMapper.toResolvedShareVO(any())).thenReturn(stale, fresh);
+        when(shareResolutionRedis.getGeneration(CODE)).thenReturn(3L, 4L);
+
+        assertThat(service.resolve(CODE)).isSameAs(fresh);
+        var order = inOrder(shareResolutionRedis);
+        order.verify(shareResolutionRedis).set(stale, new ShareCacheProperties().getRedisTtl());
+        order.verify(shareResolutionRedis).delete(CODE);
+    }
+
+    @Test
+    void invalidationBumpsGenerationBeforeDeleting() {
+        service.invalidate(CODE);
+
+        var order = inOrder(shareResolutionRedis);
+        order.verify(shareResolutionRedis).incrementGeneration(any(), any());
+        order.verify(shareResolutionRedis).delete(CODE);
+        order.verify(shareResolutionRedis).publishInvalidation(CODE);
+    }
+
+    private ResolvedShareVO share(String filename) {
+        ShareRecord record = new ShareRecord();
+        record.setFile(new FileInfo());
+        when(shareRecordRepository.findWithFileByShareCode(CODE)).thenReturn(Optional.of(record));
+        ResolvedShareVO resolved = new ResolvedShareVO();
+        resolved.setShareCode(CODE);
+        resolved.setFilename(filename);
+        when(shareMapper.toResolvedShareVO(record)).thenReturn(resolved);
+        return resolved;
+    }
+}
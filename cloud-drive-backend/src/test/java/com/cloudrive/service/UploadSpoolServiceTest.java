@@ -0,0 +1,125 @@
+package com.cloudrive.service;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.config.properties.SpoolProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UploadSpoolServiceTest {
+
+    private static final long OLD = System.currentTimeMillis() - Duration.ofDays(2).toMillis();
+
+    @TempDir
+    Path spoolDir;
+
+    private UploadSpoolService nodeA;
+    private UploadSpoolService nodeB;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        nodeA = node("node-a");
+        nodeB = node("node-b");
+    }
+
+    @Test
+    void keepsActiveFilesOfOtherLiveNodes() throws IOException {
+        File active = write(nodeB.allocate(0));
+        File orphan = write(new File(spoolDir.toFile(), "node-b_0123.part"));
+
+        nodeA.sweepOrphans();
+        assertThat(active).exists();
+        assertThat(orphan).exists();
+
+        nodeB.sweepOrphans();
+        assertThat(active).exists();
+        assertThat(orphan).doesNotExist();
+    }
+
+    @Test
+    void sweepsFilesOfNodesWhoseHeartbeatExpired() throws IOException {
+        File abandoned = write(nodeB.allocate(0));
+        assertThat(spoolDir.resolve("node-b.alive").toFile().setLastModified(OLD)).isTrue();
+
+        nodeA.sweepOrphans();
+        assertThat(abandoned).doesNotExist();
+        assertThat(spoolDir.resolve("node-b.alive")).doesNotExist();
+        assertThat(spoolDir.resolve("node-a.alive")).exists();
+    }
+
+    @Test
+    void stagedFilesExpireOnlyAfterStagedTtl() throws IOException {
+        File spooled = nodeB.allocate(0);
+        Files.write(spooled.toPath(), new byte[]{1});
+        String staged = nodeB.stage(spooled);
+        File stagedFile = nodeA.resolveStaged(staged);
+
+        nodeA.sweepOrphans();
+        assertThat(stagedFile).exists();
+
+        assertThat(stagedFile.setLastModified(OLD - Duration.ofDays(1).toMillis())).isTrue();
+        nodeA.sweepOrphans();
+        assertThat(stagedFile).doesNotExist();
+    }
+
+    @Test
+    void adjustsReservationToActualSize() {
+        File file = nodeA.allocate(100);
+        assertThat(nodeA.getReservedBytes()).isEqualTo(100);
+
+        nodeA.adjustReservation(file, 10);
+        assertThat(nodeA.getReservedBytes()).isEqualTo(10);
+
+        nodeA.release(file);
+        nodeA.adjustReservation(file, 50);
+        assertThat(nodeA.getReservedBytes()).isZero();
+    }
+
+    @Test
+    void extendsReservationThroughAdmission() {
+        File file = nodeA.allocate(100);
+        nodeA.extendReservation(file, 300);
+        assertThat(nodeA.getReservedBytes()).isEqualTo(300);
+
+        // 不会缩小预留
+        nodeA.extendReservation(file, 200);
+        assertThat(nodeA.getReservedBytes()).isEqualTo(300);
+
+        // 超出剩余空间时拒绝，预留保持不变
+        assertThatThrownBy(() -> nodeA.extendReservation(file, Long.MAX_VALUE / 2))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(ErrorCode.SPOOL_SPACE_INSUFFICIENT.getCode());
+        assertThat(nodeA.getReservedBytes()).isEqualTo(300);
+
+        nodeA.release(file);
+        assertThat(nodeA.getReservedBytes()).isZero();
+    }
+
+    private UploadSpoolService node(String nodeId) throws IOException {
+        SpoolProperties properties = new SpoolProperties();
+        properties.setDir(spoolDir.toString());
+        properties.setNodeId(nodeId);
+        properties.setMinFreeBytes(0);
+        properties.setAdmissionTimeout(Duration.ofMillis(10));
+        UploadSpoolService service = new UploadSpoolService(properties, new SimpleMeterRegistry());
+        service.init();
+        return service;
+    }
+
+    private static File write(File file) throws IOException {
+        Files.write(file.toPath(), new byte[]{1});
+        assertThat(file.setLastModified(OLD)).isTrue();
+        return file;
+    }
+}
@@ -0,0 +1,177 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.enums.FileSortField;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.util.UserContext;
+import com.cloudrive.config.properties.ListingQueryProperties;
+import com.cloudrive.mapper.FileMapper;
+import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.FileListVO;
+import com.cloudrive.model.vo.FilePageVO;
+import com.cloudrive.repository.FileChunkDigestRepository;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.repository.UploadTaskCommitRepository;
+import com.cloudrive.repository.UserRepository;
+import com.cloudrive.service.FileListCacheService;
+import com.cloudrive.service.QuotaService;
+import com.cloudrive.service.ReadCoalescingService;
+import com.cloudrive.service.ShareResolutionService;
+import com.cloudrive.service.StorageServiceFactory;
+import com.cloudrive.service.UploadCoalescingService;
+import com.cloudrive.service.UploadProgressService;
+import com.cloudrive.service.UploadTransactionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+/**
+ * 文件列表的游标分页：逐页读取与一次读取的结果一致，排序值并列或为空时不重复、不遗漏
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:file_list;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ListingQueryProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FileServiceImplListFilesTest {
+
+    private static final int CHILDREN = 25;
+
+    @MockBean
+    private FileListCacheService fileListCacheService;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private FileServiceImpl fileService;
+    private MockedStatic<UserContext> userContext;
+    private Long parentId;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM t_file_info");
+        jdbcTemplate.update("DELETE FROM t_user");
+
+        // 缓存直接调用加载函数
+        when(fileListCacheService.get(any(), any(), any(), any()))
+                .thenAnswer(invocation -> invocation.<Supplier<FilePageVO>>getArgument(3).get());
+        fileService = new FileServiceImpl(mock(StorageServiceFactory.class), fileInfoRepository, userRepository,
+                mock(FileMapper.class), mock(UploadProgressService.class), mock(FileChunkDigestRepository.class),
+                mock(UploadCoalescingService.class), mock(UploadTransactionService.class), mock(ShareResolutionService.class),
+                mock(ReadCoalescingService.class), fileListCacheService, mock(UploadTaskCommitRepository.class), mock(QuotaService.class));
+
+        User created = new User();
+        created.setUsername("lister");
+        created.setPassword("secret");
+        created.setEmail("lister@example.com");
+        created.setStatus(1);
+        Long userId = userRepository.save(created).getId();
+        userContext = mockStatic(UserContext.class);
+        userContext.when(UserContext::getCurrentUserId).thenReturn(userId);
+
+        parentId = insert(userId, null, "parent", 0L, null, LocalDateTime.of(2024, 1, 1, 0, 0));
+        LocalDateTime base = LocalDateTime.of(2024, 6, 1, 12, 0);
+        for (int i = 0; i < CHILDREN; i++) {
+            // 名称、大小、修改时间都有并列，类型有一部分为空
+            insert(userId, parentId, "name" + (i % 7), (long) (i % 5) * 1024, i % 3 == 0 ? null : "type" + (i % 4), base.plusMinutes(i % 6));
+        }
+        // 其他文件夹下的项不应出现
+        insert(userId, null, "other", 1L, "type1", base);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userContext.close();
+    }
+
+    @Test
+    void pagesMatchSingleReadForEverySortAndDirection() {
+        for (FileSortField sort : FileSortField.values()) {
+            for (boolean descending : new boolean[]{false, true}) {
+                List<Long> all = ids(fileService.listFiles(parentId, sort, descending, null, 1000).getItems());
+                assertThat(all).as("%s %s", sort, descending).hasSize(CHILDREN).doesNotHaveDuplicates();
+
+                List<Long> paged = new ArrayList<>();
+                String cursor = null;
+                do {
+                    FilePageVO page = fileService.listFiles(parentId, sort, descending, cursor, 4);
+                    assertThat(page.getItems()).hasSizeLessThanOrEqualTo(4);
+                    paged.addAll(ids(page.getItems()));
+                    cursor = page.isHasMore() ? page.getNextCursor() : null;
+                } while (cursor != null);
+
+                assertThat(paged).as("%s %s", sort, descending).isEqualTo(all);
+            }
+        }
+    }
+
+    @Test
+    void rejectsCursorFromAnotherOrderOrMalformed() {
+        String nameCursor = fileService.listFiles(parentId, FileSortField.NAME, false, null, 4).getNextCursor();
+
+        assertThatThrownBy(() -> fileService.listFiles(parentId, FileSortField.SIZE, false, nameCursor, 4))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(ErrorCode.INVALID_CURSOR.getCode());
+        assertThatThrownBy(() -> fileService.listFiles(parentId, FileSortField.NAME, true, nameCursor, 4))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(ErrorCode.INVALID_CURSOR.getCode());
+        assertThatThrownBy(() -> fileService.listFiles(parentId, FileSortField.NAME, false, "%%%", 4))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(ErrorCode.INVALID_CURSOR.getCode());
+        String badValue = Base64.getUrlEncoder().withoutPadding().encodeToString("SIZE:a:1:=abc".getBytes(StandardCharsets.UTF_8));
+        assertThatThrownBy(() -> fileService.listFiles(parentId, FileSortField.SIZE, false, badValue, 4))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(ErrorCode.INVALID_CURSOR.getCode());
+    }
+
+    private Long insert(Long userId, Long parent, String filename, Long size, String type, LocalDateTime updatedAt) {
+        jdbcTemplate.update("INSERT INTO t_file_info (filename, original_filename, path, file_size, file_type, user_id, parent_id, "
+                        + "isFolder, isDeleted, created_at, updated_at, ancestor_path) VALUES (?, ?, ?, ?, ?, ?, ?, ?, false, ?, ?, ?)",
+                filename, filename, "", size, type, userId, parent, parent == null, Timestamp.valueOf(updatedAt), Timestamp.valueOf(updatedAt),
+                parent == null ? "/" : "/" + parent + "/");
+        return jdbcTemplate.queryForObject("SELECT MAX(id) FROM t_file_info", Long.class);
+    }
+
+    private static List<Long> ids(List<FileListVO> items) {
+        return items.stream().map(FileListVO::getId).toList();
+    }
+}
@@ -0,0 +1,232 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.common.util.UserContext;
+import com.cloudrive.config.properties.ListingQueryProperties;
+import com.cloudrive.mapper.FileMapper;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.entity.User;
+import com.cloudrive.repository.FileChunkDigestRepository;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.repository.UploadTaskCommitRepository;
+import com.cloudrive.repository.UserRepository;
+import com.cloudrive.service.FileListCacheService;
+import com.cloudrive.service.QuotaService;
+import com.cloudrive.service.ReadCoalescingService;
+import com.cloudrive.service.ShareResolutionService;
+import com.cloudrive.service.StorageServiceFactory;
+import com.cloudrive.service.UploadCoalescingService;
+import com.cloudrive.service.UploadProgressService;
+import com.cloudrive.service.UploadTransactionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+
+/**
+ * 并发移动文件夹：祖先路径与 parent_id 保持一致，不会形成环
+ * H2 的可重复读是快照隔离，加锁读取遇到快照后被修改的行直接报错，与 InnoDB 读取最新提交版本不同，这里使用默认的读已提交
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:file_move;MODE=MySQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ListingQueryProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FileServiceImplMoveTest {
+
+    @MockBean
+    private FileListCacheService fileListCacheService;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private FileServiceImpl fileService;
+    private TransactionTemplate transactionTemplate;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM t_file_info");
+        jdbcTemplate.update("DELETE FROM t_user");
+
+        fileService = new FileServiceImpl(mock(StorageServiceFactory.class), fileInfoRepository, userRepository,
+                mock(FileMapper.class), mock(UploadProgressService.class), mock(FileChunkDigestRepository.class),
+                mock(UploadCoalescingService.class), mock(UploadTransactionService.class), mock(ShareResolutionService.class),
+                mock(ReadCoalescingService.class), fileListCacheService, mock(UploadTaskCommitRepository.class), mock(QuotaService.class));
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        User created = new User();
+        created.setUsername("mover");
+        created.setPassword("secret");
+        created.setEmail("mover@example.com");
+        created.setStatus(1);
+        user = userRepository.save(created);
+    }
+
+    @Test
+    void crossedMovesNeverFormACycle() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < 20; round++) {
+                FileInfo a = folder("a" + round, null);
+                FileInfo b = folder("b" + round, null);
+                CyclicBarrier barrier = new CyclicBarrier(2);
+                Future<BusinessException> aIntoB = executor.submit(() -> moveAfter(barrier, a.getId(), b.getId()));
+                Future<BusinessException> bIntoA = executor.submit(() -> moveAfter(barrier, b.getId(), a.getId()));
+
+                List<BusinessException> failures = new ArrayList<>();
+                for (Future<BusinessException> result : List.of(aIntoB, bIntoA)) {
+                    BusinessException failure = result.get(30, TimeUnit.SECONDS);
+                    if (failure != null) {
+                        failures.add(failure);
+                    }
+                }
+                // 先提交的一方成功，另一方在锁后读到最新的祖先路径，发现目标已在自身子树中
+                assertThat(failures).hasSize(1);
+                assertThat(failures.get(0).getCode()).isEqualTo(ErrorCode.INVALID_MOVE_TARGET.getCode());
+                assertTreeConsistent();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void concurrentRandomMovesKeepAncestorPathsConsistent() throws Exception {
+        List<Long> folders = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            folders.add(folder("f" + i, null).getId());
+        }
+        for (int i = 0; i < 8; i++) {
+            folders.add(folder("g" + i, fileInfoRepository.findById(folders.get(i)).orElseThrow()).getId());
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> workers = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                Random random = new Random(t);
+                workers.add(executor.submit(() -> {
+                    for (int i = 0; i < 30; i++) {
+                        Long moved = folders.get(random.nextInt(folders.size()));
+                        int targetIndex = random.nextInt(folders.size() + 1);
+                        Long target = targetIndex == folders.size() ? null : folders.get(targetIndex);
+                        BusinessException failure = move(moved, target);
+                        if (failure != null) {
+                            assertThat(failure.getCode()).isEqualTo(ErrorCode.INVALID_MOVE_TARGET.getCode());
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> worker : workers) {
+                worker.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertTreeConsistent();
+    }
+
+    private BusinessException moveAfter(CyclicBarrier barrier, Long fileId, Long targetParentId) throws Exception {
+        barrier.await(10, TimeUnit.SECONDS);
+        return move(fileId, targetParentId);
+    }
+
+    /**
+     * 以当前用户身份在事务中移动，返回业务异常，成功时返回 null
+     */
+    private BusinessException move(Long fileId, Long targetParentId) {
+        try (MockedStatic<UserContext> context = mockStatic(UserContext.class)) {
+            context.when(UserContext::getCurrentUserId).thenReturn(user.getId());
+            transactionTemplate.executeWithoutResult(status -> fileService.moveFile(fileId, targetParentId));
+            return null;
+        } catch (BusinessException e) {
+            return e;
+        }
+    }
+
+    private FileInfo folder(String name, FileInfo parent) {
+        FileInfo folder = new FileInfo();
+        folder.setFilename(name);
+        folder.setOriginalFilename(name);
+        folder.setPath("");
+        folder.setFileSize(0L);
+        folder.setIsFolder(true);
+        folder.setUser(user);
+        folder.setParentId(parent != null ? parent.getId() : null);
+        folder.setAncestorPath(parent != null ? parent.childAncestorPath() : "/");
+        return fileInfoRepository.save(folder);
+    }
+
+    /**
+     * 每一项沿 parent_id 能走到根，且祖先路径等于沿途的ID
+     */
+    private void assertTreeConsistent() {
+        Map<Long, Long> parents = new HashMap<>();
+        Map<Long, String> ancestorPaths = new HashMap<>();
+        jdbcTemplate.query("SELECT id, parent_id, ancestor_path FROM t_file_info", rs -> {
+            long id = rs.getLong("id");
+            long parentId = rs.getLong("parent_id");
+            parents.put(id, rs.wasNull() ? null : parentId);
+            ancestorPaths.put(id, rs.getString("ancestor_path"));
+        });
+
+        for (Long id : parents.keySet()) {
+            Set<Long> visited = new HashSet<>();
+            StringBuilder expected = new StringBuilder();
+            Long current = parents.get(id);
+            while (current != null) {
+                assertThat(visited.add(current)).as("cycle through %s", id).isTrue();
+                expected.insert(0, current + "/");
+                current = parents.get(current);
+            }
+            assertThat(ancestorPaths.get(id)).as("ancestor path of %s", id).isEqualTo("/" + expected);
+        }
+    }
+}
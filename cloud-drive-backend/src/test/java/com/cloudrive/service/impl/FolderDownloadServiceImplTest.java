@@ -0,0 +1,170 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.config.properties.FolderDownloadProperties;
+import com.cloudrive.config.properties.ListingQueryProperties;
+import com.cloudrive.mapper.FileMapperImpl;
+import com.cloudrive.model.entity.FileInfo;
+import com.cloudrive.model.entity.User;
+import com.cloudrive.model.vo.FileDownloadVO;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.repository.UserRepository;
+import com.cloudrive.service.FileListCacheService;
+import com.cloudrive.service.StorageService;
+import com.cloudrive.service.StorageServiceFactory;
+import com.cloudrive.service.UploadSpoolService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 文件夹打包下载分页遍历子树
+ */
+@DataJpaTest(properties = {
+        "spring.datasource.url=jdbc:h2:mem:folder_download;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.show-sql=false"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(ListingQueryProperties.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class FolderDownloadServiceImplTest {
+
+    @MockBean
+    private FileListCacheService fileListCacheService;
+
+    @Autowired
+    private FileInfoRepository fileInfoRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path spoolDir;
+
+    private FolderDownloadServiceImpl folderDownloadService;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM t_file_info");
+        jdbcTemplate.update("DELETE FROM t_user");
+
+        StorageService storageService = mock(StorageService.class);
+        when(storageService.downloadFileStream(anyString()))
+                .thenAnswer(invocation -> new ByteArrayInputStream(invocation.<String>getArgument(0).getBytes(StandardCharsets.UTF_8)));
+        StorageServiceFactory storageServiceFactory = mock(StorageServiceFactory.class);
+        when(storageServiceFactory.getStorageService()).thenReturn(storageService);
+        UploadSpoolService uploadSpoolService = mock(UploadSpoolService.class);
+        when(uploadSpoolService.allocate(anyLong())).thenAnswer(invocation -> Files.createTempFile(spoolDir, "zip", ".part").toFile());
+        doAnswer(invocation -> Files.deleteIfExists(invocation.<File>getArgument(0).toPath()))
+                .when(uploadSpoolService).release(any(File.class));
+
+        // 每页两条，遍历跨越多页
+        FolderDownloadProperties properties = new FolderDownloadProperties();
+        properties.setSubtreePageSize(2);
+        folderDownloadService = new FolderDownloadServiceImpl(fileInfoRepository, new FileMapperImpl(), storageServiceFactory,
+                uploadSpoolService, properties, Runnable::run);
+
+        User created = new User();
+        created.setUsername("zipper");
+        created.setPassword("secret");
+        created.setEmail("zipper@example.com");
+        created.setStatus(1);
+        user = userRepository.save(created);
+    }
+
+    @Test
+    void zipsWholeSubtreeAcrossPages() throws IOException {
+        FileInfo root = item("root", null, true);
+        FileInfo outside = item("outside", null, true);
+        item("leak.txt", outside, false);
+        Map<String, String> expected = new HashMap<>();
+
+        // 十几个兄弟文件夹使ID跨过位数，祖先路径的字典序与数值顺序不同
+        for (int i = 0; i < 12; i++) {
+            FileInfo folder = item("f" + i, root, true);
+            FileInfo file = item("file" + i + ".txt", folder, false);
+            expected.put("f" + i + "/", null);
+            expected.put("f" + i + "/file" + i + ".txt", file.getPath());
+        }
+        FileInfo docs = item("docs", root, true);
+        FileInfo sub = item("sub", docs, true);
+        FileInfo deep = item("deep.txt", sub, false);
+        FileInfo first = item("a.txt", root, false);
+        FileInfo second = item("a.txt", root, false);
+        FileInfo removed = item("removed.txt", root, false);
+        removed.setIsDeleted(true);
+        fileInfoRepository.save(removed);
+        expected.put("docs/", null);
+        expected.put("docs/sub/", null);
+        expected.put("docs/sub/deep.txt", deep.getPath());
+        expected.put("a.txt", first.getPath());
+        expected.put("a (1).txt", second.getPath());
+
+        FileDownloadVO folder = new FileDownloadVO();
+        folder.setFileId(root.getId());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        folderDownloadService.writeZip(folder, user.getId(), out);
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry()) {
+                String content = entry.isDirectory() ? null : new String(zip.readAllBytes(), StandardCharsets.UTF_8);
+                assertThat(entries.containsKey(entry.getName())).as("duplicate entry %s", entry.getName()).isFalse();
+                entries.put(entry.getName(), content);
+            }
+        }
+        assertThat(entries).isEqualTo(expected);
+        assertThat(spoolDir).isEmptyDirectory();
+    }
+
+    private FileInfo item(String name, FileInfo parent, boolean isFolder) {
+        FileInfo item = new FileInfo();
+        item.setFilename(name);
+        item.setOriginalFilename(name);
+        item.setPath(isFolder ? "" : "user_" + user.getId() + "/" + name + "-" + System.nanoTime());
+        item.setFileSize(0L);
+        item.setIsFolder(isFolder);
+        item.setUser(user);
+        item.setParentId(parent != null ? parent.getId() : null);
+        item.setAncestorPath(parent != null ? parent.childAncestorPath() : "/");
+        return fileInfoRepository.save(item);
+    }
+}
@@ -0,0 +1,64 @@
+package com.cloudrive.service.impl;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.config.properties.QuotaProperties;
+import com.cloudrive.model.entity.User;
+import com.cloudrive.repository.FileInfoRepository;
+import com.cloudrive.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class QuotaServiceImplTest {
+
+    private FileInfoRepository fileInfoRepository;
+    private UserRepository userRepository;
+    private QuotaProperties quotaProperties;
+    private QuotaServiceImpl quotaService;
+
+    @BeforeEach
+    void setUp() {
+        fileInfoRepository = mock(FileInfoRepository.class);
+        userRepository = mock(UserRepository.class);
+        quotaProperties = new QuotaProperties();
+        quotaProperties.setPerUser(DataSize.ofBytes(100));
+        quotaService = new QuotaServiceImpl(fileInfoRepository, quotaProperties, userRepository);
+        when(userRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(new User()));
+        when(fileInfoRepository.sumFileSizeByUserId(1L)).thenReturn(60L);
+    }
+
+    @Test
+    void commitCheckLocksUserBeforeSummingUsage() {
+        assertThatCode(() -> quotaService.checkQuotaForCommit(1L, 40)).doesNotThrowAnyException();
+
+        InOrder order = inOrder(userRepository, fileInfoRepository);
+        order.verify(userRepository).findByIdForUpdate(1L);
+        order.verify(fileInfoRepository).sumFileSizeByUserId(1L);
+    }
+
+    @Test
+    void commitCheckRejectsActualSizeBeyondQuota() {
+        assertThatThrownBy(() -> quotaService.checkQuotaForCommit(1L, 41))
+                .isInstanceOf(BusinessException.class)
+                .extracting("code").isEqualTo(ErrorCode.QUOTA_EXCEEDED.getCode());
+    }
+
+    @Test
+    void unlimitedQuotaSkipsLock() {
+        quotaProperties.setPerUser(DataSize.ofBytes(0));
+        quotaService.checkQuotaForCommit(1L, Long.MAX_VALUE);
+
+        verifyNoInteractions(userRepository, fileInfoRepository);
+    }
+}
@@ -0,0 +1,99 @@
+package com.cloudrive.task;
+
+import com.cloudrive.common.enums.ErrorCode;
+import com.cloudrive.common.exception.BusinessException;
+import com.cloudrive.config.properties.UploadFinalizeProperties;
+import com.cloudrive.redis.UploadFinalizeStreamRedis;
+import com.cloudrive.service.FileService;
+import com.cloudrive.service.UploadFinalizeService;
+import com.cloudrive.service.UploadProgressService;
+import com.cloudrive.service.UploadSpoolService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.redisson.api.StreamMessageId;
+import org.springframework.dao.CannotAcquireLockException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UploadFinalizeWorkerTest {
+
+    private static final StreamMessageId ID = new StreamMessageId(1, 0);
+
+    @TempDir
+    Path spoolDir;
+
+    private UploadFinalizeStreamRedis streamRedis;
+    private FileService fileService;
+    private UploadSpoolService spoolService;
+    private UploadFinalizeWorker worker;
+    private File stagedFile;
+    private Map<String, String> job;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        streamRedis = mock(UploadFinalizeStreamRedis.class);
+        fileService = mock(FileService.class);
+        spoolService = mock(UploadSpoolService.class);
+        worker = new UploadFinalizeWorker(streamRedis, new UploadFinalizeProperties(), fileService, mock(UploadProgressService.class),
+                spoolService, new SimpleMeterRegistry());
+
+        stagedFile = Files.createFile(spoolDir.resolve("node_1.staged")).toFile();
+        when(spoolService.resolveStaged("node_1.staged")).thenReturn(stagedFile);
+        job = Map.of(UploadFinalizeService.FIELD_TASK_ID, "task-1",
+                UploadFinalizeService.FIELD_STAGED_FILE, "node_1.staged",
+                UploadFinalizeService.FIELD_FILENAME, "a.txt",
+                UploadFinalizeService.FIELD_FILE_SIZE, "1",
+                UploadFinalizeService.FIELD_USER_ID, "7");
+    }
+
+    @Test
+    void acksAndDiscardsOnSuccess() {
+        worker.process(ID, job);
+
+        verify(fileService).uploadFileWithProgressFromPath(stagedFile.getAbsolutePath(), "a.txt", 1, null, "task-1", 7L);
+        verify(spoolService).discardStaged(stagedFile);
+        verify(streamRedis).ack(ID);
+    }
+
+    @Test
+    void acksPermanentBusinessFailure() {
+        doThrow(new BusinessException(ErrorCode.FILE_NOT_FOUND))
+                .when(fileService).uploadFileWithProgressFromPath(anyString(), anyString(), anyLong(), any(), anyString(), any());
+
+        worker.process(ID, job);
+
+        verify(spoolService).discardStaged(stagedFile);
+        verify(streamRedis).ack(ID);
+    }
+
+    @Test
+    void leavesTransientFailurePendingForRedelivery() {
+        doThrow(new CannotAcquireLockException("lock wait timeout"))
+                .when(fileService).uploadFileWithProgressFromPath(anyString(), anyString(), anyLong(), any(), anyString(), any());
+        worker.process(ID, job);
+
+        doThrow(new BusinessException(ErrorCode.OSS_UPLOAD_FAILED))
+                .when(fileService).uploadFileWithProgressFromPath(anyString(), anyString(), anyLong(), any(), anyString(), any());
+        worker.process(ID, job);
+
+        verify(spoolService, never()).discardStaged(any());
+        verify(streamRedis, never()).ack(any());
+        assertThat(stagedFile).exists();
+    }
+}